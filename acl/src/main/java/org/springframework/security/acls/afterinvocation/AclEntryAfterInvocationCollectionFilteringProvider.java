@@ -16,8 +16,15 @@
 
 package org.springframework.security.acls.afterinvocation;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -26,9 +33,14 @@ import org.springframework.core.log.LogMessage;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.AuthorizationServiceException;
 import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.acls.model.Acl;
 import org.springframework.security.acls.model.AclService;
+import org.springframework.security.acls.model.NotFoundException;
+import org.springframework.security.acls.model.ObjectIdentity;
 import org.springframework.security.acls.model.Permission;
+import org.springframework.security.acls.model.Sid;
 import org.springframework.security.core.Authentication;
+import org.springframework.util.Assert;
 
 /**
  * <p>
@@ -58,6 +70,13 @@ import org.springframework.security.core.Authentication;
  * <code>Collection</code> will be returned. If the provided <code>returnObject</code> is
  * not a <code>Collection</code>, an {@link AuthorizationServiceException} will be thrown.
  * <p>
+ * By default the ACL of each element is read with a separate
+ * {@link AclService#readAclById(ObjectIdentity, List)} call. When a
+ * {@link #setPrefetchBatchSize(int) prefetch batch size} is set, the object identities
+ * of all elements are collected first and their ACLs are read in batches with
+ * {@link AclService#readAclsById(List, List)}, optionally in parallel on a
+ * {@link #setPrefetchExecutor(Executor) prefetch executor}.
+ * <p>
  * All comparisons and prefixes are case sensitive.
  *
  * @author Ben Alex
@@ -67,6 +86,10 @@ public class AclEntryAfterInvocationCollectionFilteringProvider extends Abstract
 
 	protected static final Log logger = LogFactory.getLog(AclEntryAfterInvocationCollectionFilteringProvider.class);
 
+	private int prefetchBatchSize;
+
+	private Executor prefetchExecutor;
+
 	public AclEntryAfterInvocationCollectionFilteringProvider(AclService aclService,
 			List<Permission> requirePermission) {
 		super(aclService, "AFTER_ACL_COLLECTION_READ", requirePermission);
@@ -88,6 +111,10 @@ public class AclEntryAfterInvocationCollectionFilteringProvider extends Abstract
 
 			// Need to process the Collection for this invocation
 			Filterer filterer = getFilterer(returnedObject);
+			if (this.prefetchBatchSize > 0) {
+				filterPrefetched(authentication, filterer);
+				return filterer.getFilteredObject();
+			}
 
 			// Locate unauthorised Collection elements
 			for (Object domainObject : filterer) {
@@ -106,6 +133,123 @@ public class AclEntryAfterInvocationCollectionFilteringProvider extends Abstract
 		return returnedObject;
 	}
 
+	private void filterPrefetched(Authentication authentication, Filterer<Object> filterer) {
+		List<Object> domainObjects = new ArrayList<>();
+		List<ObjectIdentity> objectIdentities = new ArrayList<>();
+		for (Object domainObject : filterer) {
+			// Ignore nulls or entries which aren't instances of the configured domain
+			// object class
+			if (domainObject == null || !getProcessDomainObjectClass().isAssignableFrom(domainObject.getClass())) {
+				continue;
+			}
+			domainObjects.add(domainObject);
+			objectIdentities.add(this.objectIdentityRetrievalStrategy.getObjectIdentity(domainObject));
+		}
+		if (domainObjects.isEmpty()) {
+			return;
+		}
+		List<Sid> sids = this.sidRetrievalStrategy.getSids(authentication);
+		Map<ObjectIdentity, Acl> acls = readAcls(new ArrayList<>(new LinkedHashSet<>(objectIdentities)), sids);
+		for (int i = 0; i < domainObjects.size(); i++) {
+			Object domainObject = domainObjects.get(i);
+			if (!isGranted(acls.get(objectIdentities.get(i)), sids)) {
+				filterer.remove(domainObject);
+				logger.debug(LogMessage.of(() -> "Principal is NOT authorised for element: " + domainObject));
+			}
+		}
+	}
+
+	private boolean isGranted(Acl acl, List<Sid> sids) {
+		if (acl == null) {
+			return false;
+		}
+		try {
+			return acl.isGranted(this.requirePermission, sids, false);
+		}
+		catch (NotFoundException ex) {
+			return false;
+		}
+	}
+
+	private Map<ObjectIdentity, Acl> readAcls(List<ObjectIdentity> objectIdentities, List<Sid> sids) {
+		List<List<ObjectIdentity>> batches = new ArrayList<>();
+		for (int i = 0; i < objectIdentities.size(); i += this.prefetchBatchSize) {
+			batches.add(objectIdentities.subList(i, Math.min(i + this.prefetchBatchSize, objectIdentities.size())));
+		}
+		Map<ObjectIdentity, Acl> acls = new HashMap<>();
+		if (this.prefetchExecutor == null || batches.size() == 1) {
+			for (List<ObjectIdentity> batch : batches) {
+				acls.putAll(readBatch(batch, sids));
+			}
+			return acls;
+		}
+		List<CompletableFuture<Map<ObjectIdentity, Acl>>> futures = new ArrayList<>();
+		for (List<ObjectIdentity> batch : batches) {
+			futures.add(CompletableFuture.supplyAsync(() -> readBatch(batch, sids), this.prefetchExecutor));
+		}
+		for (CompletableFuture<Map<ObjectIdentity, Acl>> future : futures) {
+			try {
+				acls.putAll(future.join());
+			}
+			catch (CompletionException ex) {
+				if (ex.getCause() instanceof RuntimeException cause) {
+					throw cause;
+				}
+				throw ex;
+			}
+		}
+		return acls;
+	}
+
+	private Map<ObjectIdentity, Acl> readBatch(List<ObjectIdentity> batch, List<Sid> sids) {
+		try {
+			return this.aclService.readAclsById(batch, sids);
+		}
+		catch (NotFoundException ex) {
+			// At least one element has no ACL, so read the batch one by one. ACLs found
+			// by the failed batch read are usually in the AclCache by now.
+			logger.debug("Not every element of the batch has an ACL, reading ACLs one by one");
+			Map<ObjectIdentity, Acl> acls = new HashMap<>();
+			for (ObjectIdentity objectIdentity : batch) {
+				try {
+					acls.put(objectIdentity, this.aclService.readAclById(objectIdentity, sids));
+				}
+				catch (NotFoundException notFound) {
+					// denied, like in hasPermission
+				}
+			}
+			return acls;
+		}
+	}
+
+	/**
+	 * Sets the number of object identities whose ACLs are read with a single
+	 * {@link AclService#readAclsById(List, List)} call. Usually this should be the batch
+	 * size of the underlying
+	 * {@link org.springframework.security.acls.jdbc.BasicLookupStrategy}, which is 50 by
+	 * default. The default is 0, which reads the ACL of each element separately.
+	 * @param prefetchBatchSize the batch size, or 0 to disable prefetching
+	 * @since 6.1
+	 */
+	public void setPrefetchBatchSize(int prefetchBatchSize) {
+		Assert.isTrue(prefetchBatchSize >= 0, "prefetchBatchSize cannot be negative");
+		this.prefetchBatchSize = prefetchBatchSize;
+	}
+
+	/**
+	 * Sets the {@link Executor} used to read the batches of a prefetch in parallel. The
+	 * executor should be bounded, for example to the size of the connection pool that
+	 * the {@link AclService} uses. By default batches are read sequentially on the
+	 * calling thread. Only used if a {@link #setPrefetchBatchSize(int) prefetch batch
+	 * size} is set.
+	 * @param prefetchExecutor the {@link Executor} to use
+	 * @since 6.1
+	 */
+	public void setPrefetchExecutor(Executor prefetchExecutor) {
+		Assert.notNull(prefetchExecutor, "prefetchExecutor cannot be null");
+		this.prefetchExecutor = prefetchExecutor;
+	}
+
 	private Filterer getFilterer(Object returnedObject) {
 		if (returnedObject instanceof Collection) {
 			return new CollectionFilterer((Collection) returnedObject);
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.domain;
+
+import org.springframework.context.ApplicationEvent;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.util.Assert;
+
+/**
+ * Published when the ACL of an {@link ObjectIdentity}, or the ACL of one of its parents,
+ * has been updated or deleted, so that cached copies of it are stale.
+ * <p>
+ * Applications running several nodes can forward these events to the other nodes and
+ * publish them there, so that their {@link NearCacheAclCache}s evict the ACL too.
+ *
+ * @since 6.1
+ * @see org.springframework.security.acls.jdbc.JdbcMutableAclService
+ */
+public class AclChangedEvent extends ApplicationEvent {
+
+	/**
+	 * Create a new {@link AclChangedEvent}
+	 * @param objectIdentity the {@link ObjectIdentity} whose ACL is stale
+	 */
+	public AclChangedEvent(ObjectIdentity objectIdentity) {
+		super(objectIdentity);
+		Assert.notNull(objectIdentity, "objectIdentity cannot be null");
+	}
+
+	/**
+	 * Get the {@link ObjectIdentity} whose ACL is stale
+	 * @return the {@link ObjectIdentity}
+	 */
+	public ObjectIdentity getObjectIdentity() {
+		return (ObjectIdentity) getSource();
+	}
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.domain;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.security.acls.model.AccessControlEntry;
+import org.springframework.security.acls.model.Sid;
+
+/**
+ * An index of the entries of an {@link AclImpl} keyed by {@link Sid} and permission
+ * mask, holding the first entry in ACL order for each combination.
+ *
+ * @since 6.1
+ * @see IndexedPermissionGrantingStrategy
+ */
+final class AclEntryIndex {
+
+	private final List<AccessControlEntry> source;
+
+	private final int size;
+
+	private final Map<Sid, SidEntries> entries = new HashMap<>();
+
+	AclEntryIndex(List<AccessControlEntry> source) {
+		this.source = source;
+		this.size = source.size();
+		for (AccessControlEntry ace : source) {
+			this.entries.computeIfAbsent(ace.getSid(), (sid) -> new SidEntries()).add(ace);
+		}
+	}
+
+	/**
+	 * Whether this index was built from the given list in its current state
+	 */
+	boolean isIndexOf(List<AccessControlEntry> aces) {
+		return this.source == aces && this.size == aces.size();
+	}
+
+	/**
+	 * Return the first entry for the given {@link Sid} whose permission has exactly the
+	 * given mask, or {@code null} if there is none
+	 */
+	AccessControlEntry getEntry(Sid sid, int mask) {
+		SidEntries entries = this.entries.get(sid);
+		return (entries != null) ? entries.get(mask) : null;
+	}
+
+	private static final class SidEntries {
+
+		private final Map<Integer, AccessControlEntry> byMask = new HashMap<>();
+
+		// all masks of the entries combined, to skip the lookup for unrelated masks
+		private int combinedMask;
+
+		private void add(AccessControlEntry ace) {
+			int mask = ace.getPermission().getMask();
+			this.byMask.putIfAbsent(mask, ace);
+			this.combinedMask |= mask;
+		}
+
+		private AccessControlEntry get(int mask) {
+			if ((mask & ~this.combinedMask) != 0) {
+				return null;
+			}
+			return this.byMask.get(mask);
+		}
+
+	}
+
+}
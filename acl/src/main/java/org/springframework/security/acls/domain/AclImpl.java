@@ -49,6 +49,8 @@ public class AclImpl implements Acl, MutableAcl, AuditableAcl, OwnershipAcl {
 
 	private final List<AccessControlEntry> aces = new ArrayList<>();
 
+	private transient volatile AclEntryIndex entryIndex;
+
 	private ObjectIdentity objectIdentity;
 
 	private Serializable id;
@@ -127,6 +129,7 @@ public class AclImpl implements Acl, MutableAcl, AuditableAcl, OwnershipAcl {
 		verifyAceIndexExists(aceIndex);
 		synchronized (this.aces) {
 			this.aces.remove(aceIndex);
+			this.entryIndex = null;
 		}
 	}
 
@@ -156,6 +159,7 @@ public class AclImpl implements Acl, MutableAcl, AuditableAcl, OwnershipAcl {
 		AccessControlEntryImpl ace = new AccessControlEntryImpl(null, this, sid, permission, granting, false, false);
 		synchronized (this.aces) {
 			this.aces.add(atIndexLocation, ace);
+			this.entryIndex = null;
 		}
 	}
 
@@ -166,6 +170,22 @@ public class AclImpl implements Acl, MutableAcl, AuditableAcl, OwnershipAcl {
 		return new ArrayList<>(this.aces);
 	}
 
+	/**
+	 * Return an index of the entries of this ACL, building it if the entries changed
+	 * since it was last built
+	 */
+	AclEntryIndex getEntryIndex() {
+		AclEntryIndex entryIndex = this.entryIndex;
+		if (entryIndex != null && entryIndex.isIndexOf(this.aces)) {
+			return entryIndex;
+		}
+		synchronized (this.aces) {
+			entryIndex = new AclEntryIndex(this.aces);
+			this.entryIndex = entryIndex;
+			return entryIndex;
+		}
+	}
+
 	@Override
 	public Serializable getId() {
 		return this.id;
@@ -261,6 +281,7 @@ public class AclImpl implements Acl, MutableAcl, AuditableAcl, OwnershipAcl {
 		synchronized (this.aces) {
 			AccessControlEntryImpl ace = (AccessControlEntryImpl) this.aces.get(aceIndex);
 			ace.setPermission(permission);
+			this.entryIndex = null;
 		}
 	}
 
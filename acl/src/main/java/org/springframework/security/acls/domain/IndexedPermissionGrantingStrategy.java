@@ -0,0 +1,105 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.domain;
+
+import java.util.List;
+
+import org.springframework.security.acls.model.AccessControlEntry;
+import org.springframework.security.acls.model.Acl;
+import org.springframework.security.acls.model.NotFoundException;
+import org.springframework.security.acls.model.Permission;
+import org.springframework.security.acls.model.PermissionGrantingStrategy;
+import org.springframework.security.acls.model.Sid;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link PermissionGrantingStrategy} with the same semantics as
+ * {@link DefaultPermissionGrantingStrategy}, that looks up entries of an {@link AclImpl}
+ * through an index keyed by {@link Sid} and permission mask rather than scanning every
+ * entry for each permission and SID. This makes a decision independent of the number of
+ * entries in the ACL, which matters for ACLs with thousands of entries.
+ *
+ * <p>
+ * The first matching entry in ACL order still decides for each permission and SID, and
+ * the parent ACL is consulted as before if no entry matches. Like
+ * {@link DefaultPermissionGrantingStrategy}, permission masks must match exactly, so
+ * applications that override {@link DefaultPermissionGrantingStrategy#isGranted} to
+ * compare masks differently should keep using it. ACLs that are not an {@link AclImpl}
+ * are evaluated by {@link DefaultPermissionGrantingStrategy}.
+ *
+ * @since 6.1
+ */
+public final class IndexedPermissionGrantingStrategy implements PermissionGrantingStrategy {
+
+	private final transient AuditLogger auditLogger;
+
+	private final DefaultPermissionGrantingStrategy delegate;
+
+	/**
+	 * Creates an instance with the logger which will be used to record granting and
+	 * denial of requested permissions.
+	 */
+	public IndexedPermissionGrantingStrategy(AuditLogger auditLogger) {
+		Assert.notNull(auditLogger, "auditLogger cannot be null");
+		this.auditLogger = auditLogger;
+		this.delegate = new DefaultPermissionGrantingStrategy(auditLogger);
+	}
+
+	/**
+	 * Determines authorization in the same way as
+	 * {@link DefaultPermissionGrantingStrategy#isGranted(Acl, List, List, boolean)}.
+	 */
+	@Override
+	public boolean isGranted(Acl acl, List<Permission> permission, List<Sid> sids, boolean administrativeMode)
+			throws NotFoundException {
+		if (!(acl instanceof AclImpl aclImpl)) {
+			return this.delegate.isGranted(acl, permission, sids, administrativeMode);
+		}
+		AclEntryIndex index = aclImpl.getEntryIndex();
+		AccessControlEntry firstRejection = null;
+		for (Permission p : permission) {
+			for (Sid sid : sids) {
+				AccessControlEntry ace = index.getEntry(sid, p.getMask());
+				if (ace == null) {
+					continue;
+				}
+				if (ace.isGranting()) {
+					if (!administrativeMode) {
+						this.auditLogger.logIfNeeded(true, ace);
+					}
+					return true;
+				}
+				// this permission is 100% rejected for this SID, try the next permission
+				if (firstRejection == null) {
+					firstRejection = ace;
+				}
+				break;
+			}
+		}
+		if (firstRejection != null) {
+			if (!administrativeMode) {
+				this.auditLogger.logIfNeeded(false, firstRejection);
+			}
+			return false;
+		}
+		if (acl.isEntriesInheriting() && (acl.getParentAcl() != null)) {
+			return acl.getParentAcl().isGranted(permission, sids, false);
+		}
+		throw new NotFoundException("Unable to locate a matching ACE for passed permissions and SIDs");
+	}
+
+}
@@ -0,0 +1,476 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.domain;
+
+import java.io.Serializable;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.log.LogMessage;
+import org.springframework.security.acls.model.AclCache;
+import org.springframework.security.acls.model.MutableAcl;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.util.Assert;
+
+/**
+ * An {@link AclCache} that keeps a bounded, in-process copy of the ACLs of another
+ * {@link AclCache}, such as a {@link SpringCacheBasedAclCache} backed by a remote cache.
+ * Local entries are evicted when the cache exceeds its {@link #setMaximumSize(int)
+ * maximum size}, least recently used first, or after their {@link #setTimeToLive(Duration)
+ * time to live}.
+ * <p>
+ * When an ACL is neither in the local tier nor in the delegate, the first caller is told
+ * that it is missing and is expected to load and {@link #putInCache(MutableAcl) put} it,
+ * as {@link org.springframework.security.acls.jdbc.BasicLookupStrategy} does. Other
+ * callers asking for the same {@link ObjectIdentity} in the meantime wait up to the
+ * {@link #setLoadTimeout(Duration) load timeout} for that ACL instead of loading it too,
+ * unless the loading caller is itself waiting for one of their ACLs, so that two lookups
+ * of overlapping object identities cannot block each other. Once its lookup is done, the
+ * loading caller is expected to call {@link #completeLoads(Collection)}, so that callers
+ * waiting for an ACL it did not find are told that it is missing right away.
+ * <p>
+ * Evictions are applied to both tiers. As the local tier is not shared between nodes,
+ * this cache also listens for {@link AclChangedEvent}s, which
+ * {@link org.springframework.security.acls.jdbc.JdbcMutableAclService} publishes on
+ * updates and deletes and which applications can forward to their other nodes.
+ * <p>
+ * If an {@link #setObservationRegistry(ObservationRegistry) ObservationRegistry} is set,
+ * lookups are observed, along with their outcome.
+ *
+ * @since 6.1
+ */
+public final class NearCacheAclCache implements AclCache, ApplicationListener<AclChangedEvent> {
+
+	private static final String OBSERVATION_NAME = "spring.security.acl.cache";
+
+	private static final String RESULT = "result";
+
+	private static final Log logger = LogFactory.getLog(NearCacheAclCache.class);
+
+	private final AclCache delegate;
+
+	private final Object monitor = new Object();
+
+	private final LinkedHashMap<ObjectIdentity, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private final Map<Serializable, ObjectIdentity> identities = new HashMap<>();
+
+	private final Map<ObjectIdentity, Load> loads = new ConcurrentHashMap<>();
+
+	private final Map<Thread, Load> waiting = new HashMap<>();
+
+	private int maximumSize = 1000;
+
+	private Duration timeToLive = Duration.ofMinutes(5);
+
+	private Duration loadTimeout = Duration.ofSeconds(1);
+
+	private Clock clock = Clock.systemUTC();
+
+	private ObservationRegistry observationRegistry = ObservationRegistry.NOOP;
+
+	/**
+	 * Create a new {@link NearCacheAclCache}
+	 * @param delegate the {@link AclCache} to keep a local copy of
+	 */
+	public NearCacheAclCache(AclCache delegate) {
+		Assert.notNull(delegate, "delegate cannot be null");
+		this.delegate = delegate;
+	}
+
+	@Override
+	public MutableAcl getFromCache(ObjectIdentity objectIdentity) {
+		Assert.notNull(objectIdentity, "ObjectIdentity required");
+		Observation observation = Observation.start(OBSERVATION_NAME, this.observationRegistry);
+		try {
+			return getFromCache(objectIdentity, observation);
+		}
+		catch (RuntimeException ex) {
+			observation.error(ex);
+			throw ex;
+		}
+		finally {
+			observation.stop();
+		}
+	}
+
+	@Override
+	public MutableAcl getFromCache(Serializable pk) {
+		Assert.notNull(pk, "Primary key (identifier) required");
+		Observation observation = Observation.start(OBSERVATION_NAME, this.observationRegistry);
+		try {
+			return getFromCache(pk, observation);
+		}
+		catch (RuntimeException ex) {
+			observation.error(ex);
+			throw ex;
+		}
+		finally {
+			observation.stop();
+		}
+	}
+
+	@Override
+	public void putInCache(MutableAcl acl) {
+		Assert.notNull(acl, "Acl required");
+		Assert.notNull(acl.getObjectIdentity(), "ObjectIdentity required");
+		Assert.notNull(acl.getId(), "ID required");
+		this.delegate.putInCache(acl);
+		putLocal(acl);
+		Load load = this.loads.remove(acl.getObjectIdentity());
+		if (load != null) {
+			load.acl.complete(acl);
+		}
+	}
+
+	@Override
+	public void evictFromCache(Serializable pk) {
+		Assert.notNull(pk, "Primary key (identifier) required");
+		ObjectIdentity objectIdentity;
+		synchronized (this.monitor) {
+			objectIdentity = this.identities.get(pk);
+		}
+		this.delegate.evictFromCache(pk);
+		if (objectIdentity != null) {
+			evictLocal(objectIdentity);
+		}
+	}
+
+	@Override
+	public void evictFromCache(ObjectIdentity objectIdentity) {
+		Assert.notNull(objectIdentity, "ObjectIdentity required");
+		this.delegate.evictFromCache(objectIdentity);
+		evictLocal(objectIdentity);
+	}
+
+	@Override
+	public void clearCache() {
+		this.delegate.clearCache();
+		synchronized (this.monitor) {
+			this.entries.clear();
+			this.identities.clear();
+		}
+		for (ObjectIdentity objectIdentity : this.loads.keySet()) {
+			cancelLoad(objectIdentity);
+		}
+	}
+
+	/**
+	 * Evicts the ACL of the {@link AclChangedEvent#getObjectIdentity() object identity}
+	 * from the local tier only, since the node publishing the event already evicted it
+	 * from the delegate.
+	 * @param event the {@link AclChangedEvent}
+	 */
+	@Override
+	public void onApplicationEvent(AclChangedEvent event) {
+		evictLocal(event.getObjectIdentity());
+	}
+
+	/**
+	 * Completes the loads of the given ACLs that the current thread was told are missing,
+	 * so that callers waiting for ACLs that were not {@link #putInCache(MutableAcl) put}
+	 * stop waiting.
+	 * @param objectIdentities the object identities that were looked up
+	 */
+	@Override
+	public void completeLoads(Collection<ObjectIdentity> objectIdentities) {
+		for (ObjectIdentity objectIdentity : objectIdentities) {
+			Load load = this.loads.get(objectIdentity);
+			if (load != null && load.owner == Thread.currentThread() && this.loads.remove(objectIdentity, load)) {
+				load.acl.complete(null);
+			}
+		}
+	}
+
+	/**
+	 * Sets the maximum number of ACLs kept in the local tier. The default is 1000.
+	 * @param maximumSize the maximum number of ACLs
+	 */
+	public void setMaximumSize(int maximumSize) {
+		Assert.isTrue(maximumSize > 0, "maximumSize must be greater than 0");
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * Sets how long an ACL is kept in the local tier. The default is 5 minutes.
+	 * @param timeToLive the time to live
+	 */
+	public void setTimeToLive(Duration timeToLive) {
+		Assert.notNull(timeToLive, "timeToLive cannot be null");
+		Assert.isTrue(!timeToLive.isNegative() && !timeToLive.isZero(), "timeToLive must be positive");
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * Sets how long callers wait for an ACL that another caller is loading, before
+	 * loading it themselves. The default is 1 second.
+	 * @param loadTimeout the load timeout
+	 */
+	public void setLoadTimeout(Duration loadTimeout) {
+		Assert.notNull(loadTimeout, "loadTimeout cannot be null");
+		Assert.isTrue(!loadTimeout.isNegative(), "loadTimeout cannot be negative");
+		this.loadTimeout = loadTimeout;
+	}
+
+	/**
+	 * Sets the {@link Clock} used to expire local entries
+	 * @param clock the {@link Clock} to use
+	 */
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	/**
+	 * Sets the {@link ObservationRegistry} to observe lookups with, as
+	 * {@code spring.security.acl.cache} observations whose {@code result} is one of
+	 * {@code local-hit}, {@code delegate-hit}, {@code coalesced} or {@code miss}.
+	 * @param observationRegistry the {@link ObservationRegistry} to use
+	 */
+	public void setObservationRegistry(ObservationRegistry observationRegistry) {
+		Assert.notNull(observationRegistry, "observationRegistry cannot be null");
+		this.observationRegistry = observationRegistry;
+	}
+
+	int size() {
+		synchronized (this.monitor) {
+			return this.entries.size();
+		}
+	}
+
+	private MutableAcl getFromCache(ObjectIdentity objectIdentity, Observation observation) {
+		MutableAcl acl = getLocal(objectIdentity);
+		if (acl != null) {
+			observation.lowCardinalityKeyValue(RESULT, "local-hit");
+			return acl;
+		}
+		acl = this.delegate.getFromCache(objectIdentity);
+		if (acl != null) {
+			observation.lowCardinalityKeyValue(RESULT, "delegate-hit");
+			putLocal(acl);
+			return acl;
+		}
+		acl = awaitOrLoad(objectIdentity);
+		observation.lowCardinalityKeyValue(RESULT, (acl != null) ? "coalesced" : "miss");
+		return acl;
+	}
+
+	private MutableAcl getFromCache(Serializable pk, Observation observation) {
+		ObjectIdentity objectIdentity;
+		synchronized (this.monitor) {
+			objectIdentity = this.identities.get(pk);
+		}
+		MutableAcl acl = (objectIdentity != null) ? getLocal(objectIdentity) : null;
+		if (acl != null) {
+			observation.lowCardinalityKeyValue(RESULT, "local-hit");
+			return acl;
+		}
+		acl = this.delegate.getFromCache(pk);
+		if (acl != null) {
+			observation.lowCardinalityKeyValue(RESULT, "delegate-hit");
+			putLocal(acl);
+			return acl;
+		}
+		observation.lowCardinalityKeyValue(RESULT, "miss");
+		return null;
+	}
+
+	private MutableAcl getLocal(ObjectIdentity objectIdentity) {
+		Instant now = this.clock.instant();
+		synchronized (this.monitor) {
+			Entry entry = this.entries.get(objectIdentity);
+			if (entry == null) {
+				return null;
+			}
+			if (!now.isBefore(entry.expiresAt)) {
+				removeLocal(objectIdentity);
+				return null;
+			}
+			return entry.acl;
+		}
+	}
+
+	private void putLocal(MutableAcl acl) {
+		if (acl.getParentAcl() instanceof MutableAcl parent) {
+			putLocal(parent);
+		}
+		Entry entry = new Entry(acl, this.clock.instant().plus(this.timeToLive));
+		synchronized (this.monitor) {
+			Entry previous = this.entries.put(acl.getObjectIdentity(), entry);
+			if (previous != null && !previous.acl.getId().equals(acl.getId())) {
+				this.identities.remove(previous.acl.getId());
+			}
+			this.identities.put(acl.getId(), acl.getObjectIdentity());
+			Iterator<Entry> eldest = this.entries.values().iterator();
+			while (this.entries.size() > this.maximumSize) {
+				Entry evicted = eldest.next();
+				eldest.remove();
+				this.identities.remove(evicted.acl.getId());
+			}
+		}
+	}
+
+	private void evictLocal(ObjectIdentity objectIdentity) {
+		synchronized (this.monitor) {
+			removeLocal(objectIdentity);
+		}
+		cancelLoad(objectIdentity);
+	}
+
+	private void removeLocal(ObjectIdentity objectIdentity) {
+		Entry removed = this.entries.remove(objectIdentity);
+		if (removed != null) {
+			this.identities.remove(removed.acl.getId());
+		}
+	}
+
+	private MutableAcl awaitOrLoad(ObjectIdentity objectIdentity) {
+		Load load = new Load(Thread.currentThread());
+		Load existing = this.loads.putIfAbsent(objectIdentity, load);
+		if (existing == null) {
+			return startLoad(objectIdentity, load);
+		}
+		if (existing.isExpired(this.loadTimeout) && this.loads.replace(objectIdentity, existing, load)) {
+			// the previous caller did not find the ACL, or failed to load it
+			existing.acl.complete(null);
+			return startLoad(objectIdentity, load);
+		}
+		if (existing.owner == Thread.currentThread()) {
+			return null;
+		}
+		return await(existing);
+	}
+
+	private MutableAcl startLoad(ObjectIdentity objectIdentity, Load load) {
+		MutableAcl acl = getLocal(objectIdentity);
+		if (acl != null) {
+			// put since this caller looked it up
+			if (this.loads.remove(objectIdentity, load)) {
+				load.acl.complete(acl);
+			}
+			return acl;
+		}
+		if (this.loads.size() > this.maximumSize) {
+			// loads of callers that do not complete them
+			this.loads.entrySet().removeIf((e) -> e.getValue().isExpired(this.loadTimeout));
+		}
+		return null;
+	}
+
+	private MutableAcl await(Load load) {
+		long remainingNanos = this.loadTimeout.toNanos() - (System.nanoTime() - load.startNanos);
+		if (remainingNanos <= 0) {
+			return null;
+		}
+		Thread current = Thread.currentThread();
+		synchronized (this.waiting) {
+			if (isWaitingFor(load.owner, current)) {
+				// neither load would complete before timing out
+				return null;
+			}
+			this.waiting.put(current, load);
+		}
+		try {
+			return load.acl.get(remainingNanos, TimeUnit.NANOSECONDS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		catch (ExecutionException | TimeoutException ex) {
+			logger.debug(LogMessage.format("Gave up waiting for the ACL loaded by %s", load.owner.getName()));
+			return null;
+		}
+		finally {
+			synchronized (this.waiting) {
+				this.waiting.remove(current);
+			}
+		}
+	}
+
+	/**
+	 * Whether the thread waits for a load of the owner, directly or through the owners
+	 * of the loads that it waits for
+	 */
+	private boolean isWaitingFor(Thread thread, Thread owner) {
+		Thread next = thread;
+		for (int i = 0; next != null && i <= this.waiting.size(); i++) {
+			if (next == owner) {
+				return true;
+			}
+			Load load = this.waiting.get(next);
+			next = (load != null) ? load.owner : null;
+		}
+		return false;
+	}
+
+	private void cancelLoad(ObjectIdentity objectIdentity) {
+		Load load = this.loads.remove(objectIdentity);
+		if (load != null) {
+			load.acl.complete(null);
+		}
+	}
+
+	private static final class Entry {
+
+		private final MutableAcl acl;
+
+		private final Instant expiresAt;
+
+		private Entry(MutableAcl acl, Instant expiresAt) {
+			this.acl = acl;
+			this.expiresAt = expiresAt;
+		}
+
+	}
+
+	private static final class Load {
+
+		private final Thread owner;
+
+		private final long startNanos = System.nanoTime();
+
+		private final CompletableFuture<MutableAcl> acl = new CompletableFuture<>();
+
+		private Load(Thread owner) {
+			this.owner = owner;
+		}
+
+		private boolean isExpired(Duration timeout) {
+			return System.nanoTime() - this.startNanos >= timeout.toNanos();
+		}
+
+	}
+
+}
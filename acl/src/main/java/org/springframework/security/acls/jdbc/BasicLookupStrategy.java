@@ -297,12 +297,18 @@ public class BasicLookupStrategy implements LookupStrategy {
 			// Is it time to load from JDBC the currentBatchToLoad?
 			if ((currentBatchToLoad.size() == this.batchSize) || ((i + 1) == objects.size())) {
 				if (currentBatchToLoad.size() > 0) {
-					Map<ObjectIdentity, Acl> loadedBatch = lookupObjectIdentities(currentBatchToLoad, sids);
-					// Add loaded batch (all elements 100% initialized) to results
-					result.putAll(loadedBatch);
-					// Add the loaded batch to the cache
-					for (Acl loadedAcl : loadedBatch.values()) {
-						this.aclCache.putInCache((AclImpl) loadedAcl);
+					try {
+						Map<ObjectIdentity, Acl> loadedBatch = lookupObjectIdentities(currentBatchToLoad, sids);
+						// Add loaded batch (all elements 100% initialized) to results
+						result.putAll(loadedBatch);
+						// Add the loaded batch to the cache
+						for (Acl loadedAcl : loadedBatch.values()) {
+							this.aclCache.putInCache((AclImpl) loadedAcl);
+						}
+					}
+					finally {
+						// Tell the cache about the ACLs that were not found as well
+						this.aclCache.completeLoads(currentBatchToLoad);
 					}
 					currentBatchToLoad.clear();
 				}
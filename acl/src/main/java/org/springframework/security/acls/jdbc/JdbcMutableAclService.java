@@ -22,9 +22,12 @@ import java.util.List;
 
 import javax.sql.DataSource;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.security.acls.domain.AccessControlEntryImpl;
+import org.springframework.security.acls.domain.AclChangedEvent;
 import org.springframework.security.acls.domain.GrantedAuthoritySid;
 import org.springframework.security.acls.domain.ObjectIdentityImpl;
 import org.springframework.security.acls.domain.PrincipalSid;
@@ -55,11 +58,15 @@ import org.springframework.util.Assert;
  * <p>
  * See the appendix of the Spring Security reference manual for more information on the
  * expected schema and how it is used. Information on using PostgreSQL is also included.
+ * <p>
+ * Each ACL evicted from the {@link AclCache} by an update or delete is also announced
+ * with an {@link AclChangedEvent}, if an {@link ApplicationEventPublisher} is available.
  *
  * @author Ben Alex
  * @author Johannes Zlattinger
  */
-public class JdbcMutableAclService extends JdbcAclService implements MutableAclService {
+public class JdbcMutableAclService extends JdbcAclService
+		implements MutableAclService, ApplicationEventPublisherAware {
 
 	private static final String DEFAULT_INSERT_INTO_ACL_CLASS = "insert into acl_class (class) values (?)";
 
@@ -72,6 +79,8 @@ public class JdbcMutableAclService extends JdbcAclService implements MutableAclS
 
 	private final AclCache aclCache;
 
+	private ApplicationEventPublisher applicationEventPublisher;
+
 	private String deleteEntryByObjectIdentityForeignKey = "delete from acl_entry where acl_object_identity=?";
 
 	private String deleteObjectIdentityByPrimaryKey = "delete from acl_object_identity where id=?";
@@ -288,7 +297,7 @@ public class JdbcMutableAclService extends JdbcAclService implements MutableAclS
 		deleteObjectIdentity(oidPrimaryKey);
 
 		// Clear the cache
-		this.aclCache.evictFromCache(objectIdentity);
+		evictFromCache(objectIdentity);
 	}
 
 	/**
@@ -365,7 +374,14 @@ public class JdbcMutableAclService extends JdbcAclService implements MutableAclS
 				clearCacheIncludingChildren(child);
 			}
 		}
+		evictFromCache(objectIdentity);
+	}
+
+	private void evictFromCache(ObjectIdentity objectIdentity) {
 		this.aclCache.evictFromCache(objectIdentity);
+		if (this.applicationEventPublisher != null) {
+			this.applicationEventPublisher.publishEvent(new AclChangedEvent(objectIdentity));
+		}
 	}
 
 	/**
@@ -488,4 +504,15 @@ public class JdbcMutableAclService extends JdbcAclService implements MutableAclS
 		this.securityContextHolderStrategy = securityContextHolderStrategy;
 	}
 
+	/**
+	 * Sets the {@link ApplicationEventPublisher} used to publish an
+	 * {@link AclChangedEvent} for each ACL evicted from the cache.
+	 *
+	 * @since 6.1
+	 */
+	@Override
+	public void setApplicationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
+		this.applicationEventPublisher = applicationEventPublisher;
+	}
+
 }
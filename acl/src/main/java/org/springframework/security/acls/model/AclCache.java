@@ -17,6 +17,7 @@
 package org.springframework.security.acls.model;
 
 import java.io.Serializable;
+import java.util.Collection;
 
 import org.springframework.security.acls.jdbc.JdbcAclService;
 
@@ -39,4 +40,15 @@ public interface AclCache {
 
 	void clearCache();
 
+	/**
+	 * Called once the ACLs of the given object identities, which were missing from this
+	 * cache, were looked up, and those that exist were {@link #putInCache(MutableAcl)
+	 * put}. A cache that has other callers wait for an ACL being looked up can tell them
+	 * that the others do not exist. The default implementation does nothing.
+	 * @param objectIdentities the object identities that were looked up
+	 * @since 6.1
+	 */
+	default void completeLoads(Collection<ObjectIdentity> objectIdentities) {
+	}
+
 }
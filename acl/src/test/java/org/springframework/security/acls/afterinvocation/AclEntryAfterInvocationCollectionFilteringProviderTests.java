@@ -19,14 +19,19 @@ package org.springframework.security.acls.afterinvocation;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 import org.junit.jupiter.api.Test;
 
 import org.springframework.security.access.ConfigAttribute;
 import org.springframework.security.access.SecurityConfig;
+import org.springframework.security.acls.domain.ObjectIdentityImpl;
 import org.springframework.security.acls.model.Acl;
 import org.springframework.security.acls.model.AclService;
+import org.springframework.security.acls.model.NotFoundException;
 import org.springframework.security.acls.model.ObjectIdentity;
 import org.springframework.security.acls.model.ObjectIdentityRetrievalStrategy;
 import org.springframework.security.acls.model.Permission;
@@ -34,11 +39,15 @@ import org.springframework.security.acls.model.SidRetrievalStrategy;
 import org.springframework.security.core.Authentication;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 /**
@@ -89,4 +98,88 @@ public class AclEntryAfterInvocationCollectionFilteringProviderTests {
 		verify(service, never()).readAclById(any(ObjectIdentity.class), any(List.class));
 	}
 
+	@Test
+	public void decideWhenPrefetchBatchSizeThenAclsReadInBatches() {
+		AclService service = mock(AclService.class);
+		Acl granted = acl(true);
+		Acl denied = acl(false);
+		given(service.readAclsById(any(), any())).willAnswer((invocation) -> {
+			List<ObjectIdentity> objectIdentities = invocation.getArgument(0);
+			Map<ObjectIdentity, Acl> acls = new HashMap<>();
+			for (ObjectIdentity objectIdentity : objectIdentities) {
+				acls.put(objectIdentity, ((Long) objectIdentity.getIdentifier() % 2 == 0) ? granted : denied);
+			}
+			return acls;
+		});
+		AclEntryAfterInvocationCollectionFilteringProvider provider = prefetchingProvider(service);
+		Object returned = provider.decide(mock(Authentication.class), new Object(),
+				SecurityConfig.createList("AFTER_ACL_COLLECTION_READ"),
+				new ArrayList<>(Arrays.asList(1L, 2L, 3L, 4L, 5L, 2L)));
+		assertThat((List<Long>) returned).containsExactly(2L, 4L, 2L);
+		verify(service, times(3)).readAclsById(any(), any());
+		verify(service, never()).readAclById(any(), any());
+	}
+
+	@Test
+	public void decideWhenPrefetchAndAclNotFoundThenReadsBatchOneByOne() {
+		AclService service = mock(AclService.class);
+		Acl granted = acl(true);
+		given(service.readAclsById(any(), any())).willThrow(new NotFoundException("not found"));
+		given(service.readAclById(eq(oid(1L)), any())).willReturn(granted);
+		given(service.readAclById(eq(oid(2L)), any())).willThrow(new NotFoundException("not found"));
+		AclEntryAfterInvocationCollectionFilteringProvider provider = prefetchingProvider(service);
+		Object returned = provider.decide(mock(Authentication.class), new Object(),
+				SecurityConfig.createList("AFTER_ACL_COLLECTION_READ"), new Long[] { 1L, 2L });
+		assertThat((Object[]) returned).containsExactly(1L);
+	}
+
+	@Test
+	public void decideWhenPrefetchExecutorThenBatchesReadOnExecutor() {
+		AclService service = mock(AclService.class);
+		Acl granted = acl(true);
+		given(service.readAclsById(any(), any())).willAnswer((invocation) -> {
+			List<ObjectIdentity> objectIdentities = invocation.getArgument(0);
+			Map<ObjectIdentity, Acl> acls = new HashMap<>();
+			objectIdentities.forEach((objectIdentity) -> acls.put(objectIdentity, granted));
+			return acls;
+		});
+		Executor executor = mock(Executor.class);
+		willAnswer((invocation) -> {
+			invocation.<Runnable>getArgument(0).run();
+			return null;
+		}).given(executor).execute(any());
+		AclEntryAfterInvocationCollectionFilteringProvider provider = prefetchingProvider(service);
+		provider.setPrefetchExecutor(executor);
+		Object returned = provider.decide(mock(Authentication.class), new Object(),
+				SecurityConfig.createList("AFTER_ACL_COLLECTION_READ"), new ArrayList<>(Arrays.asList(1L, 2L, 3L)));
+		assertThat((List<Long>) returned).containsExactly(1L, 2L, 3L);
+		verify(executor, times(2)).execute(any());
+	}
+
+	@Test
+	public void setPrefetchBatchSizeWhenNegativeThenException() {
+		AclEntryAfterInvocationCollectionFilteringProvider provider = new AclEntryAfterInvocationCollectionFilteringProvider(
+				mock(AclService.class), Arrays.asList(mock(Permission.class)));
+		assertThatIllegalArgumentException().isThrownBy(() -> provider.setPrefetchBatchSize(-1));
+	}
+
+	private AclEntryAfterInvocationCollectionFilteringProvider prefetchingProvider(AclService service) {
+		AclEntryAfterInvocationCollectionFilteringProvider provider = new AclEntryAfterInvocationCollectionFilteringProvider(
+				service, Arrays.asList(mock(Permission.class)));
+		provider.setObjectIdentityRetrievalStrategy((domainObject) -> oid((Long) domainObject));
+		provider.setSidRetrievalStrategy(mock(SidRetrievalStrategy.class));
+		provider.setPrefetchBatchSize(2);
+		return provider;
+	}
+
+	private static ObjectIdentity oid(Long id) {
+		return new ObjectIdentityImpl("Document", id);
+	}
+
+	private static Acl acl(boolean granted) {
+		Acl acl = mock(Acl.class);
+		given(acl.isGranted(any(), any(), anyBoolean())).willReturn(granted);
+		return acl;
+	}
+
 }
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.domain;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.security.acls.model.Acl;
+import org.springframework.security.acls.model.MutableAcl;
+import org.springframework.security.acls.model.NotFoundException;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.Permission;
+import org.springframework.security.acls.model.PermissionGrantingStrategy;
+import org.springframework.security.acls.model.Sid;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link IndexedPermissionGrantingStrategy}.
+ */
+public class IndexedPermissionGrantingStrategyTests {
+
+	private static final List<Permission> PERMISSIONS = Arrays.asList(BasePermission.READ, BasePermission.WRITE,
+			BasePermission.CREATE, BasePermission.DELETE, BasePermission.ADMINISTRATION);
+
+	private static final List<Sid> SIDS = Arrays.asList(new PrincipalSid("ben"), new PrincipalSid("scott"),
+			new GrantedAuthoritySid("ROLE_USER"), new GrantedAuthoritySid("ROLE_ADMIN"));
+
+	private AclAuthorizationStrategy aclAuthorizationStrategy;
+
+	private AuditLogger auditLogger;
+
+	private ObjectIdentity objectIdentity = new ObjectIdentityImpl("org.springframework.security.acls.TargetObject",
+			100);
+
+	@BeforeEach
+	public void setup() {
+		this.aclAuthorizationStrategy = mock(AclAuthorizationStrategy.class);
+		this.auditLogger = mock(AuditLogger.class);
+	}
+
+	@Test
+	public void constructorWhenNullAuditLoggerThenException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new IndexedPermissionGrantingStrategy(null));
+	}
+
+	@Test
+	public void isGrantedWhenFirstMatchingEntryGrantsThenGranted() {
+		MutableAcl acl = acl(null);
+		acl.insertAce(0, BasePermission.READ, SIDS.get(0), true);
+		acl.insertAce(1, BasePermission.READ, SIDS.get(0), false);
+		assertThat(acl.isGranted(Arrays.asList(BasePermission.READ), SIDS, false)).isTrue();
+		verify(this.auditLogger).logIfNeeded(true, acl.getEntries().get(0));
+	}
+
+	@Test
+	public void isGrantedWhenFirstMatchingEntryDeniesThenDenied() {
+		MutableAcl acl = acl(null);
+		acl.insertAce(0, BasePermission.READ, SIDS.get(0), false);
+		acl.insertAce(1, BasePermission.READ, SIDS.get(0), true);
+		acl.insertAce(2, BasePermission.READ, SIDS.get(1), true);
+		assertThat(acl.isGranted(Arrays.asList(BasePermission.READ), SIDS, false)).isFalse();
+		verify(this.auditLogger).logIfNeeded(false, acl.getEntries().get(0));
+	}
+
+	@Test
+	public void isGrantedWhenEntryUpdatedThenUsesUpdatedEntry() {
+		MutableAcl acl = acl(null);
+		acl.insertAce(0, BasePermission.READ, SIDS.get(0), true);
+		assertThat(acl.isGranted(Arrays.asList(BasePermission.READ), SIDS, true)).isTrue();
+		acl.updateAce(0, BasePermission.WRITE);
+		assertThat(acl.isGranted(Arrays.asList(BasePermission.WRITE), SIDS, true)).isTrue();
+		assertThatExceptionOfType(NotFoundException.class)
+				.isThrownBy(() -> acl.isGranted(Arrays.asList(BasePermission.READ), SIDS, true));
+		acl.deleteAce(0);
+		assertThatExceptionOfType(NotFoundException.class)
+				.isThrownBy(() -> acl.isGranted(Arrays.asList(BasePermission.WRITE), SIDS, true));
+	}
+
+	@Test
+	public void isGrantedWhenNoMatchThenParentConsulted() {
+		MutableAcl parent = acl(null);
+		parent.insertAce(0, BasePermission.READ, SIDS.get(2), true);
+		MutableAcl child = acl(parent);
+		child.insertAce(0, BasePermission.WRITE, SIDS.get(2), false);
+		assertThat(child.isGranted(Arrays.asList(BasePermission.READ), SIDS, true)).isTrue();
+		child.setEntriesInheriting(false);
+		assertThatExceptionOfType(NotFoundException.class)
+				.isThrownBy(() -> child.isGranted(Arrays.asList(BasePermission.READ), SIDS, true));
+	}
+
+	@Test
+	public void isGrantedThenSameAsDefaultPermissionGrantingStrategy() {
+		Random random = new Random(42);
+		PermissionGrantingStrategy indexed = new IndexedPermissionGrantingStrategy(this.auditLogger);
+		PermissionGrantingStrategy expected = new DefaultPermissionGrantingStrategy(this.auditLogger);
+		for (int i = 0; i < 200; i++) {
+			MutableAcl acl = acl(null);
+			int entries = random.nextInt(20);
+			for (int j = 0; j < entries; j++) {
+				acl.insertAce(j, PERMISSIONS.get(random.nextInt(PERMISSIONS.size())),
+						SIDS.get(random.nextInt(SIDS.size())), random.nextBoolean());
+			}
+			List<Permission> permissions = PERMISSIONS.subList(0, 1 + random.nextInt(PERMISSIONS.size()));
+			List<Sid> sids = SIDS.subList(random.nextInt(SIDS.size()), SIDS.size());
+			assertThat(decision(indexed, acl, permissions, sids))
+					.isEqualTo(decision(expected, acl, permissions, sids));
+		}
+	}
+
+	private String decision(PermissionGrantingStrategy strategy, Acl acl, List<Permission> permissions,
+			List<Sid> sids) {
+		try {
+			return String.valueOf(strategy.isGranted(acl, permissions, sids, true));
+		}
+		catch (NotFoundException ex) {
+			return "not found";
+		}
+	}
+
+	private MutableAcl acl(Acl parent) {
+		return new AclImpl(this.objectIdentity, 1, this.aclAuthorizationStrategy,
+				new IndexedPermissionGrantingStrategy(this.auditLogger), parent, null, true, new PrincipalSid("joe"));
+	}
+
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.domain;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.springframework.security.acls.model.AclCache;
+import org.springframework.security.acls.model.MutableAcl;
+import org.springframework.security.acls.model.ObjectIdentity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link NearCacheAclCache}.
+ */
+public class NearCacheAclCacheTests {
+
+	private AclCache delegate;
+
+	private NearCacheAclCache cache;
+
+	private ExecutorService executor = Executors.newSingleThreadExecutor();
+
+	@BeforeEach
+	public void setup() {
+		this.delegate = mock(AclCache.class);
+		this.cache = new NearCacheAclCache(this.delegate);
+	}
+
+	@AfterEach
+	public void cleanup() {
+		this.executor.shutdownNow();
+	}
+
+	@Test
+	public void constructorWhenNullDelegateThenException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new NearCacheAclCache(null));
+	}
+
+	@Test
+	public void getFromCacheWhenPutThenLocalHit() {
+		MutableAcl acl = acl(1L);
+		this.cache.putInCache(acl);
+		assertThat(this.cache.getFromCache(acl.getObjectIdentity())).isSameAs(acl);
+		assertThat(this.cache.getFromCache(1L)).isSameAs(acl);
+		verify(this.delegate).putInCache(acl);
+		verify(this.delegate, never()).getFromCache(acl.getObjectIdentity());
+	}
+
+	@Test
+	public void getFromCacheWhenDelegateHitThenCachedLocally() {
+		MutableAcl acl = acl(1L);
+		given(this.delegate.getFromCache(acl.getObjectIdentity())).willReturn(acl);
+		assertThat(this.cache.getFromCache(acl.getObjectIdentity())).isSameAs(acl);
+		assertThat(this.cache.getFromCache(acl.getObjectIdentity())).isSameAs(acl);
+		verify(this.delegate, times(1)).getFromCache(acl.getObjectIdentity());
+	}
+
+	@Test
+	public void putInCacheWhenMaximumSizeExceededThenLeastRecentlyUsedEvicted() {
+		this.cache.setMaximumSize(2);
+		MutableAcl first = acl(1L);
+		MutableAcl second = acl(2L);
+		this.cache.putInCache(first);
+		this.cache.putInCache(second);
+		this.cache.getFromCache(first.getObjectIdentity());
+		this.cache.putInCache(acl(3L));
+		assertThat(this.cache.size()).isEqualTo(2);
+		assertThat(this.cache.getFromCache(first.getObjectIdentity())).isSameAs(first);
+		assertThat(this.cache.getFromCache(2L)).isNull();
+	}
+
+	@Test
+	public void getFromCacheWhenExpiredThenDelegateConsulted() {
+		Instant now = Instant.now();
+		this.cache.setClock(Clock.fixed(now, ZoneOffset.UTC));
+		MutableAcl acl = acl(1L);
+		this.cache.putInCache(acl);
+		this.cache.setClock(Clock.fixed(now.plus(Duration.ofMinutes(5)), ZoneOffset.UTC));
+		this.cache.setLoadTimeout(Duration.ZERO);
+		assertThat(this.cache.getFromCache(acl.getObjectIdentity())).isNull();
+		verify(this.delegate).getFromCache(acl.getObjectIdentity());
+	}
+
+	@Test
+	public void evictFromCacheThenEvictedFromBothTiers() {
+		MutableAcl acl = acl(1L);
+		this.cache.putInCache(acl);
+		this.cache.evictFromCache(1L);
+		verify(this.delegate).evictFromCache(1L);
+		assertThat(this.cache.size()).isZero();
+		this.cache.putInCache(acl);
+		this.cache.evictFromCache(acl.getObjectIdentity());
+		verify(this.delegate).evictFromCache(acl.getObjectIdentity());
+		assertThat(this.cache.size()).isZero();
+	}
+
+	@Test
+	public void onApplicationEventThenEvictedLocally() {
+		MutableAcl acl = acl(1L);
+		this.cache.putInCache(acl);
+		this.cache.onApplicationEvent(new AclChangedEvent(acl.getObjectIdentity()));
+		assertThat(this.cache.size()).isZero();
+		verify(this.delegate, never()).evictFromCache(acl.getObjectIdentity());
+	}
+
+	@Test
+	public void getFromCacheWhenLoadingThenWaitsForLoadedAcl() throws Exception {
+		MutableAcl acl = acl(1L);
+		this.cache.setLoadTimeout(Duration.ofSeconds(10));
+		assertThat(this.cache.getFromCache(acl.getObjectIdentity())).isNull();
+		CountDownLatch waiting = new CountDownLatch(1);
+		Future<MutableAcl> waiter = this.executor.submit(() -> {
+			waiting.countDown();
+			return this.cache.getFromCache(acl.getObjectIdentity());
+		});
+		waiting.await();
+		this.cache.putInCache(acl);
+		assertThat(waiter.get(10, TimeUnit.SECONDS)).isSameAs(acl);
+	}
+
+	@Test
+	public void getFromCacheWhenLoadingCallerWaitsForCallerThenDoesNotWait() throws Exception {
+		ObjectIdentity first = new ObjectIdentityImpl("Document", 1L);
+		ObjectIdentity second = new ObjectIdentityImpl("Document", 2L);
+		this.cache.setLoadTimeout(Duration.ofMinutes(1));
+		assertThat(this.executor.submit(() -> this.cache.getFromCache(second)).get()).isNull();
+		assertThat(this.cache.getFromCache(first)).isNull();
+		CountDownLatch waiting = new CountDownLatch(1);
+		Future<MutableAcl> waiter = this.executor.submit(() -> {
+			waiting.countDown();
+			return this.cache.getFromCache(first);
+		});
+		waiting.await();
+		Thread.sleep(100);
+		assertThat(this.cache.getFromCache(second)).isNull();
+		this.cache.completeLoads(List.of(first));
+		assertThat(waiter.get(10, TimeUnit.SECONDS)).isNull();
+	}
+
+	@Test
+	public void getFromCacheWhenLoadTimesOutThenMiss() throws Exception {
+		ObjectIdentity objectIdentity = new ObjectIdentityImpl("Document", 1L);
+		this.cache.setLoadTimeout(Duration.ofMillis(10));
+		assertThat(this.executor.submit(() -> this.cache.getFromCache(objectIdentity)).get()).isNull();
+		assertThat(this.cache.getFromCache(objectIdentity)).isNull();
+	}
+
+	@Test
+	public void getFromCacheWhenLoadCompletedWithoutAclThenWaiterDoesNotWait() throws Exception {
+		ObjectIdentity objectIdentity = new ObjectIdentityImpl("Document", 1L);
+		this.cache.setLoadTimeout(Duration.ofMinutes(1));
+		assertThat(this.cache.getFromCache(objectIdentity)).isNull();
+		CountDownLatch waiting = new CountDownLatch(1);
+		Future<MutableAcl> waiter = this.executor.submit(() -> {
+			waiting.countDown();
+			return this.cache.getFromCache(objectIdentity);
+		});
+		waiting.await();
+		this.cache.completeLoads(List.of(objectIdentity));
+		assertThat(waiter.get(10, TimeUnit.SECONDS)).isNull();
+	}
+
+	@Test
+	public void getFromCacheWhenLoadsCompletedThenWaitsForOtherLoads() throws Exception {
+		ObjectIdentity first = new ObjectIdentityImpl("Document", 1L);
+		ObjectIdentity second = new ObjectIdentityImpl("Document", 2L);
+		MutableAcl acl = acl(2L);
+		this.cache.setLoadTimeout(Duration.ofSeconds(10));
+		assertThat(this.cache.getFromCache(first)).isNull();
+		this.cache.completeLoads(List.of(first));
+		CountDownLatch loading = new CountDownLatch(1);
+		this.executor.submit(() -> {
+			this.cache.getFromCache(second);
+			loading.countDown();
+			Thread.sleep(100);
+			this.cache.putInCache(acl);
+			return null;
+		});
+		loading.await();
+		assertThat(this.cache.getFromCache(second)).isSameAs(acl);
+	}
+
+	@Test
+	public void setObservationRegistryWhenNullThenException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.cache.setObservationRegistry(null));
+	}
+
+	@Test
+	public void setObservationRegistryThenLookupsObservedWithResult() {
+		ObservationHandler<Observation.Context> handler = mock(ObservationHandler.class);
+		given(handler.supportsContext(any())).willReturn(true);
+		ObservationRegistry registry = ObservationRegistry.create();
+		registry.observationConfig().observationHandler(handler);
+		this.cache.setObservationRegistry(registry);
+		MutableAcl acl = acl(1L);
+		this.cache.getFromCache(acl.getObjectIdentity());
+		this.cache.putInCache(acl);
+		this.cache.getFromCache(acl.getObjectIdentity());
+		ArgumentCaptor<Observation.Context> captor = ArgumentCaptor.forClass(Observation.Context.class);
+		verify(handler, times(2)).onStop(captor.capture());
+		assertThat(captor.getAllValues()).extracting(Observation.Context::getName)
+				.containsOnly("spring.security.acl.cache");
+		assertThat(captor.getAllValues()).extracting((context) -> context.getLowCardinalityKeyValue("result"))
+				.containsExactly(KeyValue.of("result", "miss"), KeyValue.of("result", "local-hit"));
+	}
+
+	private static MutableAcl acl(Long id) {
+		return new AclImpl(new ObjectIdentityImpl("Document", id), id, mock(AclAuthorizationStrategy.class),
+				mock(AuditLogger.class));
+	}
+
+}
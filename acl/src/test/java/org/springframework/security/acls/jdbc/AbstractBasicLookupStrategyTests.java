@@ -16,11 +16,14 @@
 
 package org.springframework.security.acls.jdbc;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import javax.sql.DataSource;
 
@@ -43,6 +46,7 @@ import org.springframework.security.acls.domain.ConsoleAuditLogger;
 import org.springframework.security.acls.domain.DefaultPermissionFactory;
 import org.springframework.security.acls.domain.DefaultPermissionGrantingStrategy;
 import org.springframework.security.acls.domain.GrantedAuthoritySid;
+import org.springframework.security.acls.domain.NearCacheAclCache;
 import org.springframework.security.acls.domain.ObjectIdentityImpl;
 import org.springframework.security.acls.domain.PrincipalSid;
 import org.springframework.security.acls.domain.SpringCacheBasedAclCache;
@@ -306,6 +310,18 @@ public abstract class AbstractBasicLookupStrategyTests {
 				.isThrownBy(() -> this.strategy.readAclsById(Arrays.asList(oid), Arrays.asList(BEN_SID)));
 	}
 
+	@Test
+	public void readAclsByIdWhenNearCacheAndAclNotFoundThenOtherLookupsDoNotWait() throws Exception {
+		NearCacheAclCache aclCache = new NearCacheAclCache(aclCache());
+		aclCache.setLoadTimeout(Duration.ofMinutes(1));
+		BasicLookupStrategy strategy = new BasicLookupStrategy(getDataSource(), aclCache, aclAuthStrategy(),
+				new DefaultPermissionGrantingStrategy(new ConsoleAuditLogger()));
+		ObjectIdentity oid = new ObjectIdentityImpl(TARGET_CLASS, 999L);
+		assertThat(strategy.readAclsById(Arrays.asList(oid), null)).isEmpty();
+		CompletableFuture<MutableAcl> other = CompletableFuture.supplyAsync(() -> aclCache.getFromCache(oid));
+		assertThat(other.get(10, TimeUnit.SECONDS)).isNull();
+	}
+
 	@Test
 	public void testCreatePrincipalSid() {
 		Sid result = this.strategy.createSid(true, "sid");
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.security.acls.domain.AclAuthorizationStrategyImpl;
+import org.springframework.security.acls.domain.AclImpl;
+import org.springframework.security.acls.domain.BasePermission;
+import org.springframework.security.acls.domain.ConsoleAuditLogger;
+import org.springframework.security.acls.domain.DefaultPermissionGrantingStrategy;
+import org.springframework.security.acls.domain.GrantedAuthoritySid;
+import org.springframework.security.acls.domain.IndexedPermissionGrantingStrategy;
+import org.springframework.security.acls.domain.ObjectIdentityImpl;
+import org.springframework.security.acls.domain.PrincipalSid;
+import org.springframework.security.acls.model.Permission;
+import org.springframework.security.acls.model.PermissionGrantingStrategy;
+import org.springframework.security.acls.model.Sid;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Compares {@link DefaultPermissionGrantingStrategy} and
+ * {@link IndexedPermissionGrantingStrategy} for ACLs with many entries, where the
+ * requested permission is granted by the last entry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AclPermissionGrantingBenchmark {
+
+	@Param({ "10", "1000", "5000" })
+	private int entries;
+
+	@Param({ "default", "indexed" })
+	private String strategy;
+
+	private AclImpl acl;
+
+	private List<Permission> permissions;
+
+	private List<Sid> sids;
+
+	@Setup
+	public void setup() {
+		PrincipalSid owner = new PrincipalSid("admin");
+		PermissionGrantingStrategy grantingStrategy = "indexed".equals(this.strategy)
+				? new IndexedPermissionGrantingStrategy(new ConsoleAuditLogger())
+				: new DefaultPermissionGrantingStrategy(new ConsoleAuditLogger());
+		this.acl = new AclImpl(new ObjectIdentityImpl("Document", 1L), 1L,
+				new AclAuthorizationStrategyImpl(new SimpleGrantedAuthority("ROLE_ADMIN")), grantingStrategy, null,
+				null, true, owner);
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("admin", "password", "ROLE_ADMIN"));
+		try {
+			for (int i = 0; i < this.entries - 1; i++) {
+				this.acl.insertAce(i, BasePermission.READ, new PrincipalSid("user" + i), true);
+			}
+			this.acl.insertAce(this.entries - 1, BasePermission.WRITE, new GrantedAuthoritySid("ROLE_EDITOR"), true);
+		}
+		finally {
+			SecurityContextHolder.clearContext();
+		}
+		this.permissions = Arrays.asList(BasePermission.WRITE);
+		this.sids = new ArrayList<>(Arrays.asList(new PrincipalSid("user"), new GrantedAuthoritySid("ROLE_USER"),
+				new GrantedAuthoritySid("ROLE_EDITOR")));
+	}
+
+	@Benchmark
+	public boolean isGranted() {
+		return this.acl.isGranted(this.permissions, this.sids, true);
+	}
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.benchmarks;
+
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.authorization.AuthenticatedAuthorizationManager;
+import org.springframework.security.authorization.AuthorityAuthorizationManager;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
+import org.springframework.security.web.access.intercept.RequestMatcherDelegatingAuthorizationManager;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.AnyRequestMatcher;
+
+/**
+ * Measures {@link AuthorizationFilter} with a small set of {@code authorizeHttpRequests}
+ * style rules and an authenticated user.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+public class AuthorizationFilterBenchmark {
+
+	private AuthorizationFilter filter;
+
+	private final FilterChain chain = (request, response) -> {
+	};
+
+	@Setup
+	public void setup() {
+		RequestMatcherDelegatingAuthorizationManager manager = RequestMatcherDelegatingAuthorizationManager.builder()
+				.add(AntPathRequestMatcher.antMatcher("/admin/**"), AuthorityAuthorizationManager.hasRole("ADMIN"))
+				.add(AntPathRequestMatcher.antMatcher("/api/**"), AuthorityAuthorizationManager.hasRole("USER"))
+				.add(AnyRequestMatcher.INSTANCE, AuthenticatedAuthorizationManager.authenticated()).build();
+		this.filter = new AuthorizationFilter(manager);
+		SecurityContext context = SecurityContextHolder.createEmptyContext();
+		context.setAuthentication(new TestingAuthenticationToken("user", "password", "ROLE_USER"));
+		SecurityContextHolder.setContext(context);
+	}
+
+	@TearDown
+	public void teardown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Benchmark
+	public void granted(Blackhole blackhole) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/resource");
+		request.setServletPath("/api/resource");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.filter.doFilter(request, response, this.chain);
+		blackhole.consume(response.getStatus());
+	}
+
+}
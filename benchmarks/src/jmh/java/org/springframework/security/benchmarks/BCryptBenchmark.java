@@ -0,0 +1,75 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.benchmarks;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+/**
+ * Measures {@link BCrypt#checkpw(String, String)} for a range of strengths and
+ * password lengths, single threaded and with as many threads as processors so that the
+ * pooling of the key schedule is exercised. Compare the time and the {@code gc}
+ * profiler's {@code gc.alloc.rate.norm} with a run against the previous version.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BCryptBenchmark {
+
+	@Param({ "$2a", "$2b" })
+	private String prefix;
+
+	@Param({ "4", "10" })
+	private int strength;
+
+	@Param({ "8", "72" })
+	private int passwordLength;
+
+	private String password;
+
+	private String hashed;
+
+	@Setup
+	public void setup() {
+		this.password = "p".repeat(this.passwordLength);
+		this.hashed = BCrypt.hashpw(this.password, BCrypt.gensalt(this.prefix, this.strength, new SecureRandom()));
+	}
+
+	@Benchmark
+	public boolean checkpw() {
+		return BCrypt.checkpw(this.password, this.hashed);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public boolean checkpwConcurrently() {
+		return BCrypt.checkpw(this.password, this.hashed);
+	}
+
+}
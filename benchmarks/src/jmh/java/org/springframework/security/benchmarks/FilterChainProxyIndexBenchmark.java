@@ -0,0 +1,82 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.web.DefaultSecurityFilterChain;
+import org.springframework.security.web.FilterChainProxy;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+
+/**
+ * Measures {@link FilterChainProxy} chain selection when the matching chain is the last of
+ * many, with and without {@link FilterChainProxy#setIndexFilterChains(boolean)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+public class FilterChainProxyIndexBenchmark {
+
+	@Param({ "1", "10", "60" })
+	private int chains;
+
+	@Param({ "false", "true" })
+	private boolean indexed;
+
+	private FilterChainProxy filterChainProxy;
+
+	private final FilterChain chain = (request, response) -> {
+	};
+
+	@Setup
+	public void setup() {
+		List<SecurityFilterChain> filterChains = new ArrayList<>();
+		for (int i = 0; i < this.chains - 1; i++) {
+			filterChains.add(new DefaultSecurityFilterChain(AntPathRequestMatcher.antMatcher("/service" + i + "/**"),
+					Collections.emptyList()));
+		}
+		filterChains.add(new DefaultSecurityFilterChain(AntPathRequestMatcher.antMatcher("/api/**"),
+				Collections.emptyList()));
+		this.filterChainProxy = new FilterChainProxy(filterChains);
+		this.filterChainProxy.setIndexFilterChains(this.indexed);
+		this.filterChainProxy.afterPropertiesSet();
+	}
+
+	@Benchmark
+	public void lastChainMatches(Blackhole blackhole) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/resource");
+		request.setServletPath("/api/resource");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.filterChainProxy.doFilter(request, response, this.chain);
+		blackhole.consume(response.getStatus());
+	}
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.benchmarks;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+/**
+ * Measures {@link NimbusJwtDecoder#decode(String)} for an RS256 signed token, including
+ * signature verification, claim conversion and the default validators. With
+ * {@code verifiedJwtCache} only the first call verifies the token and later calls only
+ * run the validators.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+public class NimbusJwtDecoderBenchmark {
+
+	@Param({ "false", "true" })
+	private boolean verifiedJwtCache;
+
+	private NimbusJwtDecoder decoder;
+
+	private String token;
+
+	@Setup
+	public void setup() throws Exception {
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+		generator.initialize(2048);
+		KeyPair keyPair = generator.generateKeyPair();
+		Instant now = Instant.now();
+		JWTClaimsSet claims = new JWTClaimsSet.Builder().subject("user").issuer("https://issuer.example.org")
+				.audience("resource-server").claim("scope", "message:read message:write")
+				.issueTime(Date.from(now)).expirationTime(Date.from(now.plus(1, ChronoUnit.DAYS))).build();
+		SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.RS256), claims);
+		jwt.sign(new RSASSASigner(keyPair.getPrivate()));
+		this.token = jwt.serialize();
+		NimbusJwtDecoder.PublicKeyJwtDecoderBuilder builder = NimbusJwtDecoder
+				.withPublicKey((RSAPublicKey) keyPair.getPublic());
+		if (this.verifiedJwtCache) {
+			builder.verifiedJwtCache(1000);
+		}
+		this.decoder = builder.build();
+	}
+
+	@Benchmark
+	public Jwt decode() {
+		return this.decoder.decode(this.token);
+	}
+
+}
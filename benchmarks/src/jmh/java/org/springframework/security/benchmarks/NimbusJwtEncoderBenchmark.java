@@ -0,0 +1,115 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.benchmarks;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+
+/**
+ * Measures minting RS256 signed tokens. {@code nimbus} signs each token with a new
+ * {@link RSASSASigner} and header, as {@link NimbusJwtEncoder} used to do, and serves as
+ * the baseline for {@link NimbusJwtEncoder#encode(JwtEncoderParameters)}, which reuses
+ * the signer and the serialized header, and for
+ * {@link NimbusJwtEncoder#encodeAll(List)}, which signs a batch in parallel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+public class NimbusJwtEncoderBenchmark {
+
+	private static final int BATCH_SIZE = 64;
+
+	private RSAKey jwk;
+
+	private NimbusJwtEncoder encoder;
+
+	private JwtEncoderParameters parameters;
+
+	private List<JwtEncoderParameters> batch;
+
+	@Setup
+	public void setup() throws Exception {
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+		generator.initialize(2048);
+		KeyPair keyPair = generator.generateKeyPair();
+		this.jwk = new RSAKey.Builder((RSAPublicKey) keyPair.getPublic())
+				.privateKey((RSAPrivateKey) keyPair.getPrivate()).keyID("key").build();
+		this.encoder = new NimbusJwtEncoder(new ImmutableJWKSet<>(new JWKSet(this.jwk)));
+		Instant now = Instant.now();
+		JwtClaimsSet claims = JwtClaimsSet.builder().subject("user").issuer("https://issuer.example.org")
+				.audience(Collections.singletonList("resource-server")).claim("scope", "message:read message:write")
+				.issuedAt(now).expiresAt(now.plus(1, ChronoUnit.HOURS)).build();
+		this.parameters = JwtEncoderParameters.from(JwsHeader.with(SignatureAlgorithm.RS256).build(), claims);
+		this.batch = new ArrayList<>(Collections.nCopies(BATCH_SIZE, this.parameters));
+	}
+
+	@Benchmark
+	public String nimbus() throws JOSEException {
+		JWSHeader header = new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(this.jwk.getKeyID()).build();
+		JwtClaimsSet claims = this.parameters.getClaims();
+		JWTClaimsSet claimsSet = new JWTClaimsSet.Builder().subject(claims.getSubject())
+				.issuer(claims.getClaimAsString("iss")).audience(claims.getAudience())
+				.claim("scope", claims.getClaim("scope")).issueTime(Date.from(claims.getIssuedAt()))
+				.expirationTime(Date.from(claims.getExpiresAt())).build();
+		SignedJWT jwt = new SignedJWT(header, claimsSet);
+		jwt.sign(new RSASSASigner(this.jwk));
+		return jwt.serialize();
+	}
+
+	@Benchmark
+	public Jwt encode() {
+		return this.encoder.encode(this.parameters);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public List<Jwt> encodeAll() {
+		return this.encoder.encodeAll(this.batch);
+	}
+
+}
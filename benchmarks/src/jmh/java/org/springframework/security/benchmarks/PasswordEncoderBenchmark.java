@@ -0,0 +1,85 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+import org.springframework.security.crypto.scrypt.SCryptPasswordEncoder;
+
+/**
+ * Measures {@link PasswordEncoder#encode(CharSequence)} and
+ * {@link PasswordEncoder#matches(CharSequence, String)} for each adaptive
+ * {@link PasswordEncoder} using its current defaults.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PasswordEncoderBenchmark {
+
+	@Param({ "bcrypt", "pbkdf2", "scrypt", "argon2" })
+	private String encoderId;
+
+	private PasswordEncoder encoder;
+
+	private String encodedPassword;
+
+	@Setup
+	public void setup() {
+		this.encoder = createEncoder(this.encoderId);
+		this.encodedPassword = this.encoder.encode("password");
+	}
+
+	@Benchmark
+	public String encode() {
+		return this.encoder.encode("password");
+	}
+
+	@Benchmark
+	public boolean matches() {
+		return this.encoder.matches("password", this.encodedPassword);
+	}
+
+	private static PasswordEncoder createEncoder(String encoderId) {
+		if ("bcrypt".equals(encoderId)) {
+			return new BCryptPasswordEncoder();
+		}
+		if ("pbkdf2".equals(encoderId)) {
+			return Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8();
+		}
+		if ("scrypt".equals(encoderId)) {
+			return SCryptPasswordEncoder.defaultsForSpringSecurity_v5_8();
+		}
+		if ("argon2".equals(encoderId)) {
+			return Argon2PasswordEncoder.defaultsForSpringSecurity_v5_8();
+		}
+		throw new IllegalArgumentException("Unknown encoder " + encoderId);
+	}
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.benchmarks;
+
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.authorization.AuthorityAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.access.intercept.RequestMatcherDelegatingAuthorizationManager;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+
+/**
+ * Measures the worst case of {@link RequestMatcherDelegatingAuthorizationManager}, where
+ * the request only matches the last rule, as the number of rules grows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+public class RequestMatcherDelegatingAuthorizationManagerBenchmark {
+
+	@Param({ "10", "100", "1500" })
+	private int rules;
+
+	@Param({ "false", "true" })
+	private boolean indexed;
+
+	private RequestMatcherDelegatingAuthorizationManager manager;
+
+	private final Supplier<Authentication> authentication = () -> new TestingAuthenticationToken("user", "password",
+			"entitlement-last");
+
+	private MockHttpServletRequest request;
+
+	@Setup
+	public void setup() {
+		RequestMatcherDelegatingAuthorizationManager.Builder builder = RequestMatcherDelegatingAuthorizationManager
+				.builder();
+		for (int i = 0; i < this.rules - 1; i++) {
+			HttpMethod method = (i % 2 == 0) ? HttpMethod.GET : HttpMethod.POST;
+			builder.add(AntPathRequestMatcher.antMatcher(method, "/entitlements/" + i + "/{id}/**"),
+					AuthorityAuthorizationManager.hasAuthority("entitlement-" + i));
+		}
+		builder.add(AntPathRequestMatcher.antMatcher("/entitlements/last/{id}/**"),
+				AuthorityAuthorizationManager.hasAuthority("entitlement-last"));
+		this.manager = builder.indexed(this.indexed).build();
+		this.request = new MockHttpServletRequest("GET", "/entitlements/last/42/items");
+		this.request.setServletPath("/entitlements/last/42/items");
+	}
+
+	@Benchmark
+	public AuthorizationDecision lastRuleMatches() {
+		return this.manager.check(this.authentication, this.request);
+	}
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.security.core.session.CompactSessionRegistry;
+import org.springframework.security.core.session.SessionInformation;
+import org.springframework.security.core.session.SessionRegistry;
+import org.springframework.security.core.session.SessionRegistryImpl;
+
+/**
+ * Compares {@link SessionRegistryImpl} and {@link CompactSessionRegistry} holding one
+ * million sessions of 500 thousand principals, both for the retained heap of the
+ * registry and for {@link SessionRegistry#getAllSessions(Object, boolean)}, which is on
+ * the login path of concurrent session control.
+ */
+public class SessionRegistryBenchmark {
+
+	private static final int SESSIONS = 1_000_000;
+
+	private static final int PRINCIPALS = 500_000;
+
+	private static SessionRegistry createRegistry(String registry) {
+		if ("compact".equals(registry)) {
+			return new CompactSessionRegistry(Duration.ofMinutes(30));
+		}
+		return new SessionRegistryImpl();
+	}
+
+	private static void populate(SessionRegistry registry) {
+		for (int i = 0; i < SESSIONS; i++) {
+			registry.registerNewSession("session-" + i, "user-" + (i % PRINCIPALS));
+		}
+	}
+
+	private static long usedHeapAfterGc() {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+
+	/**
+	 * Reports the heap retained by a populated registry as the {@code retainedBytes}
+	 * secondary result.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Footprint {
+
+		public long retainedBytes;
+
+	}
+
+	@State(Scope.Benchmark)
+	public static class Populated {
+
+		@Param({ "default", "compact" })
+		private String registry;
+
+		private SessionRegistry sessionRegistry;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.sessionRegistry = createRegistry(this.registry);
+			populate(this.sessionRegistry);
+		}
+
+	}
+
+	@State(Scope.Benchmark)
+	public static class Empty {
+
+		@Param({ "default", "compact" })
+		private String registry;
+
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+	@Warmup(iterations = 1)
+	@Measurement(iterations = 3)
+	public SessionRegistry footprint(Empty empty, Footprint footprint) {
+		long before = usedHeapAfterGc();
+		SessionRegistry registry = createRegistry(empty.registry);
+		populate(registry);
+		footprint.retainedBytes = usedHeapAfterGc() - before;
+		return registry;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+	public List<SessionInformation> getAllSessions(Populated populated) {
+		String principal = "user-" + ThreadLocalRandom.current().nextInt(PRINCIPALS);
+		return populated.sessionRegistry.getAllSessions(principal, false);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+	public void refreshLastRequest(Populated populated) {
+		populated.sessionRegistry.refreshLastRequest("session-" + ThreadLocalRandom.current().nextInt(SESSIONS));
+	}
+
+}
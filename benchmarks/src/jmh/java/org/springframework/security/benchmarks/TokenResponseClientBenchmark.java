@@ -0,0 +1,107 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import org.springframework.security.oauth2.client.endpoint.DefaultClientCredentialsTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.JdkHttpClientCredentialsTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2ClientCredentialsGrantRequest;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AccessTokenResponse;
+
+/**
+ * Measures requesting a client_credentials token from a local token endpoint.
+ * {@code restTemplate} uses {@link DefaultClientCredentialsTokenResponseClient} and
+ * serves as the baseline for {@code httpClient}, which uses
+ * {@link JdkHttpClientCredentialsTokenResponseClient}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+public class TokenResponseClientBenchmark {
+
+	private static final byte[] TOKEN_RESPONSE = ("{\"access_token\":\"2YotnFZFEjr1zCsicMWpAA\","
+			+ "\"token_type\":\"bearer\",\"expires_in\":3600,\"scope\":\"message:read message:write\","
+			+ "\"example_parameter\":\"example_value\"}").getBytes(StandardCharsets.UTF_8);
+
+	private HttpServer server;
+
+	private OAuth2ClientCredentialsGrantRequest grantRequest;
+
+	private DefaultClientCredentialsTokenResponseClient restTemplate;
+
+	private JdkHttpClientCredentialsTokenResponseClient httpClient;
+
+	@Setup
+	public void setup() throws IOException {
+		this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		this.server.createContext("/oauth2/token", TokenResponseClientBenchmark::token);
+		this.server.start();
+		ClientRegistration clientRegistration = ClientRegistration.withRegistrationId("benchmark")
+				.clientId("client").clientSecret("secret")
+				.clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+				.authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+				.scope("message:read", "message:write")
+				.tokenUri("http://127.0.0.1:" + this.server.getAddress().getPort() + "/oauth2/token").build();
+		this.grantRequest = new OAuth2ClientCredentialsGrantRequest(clientRegistration);
+		this.restTemplate = new DefaultClientCredentialsTokenResponseClient();
+		this.httpClient = new JdkHttpClientCredentialsTokenResponseClient();
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.server.stop(0);
+	}
+
+	@Benchmark
+	public OAuth2AccessTokenResponse restTemplate() {
+		return this.restTemplate.getTokenResponse(this.grantRequest);
+	}
+
+	@Benchmark
+	public OAuth2AccessTokenResponse httpClient() {
+		return this.httpClient.getTokenResponse(this.grantRequest);
+	}
+
+	private static void token(HttpExchange exchange) throws IOException {
+		try (InputStream body = exchange.getRequestBody()) {
+			body.readAllBytes();
+		}
+		exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+		exchange.sendResponseHeaders(200, TOKEN_RESPONSE.length);
+		try (OutputStream body = exchange.getResponseBody()) {
+			body.write(TOKEN_RESPONSE);
+		}
+	}
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import reactor.core.publisher.Mono;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.config.Customizer;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.userdetails.MapReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.WebFilterChainProxy;
+import org.springframework.web.server.WebFilterChain;
+
+/**
+ * Measures {@link WebFilterChainProxy} for a typical {@link ServerHttpSecurity} chain
+ * using HTTP Basic authentication and {@code authorizeExchange}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+public class WebFilterChainProxyBenchmark {
+
+	private AnnotationConfigApplicationContext context;
+
+	private WebFilterChainProxy webFilterChainProxy;
+
+	private final WebFilterChain chain = (exchange) -> Mono.empty();
+
+	private String authorization;
+
+	@Setup
+	public void setup() {
+		this.context = new AnnotationConfigApplicationContext(SecurityConfig.class);
+		this.webFilterChainProxy = this.context.getBean(WebFilterChainProxy.class);
+		this.authorization = "Basic "
+				+ Base64.getEncoder().encodeToString("user:password".getBytes(StandardCharsets.UTF_8));
+	}
+
+	@TearDown
+	public void teardown() {
+		this.context.close();
+	}
+
+	@Benchmark
+	public HttpStatusCode authenticated() {
+		MockServerHttpRequest request = MockServerHttpRequest.get("/api/resource")
+				.header(HttpHeaders.AUTHORIZATION, this.authorization).build();
+		MockServerWebExchange exchange = MockServerWebExchange.from(request);
+		this.webFilterChainProxy.filter(exchange, this.chain).block();
+		return exchange.getResponse().getStatusCode();
+	}
+
+	@Benchmark
+	public HttpStatusCode unauthenticated() {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/resource"));
+		this.webFilterChainProxy.filter(exchange, this.chain).block();
+		return exchange.getResponse().getStatusCode();
+	}
+
+	@Configuration
+	@EnableWebFluxSecurity
+	static class SecurityConfig {
+
+		@Bean
+		SecurityWebFilterChain springSecurityFilterChain(ServerHttpSecurity http) {
+			// @formatter:off
+			http
+				.authorizeExchange((authorize) -> authorize
+					.pathMatchers("/public/**").permitAll()
+					.anyExchange().authenticated()
+				)
+				.httpBasic(Customizer.withDefaults());
+			// @formatter:on
+			return http.build();
+		}
+
+		@Bean
+		MapReactiveUserDetailsService userDetailsService() {
+			return new MapReactiveUserDetailsService(
+					User.withUsername("user").password("{noop}password").roles("USER").build());
+		}
+
+	}
+
+}
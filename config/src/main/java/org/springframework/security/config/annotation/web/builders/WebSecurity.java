@@ -104,6 +104,8 @@ public final class WebSecurity extends AbstractConfiguredSecurityBuilder<Filter,
 
 	private boolean debugEnabled;
 
+	private boolean indexFilterChains;
+
 	private WebInvocationPrivilegeEvaluator privilegeEvaluator;
 
 	private ObservationRegistry observationRegistry = ObservationRegistry.NOOP;
@@ -193,6 +195,20 @@ public final class WebSecurity extends AbstractConfiguredSecurityBuilder<Filter,
 		return this;
 	}
 
+	/**
+	 * Whether the {@link FilterChainProxy} indexes its {@link SecurityFilterChain}s, so
+	 * that the chains which cannot match a request are skipped without evaluating their
+	 * {@link RequestMatcher}. Worthwhile for applications with many filter chains.
+	 * @param indexFilterChains whether to index the filter chains. Default is false.
+	 * @return the {@link WebSecurity} for further customization.
+	 * @since 6.1
+	 * @see FilterChainProxy#setIndexFilterChains(boolean)
+	 */
+	public WebSecurity indexFilterChains(boolean indexFilterChains) {
+		this.indexFilterChains = indexFilterChains;
+		return this;
+	}
+
 	/**
 	 * <p>
 	 * Adds builders to create {@link SecurityFilterChain} instances.
@@ -317,6 +333,7 @@ public final class WebSecurity extends AbstractConfiguredSecurityBuilder<Filter,
 			filterChainProxy.setRequestRejectedHandler(requestRejectedHandler);
 		}
 		filterChainProxy.setFilterChainDecorator(getFilterChainDecorator());
+		filterChainProxy.setIndexFilterChains(this.indexFilterChains);
 		filterChainProxy.afterPropertiesSet();
 
 		Filter result = filterChainProxy;
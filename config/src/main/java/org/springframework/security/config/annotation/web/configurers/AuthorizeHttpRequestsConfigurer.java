@@ -200,6 +200,26 @@ public final class AuthorizeHttpRequestsConfigurer<H extends HttpSecurityBuilder
 			return this;
 		}
 
+		/**
+		 * Sets whether the mappings should be compiled into an index, so that mappings
+		 * which cannot match a request are not evaluated. Only case-sensitive
+		 * {@link org.springframework.security.web.util.matcher.AntPathRequestMatcher}s
+		 * can be indexed; any other {@link RequestMatcher} is evaluated for every
+		 * request. In particular, the {@code MvcRequestMatcher}s that
+		 * {@code requestMatchers(String...)} creates when Spring MVC is present cannot be
+		 * indexed, so declare the mappings with
+		 * {@code requestMatchers(AntPathRequestMatcher.antMatcher(String))} to index them.
+		 * @param indexed whether to index the mappings. Default is {@code false}
+		 * @return the {@link AuthorizationManagerRequestMatcherRegistry} for further
+		 * customizations
+		 * @since 6.1
+		 * @see RequestMatcherDelegatingAuthorizationManager.Builder#indexed(boolean)
+		 */
+		public AuthorizationManagerRequestMatcherRegistry indexed(boolean indexed) {
+			this.managerBuilder.indexed(indexed);
+			return this;
+		}
+
 		/**
 		 * Return the {@link HttpSecurityBuilder} when done using the
 		 * {@link AuthorizeHttpRequestsConfigurer}. This is useful for method chaining.
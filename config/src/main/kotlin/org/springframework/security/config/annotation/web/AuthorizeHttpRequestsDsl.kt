@@ -39,9 +39,11 @@ import java.util.function.Supplier
  * @author Yuriy Savchenko
  * @since 5.7
  * @property shouldFilterAllDispatcherTypes whether the [AuthorizationFilter] should filter all dispatcher types
+ * @property indexed whether the mappings should be compiled into an index, only ant matchers can be indexed (since 6.1)
  */
 class AuthorizeHttpRequestsDsl : AbstractRequestMatcherDsl() {
     var shouldFilterAllDispatcherTypes: Boolean? = null
+    var indexed: Boolean? = null
 
     private val authorizationRules = mutableListOf<AuthorizationManagerRule>()
 
@@ -263,6 +265,9 @@ class AuthorizeHttpRequestsDsl : AbstractRequestMatcherDsl() {
             shouldFilterAllDispatcherTypes?.also { shouldFilter ->
                 requests.shouldFilterAllDispatcherTypes(shouldFilter)
             }
+            indexed?.also { indexed ->
+                requests.indexed(indexed)
+            }
         }
     }
 }
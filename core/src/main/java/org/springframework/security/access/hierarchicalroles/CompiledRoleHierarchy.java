@@ -0,0 +1,267 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.access.hierarchicalroles;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.log.LogMessage;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentLruCache;
+
+/**
+ * A {@link RoleHierarchy} that accepts the same hierarchy definition as
+ * {@link RoleHierarchyImpl}, but is optimized for large hierarchies that are consulted
+ * on every authorization decision.
+ *
+ * <p>
+ * Every role in the hierarchy is interned into an integer id and the roles reachable from
+ * it are precomputed as a {@link BitSet}, so resolving the reachable authorities does not
+ * require any map lookups per reachable role. The result for a given collection of
+ * {@link SimpleGrantedAuthority}s is memoized in a bounded cache. As with
+ * {@link RoleHierarchyImpl}, every call returns a new, modifiable collection.
+ *
+ * <p>
+ * The hierarchy can be replaced at runtime without refreshing the application context,
+ * either with {@link #setHierarchy(String)} or by calling {@link #refresh()} when the
+ * hierarchy is read from a {@link Supplier}, for example one that queries a database or
+ * reads a file. Replacing the hierarchy is atomic for concurrent callers and, if the new
+ * hierarchy is invalid, the previous one stays in place.
+ *
+ * <pre>
+ * CompiledRoleHierarchy roleHierarchy = new CompiledRoleHierarchy(
+ * 		() -&gt; jdbcTemplate.queryForObject("select hierarchy from role_hierarchy", String.class));
+ * // later, for example from a scheduled task
+ * roleHierarchy.refresh();
+ * </pre>
+ *
+ * @since 6.1
+ * @see RoleHierarchyImpl
+ */
+public final class CompiledRoleHierarchy implements RoleHierarchy {
+
+	private static final Log logger = LogFactory.getLog(CompiledRoleHierarchy.class);
+
+	private static final int DEFAULT_CACHE_SIZE = 1024;
+
+	private final Supplier<String> hierarchySource;
+
+	private volatile int cacheSize = DEFAULT_CACHE_SIZE;
+
+	private volatile Hierarchy hierarchy;
+
+	/**
+	 * Construct a {@link CompiledRoleHierarchy} with the given hierarchy definition
+	 * @param hierarchy the hierarchy definition, in the format of
+	 * {@link RoleHierarchyImpl#setHierarchy(String)}
+	 * @throws CycleInRoleHierarchyException if the hierarchy contains a cycle
+	 */
+	public CompiledRoleHierarchy(String hierarchy) {
+		Assert.notNull(hierarchy, "hierarchy cannot be null");
+		this.hierarchySource = null;
+		this.hierarchy = compile(hierarchy);
+	}
+
+	/**
+	 * Construct a {@link CompiledRoleHierarchy} that reads its hierarchy definition from
+	 * the given source now and each time {@link #refresh()} is called
+	 * @param hierarchySource the source of the hierarchy definition, in the format of
+	 * {@link RoleHierarchyImpl#setHierarchy(String)}
+	 * @throws CycleInRoleHierarchyException if the hierarchy contains a cycle
+	 */
+	public CompiledRoleHierarchy(Supplier<String> hierarchySource) {
+		Assert.notNull(hierarchySource, "hierarchySource cannot be null");
+		this.hierarchySource = hierarchySource;
+		refresh();
+	}
+
+	/**
+	 * Replace the role hierarchy. Concurrent callers either see the previous or the new
+	 * hierarchy, and the previous one is kept if the new one contains a cycle.
+	 * @param hierarchy the hierarchy definition, in the format of
+	 * {@link RoleHierarchyImpl#setHierarchy(String)}
+	 * @throws CycleInRoleHierarchyException if the hierarchy contains a cycle
+	 */
+	public void setHierarchy(String hierarchy) {
+		Assert.notNull(hierarchy, "hierarchy cannot be null");
+		this.hierarchy = compile(hierarchy);
+	}
+
+	/**
+	 * Read the hierarchy definition again from the source this instance was constructed
+	 * with and replace the current hierarchy with it
+	 * @throws IllegalStateException if this instance was not constructed with a
+	 * {@link Supplier}
+	 * @throws CycleInRoleHierarchyException if the hierarchy contains a cycle
+	 */
+	public void refresh() {
+		Assert.state(this.hierarchySource != null, "refresh requires a hierarchySource");
+		String hierarchy = this.hierarchySource.get();
+		Assert.notNull(hierarchy, "hierarchySource cannot return null");
+		setHierarchy(hierarchy);
+	}
+
+	/**
+	 * Set the maximum number of distinct authority collections for which the reachable
+	 * authorities are memoized. The default is 1024, and 0 disables memoization.
+	 * @param cacheSize the maximum number of memoized results
+	 */
+	public void setCacheSize(int cacheSize) {
+		Assert.isTrue(cacheSize >= 0, "cacheSize cannot be negative");
+		this.cacheSize = cacheSize;
+		this.hierarchy = this.hierarchy.withCacheSize(cacheSize);
+	}
+
+	@Override
+	public Collection<GrantedAuthority> getReachableGrantedAuthorities(
+			Collection<? extends GrantedAuthority> authorities) {
+		if (authorities == null || authorities.isEmpty()) {
+			return AuthorityUtils.NO_AUTHORITIES;
+		}
+		Hierarchy hierarchy = this.hierarchy;
+		if (hierarchy.cache == null || !isMemoizable(authorities)) {
+			return hierarchy.reachableFrom(authorities);
+		}
+		return new ArrayList<>(hierarchy.cache.get(List.copyOf(authorities)));
+	}
+
+	private static boolean isMemoizable(Collection<? extends GrantedAuthority> authorities) {
+		for (GrantedAuthority authority : authorities) {
+			// the memoized result may return an equal rather than the same instance
+			if (authority == null || authority.getClass() != SimpleGrantedAuthority.class) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private Hierarchy compile(String hierarchy) {
+		RoleHierarchyImpl parsed = new RoleHierarchyImpl();
+		parsed.setHierarchy(hierarchy);
+		Hierarchy compiled = Hierarchy.of(parsed.getRolesReachableInOneOrMoreStepsMap(), this.cacheSize);
+		logger.debug(LogMessage.format("Compiled role hierarchy with %d roles", compiled.roles.length));
+		return compiled;
+	}
+
+	private static final class Hierarchy {
+
+		private final Map<String, Integer> ids;
+
+		private final GrantedAuthority[] roles;
+
+		private final BitSet[] reachable;
+
+		private final ConcurrentLruCache<List<GrantedAuthority>, Collection<GrantedAuthority>> cache;
+
+		private Hierarchy(Map<String, Integer> ids, GrantedAuthority[] roles, BitSet[] reachable, int cacheSize) {
+			this.ids = ids;
+			this.roles = roles;
+			this.reachable = reachable;
+			this.cache = (cacheSize > 0)
+					? new ConcurrentLruCache<>(cacheSize, (key) -> Collections.unmodifiableList(reachableFrom(key)))
+					: null;
+		}
+
+		private static Hierarchy of(Map<String, Set<GrantedAuthority>> reachableRoles, int cacheSize) {
+			Map<String, Integer> ids = new HashMap<>();
+			List<GrantedAuthority> roles = new ArrayList<>();
+			for (Map.Entry<String, Set<GrantedAuthority>> entry : reachableRoles.entrySet()) {
+				intern(entry.getKey(), ids, roles);
+				for (GrantedAuthority role : entry.getValue()) {
+					intern(role.getAuthority(), ids, roles);
+				}
+			}
+			BitSet[] reachable = new BitSet[roles.size()];
+			for (Map.Entry<String, Set<GrantedAuthority>> entry : reachableRoles.entrySet()) {
+				BitSet reachableFromRole = new BitSet(roles.size());
+				for (GrantedAuthority role : entry.getValue()) {
+					reachableFromRole.set(ids.get(role.getAuthority()));
+				}
+				reachable[ids.get(entry.getKey())] = reachableFromRole;
+			}
+			return new Hierarchy(ids, roles.toArray(new GrantedAuthority[0]), reachable, cacheSize);
+		}
+
+		private static void intern(String role, Map<String, Integer> ids, List<GrantedAuthority> roles) {
+			if (!ids.containsKey(role)) {
+				ids.put(role, roles.size());
+				roles.add(new SimpleGrantedAuthority(role));
+			}
+		}
+
+		private Hierarchy withCacheSize(int cacheSize) {
+			return new Hierarchy(this.ids, this.roles, this.reachable, cacheSize);
+		}
+
+		private List<GrantedAuthority> reachableFrom(Collection<? extends GrantedAuthority> authorities) {
+			List<GrantedAuthority> result = new ArrayList<>();
+			BitSet processed = new BitSet(this.roles.length);
+			Set<String> processedOtherNames = null;
+			for (GrantedAuthority authority : authorities) {
+				String name = authority.getAuthority();
+				// Do not process authorities without string representation
+				if (name == null) {
+					if (!result.contains(authority)) {
+						result.add(authority);
+					}
+					continue;
+				}
+				Integer id = this.ids.get(name);
+				if (id == null) {
+					// Not part of the hierarchy
+					processedOtherNames = (processedOtherNames != null) ? processedOtherNames : new HashSet<>();
+					if (processedOtherNames.add(name)) {
+						result.add(authority);
+					}
+					continue;
+				}
+				if (processed.get(id)) {
+					continue;
+				}
+				processed.set(id);
+				result.add(authority);
+				BitSet reachable = this.reachable[id];
+				if (reachable == null) {
+					continue;
+				}
+				for (int i = reachable.nextSetBit(0); i >= 0; i = reachable.nextSetBit(i + 1)) {
+					if (!processed.get(i)) {
+						processed.set(i);
+						result.add(this.roles[i]);
+					}
+				}
+			}
+			return result;
+		}
+
+	}
+
+}
@@ -152,6 +152,10 @@ public class RoleHierarchyImpl implements RoleHierarchy {
 		return new ArrayList<>(reachableRoles);
 	}
 
+	Map<String, Set<GrantedAuthority>> getRolesReachableInOneOrMoreStepsMap() {
+		return this.rolesReachableInOneOrMoreStepsMap;
+	}
+
 	/**
 	 * Parse input and build the map for the roles reachable in one step: the higher role
 	 * will become a key that references a set of the reachable lower roles.
@@ -32,6 +32,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsChecker;
 import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.PasswordHashMemoryUnavailableException;
 import org.springframework.util.Assert;
 
 /**
@@ -60,6 +61,10 @@ public abstract class AbstractUserDetailsReactiveAuthenticationManager
 
 	private Scheduler scheduler = Schedulers.boundedElastic();
 
+	private PasswordHashingExecutor passwordHashingExecutor;
+
+	private ReactivePasswordUpgradeExecutor passwordUpgradeExecutor;
+
 	private UserDetailsChecker preAuthenticationChecks = this::defaultPreAuthenticationChecks;
 
 	private UserDetailsChecker postAuthenticationChecks = this::defaultPostAuthenticationChecks;
@@ -97,16 +102,36 @@ public abstract class AbstractUserDetailsReactiveAuthenticationManager
 		// @formatter:off
 		return retrieveUser(username)
 				.doOnNext(this.preAuthenticationChecks::check)
-				.publishOn(this.scheduler)
-				.filter((userDetails) -> this.passwordEncoder.matches(presentedPassword, userDetails.getPassword()))
+				.transform((retrieved) -> matches(retrieved, presentedPassword))
 				.switchIfEmpty(Mono.defer(() -> Mono.error(new BadCredentialsException("Invalid Credentials"))))
 				.flatMap((userDetails) -> upgradeEncodingIfNecessary(userDetails, presentedPassword))
+				.onErrorMap(PasswordHashMemoryUnavailableException.class,
+						(ex) -> new AuthenticationServiceException(ex.getMessage(), ex))
 				.doOnNext(this.postAuthenticationChecks::check)
 				.map(this::createUsernamePasswordAuthenticationToken);
 		// @formatter:on
 	}
 
+	private Mono<UserDetails> matches(Mono<UserDetails> retrieved, String presentedPassword) {
+		PasswordHashingExecutor passwordHashingExecutor = this.passwordHashingExecutor;
+		if (passwordHashingExecutor == null) {
+			return retrieved.publishOn(this.scheduler)
+					.filter((userDetails) -> this.passwordEncoder.matches(presentedPassword,
+							userDetails.getPassword()));
+		}
+		// the result is published on the scheduler, so that what follows does not hold up a hashing thread
+		return retrieved.filterWhen((userDetails) -> Mono.fromFuture(() -> passwordHashingExecutor.submit(
+				this.passwordEncoder, userDetails.getUsername(), presentedPassword, userDetails.getPassword()))
+				.publishOn(this.scheduler));
+	}
+
 	private Mono<UserDetails> upgradeEncodingIfNecessary(UserDetails userDetails, String presentedPassword) {
+		if (this.passwordUpgradeExecutor != null) {
+			if (this.passwordEncoder.upgradeEncoding(userDetails.getPassword())) {
+				this.passwordUpgradeExecutor.submit(this.passwordEncoder, userDetails, presentedPassword);
+			}
+			return Mono.just(userDetails);
+		}
 		boolean upgradeEncoding = this.userDetailsPasswordService != null
 				&& this.passwordEncoder.upgradeEncoding(userDetails.getPassword());
 		if (upgradeEncoding) {
@@ -148,6 +173,32 @@ public abstract class AbstractUserDetailsReactiveAuthenticationManager
 		this.scheduler = scheduler;
 	}
 
+	/**
+	 * Sets the {@link PasswordHashingExecutor} that verifies presented passwords. When
+	 * set, it is used instead of the {@link #setScheduler(Scheduler) scheduler}, so the
+	 * number of concurrent verifications is bounded and excess attempts fail fast. The
+	 * authentication then continues on the scheduler.
+	 * @param passwordHashingExecutor the {@link PasswordHashingExecutor} to use
+	 * @since 6.1
+	 */
+	public void setPasswordHashingExecutor(PasswordHashingExecutor passwordHashingExecutor) {
+		Assert.notNull(passwordHashingExecutor, "passwordHashingExecutor cannot be null");
+		this.passwordHashingExecutor = passwordHashingExecutor;
+	}
+
+	/**
+	 * Sets the {@link ReactivePasswordUpgradeExecutor} that upgrades the encoding of
+	 * passwords in the background. When set, it is used instead of the
+	 * {@link #setUserDetailsPasswordService(ReactiveUserDetailsPasswordService) password
+	 * service}, so a successful authentication does not wait for the upgrade.
+	 * @param passwordUpgradeExecutor the {@link ReactivePasswordUpgradeExecutor} to use
+	 * @since 6.1
+	 */
+	public void setPasswordUpgradeExecutor(ReactivePasswordUpgradeExecutor passwordUpgradeExecutor) {
+		Assert.notNull(passwordUpgradeExecutor, "passwordUpgradeExecutor cannot be null");
+		this.passwordUpgradeExecutor = passwordUpgradeExecutor;
+	}
+
 	/**
 	 * Sets the service to use for upgrading passwords on successful authentication.
 	 * @param userDetailsPasswordService the service to use
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.authentication;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.codec.Utf8;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.util.Assert;
+
+/**
+ * Runs {@link PasswordEncoder#matches(CharSequence, String)} on a bounded pool of
+ * threads, so that a burst of authentication attempts cannot occupy every request
+ * thread with password hashing.
+ *
+ * <p>
+ * The pool has a fixed number of threads, by default one per available processor, and a
+ * bounded queue. When the queue is full, an attempt fails fast with an
+ * {@link AuthenticationServiceException} instead of waiting. Attempts for the same
+ * principal with the same presented and encoded password that are in flight at the same
+ * time are coalesced into a single hash computation.
+ *
+ * <p>
+ * It can be set on
+ * {@link org.springframework.security.authentication.dao.DaoAuthenticationProvider},
+ * which waits for the result, and on
+ * {@link AbstractUserDetailsReactiveAuthenticationManager}, which does not.
+ *
+ * @since 6.1
+ */
+public final class PasswordHashingExecutor implements DisposableBean {
+
+	private final ThreadPoolExecutor executor;
+
+	private final Map<Attempt, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructs a {@code PasswordHashingExecutor} with one thread per available
+	 * processor and a queue of 16 attempts per thread.
+	 */
+	public PasswordHashingExecutor() {
+		this(Runtime.getRuntime().availableProcessors(), 16 * Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructs a {@code PasswordHashingExecutor} using the provided parameters.
+	 * @param threads the number of threads that hash passwords
+	 * @param queueCapacity the maximum number of attempts waiting for a thread
+	 */
+	public PasswordHashingExecutor(int threads, int queueCapacity) {
+		Assert.isTrue(threads > 0, "threads must be greater than 0");
+		Assert.isTrue(queueCapacity > 0, "queueCapacity must be greater than 0");
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("password-hashing-");
+		threadFactory.setDaemon(true);
+		this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	/**
+	 * Verifies the raw password against the encoded password, waiting for the result.
+	 * @param passwordEncoder the {@link PasswordEncoder} that verifies the password
+	 * @param principal the name of the principal that presented the password
+	 * @param rawPassword the presented password
+	 * @param encodedPassword the stored, encoded password
+	 * @return {@code true} if the passwords match
+	 * @throws AuthenticationServiceException if there is no capacity left to verify the
+	 * password or the verification failed
+	 */
+	public boolean matches(PasswordEncoder passwordEncoder, String principal, String rawPassword,
+			String encodedPassword) {
+		CompletableFuture<Boolean> matches = submit(passwordEncoder, principal, rawPassword, encodedPassword);
+		try {
+			return matches.get();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new AuthenticationServiceException("Interrupted while verifying the password", ex);
+		}
+		catch (ExecutionException ex) {
+			if (ex.getCause() instanceof AuthenticationServiceException failure) {
+				throw failure;
+			}
+			throw new AuthenticationServiceException("Failed to verify the password", ex.getCause());
+		}
+	}
+
+	/**
+	 * Verifies the raw password against the encoded password without waiting for the
+	 * result. The returned {@code CompletableFuture} completes on a hashing thread and
+	 * can be cancelled without affecting coalesced attempts.
+	 * @param passwordEncoder the {@link PasswordEncoder} that verifies the password
+	 * @param principal the name of the principal that presented the password
+	 * @param rawPassword the presented password
+	 * @param encodedPassword the stored, encoded password
+	 * @return a {@code CompletableFuture} of whether the passwords match, completed
+	 * exceptionally with an {@link AuthenticationServiceException} if there is no
+	 * capacity left to verify the password
+	 */
+	public CompletableFuture<Boolean> submit(PasswordEncoder passwordEncoder, String principal, String rawPassword,
+			String encodedPassword) {
+		Assert.notNull(passwordEncoder, "passwordEncoder cannot be null");
+		Attempt attempt = new Attempt(passwordEncoder, principal, rawPassword, encodedPassword);
+		CompletableFuture<Boolean> matches = new CompletableFuture<>();
+		CompletableFuture<Boolean> existing = this.inFlight.putIfAbsent(attempt, matches);
+		if (existing != null) {
+			return existing.copy();
+		}
+		try {
+			this.executor.execute(() -> {
+				try {
+					boolean result = passwordEncoder.matches(rawPassword, encodedPassword);
+					this.inFlight.remove(attempt, matches);
+					matches.complete(result);
+				}
+				catch (Throwable ex) {
+					this.inFlight.remove(attempt, matches);
+					matches.completeExceptionally(ex);
+				}
+			});
+		}
+		catch (RejectedExecutionException ex) {
+			this.inFlight.remove(attempt, matches);
+			matches.completeExceptionally(
+					new AuthenticationServiceException("Too many passwords are being verified, try again later", ex));
+		}
+		return matches.copy();
+	}
+
+	/**
+	 * Returns the number of attempts waiting for a thread.
+	 * @return the number of attempts waiting for a thread
+	 */
+	public int getQueueSize() {
+		return this.executor.getQueue().size();
+	}
+
+	@Override
+	public void destroy() {
+		this.executor.shutdownNow();
+	}
+
+	/**
+	 * Keyed on a digest of the presented password, so that the presented password is not
+	 * held by the map of attempts in flight
+	 */
+	private static final class Attempt {
+
+		private final PasswordEncoder passwordEncoder;
+
+		private final String principal;
+
+		private final byte[] rawPasswordDigest;
+
+		private final String encodedPassword;
+
+		private Attempt(PasswordEncoder passwordEncoder, String principal, String rawPassword,
+				String encodedPassword) {
+			this.passwordEncoder = passwordEncoder;
+			this.principal = principal;
+			this.rawPasswordDigest = (rawPassword != null) ? digest(rawPassword) : null;
+			this.encodedPassword = encodedPassword;
+		}
+
+		private static byte[] digest(String rawPassword) {
+			try {
+				return MessageDigest.getInstance("SHA-256").digest(Utf8.encode(rawPassword));
+			}
+			catch (NoSuchAlgorithmException ex) {
+				throw new IllegalStateException("No SHA-256 algorithm available", ex);
+			}
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Attempt that)) {
+				return false;
+			}
+			return this.passwordEncoder == that.passwordEncoder && Objects.equals(this.principal, that.principal)
+					&& MessageDigest.isEqual(this.rawPasswordDigest, that.rawPasswordDigest)
+					&& Objects.equals(this.encodedPassword, that.encodedPassword);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(System.identityHashCode(this.passwordEncoder), this.principal,
+					Arrays.hashCode(this.rawPasswordDigest), this.encodedPassword);
+		}
+
+	}
+
+}
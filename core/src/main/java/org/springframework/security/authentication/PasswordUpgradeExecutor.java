@@ -0,0 +1,236 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.authentication;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.log.LogMessage;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.core.userdetails.PasswordUpdate;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.util.Assert;
+
+/**
+ * Upgrades the encoding of passwords in the background, so that a successful
+ * authentication does not wait for the presented password to be encoded again and
+ * written. Encoded passwords are written in batches with
+ * {@link UserDetailsPasswordService#updatePasswords(java.util.List)}, once a batch is full or the
+ * flush interval has elapsed.
+ *
+ * <p>
+ * The {@link UserDetailsPasswordService} is given each user as it was authenticated,
+ * along with the password it authenticated with, captured before its credentials can be
+ * erased, so that it can leave alone the users whose password was changed before the
+ * upgrade is written.
+ *
+ * <p>
+ * At most {@code capacity} upgrades are in flight, at most one per user. Further
+ * upgrades are dropped rather than queued: the stored password still matches, so the
+ * upgrade is attempted again on a later authentication. Upgrades that fail to be encoded
+ * or written are logged and dropped as well.
+ *
+ * <p>
+ * It can be set on
+ * {@link org.springframework.security.authentication.dao.DaoAuthenticationProvider}.
+ *
+ * @since 6.1
+ * @see ReactivePasswordUpgradeExecutor
+ */
+public final class PasswordUpgradeExecutor implements DisposableBean {
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private final UserDetailsPasswordService userDetailsPasswordService;
+
+	private final PendingPasswordUpgrades pending;
+
+	private final ThreadPoolExecutor encoders;
+
+	private final ScheduledThreadPoolExecutor writer;
+
+	private int batchSize = 100;
+
+	private Duration flushInterval = Duration.ofSeconds(1);
+
+	/**
+	 * Constructs a {@code PasswordUpgradeExecutor} with a single encoding thread and
+	 * room for 1000 upgrades in flight.
+	 * @param userDetailsPasswordService the service that writes the upgraded passwords
+	 */
+	public PasswordUpgradeExecutor(UserDetailsPasswordService userDetailsPasswordService) {
+		this(userDetailsPasswordService, 1, 1000);
+	}
+
+	/**
+	 * Constructs a {@code PasswordUpgradeExecutor} using the provided parameters.
+	 * @param userDetailsPasswordService the service that writes the upgraded passwords
+	 * @param threads the number of threads that encode passwords
+	 * @param capacity the maximum number of upgrades in flight
+	 */
+	public PasswordUpgradeExecutor(UserDetailsPasswordService userDetailsPasswordService, int threads,
+			int capacity) {
+		Assert.notNull(userDetailsPasswordService, "userDetailsPasswordService cannot be null");
+		Assert.isTrue(threads > 0, "threads must be greater than 0");
+		Assert.isTrue(capacity > 0, "capacity must be greater than 0");
+		this.userDetailsPasswordService = userDetailsPasswordService;
+		this.pending = new PendingPasswordUpgrades(capacity);
+		this.encoders = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<>(capacity), daemonThreads("password-upgrade-"),
+				new ThreadPoolExecutor.AbortPolicy());
+		this.writer = new ScheduledThreadPoolExecutor(1, daemonThreads("password-upgrade-writer-"));
+		this.writer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+	}
+
+	/**
+	 * Sets the maximum number of passwords written at once. The default is 100.
+	 * @param batchSize the maximum number of passwords written at once
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "batchSize must be greater than 0");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Sets the maximum time an encoded password waits for its batch to fill up before
+	 * it is written. The default is one second.
+	 * @param flushInterval the maximum time an encoded password waits to be written
+	 */
+	public void setFlushInterval(Duration flushInterval) {
+		Assert.notNull(flushInterval, "flushInterval cannot be null");
+		Assert.isTrue(!flushInterval.isNegative(), "flushInterval cannot be negative");
+		this.flushInterval = flushInterval;
+	}
+
+	/**
+	 * Encodes the presented password of the user again in the background and writes it.
+	 * @param passwordEncoder the {@link PasswordEncoder} that encodes the password
+	 * @param user the authenticated user
+	 * @param presentedPassword the password the user authenticated with
+	 * @return {@code true} if the upgrade was accepted, {@code false} if it was dropped
+	 */
+	public boolean submit(PasswordEncoder passwordEncoder, UserDetails user, String presentedPassword) {
+		Assert.notNull(passwordEncoder, "passwordEncoder cannot be null");
+		Assert.notNull(user, "user cannot be null");
+		String username = user.getUsername();
+		if (!this.pending.acquire(username)) {
+			this.logger.debug(LogMessage.format("Dropped password upgrade for user '%s'", username));
+			return false;
+		}
+		// captured, so that it survives erased credentials
+		String currentPassword = user.getPassword();
+		try {
+			this.encoders.execute(() -> encode(passwordEncoder, user, currentPassword, presentedPassword));
+			return true;
+		}
+		catch (RejectedExecutionException ex) {
+			this.pending.release(username);
+			this.logger.debug(LogMessage.format("Dropped password upgrade for user '%s'", username));
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the number of upgrades either being encoded or waiting to be written.
+	 * @return the number of upgrades in flight
+	 */
+	public int getInFlight() {
+		return this.pending.size();
+	}
+
+	/**
+	 * Discards the upgrades that are waiting to be encoded, waits up to the flush
+	 * interval for the passwords being encoded and writes the passwords that are
+	 * encoded.
+	 */
+	@Override
+	public void destroy() {
+		this.encoders.getQueue().clear();
+		this.encoders.shutdown();
+		this.writer.shutdown();
+		try {
+			this.encoders.awaitTermination(this.flushInterval.toNanos(), TimeUnit.NANOSECONDS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		flush();
+	}
+
+	private void encode(PasswordEncoder passwordEncoder, UserDetails user, String currentPassword,
+			String presentedPassword) {
+		String newPassword;
+		try {
+			newPassword = passwordEncoder.encode(presentedPassword);
+		}
+		catch (RuntimeException ex) {
+			this.pending.release(user.getUsername());
+			this.logger.warn(LogMessage.format("Failed to upgrade the password of user '%s'", user.getUsername()),
+					ex);
+			return;
+		}
+		int encoded = this.pending.add(user.getUsername(), new PasswordUpdate(user, currentPassword, newPassword));
+		try {
+			if (encoded >= this.batchSize) {
+				this.writer.execute(this::flush);
+			}
+			else if (encoded == 1) {
+				this.writer.schedule(this::flush, this.flushInterval.toNanos(), TimeUnit.NANOSECONDS);
+			}
+		}
+		catch (RejectedExecutionException ex) {
+			// shutting down, destroy() writes what is left
+		}
+	}
+
+	private void flush() {
+		Map<String, PasswordUpdate> batch = this.pending.take(this.batchSize);
+		while (!batch.isEmpty()) {
+			try {
+				this.userDetailsPasswordService.updatePasswords(new ArrayList<>(batch.values()));
+				this.logger.debug(LogMessage.format("Upgraded the passwords of %d users", batch.size()));
+			}
+			catch (RuntimeException ex) {
+				this.logger.warn(LogMessage.format("Failed to upgrade the passwords of %d users", batch.size()), ex);
+			}
+			finally {
+				batch.keySet().forEach(this.pending::release);
+			}
+			batch = this.pending.take(this.batchSize);
+		}
+	}
+
+	private static ThreadFactory daemonThreads(String prefix) {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(prefix);
+		threadFactory.setDaemon(true);
+		return threadFactory;
+	}
+
+}
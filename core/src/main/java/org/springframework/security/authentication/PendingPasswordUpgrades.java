@@ -0,0 +1,103 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.authentication;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.security.core.userdetails.PasswordUpdate;
+
+/**
+ * The password upgrades of {@link PasswordUpgradeExecutor} and
+ * {@link ReactivePasswordUpgradeExecutor} that are either being encoded or waiting to be
+ * written. At most one upgrade per user is in flight, and at most {@code capacity}
+ * upgrades in total.
+ */
+final class PendingPasswordUpgrades {
+
+	private final int capacity;
+
+	private final AtomicInteger size = new AtomicInteger();
+
+	private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+	private final Map<String, PasswordUpdate> encoded = new LinkedHashMap<>();
+
+	PendingPasswordUpgrades(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Reserve room for an upgrade of the user, returning {@code false} if there is no
+	 * room left or the user is already being upgraded
+	 */
+	boolean acquire(String username) {
+		if (this.size.incrementAndGet() > this.capacity) {
+			this.size.decrementAndGet();
+			return false;
+		}
+		if (!this.inFlight.add(username)) {
+			this.size.decrementAndGet();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Release the room reserved for an upgrade of the user
+	 */
+	void release(String username) {
+		if (this.inFlight.remove(username)) {
+			this.size.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Add an encoded password waiting to be written, returning the number of them
+	 */
+	synchronized int add(String username, PasswordUpdate update) {
+		this.encoded.put(username, update);
+		return this.encoded.size();
+	}
+
+	/**
+	 * Remove up to {@code batchSize} encoded passwords, in the order they were added
+	 */
+	synchronized Map<String, PasswordUpdate> take(int batchSize) {
+		Map<String, PasswordUpdate> batch = new LinkedHashMap<>();
+		Iterator<Map.Entry<String, PasswordUpdate>> updates = this.encoded.entrySet().iterator();
+		while (updates.hasNext() && batch.size() < batchSize) {
+			Map.Entry<String, PasswordUpdate> update = updates.next();
+			batch.put(update.getKey(), update.getValue());
+			updates.remove();
+		}
+		return batch;
+	}
+
+	synchronized int encodedSize() {
+		return this.encoded.size();
+	}
+
+	int size() {
+		return this.size.get();
+	}
+
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.authentication;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.log.LogMessage;
+import org.springframework.security.core.userdetails.PasswordUpdate;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.util.Assert;
+
+/**
+ * The reactive counterpart of {@link PasswordUpgradeExecutor}. Passwords are encoded on
+ * the {@link #setScheduler(Scheduler) scheduler} and written in batches with
+ * {@link ReactiveUserDetailsPasswordService#updatePasswords(java.util.List)}, one batch at a time,
+ * without holding up the authentication.
+ *
+ * <p>
+ * The {@link ReactiveUserDetailsPasswordService} is given each user as it was
+ * authenticated, along with the password it authenticated with, captured before its
+ * credentials can be erased, so that it can leave alone the users whose password was
+ * changed before the upgrade is written.
+ *
+ * <p>
+ * At most {@code capacity} upgrades are in flight, at most one per user. Further
+ * upgrades are dropped, as are upgrades that fail to be encoded or written; they are
+ * attempted again on a later authentication.
+ *
+ * <p>
+ * It can be set on {@link AbstractUserDetailsReactiveAuthenticationManager}.
+ *
+ * @since 6.1
+ */
+public final class ReactivePasswordUpgradeExecutor implements DisposableBean {
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private final ReactiveUserDetailsPasswordService userDetailsPasswordService;
+
+	private final PendingPasswordUpgrades pending;
+
+	private final AtomicBoolean flushing = new AtomicBoolean();
+
+	private Scheduler scheduler = Schedulers.boundedElastic();
+
+	private int batchSize = 100;
+
+	private Duration flushInterval = Duration.ofSeconds(1);
+
+	/**
+	 * Constructs a {@code ReactivePasswordUpgradeExecutor} with room for 1000 upgrades
+	 * in flight.
+	 * @param userDetailsPasswordService the service that writes the upgraded passwords
+	 */
+	public ReactivePasswordUpgradeExecutor(ReactiveUserDetailsPasswordService userDetailsPasswordService) {
+		this(userDetailsPasswordService, 1000);
+	}
+
+	/**
+	 * Constructs a {@code ReactivePasswordUpgradeExecutor} using the provided parameters.
+	 * @param userDetailsPasswordService the service that writes the upgraded passwords
+	 * @param capacity the maximum number of upgrades in flight
+	 */
+	public ReactivePasswordUpgradeExecutor(ReactiveUserDetailsPasswordService userDetailsPasswordService,
+			int capacity) {
+		Assert.notNull(userDetailsPasswordService, "userDetailsPasswordService cannot be null");
+		Assert.isTrue(capacity > 0, "capacity must be greater than 0");
+		this.userDetailsPasswordService = userDetailsPasswordService;
+		this.pending = new PendingPasswordUpgrades(capacity);
+	}
+
+	/**
+	 * Sets the {@link Scheduler} that encodes passwords. The default is
+	 * {@link Schedulers#boundedElastic()}.
+	 * @param scheduler the {@link Scheduler} to use
+	 */
+	public void setScheduler(Scheduler scheduler) {
+		Assert.notNull(scheduler, "scheduler cannot be null");
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Sets the maximum number of passwords written at once. The default is 100.
+	 * @param batchSize the maximum number of passwords written at once
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "batchSize must be greater than 0");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Sets the maximum time an encoded password waits for its batch to fill up before
+	 * it is written. The default is one second.
+	 * @param flushInterval the maximum time an encoded password waits to be written
+	 */
+	public void setFlushInterval(Duration flushInterval) {
+		Assert.notNull(flushInterval, "flushInterval cannot be null");
+		Assert.isTrue(!flushInterval.isNegative(), "flushInterval cannot be negative");
+		this.flushInterval = flushInterval;
+	}
+
+	/**
+	 * Encodes the presented password of the user again in the background and writes it.
+	 * @param passwordEncoder the {@link PasswordEncoder} that encodes the password
+	 * @param user the authenticated user
+	 * @param presentedPassword the password the user authenticated with
+	 * @return {@code true} if the upgrade was accepted, {@code false} if it was dropped
+	 */
+	public boolean submit(PasswordEncoder passwordEncoder, UserDetails user, String presentedPassword) {
+		Assert.notNull(passwordEncoder, "passwordEncoder cannot be null");
+		Assert.notNull(user, "user cannot be null");
+		String username = user.getUsername();
+		if (!this.pending.acquire(username)) {
+			this.logger.debug(LogMessage.format("Dropped password upgrade for user '%s'", username));
+			return false;
+		}
+		// captured, so that it survives erased credentials
+		String currentPassword = user.getPassword();
+		// @formatter:off
+		Mono.fromCallable(() -> passwordEncoder.encode(presentedPassword))
+				.subscribeOn(this.scheduler)
+				.subscribe((newPassword) -> encoded(new PasswordUpdate(user, currentPassword, newPassword)), (ex) -> {
+					this.pending.release(username);
+					this.logger.warn(LogMessage.format("Failed to upgrade the password of user '%s'", username), ex);
+				});
+		// @formatter:on
+		return true;
+	}
+
+	/**
+	 * Returns the number of upgrades either being encoded or waiting to be written.
+	 * @return the number of upgrades in flight
+	 */
+	public int getInFlight() {
+		return this.pending.size();
+	}
+
+	/**
+	 * Writes the passwords that are already encoded, waiting for them to be written.
+	 */
+	@Override
+	public void destroy() {
+		Map<String, PasswordUpdate> batch = this.pending.take(this.batchSize);
+		while (!batch.isEmpty()) {
+			write(batch).block();
+			batch = this.pending.take(this.batchSize);
+		}
+	}
+
+	private void encoded(PasswordUpdate update) {
+		int encoded = this.pending.add(update.getUser().getUsername(), update);
+		if (encoded >= this.batchSize) {
+			flush();
+		}
+		else if (encoded == 1) {
+			scheduleFlush();
+		}
+	}
+
+	private void scheduleFlush() {
+		Mono.delay(this.flushInterval).subscribe((tick) -> flush());
+	}
+
+	/**
+	 * Write a batch unless one is being written already, in which case what is left is
+	 * written once that completes
+	 */
+	private void flush() {
+		if (!this.flushing.compareAndSet(false, true)) {
+			return;
+		}
+		Map<String, PasswordUpdate> batch = this.pending.take(this.batchSize);
+		if (batch.isEmpty()) {
+			this.flushing.set(false);
+			return;
+		}
+		write(batch).doFinally((signal) -> {
+			this.flushing.set(false);
+			int encoded = this.pending.encodedSize();
+			if (encoded >= this.batchSize) {
+				flush();
+			}
+			else if (encoded > 0) {
+				scheduleFlush();
+			}
+		}).subscribe();
+	}
+
+	private Mono<Void> write(Map<String, PasswordUpdate> batch) {
+		// @formatter:off
+		return Mono.defer(() -> this.userDetailsPasswordService.updatePasswords(new ArrayList<>(batch.values())))
+				.doOnSuccess((done) -> this.logger.debug(
+						LogMessage.format("Upgraded the passwords of %d users", batch.size())))
+				.onErrorResume((ex) -> {
+					this.logger.warn(LogMessage.format("Failed to upgrade the passwords of %d users", batch.size()),
+							ex);
+					return Mono.empty();
+				})
+				.doFinally((signal) -> batch.keySet().forEach(this.pending::release));
+		// @formatter:on
+	}
+
+}
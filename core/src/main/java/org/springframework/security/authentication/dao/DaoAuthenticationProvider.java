@@ -17,8 +17,11 @@
 package org.springframework.security.authentication.dao;
 
 import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.AuthenticationServiceException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.security.authentication.PasswordHashingExecutor;
+import org.springframework.security.authentication.PasswordUpgradeExecutor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
@@ -28,6 +31,7 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.PasswordHashMemoryUnavailableException;
 import org.springframework.util.Assert;
 
 /**
@@ -60,6 +64,10 @@ public class DaoAuthenticationProvider extends AbstractUserDetailsAuthentication
 
 	private UserDetailsPasswordService userDetailsPasswordService;
 
+	private PasswordHashingExecutor passwordHashingExecutor;
+
+	private PasswordUpgradeExecutor passwordUpgradeExecutor;
+
 	public DaoAuthenticationProvider() {
 		setPasswordEncoder(PasswordEncoderFactories.createDelegatingPasswordEncoder());
 	}
@@ -74,7 +82,7 @@ public class DaoAuthenticationProvider extends AbstractUserDetailsAuthentication
 					.getMessage("AbstractUserDetailsAuthenticationProvider.badCredentials", "Bad credentials"));
 		}
 		String presentedPassword = authentication.getCredentials().toString();
-		if (!this.passwordEncoder.matches(presentedPassword, userDetails.getPassword())) {
+		if (!matches(userDetails.getUsername(), presentedPassword, userDetails.getPassword())) {
 			this.logger.debug("Failed to authenticate since password does not match stored value");
 			throw new BadCredentialsException(this.messages
 					.getMessage("AbstractUserDetailsAuthenticationProvider.badCredentials", "Bad credentials"));
@@ -113,11 +121,18 @@ public class DaoAuthenticationProvider extends AbstractUserDetailsAuthentication
 	@Override
 	protected Authentication createSuccessAuthentication(Object principal, Authentication authentication,
 			UserDetails user) {
+		if (this.passwordUpgradeExecutor != null) {
+			if (this.passwordEncoder.upgradeEncoding(user.getPassword())) {
+				String presentedPassword = authentication.getCredentials().toString();
+				this.passwordUpgradeExecutor.submit(this.passwordEncoder, user, presentedPassword);
+			}
+			return super.createSuccessAuthentication(principal, authentication, user);
+		}
 		boolean upgradeEncoding = this.userDetailsPasswordService != null
 				&& this.passwordEncoder.upgradeEncoding(user.getPassword());
 		if (upgradeEncoding) {
 			String presentedPassword = authentication.getCredentials().toString();
-			String newPassword = this.passwordEncoder.encode(presentedPassword);
+			String newPassword = encode(presentedPassword);
 			user = this.userDetailsPasswordService.updatePassword(user, newPassword);
 		}
 		return super.createSuccessAuthentication(principal, authentication, user);
@@ -132,7 +147,29 @@ public class DaoAuthenticationProvider extends AbstractUserDetailsAuthentication
 	private void mitigateAgainstTimingAttack(UsernamePasswordAuthenticationToken authentication) {
 		if (authentication.getCredentials() != null) {
 			String presentedPassword = authentication.getCredentials().toString();
-			this.passwordEncoder.matches(presentedPassword, this.userNotFoundEncodedPassword);
+			matches(authentication.getName(), presentedPassword, this.userNotFoundEncodedPassword);
+		}
+	}
+
+	private boolean matches(String principal, String presentedPassword, String encodedPassword) {
+		if (this.passwordHashingExecutor != null) {
+			return this.passwordHashingExecutor.matches(this.passwordEncoder, principal, presentedPassword,
+					encodedPassword);
+		}
+		try {
+			return this.passwordEncoder.matches(presentedPassword, encodedPassword);
+		}
+		catch (PasswordHashMemoryUnavailableException ex) {
+			throw new AuthenticationServiceException(ex.getMessage(), ex);
+		}
+	}
+
+	private String encode(String presentedPassword) {
+		try {
+			return this.passwordEncoder.encode(presentedPassword);
+		}
+		catch (PasswordHashMemoryUnavailableException ex) {
+			throw new AuthenticationServiceException(ex.getMessage(), ex);
 		}
 	}
 
@@ -165,4 +202,29 @@ public class DaoAuthenticationProvider extends AbstractUserDetailsAuthentication
 		this.userDetailsPasswordService = userDetailsPasswordService;
 	}
 
+	/**
+	 * Sets the {@link PasswordHashingExecutor} that verifies presented passwords,
+	 * including the verification performed when the user is not found. By default,
+	 * passwords are verified on the calling thread.
+	 * @param passwordHashingExecutor the {@link PasswordHashingExecutor} to use
+	 * @since 6.1
+	 */
+	public void setPasswordHashingExecutor(PasswordHashingExecutor passwordHashingExecutor) {
+		Assert.notNull(passwordHashingExecutor, "passwordHashingExecutor cannot be null");
+		this.passwordHashingExecutor = passwordHashingExecutor;
+	}
+
+	/**
+	 * Sets the {@link PasswordUpgradeExecutor} that upgrades the encoding of passwords in
+	 * the background. When set, it is used instead of the
+	 * {@link #setUserDetailsPasswordService(UserDetailsPasswordService) password service},
+	 * so a successful authentication does not wait for the upgrade.
+	 * @param passwordUpgradeExecutor the {@link PasswordUpgradeExecutor} to use
+	 * @since 6.1
+	 */
+	public void setPasswordUpgradeExecutor(PasswordUpgradeExecutor passwordUpgradeExecutor) {
+		Assert.notNull(passwordUpgradeExecutor, "passwordUpgradeExecutor cannot be null");
+		this.passwordUpgradeExecutor = passwordUpgradeExecutor;
+	}
+
 }
@@ -0,0 +1,409 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.core.session;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.log.LogMessage;
+import org.springframework.security.core.SpringSecurityCoreVersion;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link SessionRegistry} for applications with a large number of concurrent sessions.
+ * <p>
+ * Like {@link SessionRegistryImpl}, it listens for {@link SessionDestroyedEvent}s and
+ * {@link SessionIdChangedEvent}s, but keeps a single compact record per session that
+ * refers to an interned entry per principal, instead of a {@link SessionInformation} and
+ * a set of session ids per principal. The sessions of a principal are kept in a small
+ * array that is read without locking, which keeps
+ * {@link #getAllSessions(Object, boolean)} cheap for
+ * {@code ConcurrentSessionControlAuthenticationStrategy}. Because principals are interned,
+ * {@link SessionInformation#getPrincipal()} returns the principal that registered the
+ * first of its current sessions.
+ * <p>
+ * Sessions without a request for longer than the maximum inactive interval are removed
+ * by a timer wheel, even if no {@link SessionDestroyedEvent} is received for them. The
+ * maximum inactive interval must therefore be at least as long as the session timeout
+ * of the container. The wheel is swept as a side effect of registering and removing
+ * sessions, and can also be swept explicitly with {@link #removeInactiveSessions()}.
+ * Sessions that were {@link SessionInformation#expireNow() expired} are kept until they
+ * are destroyed or inactive, so that they can still be detected.
+ * <p>
+ * The {@link SessionInformation} instances returned are views of the session records,
+ * which are created on every call and serialize as plain {@link SessionInformation}s.
+ *
+ * @since 6.1
+ * @see SessionRegistryImpl
+ */
+public class CompactSessionRegistry implements SessionRegistry, ApplicationListener<AbstractSessionEvent> {
+
+	private static final int WHEEL_TICKS = 64;
+
+	private static final long MINIMUM_TICK_MILLIS = 1000;
+
+	private static final SessionRecord[] NO_SESSIONS = new SessionRecord[0];
+
+	private static final Date UNUSED_DATE = new Date(0);
+
+	protected final Log logger = LogFactory.getLog(CompactSessionRegistry.class);
+
+	private final ConcurrentMap<Object, PrincipalSessions> principals = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, SessionRecord> sessions = new ConcurrentHashMap<>();
+
+	private final long maxInactiveMillis;
+
+	private final long tickMillis;
+
+	private final Bucket[] wheel;
+
+	private final ReentrantLock sweepLock = new ReentrantLock();
+
+	private long sweptTick = -1;
+
+	private volatile long nextSweepMillis;
+
+	private Clock clock = Clock.systemUTC();
+
+	/**
+	 * Create a new {@link CompactSessionRegistry}
+	 * @param maxInactiveInterval the time after its last request after which a session is
+	 * removed, which must not be shorter than the session timeout of the container
+	 */
+	public CompactSessionRegistry(Duration maxInactiveInterval) {
+		Assert.notNull(maxInactiveInterval, "maxInactiveInterval cannot be null");
+		Assert.isTrue(maxInactiveInterval.toMillis() > 0, "maxInactiveInterval must be positive");
+		this.maxInactiveMillis = maxInactiveInterval.toMillis();
+		this.tickMillis = Math.max(MINIMUM_TICK_MILLIS, (this.maxInactiveMillis + WHEEL_TICKS - 1) / WHEEL_TICKS);
+		// a deadline is never more than maxInactiveInterval ahead, so two spare buckets
+		// are enough for each bucket to only hold sessions of a single tick
+		this.wheel = new Bucket[(int) ((this.maxInactiveMillis + this.tickMillis - 1) / this.tickMillis) + 2];
+		for (int i = 0; i < this.wheel.length; i++) {
+			this.wheel[i] = new Bucket();
+		}
+	}
+
+	@Override
+	public List<Object> getAllPrincipals() {
+		return new ArrayList<>(this.principals.keySet());
+	}
+
+	@Override
+	public List<SessionInformation> getAllSessions(Object principal, boolean includeExpiredSessions) {
+		PrincipalSessions principalSessions = this.principals.get(principal);
+		if (principalSessions == null) {
+			return Collections.emptyList();
+		}
+		SessionRecord[] records = principalSessions.records;
+		List<SessionInformation> list = new ArrayList<>(records.length);
+		for (SessionRecord record : records) {
+			if (includeExpiredSessions || !record.expired) {
+				list.add(new RecordSessionInformation(record, this));
+			}
+		}
+		return list;
+	}
+
+	@Override
+	public SessionInformation getSessionInformation(String sessionId) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+		SessionRecord record = this.sessions.get(sessionId);
+		return (record != null) ? new RecordSessionInformation(record, this) : null;
+	}
+
+	@Override
+	public void onApplicationEvent(AbstractSessionEvent event) {
+		if (event instanceof SessionDestroyedEvent sessionDestroyedEvent) {
+			removeSessionInformation(sessionDestroyedEvent.getId());
+		}
+		else if (event instanceof SessionIdChangedEvent sessionIdChangedEvent) {
+			SessionRecord record = this.sessions.get(sessionIdChangedEvent.getOldSessionId());
+			if (record != null) {
+				removeSessionInformation(record.sessionId);
+				registerNewSession(sessionIdChangedEvent.getNewSessionId(), record.owner.principal);
+			}
+		}
+	}
+
+	@Override
+	public void refreshLastRequest(String sessionId) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+		SessionRecord record = this.sessions.get(sessionId);
+		if (record != null) {
+			// the record stays in its bucket and is moved when that bucket is swept
+			record.lastRequest = this.clock.millis();
+		}
+	}
+
+	@Override
+	public void registerNewSession(String sessionId, Object principal) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+		Assert.notNull(principal, "Principal required as per interface contract");
+		if (this.sessions.containsKey(sessionId)) {
+			removeSessionInformation(sessionId);
+		}
+		this.logger.debug(LogMessage.format("Registering session %s, for principal %s", sessionId, principal));
+		long now = this.clock.millis();
+		SessionRecord[] registered = new SessionRecord[1];
+		this.principals.compute(principal, (key, principalSessions) -> {
+			if (principalSessions == null) {
+				principalSessions = new PrincipalSessions(key);
+			}
+			SessionRecord record = new SessionRecord(sessionId, principalSessions, now);
+			principalSessions.add(record);
+			this.sessions.put(sessionId, record);
+			registered[0] = record;
+			return principalSessions;
+		});
+		schedule(registered[0]);
+		sweepIfDue(now);
+	}
+
+	@Override
+	public void removeSessionInformation(String sessionId) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+		SessionRecord record = this.sessions.get(sessionId);
+		if (record != null) {
+			this.logger.debug(LogMessage.format("Removing session %s from set of registered sessions", sessionId));
+			remove(record);
+		}
+		sweepIfDue(this.clock.millis());
+	}
+
+	/**
+	 * Removes all sessions without a request for longer than the maximum inactive
+	 * interval. Only the buckets of the timer wheel that became due since the last sweep
+	 * are visited.
+	 */
+	public void removeInactiveSessions() {
+		this.sweepLock.lock();
+		try {
+			sweep(this.clock.millis());
+		}
+		finally {
+			this.sweepLock.unlock();
+		}
+	}
+
+	/**
+	 * Sets the {@link Clock} used for the time of the last request of a session.
+	 * @param clock the {@link Clock} to use
+	 */
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	private void remove(SessionRecord record) {
+		if (!this.sessions.remove(record.sessionId, record)) {
+			return;
+		}
+		record.removed = true;
+		Object principal = record.owner.principal;
+		this.principals.computeIfPresent(principal, (key, principalSessions) -> {
+			if (principalSessions != record.owner) {
+				return principalSessions;
+			}
+			principalSessions.remove(record);
+			if (principalSessions.records.length == 0) {
+				this.logger.debug(LogMessage.format("Removing principal %s from registry", principal));
+				return null;
+			}
+			return principalSessions;
+		});
+	}
+
+	private void schedule(SessionRecord record) {
+		Bucket bucket = this.wheel[(int) (tick(record.lastRequest + this.maxInactiveMillis) % this.wheel.length)];
+		synchronized (bucket) {
+			record.next = bucket.head;
+			bucket.head = record;
+		}
+	}
+
+	private void sweepIfDue(long now) {
+		if (now < this.nextSweepMillis || !this.sweepLock.tryLock()) {
+			return;
+		}
+		try {
+			sweep(now);
+		}
+		finally {
+			this.sweepLock.unlock();
+		}
+	}
+
+	private void sweep(long now) {
+		long nowTick = tick(now);
+		long fromTick = (this.sweptTick < 0) ? nowTick - this.wheel.length + 1
+				: Math.max(this.sweptTick + 1, nowTick - this.wheel.length + 1);
+		int removed = 0;
+		for (long t = fromTick; t <= nowTick; t++) {
+			Bucket bucket = this.wheel[(int) (t % this.wheel.length)];
+			SessionRecord record;
+			synchronized (bucket) {
+				record = bucket.head;
+				bucket.head = null;
+			}
+			while (record != null) {
+				SessionRecord next = record.next;
+				record.next = null;
+				if (!record.removed) {
+					if (record.lastRequest + this.maxInactiveMillis <= now) {
+						remove(record);
+						removed++;
+					}
+					else {
+						schedule(record);
+					}
+				}
+				record = next;
+			}
+		}
+		// the current tick may still hold sessions that become inactive later on
+		this.sweptTick = nowTick - 1;
+		this.nextSweepMillis = (nowTick + 1) * this.tickMillis;
+		if (removed > 0) {
+			this.logger.debug(LogMessage.format("Removed %d inactive sessions", removed));
+		}
+	}
+
+	private long tick(long millis) {
+		return millis / this.tickMillis;
+	}
+
+	private static final class Bucket {
+
+		private SessionRecord head;
+
+	}
+
+	private static final class PrincipalSessions {
+
+		private final Object principal;
+
+		private volatile SessionRecord[] records = NO_SESSIONS;
+
+		private PrincipalSessions(Object principal) {
+			this.principal = principal;
+		}
+
+		// only called while holding the lock of the principal in the principals map
+		private void add(SessionRecord record) {
+			SessionRecord[] records = Arrays.copyOf(this.records, this.records.length + 1);
+			records[records.length - 1] = record;
+			this.records = records;
+		}
+
+		// only called while holding the lock of the principal in the principals map
+		private void remove(SessionRecord record) {
+			SessionRecord[] records = this.records;
+			for (int i = 0; i < records.length; i++) {
+				if (records[i] == record) {
+					SessionRecord[] remaining = new SessionRecord[records.length - 1];
+					System.arraycopy(records, 0, remaining, 0, i);
+					System.arraycopy(records, i + 1, remaining, i, remaining.length - i);
+					this.records = remaining;
+					return;
+				}
+			}
+		}
+
+	}
+
+	private static final class SessionRecord {
+
+		private final String sessionId;
+
+		private final PrincipalSessions owner;
+
+		private volatile long lastRequest;
+
+		private volatile boolean expired;
+
+		private volatile boolean removed;
+
+		// guarded by the bucket of the timer wheel this record is in
+		private SessionRecord next;
+
+		private SessionRecord(String sessionId, PrincipalSessions owner, long lastRequest) {
+			this.sessionId = sessionId;
+			this.owner = owner;
+			this.lastRequest = lastRequest;
+		}
+
+	}
+
+	private static final class RecordSessionInformation extends SessionInformation {
+
+		private static final long serialVersionUID = SpringSecurityCoreVersion.SERIAL_VERSION_UID;
+
+		private final transient SessionRecord record;
+
+		private final transient CompactSessionRegistry registry;
+
+		private RecordSessionInformation(SessionRecord record, CompactSessionRegistry registry) {
+			super(record.owner.principal, record.sessionId, UNUSED_DATE);
+			this.record = record;
+			this.registry = registry;
+		}
+
+		@Override
+		public void expireNow() {
+			this.record.expired = true;
+		}
+
+		@Override
+		public Date getLastRequest() {
+			return new Date(this.record.lastRequest);
+		}
+
+		@Override
+		public boolean isExpired() {
+			return this.record.expired;
+		}
+
+		@Override
+		public void refreshLastRequest() {
+			this.record.lastRequest = this.registry.clock.millis();
+		}
+
+		private Object writeReplace() {
+			SessionInformation sessionInformation = new SessionInformation(getPrincipal(), getSessionId(),
+					getLastRequest());
+			if (isExpired()) {
+				sessionInformation.expireNow();
+			}
+			return sessionInformation;
+		}
+
+	}
+
+}
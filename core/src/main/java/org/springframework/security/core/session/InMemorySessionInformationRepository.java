@@ -0,0 +1,143 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.core.session;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.util.Assert;
+
+/**
+ * A {@link SessionInformationRepository} that keeps copies of the
+ * {@link SessionInformation} in memory. It is not shared between nodes and is meant for
+ * tests and for applications running a single node.
+ *
+ * @since 6.1
+ */
+public final class InMemorySessionInformationRepository implements SessionInformationRepository {
+
+	private final Map<String, StoredSession> sessions = new ConcurrentHashMap<>();
+
+	@Override
+	public void save(SessionInformation sessionInformation, String principalName) {
+		Assert.notNull(sessionInformation, "sessionInformation cannot be null");
+		Assert.hasText(principalName, "principalName cannot be empty");
+		Date lastRequest = sessionInformation.getLastRequest();
+		this.sessions.put(sessionInformation.getSessionId(), new StoredSession(principalName,
+				sessionInformation.getPrincipal(), lastRequest, sessionInformation.isExpired() ? lastRequest : null));
+	}
+
+	@Override
+	public SessionInformation findBySessionId(String sessionId) {
+		StoredSession session = this.sessions.get(sessionId);
+		return (session != null) ? session.toSessionInformation(sessionId) : null;
+	}
+
+	@Override
+	public List<SessionInformation> findByPrincipalName(String principalName) {
+		List<SessionInformation> sessions = new ArrayList<>();
+		this.sessions.forEach((sessionId, session) -> {
+			if (session.principalName.equals(principalName)) {
+				sessions.add(session.toSessionInformation(sessionId));
+			}
+		});
+		return sessions;
+	}
+
+	@Override
+	public List<Object> findAllPrincipals() {
+		Map<String, Object> principals = new LinkedHashMap<>();
+		for (StoredSession session : this.sessions.values()) {
+			principals.putIfAbsent(session.principalName, session.principal);
+		}
+		return new ArrayList<>(principals.values());
+	}
+
+	@Override
+	public List<String> findSessionIdsExpiredSince(Date expiredAt) {
+		List<String> sessionIds = new ArrayList<>();
+		this.sessions.forEach((sessionId, session) -> {
+			if (session.expiredAt != null && !session.expiredAt.before(expiredAt)) {
+				sessionIds.add(sessionId);
+			}
+		});
+		return sessionIds;
+	}
+
+	@Override
+	public void updateLastRequests(Map<String, Date> lastRequests) {
+		lastRequests.forEach((sessionId, lastRequest) -> this.sessions.computeIfPresent(sessionId,
+				(key, session) -> new StoredSession(session.principalName, session.principal, lastRequest,
+						session.expiredAt)));
+	}
+
+	@Override
+	public void expire(String sessionId, Date expiredAt) {
+		this.sessions.computeIfPresent(sessionId, (key, session) -> (session.expiredAt != null) ? session
+				: new StoredSession(session.principalName, session.principal, session.lastRequest, expiredAt));
+	}
+
+	@Override
+	public void deleteBySessionId(String sessionId) {
+		this.sessions.remove(sessionId);
+	}
+
+	@Override
+	public int deleteByLastRequestBefore(Date lastRequest) {
+		int deleted = 0;
+		for (Map.Entry<String, StoredSession> session : this.sessions.entrySet()) {
+			if (session.getValue().lastRequest.before(lastRequest)
+					&& this.sessions.remove(session.getKey(), session.getValue())) {
+				deleted++;
+			}
+		}
+		return deleted;
+	}
+
+	private static final class StoredSession {
+
+		private final String principalName;
+
+		private final Object principal;
+
+		private final Date lastRequest;
+
+		private final Date expiredAt;
+
+		private StoredSession(String principalName, Object principal, Date lastRequest, Date expiredAt) {
+			this.principalName = principalName;
+			this.principal = principal;
+			this.lastRequest = new Date(lastRequest.getTime());
+			this.expiredAt = (expiredAt != null) ? new Date(expiredAt.getTime()) : null;
+		}
+
+		private SessionInformation toSessionInformation(String sessionId) {
+			SessionInformation sessionInformation = new SessionInformation(this.principal, sessionId,
+					new Date(this.lastRequest.getTime()));
+			if (this.expiredAt != null) {
+				sessionInformation.expireNow();
+			}
+			return sessionInformation;
+		}
+
+	}
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.core.session;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.core.serializer.support.DeserializingConverter;
+import org.springframework.core.serializer.support.SerializingConverter;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.util.Assert;
+
+/**
+ * A JDBC implementation of a {@link SessionInformationRepository} that uses a
+ * {@link JdbcOperations} for {@link SessionInformation} persistence. Principals are
+ * stored using Java serialization by default.
+ *
+ * <p>
+ * <b>NOTE:</b> This {@code SessionInformationRepository} depends on the table definition
+ * described in
+ * "classpath:org/springframework/security/core/session/session-information-schema.sql"
+ * and therefore MUST be defined in the database schema.
+ *
+ * @since 6.1
+ * @see SharedSessionRegistry
+ */
+public final class JdbcSessionInformationRepository implements SessionInformationRepository {
+
+	private static final String TABLE_NAME = "session_information";
+
+	// @formatter:off
+	private static final String COLUMN_NAMES = "session_id, "
+			+ "principal_name, "
+			+ "principal, "
+			+ "last_request, "
+			+ "expired_at";
+	// @formatter:on
+
+	private static final String SELECT_SQL = "SELECT " + COLUMN_NAMES + " FROM " + TABLE_NAME;
+
+	private static final String FIND_BY_SESSION_ID_SQL = SELECT_SQL + " WHERE session_id = ?";
+
+	private static final String FIND_BY_PRINCIPAL_NAME_SQL = SELECT_SQL + " WHERE principal_name = ?";
+
+	// @formatter:off
+	private static final String FIND_ALL_PRINCIPALS_SQL = SELECT_SQL
+			+ " WHERE session_id IN (SELECT MIN(session_id) FROM " + TABLE_NAME + " GROUP BY principal_name)";
+	// @formatter:on
+
+	private static final String FIND_SESSION_IDS_EXPIRED_SINCE_SQL = "SELECT session_id FROM " + TABLE_NAME
+			+ " WHERE expired_at >= ?";
+
+	// @formatter:off
+	private static final String INSERT_SQL = "INSERT INTO " + TABLE_NAME
+			+ " (" + COLUMN_NAMES + ") VALUES (?, ?, ?, ?, ?)";
+	// @formatter:on
+
+	// @formatter:off
+	private static final String UPDATE_SQL = "UPDATE " + TABLE_NAME
+			+ " SET principal_name = ?, principal = ?, last_request = ?, expired_at = ?"
+			+ " WHERE session_id = ?";
+	// @formatter:on
+
+	private static final String UPDATE_LAST_REQUEST_SQL = "UPDATE " + TABLE_NAME
+			+ " SET last_request = ? WHERE session_id = ?";
+
+	private static final String EXPIRE_SQL = "UPDATE " + TABLE_NAME
+			+ " SET expired_at = ? WHERE session_id = ? AND expired_at IS NULL";
+
+	private static final String DELETE_SQL = "DELETE FROM " + TABLE_NAME + " WHERE session_id = ?";
+
+	private static final String DELETE_BY_LAST_REQUEST_BEFORE_SQL = "DELETE FROM " + TABLE_NAME
+			+ " WHERE last_request < ?";
+
+	private final JdbcOperations jdbcOperations;
+
+	private final RowMapper<SessionInformation> rowMapper = this::mapRow;
+
+	private Converter<Object, byte[]> principalSerializer = new SerializingConverter();
+
+	private Converter<byte[], Object> principalDeserializer = new DeserializingConverter();
+
+	/**
+	 * Constructs a {@code JdbcSessionInformationRepository} using the provided
+	 * parameters.
+	 * @param jdbcOperations the JDBC operations
+	 */
+	public JdbcSessionInformationRepository(JdbcOperations jdbcOperations) {
+		Assert.notNull(jdbcOperations, "jdbcOperations cannot be null");
+		this.jdbcOperations = jdbcOperations;
+	}
+
+	@Override
+	public void save(SessionInformation sessionInformation, String principalName) {
+		Assert.notNull(sessionInformation, "sessionInformation cannot be null");
+		Assert.hasText(principalName, "principalName cannot be empty");
+		byte[] principal = this.principalSerializer.convert(sessionInformation.getPrincipal());
+		Timestamp lastRequest = new Timestamp(sessionInformation.getLastRequest().getTime());
+		// an expired session cannot have been used since, so it expired no later than its last request
+		Timestamp expiredAt = sessionInformation.isExpired() ? lastRequest : null;
+		int updated = this.jdbcOperations.update(UPDATE_SQL, principalName, principal, lastRequest, expiredAt,
+				sessionInformation.getSessionId());
+		if (updated == 0) {
+			this.jdbcOperations.update(INSERT_SQL, sessionInformation.getSessionId(), principalName, principal,
+					lastRequest, expiredAt);
+		}
+	}
+
+	@Override
+	public SessionInformation findBySessionId(String sessionId) {
+		Assert.hasText(sessionId, "sessionId cannot be empty");
+		List<SessionInformation> sessions = this.jdbcOperations.query(FIND_BY_SESSION_ID_SQL, this.rowMapper,
+				sessionId);
+		return sessions.isEmpty() ? null : sessions.get(0);
+	}
+
+	@Override
+	public List<SessionInformation> findByPrincipalName(String principalName) {
+		Assert.hasText(principalName, "principalName cannot be empty");
+		return this.jdbcOperations.query(FIND_BY_PRINCIPAL_NAME_SQL, this.rowMapper, principalName);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Only the principal of one session per principal name is read, but the query still
+	 * groups all sessions by principal name.
+	 */
+	@Override
+	public List<Object> findAllPrincipals() {
+		List<Object> principals = new ArrayList<>();
+		for (SessionInformation session : this.jdbcOperations.query(FIND_ALL_PRINCIPALS_SQL, this.rowMapper)) {
+			principals.add(session.getPrincipal());
+		}
+		return principals;
+	}
+
+	@Override
+	public List<String> findSessionIdsExpiredSince(Date expiredAt) {
+		Assert.notNull(expiredAt, "expiredAt cannot be null");
+		return this.jdbcOperations.queryForList(FIND_SESSION_IDS_EXPIRED_SINCE_SQL, String.class,
+				new Timestamp(expiredAt.getTime()));
+	}
+
+	@Override
+	public void updateLastRequests(Map<String, Date> lastRequests) {
+		Assert.notNull(lastRequests, "lastRequests cannot be null");
+		if (lastRequests.isEmpty()) {
+			return;
+		}
+		List<Object[]> batch = new ArrayList<>(lastRequests.size());
+		lastRequests.forEach((sessionId, lastRequest) -> batch
+				.add(new Object[] { new Timestamp(lastRequest.getTime()), sessionId }));
+		this.jdbcOperations.batchUpdate(UPDATE_LAST_REQUEST_SQL, batch);
+	}
+
+	@Override
+	public void expire(String sessionId, Date expiredAt) {
+		Assert.hasText(sessionId, "sessionId cannot be empty");
+		Assert.notNull(expiredAt, "expiredAt cannot be null");
+		this.jdbcOperations.update(EXPIRE_SQL, new Timestamp(expiredAt.getTime()), sessionId);
+	}
+
+	@Override
+	public void deleteBySessionId(String sessionId) {
+		Assert.hasText(sessionId, "sessionId cannot be empty");
+		this.jdbcOperations.update(DELETE_SQL, sessionId);
+	}
+
+	@Override
+	public int deleteByLastRequestBefore(Date lastRequest) {
+		Assert.notNull(lastRequest, "lastRequest cannot be null");
+		return this.jdbcOperations.update(DELETE_BY_LAST_REQUEST_BEFORE_SQL, new Timestamp(lastRequest.getTime()));
+	}
+
+	/**
+	 * Sets the {@link Converter} used to serialize principals. The default uses Java
+	 * serialization.
+	 * @param principalSerializer the {@link Converter} to use
+	 */
+	public void setPrincipalSerializer(Converter<Object, byte[]> principalSerializer) {
+		Assert.notNull(principalSerializer, "principalSerializer cannot be null");
+		this.principalSerializer = principalSerializer;
+	}
+
+	/**
+	 * Sets the {@link Converter} used to deserialize principals. The default uses Java
+	 * serialization.
+	 * @param principalDeserializer the {@link Converter} to use
+	 */
+	public void setPrincipalDeserializer(Converter<byte[], Object> principalDeserializer) {
+		Assert.notNull(principalDeserializer, "principalDeserializer cannot be null");
+		this.principalDeserializer = principalDeserializer;
+	}
+
+	private SessionInformation mapRow(ResultSet rs, int rowNum) throws SQLException {
+		Object principal = this.principalDeserializer.convert(rs.getBytes("principal"));
+		SessionInformation sessionInformation = new SessionInformation(principal, rs.getString("session_id"),
+				new Date(rs.getTimestamp("last_request").getTime()));
+		if (rs.getTimestamp("expired_at") != null) {
+			sessionInformation.expireNow();
+		}
+		return sessionInformation;
+	}
+
+}
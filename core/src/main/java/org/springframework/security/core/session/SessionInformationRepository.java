@@ -0,0 +1,104 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.core.session;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A store of {@link SessionInformation} that can be shared by several nodes, used by
+ * {@link SharedSessionRegistry}.
+ * <p>
+ * Sessions are grouped by the name of their principal, as resolved by the
+ * {@link SharedSessionRegistry}, since principals registered on another node are not
+ * the same instances.
+ *
+ * @since 6.1
+ * @see JdbcSessionInformationRepository
+ * @see InMemorySessionInformationRepository
+ */
+public interface SessionInformationRepository {
+
+	/**
+	 * Saves the {@link SessionInformation}, replacing any existing information with the
+	 * same session id.
+	 * @param sessionInformation the {@link SessionInformation} to save
+	 * @param principalName the name of the principal of the session
+	 */
+	void save(SessionInformation sessionInformation, String principalName);
+
+	/**
+	 * Finds the {@link SessionInformation} of a session.
+	 * @param sessionId the session id
+	 * @return the {@link SessionInformation}, or {@code null} if there is none
+	 */
+	SessionInformation findBySessionId(String sessionId);
+
+	/**
+	 * Finds the {@link SessionInformation} of all sessions of a principal, including
+	 * expired sessions.
+	 * @param principalName the name of the principal
+	 * @return the {@link SessionInformation}s, possibly empty
+	 */
+	List<SessionInformation> findByPrincipalName(String principalName);
+
+	/**
+	 * Finds one principal for each principal name with at least one session. The cost is
+	 * proportional to the number of sessions, so this is not meant to be invoked per
+	 * request.
+	 * @return the principals, possibly empty
+	 */
+	List<Object> findAllPrincipals();
+
+	/**
+	 * Finds the ids of the sessions that were {@link #expire(String, Date) expired} at or
+	 * after the given time.
+	 * @param expiredAt the earliest time of expiry to include
+	 * @return the session ids, possibly empty
+	 */
+	List<String> findSessionIdsExpiredSince(Date expiredAt);
+
+	/**
+	 * Updates the time of the last request of several sessions at once. Sessions that
+	 * no longer exist are ignored.
+	 * @param lastRequests the time of the last request, by session id
+	 */
+	void updateLastRequests(Map<String, Date> lastRequests);
+
+	/**
+	 * Marks a session as expired, if it exists.
+	 * @param sessionId the session id
+	 * @param expiredAt the time of expiry
+	 */
+	void expire(String sessionId, Date expiredAt);
+
+	/**
+	 * Deletes the {@link SessionInformation} of a session, if it exists.
+	 * @param sessionId the session id
+	 */
+	void deleteBySessionId(String sessionId);
+
+	/**
+	 * Deletes the {@link SessionInformation} of all sessions whose last request is older
+	 * than the given time.
+	 * @param lastRequest the time of the last request that sessions are deleted before
+	 * @return the number of deleted sessions
+	 */
+	int deleteByLastRequestBefore(Date lastRequest);
+
+}
@@ -0,0 +1,462 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.core.session;
+
+import java.security.Principal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.log.LogMessage;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.SpringSecurityCoreVersion;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link SessionRegistry} that keeps sessions in a {@link SessionInformationRepository}
+ * shared by all nodes of an application, so that the maximum number of sessions of a
+ * principal is enforced across nodes.
+ * <p>
+ * Sessions are grouped by the name of their principal, which is the username of a
+ * {@link UserDetails}, the name of an {@link AuthenticatedPrincipal} or a
+ * {@link Principal}, and otherwise the {@link Object#toString()} of the principal.
+ * <p>
+ * {@link #getSessionInformation(String)}, which {@code ConcurrentSessionFilter} calls on
+ * every request, is answered from a local mirror whose entries are reloaded from the
+ * repository after {@link #setMirrorTimeToLive(Duration) a time to live}. Expiring a
+ * session is written to the repository at once, and each node asks the repository for
+ * the sessions expired since its previous poll once per
+ * {@link #setExpiryPollInterval(Duration) expiry poll interval}, so an expiry reaches
+ * the other nodes with a single query per node rather than one per session.
+ * {@link #refreshLastRequest(String)} only updates the mirror, and the collected times
+ * are written to the repository in a single batch once per
+ * {@link #setRefreshInterval(Duration) refresh interval}, as a side effect of later
+ * calls, by {@link #flush()}, or when this registry is destroyed.
+ * <p>
+ * The sessions of a node that stopped without destroying them stay in the repository
+ * until they are deleted by {@link #deleteInactiveSessions()}, which requires a
+ * {@link #setMaxInactiveInterval(Duration) maximum inactive interval}.
+ *
+ * @since 6.1
+ * @see JdbcSessionInformationRepository
+ */
+public class SharedSessionRegistry
+		implements SessionRegistry, ApplicationListener<AbstractSessionEvent>, DisposableBean {
+
+	protected final Log logger = LogFactory.getLog(SharedSessionRegistry.class);
+
+	private final SessionInformationRepository repository;
+
+	private final ConcurrentMap<String, MirrorEntry> mirror = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, Date> lastRequests = new ConcurrentHashMap<>();
+
+	private final ReentrantLock flushLock = new ReentrantLock();
+
+	private final ReentrantLock expiryPollLock = new ReentrantLock();
+
+	private volatile long nextFlushMillis;
+
+	private volatile long nextExpiryPollMillis;
+
+	private long lastExpiryPollMillis;
+
+	private Function<Object, String> principalNameResolver = SharedSessionRegistry::getPrincipalName;
+
+	private Duration mirrorTimeToLive = Duration.ofMinutes(1);
+
+	private Duration expiryPollInterval = Duration.ofSeconds(1);
+
+	private Duration refreshInterval = Duration.ofSeconds(10);
+
+	private Duration maxInactiveInterval;
+
+	private Clock clock = Clock.systemUTC();
+
+	/**
+	 * Create a new {@link SharedSessionRegistry}
+	 * @param repository the {@link SessionInformationRepository} shared by all nodes
+	 */
+	public SharedSessionRegistry(SessionInformationRepository repository) {
+		Assert.notNull(repository, "repository cannot be null");
+		this.repository = repository;
+	}
+
+	@Override
+	public List<Object> getAllPrincipals() {
+		return this.repository.findAllPrincipals();
+	}
+
+	@Override
+	public List<SessionInformation> getAllSessions(Object principal, boolean includeExpiredSessions) {
+		List<SessionInformation> sessions = new ArrayList<>();
+		for (SessionInformation stored : this.repository
+				.findByPrincipalName(this.principalNameResolver.apply(principal))) {
+			if (includeExpiredSessions || !stored.isExpired()) {
+				sessions.add(new SharedSessionInformation(stored, this));
+			}
+		}
+		return sessions;
+	}
+
+	@Override
+	public SessionInformation getSessionInformation(String sessionId) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+		long now = this.clock.millis();
+		pollExpiriesIfDue(now);
+		MirrorEntry entry = this.mirror.get(sessionId);
+		if (entry == null || entry.isStale(now, this.mirrorTimeToLive)) {
+			entry = load(sessionId, now);
+		}
+		return entry.sessionInformation;
+	}
+
+	@Override
+	public void onApplicationEvent(AbstractSessionEvent event) {
+		if (event instanceof SessionDestroyedEvent sessionDestroyedEvent) {
+			removeSessionInformation(sessionDestroyedEvent.getId());
+		}
+		else if (event instanceof SessionIdChangedEvent sessionIdChangedEvent) {
+			SessionInformation sessionInformation = getSessionInformation(sessionIdChangedEvent.getOldSessionId());
+			if (sessionInformation != null) {
+				removeSessionInformation(sessionInformation.getSessionId());
+				registerNewSession(sessionIdChangedEvent.getNewSessionId(), sessionInformation.getPrincipal());
+			}
+		}
+	}
+
+	@Override
+	public void refreshLastRequest(String sessionId) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+		long now = this.clock.millis();
+		Date lastRequest = new Date(now);
+		MirrorEntry entry = this.mirror.get(sessionId);
+		if (entry != null && entry.sessionInformation != null) {
+			entry.sessionInformation.lastRequest = lastRequest;
+		}
+		this.lastRequests.put(sessionId, lastRequest);
+		flushIfDue(now);
+	}
+
+	@Override
+	public void registerNewSession(String sessionId, Object principal) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+		Assert.notNull(principal, "Principal required as per interface contract");
+		this.logger.debug(LogMessage.format("Registering session %s, for principal %s", sessionId, principal));
+		long now = this.clock.millis();
+		SessionInformation sessionInformation = new SessionInformation(principal, sessionId, new Date(now));
+		this.lastRequests.remove(sessionId);
+		this.repository.save(sessionInformation, this.principalNameResolver.apply(principal));
+		this.mirror.put(sessionId, new MirrorEntry(new SharedSessionInformation(sessionInformation, this), now));
+		flushIfDue(now);
+	}
+
+	@Override
+	public void removeSessionInformation(String sessionId) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+		this.logger.debug(LogMessage.format("Removing session %s from set of registered sessions", sessionId));
+		long now = this.clock.millis();
+		this.lastRequests.remove(sessionId);
+		this.repository.deleteBySessionId(sessionId);
+		this.mirror.put(sessionId, new MirrorEntry(null, now));
+		flushIfDue(now);
+	}
+
+	/**
+	 * Writes the times of the last request collected by
+	 * {@link #refreshLastRequest(String)} to the repository, drops stale entries from the
+	 * local mirror, and {@link #deleteInactiveSessions() deletes inactive sessions}.
+	 */
+	public void flush() {
+		this.flushLock.lock();
+		try {
+			flush(this.clock.millis());
+		}
+		finally {
+			this.flushLock.unlock();
+		}
+	}
+
+	/**
+	 * Deletes the sessions whose last request is older than the
+	 * {@link #setMaxInactiveInterval(Duration) maximum inactive interval} from the
+	 * repository, such as the sessions of a node that stopped without destroying them.
+	 * Does nothing if no maximum inactive interval is set. Invoked by {@link #flush()},
+	 * and can also be scheduled on its own.
+	 */
+	public void deleteInactiveSessions() {
+		deleteInactiveSessions(this.clock.millis());
+	}
+
+	@Override
+	public void destroy() {
+		flush();
+	}
+
+	/**
+	 * Sets the {@link Function} resolving the name that sessions are grouped by from a
+	 * principal.
+	 * @param principalNameResolver the {@link Function} to use
+	 */
+	public void setPrincipalNameResolver(Function<Object, String> principalNameResolver) {
+		Assert.notNull(principalNameResolver, "principalNameResolver cannot be null");
+		this.principalNameResolver = principalNameResolver;
+	}
+
+	/**
+	 * Sets how long the local mirror answers {@link #getSessionInformation(String)}
+	 * before reloading a session from the repository, which bounds how long it takes
+	 * until other changes than expiries, such as the removal of a session, are detected.
+	 * The default is 1 minute.
+	 * @param mirrorTimeToLive the time to live of mirror entries
+	 */
+	public void setMirrorTimeToLive(Duration mirrorTimeToLive) {
+		Assert.notNull(mirrorTimeToLive, "mirrorTimeToLive cannot be null");
+		Assert.isTrue(!mirrorTimeToLive.isNegative(), "mirrorTimeToLive cannot be negative");
+		this.mirrorTimeToLive = mirrorTimeToLive;
+	}
+
+	/**
+	 * Sets how often the repository is asked for the sessions expired by other nodes,
+	 * which bounds how long it takes until such an expiry is detected. Consecutive polls
+	 * overlap by this interval to tolerate a small skew between the clocks of the nodes.
+	 * The default is 1 second.
+	 * @param expiryPollInterval the expiry poll interval
+	 */
+	public void setExpiryPollInterval(Duration expiryPollInterval) {
+		Assert.notNull(expiryPollInterval, "expiryPollInterval cannot be null");
+		Assert.isTrue(!expiryPollInterval.isNegative(), "expiryPollInterval cannot be negative");
+		this.expiryPollInterval = expiryPollInterval;
+	}
+
+	/**
+	 * Sets how often the times of the last request are written to the repository. The
+	 * default is 10 seconds.
+	 * @param refreshInterval the refresh interval
+	 */
+	public void setRefreshInterval(Duration refreshInterval) {
+		Assert.notNull(refreshInterval, "refreshInterval cannot be null");
+		Assert.isTrue(!refreshInterval.isNegative(), "refreshInterval cannot be negative");
+		this.refreshInterval = refreshInterval;
+	}
+
+	/**
+	 * Sets how long a session may go without a request before
+	 * {@link #deleteInactiveSessions()} deletes it from the repository. It must be longer
+	 * than both the session timeout and the {@link #setRefreshInterval(Duration) refresh
+	 * interval} of every node. By default, sessions are only deleted when they are
+	 * destroyed.
+	 * @param maxInactiveInterval the maximum inactive interval
+	 */
+	public void setMaxInactiveInterval(Duration maxInactiveInterval) {
+		Assert.notNull(maxInactiveInterval, "maxInactiveInterval cannot be null");
+		Assert.isTrue(!maxInactiveInterval.isNegative() && !maxInactiveInterval.isZero(),
+				"maxInactiveInterval must be positive");
+		this.maxInactiveInterval = maxInactiveInterval;
+	}
+
+	/**
+	 * Sets the {@link Clock} used for the time of the last request and for the mirror.
+	 * @param clock the {@link Clock} to use
+	 */
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	private MirrorEntry load(String sessionId, long now) {
+		SessionInformation stored = this.repository.findBySessionId(sessionId);
+		SharedSessionInformation sessionInformation = null;
+		if (stored != null) {
+			sessionInformation = new SharedSessionInformation(stored, this);
+			Date lastRequest = this.lastRequests.get(sessionId);
+			if (lastRequest != null && lastRequest.after(stored.getLastRequest())) {
+				sessionInformation.lastRequest = lastRequest;
+			}
+		}
+		MirrorEntry entry = new MirrorEntry(sessionInformation, now);
+		this.mirror.put(sessionId, entry);
+		return entry;
+	}
+
+	private void expire(String sessionId) {
+		this.repository.expire(sessionId, new Date(this.clock.millis()));
+		MirrorEntry entry = this.mirror.get(sessionId);
+		if (entry != null && entry.sessionInformation != null) {
+			entry.sessionInformation.expired = true;
+		}
+	}
+
+	private void pollExpiriesIfDue(long now) {
+		if (now < this.nextExpiryPollMillis || !this.expiryPollLock.tryLock()) {
+			return;
+		}
+		try {
+			long interval = this.expiryPollInterval.toMillis();
+			this.nextExpiryPollMillis = now + interval;
+			// mirror entries older than the time to live are reloaded anyway
+			long since = Math.max(this.lastExpiryPollMillis, now - this.mirrorTimeToLive.toMillis()) - interval;
+			this.lastExpiryPollMillis = now;
+			if (this.mirror.isEmpty()) {
+				return;
+			}
+			for (String sessionId : this.repository.findSessionIdsExpiredSince(new Date(since))) {
+				MirrorEntry entry = this.mirror.get(sessionId);
+				if (entry != null && entry.sessionInformation != null) {
+					entry.sessionInformation.expired = true;
+				}
+			}
+		}
+		finally {
+			this.expiryPollLock.unlock();
+		}
+	}
+
+	private void flushIfDue(long now) {
+		if (now < this.nextFlushMillis || !this.flushLock.tryLock()) {
+			return;
+		}
+		try {
+			flush(now);
+		}
+		finally {
+			this.flushLock.unlock();
+		}
+	}
+
+	private void flush(long now) {
+		this.nextFlushMillis = now + this.refreshInterval.toMillis();
+		Map<String, Date> batch = new HashMap<>();
+		for (Map.Entry<String, Date> lastRequest : this.lastRequests.entrySet()) {
+			if (this.lastRequests.remove(lastRequest.getKey(), lastRequest.getValue())) {
+				batch.put(lastRequest.getKey(), lastRequest.getValue());
+			}
+		}
+		if (!batch.isEmpty()) {
+			this.logger.trace(LogMessage.format("Writing the last request of %d sessions", batch.size()));
+			this.repository.updateLastRequests(batch);
+		}
+		this.mirror.values().removeIf((entry) -> entry.isStale(now, this.mirrorTimeToLive));
+		deleteInactiveSessions(now);
+	}
+
+	private void deleteInactiveSessions(long now) {
+		Duration maxInactiveInterval = this.maxInactiveInterval;
+		if (maxInactiveInterval == null) {
+			return;
+		}
+		int deleted = this.repository.deleteByLastRequestBefore(new Date(now - maxInactiveInterval.toMillis()));
+		if (deleted > 0) {
+			this.logger.debug(LogMessage.format("Deleted %d inactive sessions", deleted));
+		}
+	}
+
+	private static String getPrincipalName(Object principal) {
+		if (principal instanceof UserDetails userDetails) {
+			return userDetails.getUsername();
+		}
+		if (principal instanceof AuthenticatedPrincipal authenticatedPrincipal) {
+			return authenticatedPrincipal.getName();
+		}
+		if (principal instanceof Principal namedPrincipal) {
+			return namedPrincipal.getName();
+		}
+		return principal.toString();
+	}
+
+	private static final class MirrorEntry {
+
+		private final SharedSessionInformation sessionInformation;
+
+		private final long loadedMillis;
+
+		private MirrorEntry(SharedSessionInformation sessionInformation, long loadedMillis) {
+			this.sessionInformation = sessionInformation;
+			this.loadedMillis = loadedMillis;
+		}
+
+		private boolean isStale(long now, Duration timeToLive) {
+			return now - this.loadedMillis >= timeToLive.toMillis();
+		}
+
+	}
+
+	private static final class SharedSessionInformation extends SessionInformation {
+
+		private static final long serialVersionUID = SpringSecurityCoreVersion.SERIAL_VERSION_UID;
+
+		private final transient SharedSessionRegistry registry;
+
+		private volatile Date lastRequest;
+
+		private volatile boolean expired;
+
+		private SharedSessionInformation(SessionInformation stored, SharedSessionRegistry registry) {
+			super(stored.getPrincipal(), stored.getSessionId(), stored.getLastRequest());
+			this.registry = registry;
+			this.lastRequest = stored.getLastRequest();
+			this.expired = stored.isExpired();
+		}
+
+		@Override
+		public void expireNow() {
+			this.expired = true;
+			this.registry.expire(getSessionId());
+		}
+
+		@Override
+		public Date getLastRequest() {
+			return this.lastRequest;
+		}
+
+		@Override
+		public boolean isExpired() {
+			return this.expired;
+		}
+
+		@Override
+		public void refreshLastRequest() {
+			this.registry.refreshLastRequest(getSessionId());
+			this.lastRequest = new Date(this.registry.clock.millis());
+		}
+
+		private Object writeReplace() {
+			SessionInformation sessionInformation = new SessionInformation(getPrincipal(), getSessionId(),
+					getLastRequest());
+			if (isExpired()) {
+				sessionInformation.expireNow();
+			}
+			return sessionInformation;
+		}
+
+	}
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.core.userdetails;
+
+import java.util.Objects;
+
+import org.springframework.util.Assert;
+
+/**
+ * A change of the password of a user, as written by
+ * {@link UserDetailsPasswordService#updatePasswords(java.util.List)} and
+ * {@link ReactiveUserDetailsPasswordService#updatePasswords(java.util.List)}.
+ *
+ * <p>
+ * The change is usually written some time after the user authenticated, by which time
+ * the credentials of the {@link UserDetails} may be erased. The password the user
+ * authenticated with is therefore kept alongside it.
+ *
+ * @since 6.1
+ */
+public final class PasswordUpdate {
+
+	private final UserDetails user;
+
+	private final String currentPassword;
+
+	private final String newPassword;
+
+	/**
+	 * Constructs a {@code PasswordUpdate} using the provided parameters.
+	 * @param user the user to change the password of
+	 * @param currentPassword the encoded password the user authenticated with
+	 * @param newPassword the password to change to, encoded by the configured
+	 * {@code PasswordEncoder}
+	 */
+	public PasswordUpdate(UserDetails user, String currentPassword, String newPassword) {
+		Assert.notNull(user, "user cannot be null");
+		Assert.notNull(newPassword, "newPassword cannot be null");
+		this.user = user;
+		this.currentPassword = currentPassword;
+		this.newPassword = newPassword;
+	}
+
+	/**
+	 * Returns the user to change the password of, as it was authenticated. Its
+	 * credentials may have been erased since.
+	 * @return the user
+	 */
+	public UserDetails getUser() {
+		return this.user;
+	}
+
+	/**
+	 * Returns the encoded password the user authenticated with, which is the password
+	 * that is being replaced.
+	 * @return the encoded password the user authenticated with
+	 */
+	public String getCurrentPassword() {
+		return this.currentPassword;
+	}
+
+	/**
+	 * Returns the password to change to, encoded by the configured
+	 * {@code PasswordEncoder}.
+	 * @return the password to change to
+	 */
+	public String getNewPassword() {
+		return this.newPassword;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof PasswordUpdate other)) {
+			return false;
+		}
+		return this.user.equals(other.user) && Objects.equals(this.currentPassword, other.currentPassword)
+				&& this.newPassword.equals(other.newPassword);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(this.user, this.currentPassword, this.newPassword);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " [Username=" + this.user.getUsername() + ", Passwords=[PROTECTED]]";
+	}
+
+}
@@ -16,6 +16,9 @@
 
 package org.springframework.security.core.userdetails;
 
+import java.util.List;
+
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
@@ -35,4 +38,21 @@ public interface ReactiveUserDetailsPasswordService {
 	 */
 	Mono<UserDetails> updatePassword(UserDetails user, String newPassword);
 
+	/**
+	 * Modify the passwords of several users. Implementations that can write them more
+	 * efficiently than one at a time, for example in a single batch, should override this
+	 * method. Since the passwords may be written well after the users authenticated,
+	 * implementations should leave alone a user whose stored password is no longer
+	 * {@link PasswordUpdate#getCurrentPassword()}. By default,
+	 * {@link #updatePassword(UserDetails, String)} is called for each user in turn.
+	 * @param updates the password changes, in the order they are to be written
+	 * @return a {@link Mono} that completes once the passwords are modified
+	 * @since 6.1
+	 */
+	default Mono<Void> updatePasswords(List<PasswordUpdate> updates) {
+		return Flux.fromIterable(updates)
+				.concatMap((update) -> updatePassword(update.getUser(), update.getNewPassword()))
+				.then();
+	}
+
 }
@@ -16,6 +16,8 @@
 
 package org.springframework.security.core.userdetails;
 
+import java.util.List;
+
 /**
  * An API for changing a {@link UserDetails} password.
  *
@@ -34,4 +36,18 @@ public interface UserDetailsPasswordService {
 	 */
 	UserDetails updatePassword(UserDetails user, String newPassword);
 
+	/**
+	 * Modify the passwords of several users. Implementations that can write them more
+	 * efficiently than one at a time, for example in a single batch, should override this
+	 * method. Since the passwords may be written well after the users authenticated,
+	 * implementations should leave alone a user whose stored password is no longer
+	 * {@link PasswordUpdate#getCurrentPassword()}. By default,
+	 * {@link #updatePassword(UserDetails, String)} is called for each user.
+	 * @param updates the password changes, in the order they are to be written
+	 * @since 6.1
+	 */
+	default void updatePasswords(List<PasswordUpdate> updates) {
+		updates.forEach((update) -> updatePassword(update.getUser(), update.getNewPassword()));
+	}
+
 }
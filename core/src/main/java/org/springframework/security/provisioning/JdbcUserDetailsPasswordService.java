@@ -0,0 +1,130 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.provisioning;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.log.LogMessage;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.security.core.userdetails.PasswordUpdate;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.cache.NullUserCache;
+import org.springframework.util.Assert;
+
+/**
+ * A JDBC implementation of {@link UserDetailsPasswordService}, based on the same table
+ * structure as {@link JdbcUserDetailsManager}, which writes several passwords in a single
+ * JDBC batch.
+ *
+ * <p>
+ * A password is only changed while it is still the one the user authenticated with, so
+ * that a password that was changed or reset since the user authenticated is not
+ * overwritten by a password upgrade that is written later.
+ *
+ * <p>
+ * {@link JdbcUserDetailsManager} does not implement {@link UserDetailsPasswordService}
+ * itself, so that the passwords of its users are only re-encoded once this service is
+ * configured, for example on
+ * {@link org.springframework.security.authentication.dao.DaoAuthenticationProvider} or on
+ * a {@link org.springframework.security.authentication.PasswordUpgradeExecutor}.
+ *
+ * @since 6.1
+ */
+public final class JdbcUserDetailsPasswordService implements UserDetailsPasswordService {
+
+	public static final String DEF_UPDATE_PASSWORD_SQL = "update users set password = ? where username = ? and password = ?";
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private final JdbcOperations jdbcOperations;
+
+	private String updatePasswordSql = DEF_UPDATE_PASSWORD_SQL;
+
+	private UserCache userCache = new NullUserCache();
+
+	/**
+	 * Constructs a {@code JdbcUserDetailsPasswordService} using the provided parameters.
+	 * @param jdbcOperations the JDBC operations
+	 */
+	public JdbcUserDetailsPasswordService(JdbcOperations jdbcOperations) {
+		Assert.notNull(jdbcOperations, "jdbcOperations cannot be null");
+		this.jdbcOperations = jdbcOperations;
+	}
+
+	/**
+	 * Sets the statement that changes the password of a user, with the new password, the
+	 * username and the current password as parameters. The default is
+	 * {@link #DEF_UPDATE_PASSWORD_SQL}.
+	 * @param updatePasswordSql the statement that changes the password of a user
+	 */
+	public void setUpdatePasswordSql(String updatePasswordSql) {
+		Assert.hasText(updatePasswordSql, "updatePasswordSql should have text");
+		this.updatePasswordSql = updatePasswordSql;
+	}
+
+	/**
+	 * Sets the {@link UserCache} that users are removed from once their password is
+	 * changed, typically the same as the one of the {@link JdbcUserDetailsManager}.
+	 * @param userCache the {@link UserCache} to use
+	 */
+	public void setUserCache(UserCache userCache) {
+		Assert.notNull(userCache, "userCache cannot be null");
+		this.userCache = userCache;
+	}
+
+	@Override
+	public UserDetails updatePassword(UserDetails user, String newPassword) {
+		this.logger.debug(LogMessage.format("Updating password for user '%s'", user.getUsername()));
+		if (this.jdbcOperations.update(this.updatePasswordSql, newPassword, user.getUsername(),
+				user.getPassword()) == 0) {
+			this.logger.debug(LogMessage.format("Did not update password for user '%s' since it was changed",
+					user.getUsername()));
+			return user;
+		}
+		this.userCache.removeUserFromCache(user.getUsername());
+		return User.withUserDetails(user).password(newPassword).build();
+	}
+
+	@Override
+	public void updatePasswords(List<PasswordUpdate> updates) {
+		List<Object[]> batchArgs = new ArrayList<>(updates.size());
+		for (PasswordUpdate update : updates) {
+			batchArgs.add(new Object[] { update.getNewPassword(), update.getUser().getUsername(),
+					update.getCurrentPassword() });
+		}
+		this.logger.debug(LogMessage.format("Updating passwords for %d users", batchArgs.size()));
+		int[] updated = this.jdbcOperations.batchUpdate(this.updatePasswordSql, batchArgs);
+		for (int i = 0; i < updated.length; i++) {
+			String username = updates.get(i).getUser().getUsername();
+			if (updated[i] == 0) {
+				this.logger.debug(
+						LogMessage.format("Did not update password for user '%s' since it was changed", username));
+			}
+			else {
+				this.userCache.removeUserFromCache(username);
+			}
+		}
+	}
+
+}
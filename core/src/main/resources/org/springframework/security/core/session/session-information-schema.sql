@@ -0,0 +1,11 @@
+CREATE TABLE session_information (
+  session_id varchar(100) NOT NULL,
+  principal_name varchar(200) NOT NULL,
+  principal blob NOT NULL,
+  last_request timestamp NOT NULL,
+  expired_at timestamp,
+  PRIMARY KEY (session_id)
+);
+CREATE INDEX session_information_principal_name_idx ON session_information (principal_name);
+CREATE INDEX session_information_last_request_idx ON session_information (last_request);
+CREATE INDEX session_information_expired_at_idx ON session_information (expired_at);
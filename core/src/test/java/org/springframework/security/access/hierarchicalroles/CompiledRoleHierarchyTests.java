@@ -0,0 +1,129 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.access.hierarchicalroles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * Tests for {@link CompiledRoleHierarchy}.
+ */
+public class CompiledRoleHierarchyTests {
+
+	private static final String HIERARCHY = "ROLE_A > ROLE_B\nROLE_B > ROLE_C\nROLE_C > ROLE_D\n"
+			+ "ROLE_E > ROLE_F > ROLE_G\nROLE_A > ROLE_F";
+
+	@Test
+	public void constructorWhenNullThenException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new CompiledRoleHierarchy((String) null));
+	}
+
+	@Test
+	public void getReachableGrantedAuthoritiesWhenNullOrEmptyThenEmpty() {
+		CompiledRoleHierarchy roleHierarchy = new CompiledRoleHierarchy(HIERARCHY);
+		assertThat(roleHierarchy.getReachableGrantedAuthorities(null)).isEmpty();
+		assertThat(roleHierarchy.getReachableGrantedAuthorities(AuthorityUtils.NO_AUTHORITIES)).isEmpty();
+	}
+
+	@Test
+	public void getReachableGrantedAuthoritiesThenSameAsRoleHierarchyImpl() {
+		RoleHierarchyImpl expected = new RoleHierarchyImpl();
+		expected.setHierarchy(HIERARCHY);
+		CompiledRoleHierarchy roleHierarchy = new CompiledRoleHierarchy(HIERARCHY);
+		List<List<GrantedAuthority>> inputs = Arrays.asList(AuthorityUtils.createAuthorityList("ROLE_A"),
+				AuthorityUtils.createAuthorityList("ROLE_B", "ROLE_E"), AuthorityUtils.createAuthorityList("ROLE_0"),
+				AuthorityUtils.createAuthorityList("ROLE_G", "ROLE_0", "ROLE_A", "ROLE_0"),
+				HierarchicalRolesTestHelper.createAuthorityList("ROLE_C", "ROLE_0"));
+		for (List<GrantedAuthority> input : inputs) {
+			Collection<GrantedAuthority> actual = roleHierarchy.getReachableGrantedAuthorities(input);
+			assertThat(HierarchicalRolesTestHelper.containTheSameGrantedAuthoritiesCompareByAuthorityString(actual,
+					expected.getReachableGrantedAuthorities(input))).as(input.toString()).isTrue();
+		}
+	}
+
+	@Test
+	public void getReachableGrantedAuthoritiesWhenCustomAuthorityThenOriginalInstanceReturned() {
+		CompiledRoleHierarchy roleHierarchy = new CompiledRoleHierarchy(HIERARCHY);
+		List<GrantedAuthority> authorities = HierarchicalRolesTestHelper.createAuthorityList("ROLE_C");
+		assertThat(roleHierarchy.getReachableGrantedAuthorities(authorities)).contains(authorities.get(0));
+	}
+
+	@Test
+	public void getReachableGrantedAuthoritiesWhenMemoizedThenModifiableCopyReturned() {
+		CompiledRoleHierarchy roleHierarchy = new CompiledRoleHierarchy(HIERARCHY);
+		Collection<GrantedAuthority> first = roleHierarchy
+				.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList("ROLE_A"));
+		Collection<GrantedAuthority> expected = new ArrayList<>(first);
+		first.add(new SimpleGrantedAuthority("ROLE_OTHER"));
+		Collection<GrantedAuthority> second = roleHierarchy
+				.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList("ROLE_A"));
+		assertThat(second).isNotSameAs(first).containsExactlyElementsOf(expected);
+	}
+
+	@Test
+	public void setHierarchyThenReplacesHierarchy() {
+		CompiledRoleHierarchy roleHierarchy = new CompiledRoleHierarchy("ROLE_A > ROLE_B");
+		List<GrantedAuthority> authorities = AuthorityUtils.createAuthorityList("ROLE_A");
+		assertThat(AuthorityUtils.authorityListToSet(roleHierarchy.getReachableGrantedAuthorities(authorities)))
+				.containsExactlyInAnyOrder("ROLE_A", "ROLE_B");
+		roleHierarchy.setHierarchy("ROLE_A > ROLE_C");
+		assertThat(AuthorityUtils.authorityListToSet(roleHierarchy.getReachableGrantedAuthorities(authorities)))
+				.containsExactlyInAnyOrder("ROLE_A", "ROLE_C");
+	}
+
+	@Test
+	public void setHierarchyWhenCycleThenPreviousHierarchyKept() {
+		CompiledRoleHierarchy roleHierarchy = new CompiledRoleHierarchy("ROLE_A > ROLE_B");
+		assertThatExceptionOfType(CycleInRoleHierarchyException.class)
+				.isThrownBy(() -> roleHierarchy.setHierarchy("ROLE_A > ROLE_B\nROLE_B > ROLE_A"));
+		List<GrantedAuthority> authorities = AuthorityUtils.createAuthorityList("ROLE_A");
+		assertThat(AuthorityUtils.authorityListToSet(roleHierarchy.getReachableGrantedAuthorities(authorities)))
+				.containsExactlyInAnyOrder("ROLE_A", "ROLE_B");
+	}
+
+	@Test
+	public void refreshThenReadsHierarchySource() {
+		AtomicReference<String> source = new AtomicReference<>("ROLE_A > ROLE_B");
+		CompiledRoleHierarchy roleHierarchy = new CompiledRoleHierarchy(source::get);
+		source.set("ROLE_A > ROLE_B > ROLE_C");
+		roleHierarchy.refresh();
+		List<GrantedAuthority> authorities = AuthorityUtils.createAuthorityList("ROLE_A");
+		assertThat(AuthorityUtils.authorityListToSet(roleHierarchy.getReachableGrantedAuthorities(authorities)))
+				.containsExactlyInAnyOrder("ROLE_A", "ROLE_B", "ROLE_C");
+	}
+
+	@Test
+	public void refreshWhenNoHierarchySourceThenException() {
+		CompiledRoleHierarchy roleHierarchy = new CompiledRoleHierarchy("ROLE_A > ROLE_B");
+		assertThatIllegalStateException().isThrownBy(roleHierarchy::refresh);
+	}
+
+}
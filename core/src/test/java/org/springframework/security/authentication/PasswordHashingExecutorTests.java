@@ -0,0 +1,134 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.authentication;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link PasswordHashingExecutor}.
+ */
+public class PasswordHashingExecutorTests {
+
+	private final PasswordEncoder encoder = mock(PasswordEncoder.class);
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private PasswordHashingExecutor executor = new PasswordHashingExecutor(1, 1);
+
+	@AfterEach
+	public void cleanup() {
+		this.release.countDown();
+		this.executor.destroy();
+	}
+
+	@Test
+	public void constructorWhenThreadsZeroThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new PasswordHashingExecutor(0, 1));
+	}
+
+	@Test
+	public void constructorWhenQueueCapacityZeroThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new PasswordHashingExecutor(1, 0));
+	}
+
+	@Test
+	public void matchesWhenMatchThenTrue() {
+		given(this.encoder.matches("password", "encoded")).willReturn(true);
+		assertThat(this.executor.matches(this.encoder, "user", "password", "encoded")).isTrue();
+		assertThat(this.executor.matches(this.encoder, "user", "wrong", "encoded")).isFalse();
+	}
+
+	@Test
+	public void matchesWhenEncoderFailsThenAuthenticationServiceException() {
+		given(this.encoder.matches(any(), any())).willThrow(new IllegalArgumentException("invalid"));
+		assertThatExceptionOfType(AuthenticationServiceException.class)
+			.isThrownBy(() -> this.executor.matches(this.encoder, "user", "password", "encoded"))
+			.withCauseInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void submitWhenDuplicateInFlightThenCoalesced() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		given(this.encoder.matches(any(), any())).willAnswer((invocation) -> {
+			started.countDown();
+			this.release.await(10, TimeUnit.SECONDS);
+			return true;
+		});
+		CompletableFuture<Boolean> first = this.executor.submit(this.encoder, "user", "password", "encoded");
+		assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+		CompletableFuture<Boolean> second = this.executor.submit(this.encoder, "user", "password", "encoded");
+		second.cancel(false);
+		CompletableFuture<Boolean> third = this.executor.submit(this.encoder, "user", "password", "encoded");
+		this.release.countDown();
+		assertThat(first.get(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(third.get(10, TimeUnit.SECONDS)).isTrue();
+		verify(this.encoder, times(1)).matches(any(), any());
+	}
+
+	@Test
+	public void submitWhenOtherPasswordInFlightThenNotCoalesced() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		given(this.encoder.matches(any(), any())).willAnswer((invocation) -> {
+			started.countDown();
+			this.release.await(10, TimeUnit.SECONDS);
+			return "password".equals(invocation.getArgument(0));
+		});
+		CompletableFuture<Boolean> first = this.executor.submit(this.encoder, "user", "password", "encoded");
+		assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+		CompletableFuture<Boolean> second = this.executor.submit(this.encoder, "user", "wrong", "encoded");
+		this.release.countDown();
+		assertThat(first.get(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(second.get(10, TimeUnit.SECONDS)).isFalse();
+		verify(this.encoder, times(2)).matches(any(), any());
+	}
+
+	@Test
+	public void submitWhenQueueFullThenFailsFast() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		given(this.encoder.matches(any(), any())).willAnswer((invocation) -> {
+			started.countDown();
+			this.release.await(10, TimeUnit.SECONDS);
+			return true;
+		});
+		CompletableFuture<Boolean> running = this.executor.submit(this.encoder, "user1", "password", "encoded");
+		assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+		CompletableFuture<Boolean> queued = this.executor.submit(this.encoder, "user2", "password", "encoded");
+		assertThat(this.executor.getQueueSize()).isEqualTo(1);
+		assertThatExceptionOfType(AuthenticationServiceException.class)
+			.isThrownBy(() -> this.executor.matches(this.encoder, "user3", "password", "encoded"));
+		this.release.countDown();
+		assertThat(running.get(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(queued.get(10, TimeUnit.SECONDS)).isTrue();
+	}
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.authentication;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.security.core.userdetails.PasswordEncodedUser;
+import org.springframework.security.core.userdetails.PasswordUpdate;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Tests for {@link PasswordUpgradeExecutor}.
+ */
+public class PasswordUpgradeExecutorTests {
+
+	private final UserDetailsPasswordService passwordService = mock(UserDetailsPasswordService.class);
+
+	private final PasswordEncoder encoder = mock(PasswordEncoder.class);
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private final PasswordUpgradeExecutor executor = new PasswordUpgradeExecutor(this.passwordService, 1, 2);
+
+	@AfterEach
+	public void cleanup() {
+		this.release.countDown();
+		this.executor.destroy();
+	}
+
+	@Test
+	public void constructorWhenThreadsZeroThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new PasswordUpgradeExecutor(this.passwordService, 0, 1));
+	}
+
+	@Test
+	public void constructorWhenCapacityZeroThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new PasswordUpgradeExecutor(this.passwordService, 1, 0));
+	}
+
+	@Test
+	public void setBatchSizeWhenZeroThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.executor.setBatchSize(0));
+	}
+
+	@Test
+	public void submitWhenBatchFullThenWritten() {
+		given(this.encoder.encode("password")).willReturn("encoded");
+		this.executor.setBatchSize(1);
+		this.executor.setFlushInterval(Duration.ofHours(1));
+		assertThat(this.executor.submit(this.encoder, PasswordEncodedUser.user(), "password")).isTrue();
+		verify(this.passwordService, timeout(5000)).updatePasswords(List.of(encoded(PasswordEncodedUser.user())));
+	}
+
+	@Test
+	public void submitWhenCredentialsErasedThenWrittenWithAuthenticatedPassword() {
+		given(this.encoder.encode("password")).willReturn("encoded");
+		this.executor.setBatchSize(1);
+		User user = (User) PasswordEncodedUser.user();
+		String authenticated = user.getPassword();
+		this.executor.submit(this.encoder, user, "password");
+		user.eraseCredentials();
+		verify(this.passwordService, timeout(5000)).updatePasswords(argThat((batch) -> batch.get(0).getUser() == user
+				&& authenticated.equals(batch.get(0).getCurrentPassword())));
+	}
+
+	@Test
+	public void submitWhenFlushIntervalElapsedThenWrittenInOneBatch() {
+		given(this.encoder.encode("password")).willReturn("encoded");
+		this.executor.setFlushInterval(Duration.ofMillis(100));
+		this.executor.submit(this.encoder, PasswordEncodedUser.user(), "password");
+		this.executor.submit(this.encoder, PasswordEncodedUser.admin(), "password");
+		verify(this.passwordService, timeout(5000)).updatePasswords(argThat((batch) -> batch.size() == 2));
+	}
+
+	@Test
+	public void submitWhenUserInFlightThenDropped() {
+		given(this.encoder.encode("password")).willAnswer((invocation) -> awaitRelease());
+		assertThat(this.executor.submit(this.encoder, PasswordEncodedUser.user(), "password")).isTrue();
+		assertThat(this.executor.submit(this.encoder, PasswordEncodedUser.user(), "password")).isFalse();
+		assertThat(this.executor.getInFlight()).isEqualTo(1);
+	}
+
+	@Test
+	public void submitWhenCapacityExhaustedThenDropped() {
+		given(this.encoder.encode("password")).willAnswer((invocation) -> awaitRelease());
+		UserDetails other = PasswordEncodedUser.withUsername("other").password("password").roles("USER").build();
+		assertThat(this.executor.submit(this.encoder, PasswordEncodedUser.user(), "password")).isTrue();
+		assertThat(this.executor.submit(this.encoder, PasswordEncodedUser.admin(), "password")).isTrue();
+		assertThat(this.executor.submit(this.encoder, other, "password")).isFalse();
+	}
+
+	@Test
+	public void submitWhenEncodingFailsThenReleased() {
+		given(this.encoder.encode(any())).willThrow(new IllegalStateException("failed"));
+		this.executor.submit(this.encoder, PasswordEncodedUser.user(), "password");
+		verify(this.encoder, timeout(5000)).encode("password");
+		awaitInFlight(0);
+		verifyNoInteractions(this.passwordService);
+	}
+
+	@Test
+	public void submitWhenWriteFailsThenReleased() {
+		given(this.encoder.encode("password")).willReturn("encoded");
+		willThrow(new IllegalStateException("failed")).given(this.passwordService).updatePasswords(any());
+		this.executor.setBatchSize(1);
+		this.executor.submit(this.encoder, PasswordEncodedUser.user(), "password");
+		verify(this.passwordService, timeout(5000)).updatePasswords(any());
+		awaitInFlight(0);
+	}
+
+	@Test
+	public void destroyWhenEncodedThenWritten() {
+		given(this.encoder.encode("password")).willReturn("encoded");
+		this.executor.setFlushInterval(Duration.ofHours(1));
+		this.executor.submit(this.encoder, PasswordEncodedUser.user(), "password");
+		verify(this.encoder, timeout(5000)).encode("password");
+		this.executor.destroy();
+		verify(this.passwordService, timeout(5000)).updatePasswords(List.of(encoded(PasswordEncodedUser.user())));
+	}
+
+	private static PasswordUpdate encoded(UserDetails user) {
+		return new PasswordUpdate(user, user.getPassword(), "encoded");
+	}
+
+	private String awaitRelease() throws InterruptedException {
+		this.release.await(10, TimeUnit.SECONDS);
+		return "encoded";
+	}
+
+	private void awaitInFlight(int inFlight) {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (this.executor.getInFlight() != inFlight && System.nanoTime() < deadline) {
+			Thread.onSpinWait();
+		}
+		assertThat(this.executor.getInFlight()).isEqualTo(inFlight);
+	}
+
+}
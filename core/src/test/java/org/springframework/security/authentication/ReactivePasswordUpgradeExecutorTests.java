@@ -0,0 +1,142 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.authentication;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.security.core.userdetails.PasswordEncodedUser;
+import org.springframework.security.core.userdetails.PasswordUpdate;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Tests for {@link ReactivePasswordUpgradeExecutor}.
+ */
+public class ReactivePasswordUpgradeExecutorTests {
+
+	private final ReactiveUserDetailsPasswordService passwordService = mock(ReactiveUserDetailsPasswordService.class);
+
+	private final PasswordEncoder encoder = mock(PasswordEncoder.class);
+
+	private final ReactivePasswordUpgradeExecutor executor = new ReactivePasswordUpgradeExecutor(this.passwordService,
+			2);
+
+	@BeforeEach
+	public void setup() {
+		this.executor.setScheduler(Schedulers.immediate());
+		given(this.encoder.encode("password")).willReturn("encoded");
+	}
+
+	@Test
+	public void constructorWhenCapacityZeroThenIllegalArgumentException() {
+		assertThatIllegalArgumentException()
+				.isThrownBy(() -> new ReactivePasswordUpgradeExecutor(this.passwordService, 0));
+	}
+
+	@Test
+	public void submitWhenBatchFullThenWritten() {
+		given(this.passwordService.updatePasswords(any())).willReturn(Mono.empty());
+		this.executor.setBatchSize(2);
+		this.executor.submit(this.encoder, PasswordEncodedUser.user(), "password");
+		verifyNoInteractions(this.passwordService);
+		this.executor.submit(this.encoder, PasswordEncodedUser.admin(), "password");
+		verify(this.passwordService).updatePasswords(argThat((batch) -> batch.size() == 2));
+		assertThat(this.executor.getInFlight()).isZero();
+	}
+
+	@Test
+	public void submitWhenFlushIntervalElapsedThenWritten() {
+		given(this.passwordService.updatePasswords(any())).willReturn(Mono.empty());
+		this.executor.setScheduler(Schedulers.parallel());
+		this.executor.setFlushInterval(Duration.ofMillis(100));
+		this.executor.submit(this.encoder, PasswordEncodedUser.user(), "password");
+		verify(this.passwordService, timeout(5000)).updatePasswords(List.of(encoded(PasswordEncodedUser.user())));
+	}
+
+	@Test
+	public void submitWhenWritingThenNextBatchWaits() {
+		Sinks.Empty<Void> written = Sinks.empty();
+		given(this.passwordService.updatePasswords(any())).willReturn(written.asMono(), Mono.empty());
+		this.executor.setBatchSize(1);
+		this.executor.submit(this.encoder, PasswordEncodedUser.user(), "password");
+		this.executor.submit(this.encoder, PasswordEncodedUser.admin(), "password");
+		verify(this.passwordService).updatePasswords(any());
+		written.tryEmitEmpty();
+		verify(this.passwordService).updatePasswords(List.of(encoded(PasswordEncodedUser.admin())));
+		assertThat(this.executor.getInFlight()).isZero();
+	}
+
+	@Test
+	public void submitWhenUserInFlightThenDropped() {
+		this.executor.setFlushInterval(Duration.ofHours(1));
+		assertThat(this.executor.submit(this.encoder, PasswordEncodedUser.user(), "password")).isTrue();
+		assertThat(this.executor.submit(this.encoder, PasswordEncodedUser.user(), "password")).isFalse();
+		verify(this.encoder).encode("password");
+	}
+
+	@Test
+	public void submitWhenCapacityExhaustedThenDropped() {
+		this.executor.setFlushInterval(Duration.ofHours(1));
+		this.executor.submit(this.encoder, PasswordEncodedUser.user(), "password");
+		this.executor.submit(this.encoder, PasswordEncodedUser.admin(), "password");
+		UserDetails other = PasswordEncodedUser.withUsername("other").password("password").roles("USER").build();
+		assertThat(this.executor.submit(this.encoder, other, "password")).isFalse();
+	}
+
+	@Test
+	public void submitWhenWriteFailsThenReleased() {
+		given(this.passwordService.updatePasswords(any())).willReturn(Mono.error(new IllegalStateException("failed")));
+		this.executor.setBatchSize(1);
+		this.executor.submit(this.encoder, PasswordEncodedUser.user(), "password");
+		assertThat(this.executor.getInFlight()).isZero();
+		assertThat(this.executor.submit(this.encoder, PasswordEncodedUser.user(), "password")).isTrue();
+		verify(this.passwordService, times(2)).updatePasswords(any());
+	}
+
+	@Test
+	public void destroyWhenEncodedThenWritten() {
+		given(this.passwordService.updatePasswords(any())).willReturn(Mono.empty());
+		this.executor.setFlushInterval(Duration.ofHours(1));
+		this.executor.submit(this.encoder, PasswordEncodedUser.user(), "password");
+		this.executor.destroy();
+		verify(this.passwordService).updatePasswords(List.of(encoded(PasswordEncodedUser.user())));
+	}
+
+	private static PasswordUpdate encoded(UserDetails user) {
+		return new PasswordUpdate(user, user.getPassword(), "encoded");
+	}
+
+}
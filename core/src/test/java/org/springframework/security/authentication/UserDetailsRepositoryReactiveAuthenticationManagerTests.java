@@ -16,6 +16,9 @@
 
 package org.springframework.security.authentication;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -27,13 +30,16 @@ import reactor.core.scheduler.Schedulers;
 
 import org.springframework.context.MessageSource;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.PasswordUpdate;
 import org.springframework.security.core.userdetails.ReactiveUserDetailsPasswordService;
 import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsChecker;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.PasswordHashMemoryUnavailableException;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 import static org.mockito.ArgumentMatchers.any;
@@ -41,6 +47,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.willThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
@@ -101,6 +108,66 @@ public class UserDetailsRepositoryReactiveAuthenticationManagerTests {
 		verify(this.scheduler).schedule(any());
 	}
 
+	@Test
+	public void authenticateWhenPasswordHashingExecutorThenUsed() {
+		PasswordHashingExecutor passwordHashingExecutor = new PasswordHashingExecutor(1, 1);
+		List<String> threads = new ArrayList<>();
+		given(this.userDetailsService.findByUsername(any())).willReturn(Mono.just(this.user));
+		given(this.encoder.matches(any(), any())).willAnswer((invocation) -> {
+			threads.add(Thread.currentThread().getName());
+			return true;
+		});
+		Scheduler scheduler = Schedulers.newSingle("authentication");
+		this.manager.setScheduler(scheduler);
+		this.manager.setPasswordEncoder(this.encoder);
+		this.manager.setPasswordHashingExecutor(passwordHashingExecutor);
+		UsernamePasswordAuthenticationToken token = UsernamePasswordAuthenticationToken.unauthenticated(this.user,
+				this.user.getPassword());
+		try {
+			String authenticatedOn = this.manager.authenticate(token)
+				.filter(Authentication::isAuthenticated)
+				.map((result) -> Thread.currentThread().getName())
+				.block();
+			assertThat(threads).singleElement().asString().startsWith("password-hashing-");
+			assertThat(authenticatedOn).startsWith("authentication");
+		}
+		finally {
+			passwordHashingExecutor.destroy();
+			scheduler.dispose();
+		}
+	}
+
+	@Test
+	public void authenticateWhenPasswordHashMemoryUnavailableThenAuthenticationServiceException() {
+		given(this.userDetailsService.findByUsername(any())).willReturn(Mono.just(this.user));
+		given(this.encoder.matches(any(), any())).willThrow(new PasswordHashMemoryUnavailableException("unavailable"));
+		this.manager.setScheduler(Schedulers.immediate());
+		this.manager.setPasswordEncoder(this.encoder);
+		UsernamePasswordAuthenticationToken token = UsernamePasswordAuthenticationToken.unauthenticated(this.user,
+				this.user.getPassword());
+		assertThatExceptionOfType(AuthenticationServiceException.class)
+			.isThrownBy(() -> this.manager.authenticate(token).block())
+			.withCauseInstanceOf(PasswordHashMemoryUnavailableException.class);
+	}
+
+	@Test
+	public void authenticateWhenPasswordHashingExecutorAndNoMatchThenBadCredentials() {
+		PasswordHashingExecutor passwordHashingExecutor = new PasswordHashingExecutor(1, 1);
+		given(this.userDetailsService.findByUsername(any())).willReturn(Mono.just(this.user));
+		given(this.encoder.matches(any(), any())).willReturn(false);
+		this.manager.setPasswordEncoder(this.encoder);
+		this.manager.setPasswordHashingExecutor(passwordHashingExecutor);
+		UsernamePasswordAuthenticationToken token = UsernamePasswordAuthenticationToken.unauthenticated(this.user,
+				this.user.getPassword());
+		try {
+			assertThatExceptionOfType(BadCredentialsException.class)
+				.isThrownBy(() -> this.manager.authenticate(token).block());
+		}
+		finally {
+			passwordHashingExecutor.destroy();
+		}
+	}
+
 	@Test
 	public void authenticateWhenPasswordServiceThenUpdated() {
 		String encodedPassword = "encoded";
@@ -118,6 +185,28 @@ public class UserDetailsRepositoryReactiveAuthenticationManagerTests {
 		verify(this.userDetailsPasswordService).updatePassword(eq(this.user), eq(encodedPassword));
 	}
 
+	@Test
+	public void authenticateWhenPasswordUpgradeExecutorThenUpdatedInBackground() {
+		ReactivePasswordUpgradeExecutor passwordUpgradeExecutor = new ReactivePasswordUpgradeExecutor(
+				this.userDetailsPasswordService);
+		passwordUpgradeExecutor.setScheduler(Schedulers.immediate());
+		passwordUpgradeExecutor.setBatchSize(1);
+		given(this.userDetailsService.findByUsername(any())).willReturn(Mono.just(this.user));
+		given(this.encoder.matches(any(), any())).willReturn(true);
+		given(this.encoder.upgradeEncoding(any())).willReturn(true);
+		given(this.encoder.encode(any())).willReturn("encoded");
+		given(this.userDetailsPasswordService.updatePasswords(any())).willReturn(Mono.empty());
+		this.manager.setPasswordEncoder(this.encoder);
+		this.manager.setPasswordUpgradeExecutor(passwordUpgradeExecutor);
+		UsernamePasswordAuthenticationToken token = UsernamePasswordAuthenticationToken.unauthenticated(this.user,
+				this.user.getPassword());
+		Authentication result = this.manager.authenticate(token).block();
+		assertThat(result.getPrincipal()).isEqualTo(this.user);
+		verify(this.userDetailsPasswordService).updatePasswords(
+				List.of(new PasswordUpdate(this.user, this.user.getPassword(), "encoded")));
+		verify(this.userDetailsPasswordService, never()).updatePassword(any(), any());
+	}
+
 	@Test
 	public void authenticateWhenPasswordServiceAndBadCredentialsThenNotUpdated() {
 		given(this.userDetailsService.findByUsername(any())).willReturn(Mono.just(this.user));
@@ -31,12 +31,15 @@ import org.springframework.security.authentication.CredentialsExpiredException;
 import org.springframework.security.authentication.DisabledException;
 import org.springframework.security.authentication.InternalAuthenticationServiceException;
 import org.springframework.security.authentication.LockedException;
+import org.springframework.security.authentication.PasswordHashingExecutor;
+import org.springframework.security.authentication.PasswordUpgradeExecutor;
 import org.springframework.security.authentication.TestingAuthenticationToken;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.userdetails.PasswordEncodedUser;
+import org.springframework.security.core.userdetails.PasswordUpdate;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsPasswordService;
@@ -48,6 +51,7 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 import org.springframework.security.crypto.password.NoOpPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.PasswordHashMemoryUnavailableException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
@@ -59,6 +63,8 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -287,6 +293,103 @@ public class DaoAuthenticationProviderTests {
 		verify(passwordManager).updatePassword(eq(user), eq(encodedPassword));
 	}
 
+	@Test
+	public void authenticateWhenPasswordUpgradeExecutorThenUpdatedInBackground() {
+		String password = "password";
+		UsernamePasswordAuthenticationToken token = UsernamePasswordAuthenticationToken.unauthenticated("user",
+				password);
+		PasswordEncoder encoder = mock(PasswordEncoder.class);
+		UserDetailsService userDetailsService = mock(UserDetailsService.class);
+		UserDetailsPasswordService passwordManager = mock(UserDetailsPasswordService.class);
+		PasswordUpgradeExecutor passwordUpgradeExecutor = new PasswordUpgradeExecutor(passwordManager);
+		passwordUpgradeExecutor.setBatchSize(1);
+		DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+		provider.setPasswordEncoder(encoder);
+		provider.setUserDetailsService(userDetailsService);
+		provider.setUserDetailsPasswordService(passwordManager);
+		provider.setPasswordUpgradeExecutor(passwordUpgradeExecutor);
+		UserDetails user = PasswordEncodedUser.user();
+		given(encoder.matches(any(), any())).willReturn(true);
+		given(encoder.upgradeEncoding(any())).willReturn(true);
+		given(encoder.encode(any())).willReturn("encoded");
+		given(userDetailsService.loadUserByUsername(any())).willReturn(user);
+		try {
+			Authentication result = provider.authenticate(token);
+			assertThat(result.getPrincipal()).isEqualTo(user);
+			verify(passwordManager, timeout(5000))
+				.updatePasswords(List.of(new PasswordUpdate(user, user.getPassword(), "encoded")));
+			verify(passwordManager, never()).updatePassword(any(), any());
+		}
+		finally {
+			passwordUpgradeExecutor.destroy();
+		}
+	}
+
+	@Test
+	public void authenticateWhenPasswordHashMemoryUnavailableThenAuthenticationServiceException() {
+		UsernamePasswordAuthenticationToken token = UsernamePasswordAuthenticationToken.unauthenticated("user",
+				"password");
+		PasswordEncoder encoder = mock(PasswordEncoder.class);
+		UserDetailsService userDetailsService = mock(UserDetailsService.class);
+		DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+		provider.setPasswordEncoder(encoder);
+		provider.setUserDetailsService(userDetailsService);
+		given(userDetailsService.loadUserByUsername(any())).willReturn(PasswordEncodedUser.user());
+		given(encoder.matches(any(), any())).willThrow(new PasswordHashMemoryUnavailableException("unavailable"));
+		assertThatExceptionOfType(AuthenticationServiceException.class).isThrownBy(() -> provider.authenticate(token))
+				.withCauseInstanceOf(PasswordHashMemoryUnavailableException.class);
+	}
+
+	@Test
+	public void authenticateWhenPasswordHashingExecutorThenUsed() {
+		UsernamePasswordAuthenticationToken token = UsernamePasswordAuthenticationToken.unauthenticated("user",
+				"password");
+		PasswordEncoder encoder = mock(PasswordEncoder.class);
+		UserDetailsService userDetailsService = mock(UserDetailsService.class);
+		PasswordHashingExecutor passwordHashingExecutor = new PasswordHashingExecutor(1, 1);
+		DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+		provider.setPasswordEncoder(encoder);
+		provider.setUserDetailsService(userDetailsService);
+		provider.setPasswordHashingExecutor(passwordHashingExecutor);
+		UserDetails user = PasswordEncodedUser.user();
+		List<String> threads = new ArrayList<>();
+		given(userDetailsService.loadUserByUsername(any())).willReturn(user);
+		given(encoder.matches(any(), any())).willAnswer((invocation) -> {
+			threads.add(Thread.currentThread().getName());
+			return true;
+		});
+		try {
+			Authentication result = provider.authenticate(token);
+			assertThat(result.isAuthenticated()).isTrue();
+			assertThat(threads).singleElement().asString().startsWith("password-hashing-");
+		}
+		finally {
+			passwordHashingExecutor.destroy();
+		}
+	}
+
+	@Test
+	public void authenticateWhenPasswordHashingExecutorAndUserNotFoundThenUsed() {
+		UsernamePasswordAuthenticationToken token = UsernamePasswordAuthenticationToken.unauthenticated("missing",
+				"password");
+		PasswordEncoder encoder = mock(PasswordEncoder.class);
+		UserDetailsService userDetailsService = mock(UserDetailsService.class);
+		PasswordHashingExecutor passwordHashingExecutor = new PasswordHashingExecutor(1, 1);
+		DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+		provider.setPasswordEncoder(encoder);
+		provider.setUserDetailsService(userDetailsService);
+		provider.setPasswordHashingExecutor(passwordHashingExecutor);
+		given(encoder.encode(any())).willReturn("encoded");
+		given(userDetailsService.loadUserByUsername(any())).willThrow(new UsernameNotFoundException("missing"));
+		try {
+			assertThatExceptionOfType(BadCredentialsException.class).isThrownBy(() -> provider.authenticate(token));
+			verify(encoder).matches("password", "encoded");
+		}
+		finally {
+			passwordHashingExecutor.destroy();
+		}
+	}
+
 	@Test
 	public void authenticateWhenBadCredentialsAndPasswordManagerThenNoUpdate() {
 		UsernamePasswordAuthenticationToken token = UsernamePasswordAuthenticationToken.unauthenticated("user",
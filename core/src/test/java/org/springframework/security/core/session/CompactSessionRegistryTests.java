@@ -0,0 +1,194 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.core.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.security.core.context.SecurityContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests {@link CompactSessionRegistry}.
+ */
+public class CompactSessionRegistryTests {
+
+	private static final Duration MAX_INACTIVE_INTERVAL = Duration.ofMinutes(30);
+
+	private Instant now = Instant.parse("2023-01-01T00:00:00Z");
+
+	private CompactSessionRegistry sessionRegistry;
+
+	@BeforeEach
+	public void setUp() {
+		this.sessionRegistry = new CompactSessionRegistry(MAX_INACTIVE_INTERVAL);
+		this.sessionRegistry.setClock(Clock.fixed(this.now, ZoneOffset.UTC));
+	}
+
+	@Test
+	public void constructorWhenNotPositiveThenException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new CompactSessionRegistry(Duration.ZERO));
+	}
+
+	@Test
+	public void registerNewSessionThenSessionInformationAvailable() {
+		this.sessionRegistry.registerNewSession("1234", "principal");
+		SessionInformation information = this.sessionRegistry.getSessionInformation("1234");
+		assertThat(information.getPrincipal()).isEqualTo("principal");
+		assertThat(information.getSessionId()).isEqualTo("1234");
+		assertThat(information.getLastRequest().toInstant()).isEqualTo(this.now);
+		assertThat(this.sessionRegistry.getAllPrincipals()).containsExactly("principal");
+		assertThat(this.sessionRegistry.getAllSessions("principal", false)).hasSize(1);
+	}
+
+	@Test
+	public void getAllSessionsWhenExpiredThenOnlyIncludedIfRequested() {
+		this.sessionRegistry.registerNewSession("1234", "principal");
+		this.sessionRegistry.registerNewSession("5678", "principal");
+		this.sessionRegistry.getSessionInformation("1234").expireNow();
+		List<SessionInformation> sessions = this.sessionRegistry.getAllSessions("principal", false);
+		assertThat(sessions).extracting(SessionInformation::getSessionId).containsExactly("5678");
+		assertThat(this.sessionRegistry.getAllSessions("principal", true)).hasSize(2);
+		assertThat(this.sessionRegistry.getSessionInformation("1234").isExpired()).isTrue();
+	}
+
+	@Test
+	public void registerNewSessionWhenEqualPrincipalThenInterned() {
+		String principal = new String("principal");
+		this.sessionRegistry.registerNewSession("1234", principal);
+		this.sessionRegistry.registerNewSession("5678", new String("principal"));
+		assertThat(this.sessionRegistry.getSessionInformation("5678").getPrincipal()).isSameAs(principal);
+	}
+
+	@Test
+	public void removeSessionInformationWhenLastSessionThenPrincipalRemoved() {
+		this.sessionRegistry.registerNewSession("1234", "principal");
+		this.sessionRegistry.registerNewSession("5678", "principal");
+		this.sessionRegistry.removeSessionInformation("1234");
+		assertThat(this.sessionRegistry.getSessionInformation("1234")).isNull();
+		assertThat(this.sessionRegistry.getAllPrincipals()).containsExactly("principal");
+		this.sessionRegistry.removeSessionInformation("5678");
+		assertThat(this.sessionRegistry.getAllPrincipals()).isEmpty();
+		assertThat(this.sessionRegistry.getAllSessions("principal", true)).isEmpty();
+	}
+
+	@Test
+	public void sessionDestroyedEventRemovesSessionFromRegistry() {
+		this.sessionRegistry.registerNewSession("1234", "principal");
+		this.sessionRegistry.onApplicationEvent(new SessionDestroyedEvent("") {
+			@Override
+			public String getId() {
+				return "1234";
+			}
+
+			@Override
+			public List<SecurityContext> getSecurityContexts() {
+				return null;
+			}
+		});
+		assertThat(this.sessionRegistry.getSessionInformation("1234")).isNull();
+	}
+
+	@Test
+	public void sessionIdChangedEventRemovesOldSessionAndAddsANewSession() {
+		this.sessionRegistry.registerNewSession("1234", "principal");
+		this.sessionRegistry.onApplicationEvent(new SessionIdChangedEvent("") {
+			@Override
+			public String getOldSessionId() {
+				return "1234";
+			}
+
+			@Override
+			public String getNewSessionId() {
+				return "5678";
+			}
+		});
+		assertThat(this.sessionRegistry.getSessionInformation("1234")).isNull();
+		assertThat(this.sessionRegistry.getSessionInformation("5678").getPrincipal()).isEqualTo("principal");
+	}
+
+	@Test
+	public void removeInactiveSessionsThenOnlyInactiveSessionsRemoved() {
+		this.sessionRegistry.registerNewSession("1234", "principal");
+		this.sessionRegistry.registerNewSession("5678", "principal");
+		advance(Duration.ofMinutes(20));
+		this.sessionRegistry.refreshLastRequest("5678");
+		advance(Duration.ofMinutes(11));
+		this.sessionRegistry.removeInactiveSessions();
+		assertThat(this.sessionRegistry.getSessionInformation("1234")).isNull();
+		assertThat(this.sessionRegistry.getSessionInformation("5678")).isNotNull();
+		advance(Duration.ofMinutes(20));
+		this.sessionRegistry.removeInactiveSessions();
+		assertThat(this.sessionRegistry.getSessionInformation("5678")).isNull();
+		assertThat(this.sessionRegistry.getAllPrincipals()).isEmpty();
+	}
+
+	@Test
+	public void registerNewSessionWhenSweepDueThenInactiveSessionsRemoved() {
+		this.sessionRegistry.registerNewSession("1234", "principal");
+		advance(Duration.ofHours(2));
+		this.sessionRegistry.registerNewSession("5678", "other");
+		assertThat(this.sessionRegistry.getSessionInformation("1234")).isNull();
+		assertThat(this.sessionRegistry.getAllPrincipals()).containsExactly("other");
+	}
+
+	@Test
+	public void refreshLastRequestWhenViewThenRecordUpdated() {
+		this.sessionRegistry.registerNewSession("1234", "principal");
+		SessionInformation information = this.sessionRegistry.getSessionInformation("1234");
+		advance(Duration.ofMinutes(1));
+		information.refreshLastRequest();
+		assertThat(this.sessionRegistry.getSessionInformation("1234").getLastRequest().toInstant())
+				.isEqualTo(this.now);
+	}
+
+	@Test
+	public void serializeThenPlainSessionInformation() throws Exception {
+		this.sessionRegistry.registerNewSession("1234", "principal");
+		SessionInformation information = this.sessionRegistry.getSessionInformation("1234");
+		information.expireNow();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(information);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			SessionInformation deserialized = (SessionInformation) in.readObject();
+			assertThat(deserialized.getClass()).isEqualTo(SessionInformation.class);
+			assertThat(deserialized.getSessionId()).isEqualTo("1234");
+			assertThat(deserialized.isExpired()).isTrue();
+			assertThat(deserialized.getLastRequest().toInstant()).isEqualTo(this.now);
+		}
+	}
+
+	private void advance(Duration duration) {
+		this.now = this.now.plus(duration);
+		this.sessionRegistry.setClock(Clock.fixed(this.now, ZoneOffset.UTC));
+	}
+
+}
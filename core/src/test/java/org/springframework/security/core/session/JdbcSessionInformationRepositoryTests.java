@@ -0,0 +1,149 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.core.session;
+
+import java.util.Date;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link JdbcSessionInformationRepository}.
+ */
+public class JdbcSessionInformationRepositoryTests {
+
+	private static final String SCHEMA_SQL_RESOURCE = "org/springframework/security/core/session/session-information-schema.sql";
+
+	private EmbeddedDatabase db;
+
+	private JdbcSessionInformationRepository repository;
+
+	private UserDetails user = User.withUsername("user").password("password").roles("USER").build();
+
+	@BeforeEach
+	public void setUp() {
+		// @formatter:off
+		this.db = new EmbeddedDatabaseBuilder()
+				.generateUniqueName(true)
+				.setType(EmbeddedDatabaseType.HSQL)
+				.setScriptEncoding("UTF-8")
+				.addScript(SCHEMA_SQL_RESOURCE)
+				.build();
+		// @formatter:on
+		this.repository = new JdbcSessionInformationRepository(new JdbcTemplate(this.db));
+	}
+
+	@AfterEach
+	public void tearDown() {
+		this.db.shutdown();
+	}
+
+	@Test
+	public void constructorWhenJdbcOperationsIsNullThenException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new JdbcSessionInformationRepository(null));
+	}
+
+	@Test
+	public void saveThenFindBySessionId() {
+		this.repository.save(new SessionInformation(this.user, "1234", new Date(1000)), "user");
+		SessionInformation found = this.repository.findBySessionId("1234");
+		assertThat(found.getPrincipal()).isEqualTo(this.user);
+		assertThat(found.getLastRequest()).isEqualTo(new Date(1000));
+		assertThat(found.isExpired()).isFalse();
+		assertThat(this.repository.findBySessionId("5678")).isNull();
+	}
+
+	@Test
+	public void saveWhenExistingThenReplaced() {
+		this.repository.save(new SessionInformation(this.user, "1234", new Date(1000)), "user");
+		this.repository.save(new SessionInformation(this.user, "1234", new Date(2000)), "user");
+		assertThat(this.repository.findBySessionId("1234").getLastRequest()).isEqualTo(new Date(2000));
+		assertThat(this.repository.findByPrincipalName("user")).hasSize(1);
+	}
+
+	@Test
+	public void findByPrincipalNameThenSessionsOfPrincipal() {
+		this.repository.save(new SessionInformation(this.user, "1234", new Date(1000)), "user");
+		this.repository.save(new SessionInformation(this.user, "5678", new Date(1000)), "user");
+		this.repository.save(new SessionInformation("other", "9012", new Date(1000)), "other");
+		assertThat(this.repository.findByPrincipalName("user")).extracting(SessionInformation::getSessionId)
+				.containsExactlyInAnyOrder("1234", "5678");
+		assertThat(this.repository.findAllPrincipals()).containsExactlyInAnyOrder(this.user, "other");
+	}
+
+	@Test
+	public void updateLastRequestsThenUpdated() {
+		this.repository.save(new SessionInformation(this.user, "1234", new Date(1000)), "user");
+		this.repository.save(new SessionInformation(this.user, "5678", new Date(1000)), "user");
+		this.repository.updateLastRequests(Map.of("1234", new Date(2000), "5678", new Date(3000), "9012",
+				new Date(4000)));
+		assertThat(this.repository.findBySessionId("1234").getLastRequest()).isEqualTo(new Date(2000));
+		assertThat(this.repository.findBySessionId("5678").getLastRequest()).isEqualTo(new Date(3000));
+		assertThat(this.repository.findBySessionId("9012")).isNull();
+	}
+
+	@Test
+	public void expireThenExpired() {
+		this.repository.save(new SessionInformation(this.user, "1234", new Date(1000)), "user");
+		this.repository.expire("1234", new Date(2000));
+		assertThat(this.repository.findBySessionId("1234").isExpired()).isTrue();
+	}
+
+	@Test
+	public void findSessionIdsExpiredSinceThenOnlySessionsExpiredFromThen() {
+		this.repository.save(new SessionInformation(this.user, "1234", new Date(1000)), "user");
+		this.repository.save(new SessionInformation(this.user, "5678", new Date(1000)), "user");
+		this.repository.save(new SessionInformation(this.user, "9012", new Date(1000)), "user");
+		this.repository.expire("1234", new Date(2000));
+		this.repository.expire("5678", new Date(3000));
+		this.repository.expire("5678", new Date(4000));
+		assertThat(this.repository.findSessionIdsExpiredSince(new Date(2000))).containsExactlyInAnyOrder("1234",
+				"5678");
+		assertThat(this.repository.findSessionIdsExpiredSince(new Date(2001))).containsExactly("5678");
+		assertThat(this.repository.findSessionIdsExpiredSince(new Date(3001))).isEmpty();
+	}
+
+	@Test
+	public void deleteByLastRequestBeforeThenInactiveSessionsDeleted() {
+		this.repository.save(new SessionInformation(this.user, "1234", new Date(1000)), "user");
+		this.repository.save(new SessionInformation(this.user, "5678", new Date(2000)), "user");
+		assertThat(this.repository.deleteByLastRequestBefore(new Date(2000))).isEqualTo(1);
+		assertThat(this.repository.findBySessionId("1234")).isNull();
+		assertThat(this.repository.findBySessionId("5678")).isNotNull();
+	}
+
+	@Test
+	public void deleteBySessionIdThenDeleted() {
+		this.repository.save(new SessionInformation(this.user, "1234", new Date(1000)), "user");
+		this.repository.deleteBySessionId("1234");
+		assertThat(this.repository.findBySessionId("1234")).isNull();
+		assertThat(this.repository.findAllPrincipals()).isEmpty();
+	}
+
+}
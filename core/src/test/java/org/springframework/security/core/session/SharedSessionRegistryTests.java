@@ -0,0 +1,217 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.core.session;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.userdetails.User;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link SharedSessionRegistry}.
+ */
+public class SharedSessionRegistryTests {
+
+	private Instant now = Instant.parse("2023-01-01T00:00:00Z");
+
+	private SessionInformationRepository repository;
+
+	private SharedSessionRegistry node1;
+
+	private SharedSessionRegistry node2;
+
+	@BeforeEach
+	public void setUp() {
+		this.repository = spy(new InMemorySessionInformationRepository());
+		this.node1 = new SharedSessionRegistry(this.repository);
+		this.node2 = new SharedSessionRegistry(this.repository);
+		setClock(this.now);
+	}
+
+	@Test
+	public void constructorWhenNullRepositoryThenException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new SharedSessionRegistry(null));
+	}
+
+	@Test
+	public void getAllSessionsWhenRegisteredOnOtherNodeThenIncluded() {
+		this.node1.registerNewSession("1234", User.withUsername("user").password("password").roles("USER").build());
+		this.node2.registerNewSession("5678", User.withUsername("user").password("other").roles("USER").build());
+		assertThat(this.node1.getAllSessions(User.withUsername("user").password("x").roles("USER").build(), false))
+				.extracting(SessionInformation::getSessionId).containsExactlyInAnyOrder("1234", "5678");
+		assertThat(this.node2.getAllPrincipals()).hasSize(1);
+	}
+
+	@Test
+	public void expireNowThenVisibleOnOtherNodeAfterExpiryPollInterval() {
+		this.node1.registerNewSession("1234", "user");
+		assertThat(this.node2.getSessionInformation("1234").isExpired()).isFalse();
+		List<SessionInformation> sessions = this.node1.getAllSessions("user", false);
+		sessions.get(0).expireNow();
+		assertThat(this.node1.getSessionInformation("1234").isExpired()).isTrue();
+		assertThat(this.node2.getSessionInformation("1234").isExpired()).isFalse();
+		setClock(this.now.plusSeconds(1));
+		assertThat(this.node2.getSessionInformation("1234").isExpired()).isTrue();
+		assertThat(this.node2.getAllSessions("user", false)).isEmpty();
+		assertThat(this.node2.getAllSessions("user", true)).hasSize(1);
+	}
+
+	@Test
+	public void getSessionInformationWhenSessionsExpiredOnOtherNodeThenPolledWithSingleQuery() {
+		this.node1.registerNewSession("1234", "user");
+		this.node1.registerNewSession("5678", "user");
+		this.node2.getSessionInformation("1234");
+		this.node2.getSessionInformation("5678");
+		this.node1.getAllSessions("user", false).forEach(SessionInformation::expireNow);
+		setClock(this.now.plusSeconds(1));
+		assertThat(this.node2.getSessionInformation("1234").isExpired()).isTrue();
+		assertThat(this.node2.getSessionInformation("5678").isExpired()).isTrue();
+		verify(this.repository, times(1)).findSessionIdsExpiredSince(Date.from(this.now.minusSeconds(1)));
+		verify(this.repository, times(1)).findBySessionId("1234");
+		verify(this.repository, times(1)).findBySessionId("5678");
+	}
+
+	@Test
+	public void deleteInactiveSessionsWhenNoMaxInactiveIntervalThenNothingDeleted() {
+		this.node1.registerNewSession("1234", "user");
+		setClock(this.now.plus(Duration.ofDays(1)));
+		this.node1.deleteInactiveSessions();
+		verify(this.repository, never()).deleteByLastRequestBefore(any());
+		assertThat(this.repository.findBySessionId("1234")).isNotNull();
+	}
+
+	@Test
+	public void deleteInactiveSessionsThenSessionsWithoutRecentRequestDeleted() {
+		this.node2.setMaxInactiveInterval(Duration.ofMinutes(30));
+		this.node1.registerNewSession("1234", "user");
+		this.node1.registerNewSession("5678", "user");
+		setClock(this.now.plusSeconds(60));
+		this.node1.refreshLastRequest("5678");
+		this.node1.flush();
+		setClock(this.now.plus(Duration.ofMinutes(30)).plusSeconds(1));
+		this.node2.deleteInactiveSessions();
+		assertThat(this.repository.findBySessionId("1234")).isNull();
+		assertThat(this.repository.findBySessionId("5678")).isNotNull();
+	}
+
+	@Test
+	public void setMaxInactiveIntervalWhenZeroThenException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.node1.setMaxInactiveInterval(Duration.ZERO));
+	}
+
+	@Test
+	public void getSessionInformationWhenMirroredThenRepositoryNotQueried() {
+		this.node1.registerNewSession("1234", "user");
+		this.node1.getSessionInformation("1234");
+		this.node1.getSessionInformation("1234");
+		this.node1.getSessionInformation("unknown");
+		this.node1.getSessionInformation("unknown");
+		verify(this.repository, never()).findBySessionId("1234");
+		verify(this.repository, times(1)).findBySessionId("unknown");
+	}
+
+	@Test
+	public void refreshLastRequestThenWrittenInBatchesPerRefreshInterval() {
+		this.node1.registerNewSession("1234", "user");
+		this.node1.registerNewSession("5678", "user");
+		setClock(this.now.plusSeconds(1));
+		this.node1.refreshLastRequest("1234");
+		this.node1.refreshLastRequest("5678");
+		verify(this.repository, never()).updateLastRequests(anyMap());
+		assertThat(this.node1.getSessionInformation("1234").getLastRequest())
+				.isEqualTo(Date.from(this.now.plusSeconds(1)));
+		setClock(this.now.plusSeconds(10));
+		this.node1.refreshLastRequest("1234");
+		verify(this.repository).updateLastRequests(Map.of("1234", Date.from(this.now.plusSeconds(10)), "5678",
+				Date.from(this.now.plusSeconds(1))));
+		assertThat(this.repository.findBySessionId("5678").getLastRequest())
+				.isEqualTo(Date.from(this.now.plusSeconds(1)));
+	}
+
+	@Test
+	public void flushThenPendingLastRequestsWritten() {
+		this.node1.registerNewSession("1234", "user");
+		setClock(this.now.plusSeconds(1));
+		this.node1.refreshLastRequest("1234");
+		this.node1.flush();
+		assertThat(this.repository.findBySessionId("1234").getLastRequest())
+				.isEqualTo(Date.from(this.now.plusSeconds(1)));
+		this.node1.flush();
+		verify(this.repository, times(1)).updateLastRequests(any());
+	}
+
+	@Test
+	public void sessionDestroyedEventThenRemovedOnAllNodes() {
+		this.node1.registerNewSession("1234", "user");
+		this.node2.onApplicationEvent(new SessionDestroyedEvent("") {
+			@Override
+			public String getId() {
+				return "1234";
+			}
+
+			@Override
+			public List<SecurityContext> getSecurityContexts() {
+				return null;
+			}
+		});
+		assertThat(this.node2.getSessionInformation("1234")).isNull();
+		assertThat(this.node1.getAllSessions("user", true)).isEmpty();
+	}
+
+	@Test
+	public void sessionIdChangedEventThenSessionMoved() {
+		this.node1.registerNewSession("1234", "user");
+		this.node1.onApplicationEvent(new SessionIdChangedEvent("") {
+			@Override
+			public String getOldSessionId() {
+				return "1234";
+			}
+
+			@Override
+			public String getNewSessionId() {
+				return "5678";
+			}
+		});
+		assertThat(this.node1.getSessionInformation("1234")).isNull();
+		assertThat(this.node2.getSessionInformation("5678").getPrincipal()).isEqualTo("user");
+	}
+
+	private void setClock(Instant instant) {
+		Clock clock = Clock.fixed(instant, ZoneOffset.UTC);
+		this.node1.setClock(clock);
+		this.node2.setClock(clock);
+	}
+
+}
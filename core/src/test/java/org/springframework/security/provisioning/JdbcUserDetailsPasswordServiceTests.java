@@ -0,0 +1,160 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.provisioning;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.TestDataSource;
+import org.springframework.security.authentication.PasswordUpgradeExecutor;
+import org.springframework.security.core.userdetails.PasswordUpdate;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+/**
+ * Tests for {@link JdbcUserDetailsPasswordService}.
+ */
+public class JdbcUserDetailsPasswordServiceTests {
+
+	private static final UserDetails joe = User.withUsername("joe").password("password").roles("USER").build();
+
+	private static final UserDetails ann = User.withUsername("ann").password("password").roles("USER").build();
+
+	private static TestDataSource dataSource;
+
+	private final UserCache cache = mock(UserCache.class);
+
+	private JdbcTemplate template;
+
+	private JdbcUserDetailsPasswordService passwordService;
+
+	@BeforeAll
+	public static void createDataSource() {
+		dataSource = new TestDataSource("jdbcuserpasswordtest");
+	}
+
+	@AfterAll
+	public static void clearDataSource() throws Exception {
+		dataSource.destroy();
+		dataSource = null;
+	}
+
+	@BeforeEach
+	public void setup() {
+		this.template = new JdbcTemplate(dataSource);
+		this.template.execute("create table users(username varchar(20) not null primary key,"
+				+ "password varchar(20) not null, enabled boolean not null)");
+		this.template.execute("insert into users (username, password, enabled) values ('joe','password','true')");
+		this.template.execute("insert into users (username, password, enabled) values ('ann','password','true')");
+		this.passwordService = new JdbcUserDetailsPasswordService(this.template);
+		this.passwordService.setUserCache(this.cache);
+	}
+
+	@AfterEach
+	public void dropTables() {
+		this.template.execute("drop table users");
+	}
+
+	@Test
+	public void constructorWhenJdbcOperationsNullThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new JdbcUserDetailsPasswordService(null));
+	}
+
+	@Test
+	public void jdbcUserDetailsManagerWhenCreatedThenPasswordsNotUpgradedByDefault() {
+		assertThat(new JdbcUserDetailsManager(dataSource)).isNotInstanceOf(UserDetailsPasswordService.class);
+	}
+
+	@Test
+	public void updatePasswordWhenUserExistsThenUpdatedAndRemovedFromCache() {
+		UserDetails updated = this.passwordService.updatePassword(joe, "newPassword");
+		assertThat(updated.getPassword()).isEqualTo("newPassword");
+		assertThat(updated.getAuthorities()).isEqualTo(joe.getAuthorities());
+		assertThat(passwordOf("joe")).isEqualTo("newPassword");
+		verify(this.cache).removeUserFromCache("joe");
+	}
+
+	@Test
+	public void updatePasswordsWhenUsersExistThenAllUpdatedAndRemovedFromCache() {
+		this.passwordService.updatePasswords(List.of(new PasswordUpdate(joe, joe.getPassword(), "joePassword"),
+				new PasswordUpdate(ann, ann.getPassword(), "annPassword")));
+		assertThat(passwordOf("joe")).isEqualTo("joePassword");
+		assertThat(passwordOf("ann")).isEqualTo("annPassword");
+		verify(this.cache).removeUserFromCache("joe");
+		verify(this.cache).removeUserFromCache("ann");
+	}
+
+	@Test
+	public void updatePasswordWhenPasswordChangedThenNotUpdated() {
+		this.template.update("update users set password = 'reset' where username = 'joe'");
+		UserDetails updated = this.passwordService.updatePassword(joe, "newPassword");
+		assertThat(updated.getPassword()).isEqualTo("password");
+		assertThat(passwordOf("joe")).isEqualTo("reset");
+		verifyNoInteractions(this.cache);
+	}
+
+	@Test
+	public void updatePasswordsWhenPasswordChangedThenOthersUpdated() {
+		this.template.update("update users set password = 'reset' where username = 'joe'");
+		this.passwordService.updatePasswords(List.of(new PasswordUpdate(joe, joe.getPassword(), "joePassword"),
+				new PasswordUpdate(ann, ann.getPassword(), "annPassword")));
+		assertThat(passwordOf("joe")).isEqualTo("reset");
+		assertThat(passwordOf("ann")).isEqualTo("annPassword");
+		verify(this.cache).removeUserFromCache("ann");
+		verifyNoMoreInteractions(this.cache);
+	}
+
+	@Test
+	public void updatePasswordsWhenPasswordChangedBeforeFlushThenNotOverwritten() {
+		PasswordEncoder encoder = mock(PasswordEncoder.class);
+		given(encoder.encode("password")).willReturn("upgraded");
+		PasswordUpgradeExecutor executor = new PasswordUpgradeExecutor(this.passwordService);
+		executor.setFlushInterval(Duration.ofHours(1));
+		User user = (User) User.withUserDetails(joe).build();
+		executor.submit(encoder, user, "password");
+		user.eraseCredentials();
+		verify(encoder, timeout(5000)).encode("password");
+		this.template.update("update users set password = 'reset' where username = 'joe'");
+		executor.destroy();
+		assertThat(passwordOf("joe")).isEqualTo("reset");
+	}
+
+	private String passwordOf(String username) {
+		return this.template.queryForObject("select password from users where username = ?", String.class,
+				username);
+	}
+
+}
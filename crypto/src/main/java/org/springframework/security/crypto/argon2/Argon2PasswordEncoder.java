@@ -24,6 +24,7 @@ import org.bouncycastle.crypto.params.Argon2Parameters;
 import org.springframework.security.crypto.keygen.BytesKeyGenerator;
 import org.springframework.security.crypto.keygen.KeyGenerators;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.PasswordHashMemoryLimiter;
 
 /**
  * <p>
@@ -68,6 +69,8 @@ public class Argon2PasswordEncoder implements PasswordEncoder {
 
 	private final BytesKeyGenerator saltGenerator;
 
+	private PasswordHashMemoryLimiter memoryLimiter;
+
 	/**
 	 * Constructs an Argon2 password encoder with the provided parameters.
 	 * @param saltLength the salt length (in bytes)
@@ -107,6 +110,19 @@ public class Argon2PasswordEncoder implements PasswordEncoder {
 				DEFAULT_ITERATIONS);
 	}
 
+	/**
+	 * Sets the {@link PasswordHashMemoryLimiter} that caps the memory of the hashes
+	 * computed at the same time. The default is no limit.
+	 * @param memoryLimiter the {@link PasswordHashMemoryLimiter} to use
+	 * @since 6.1
+	 */
+	public void setMemoryLimiter(PasswordHashMemoryLimiter memoryLimiter) {
+		if (memoryLimiter == null) {
+			throw new IllegalArgumentException("memoryLimiter cannot be null");
+		}
+		this.memoryLimiter = memoryLimiter;
+	}
+
 	@Override
 	public String encode(CharSequence rawPassword) {
 		byte[] salt = this.saltGenerator.generateKey();
@@ -120,9 +136,7 @@ public class Argon2PasswordEncoder implements PasswordEncoder {
 				.withIterations(this.iterations)
 				.build();
 		// @formatter:on
-		Argon2BytesGenerator generator = new Argon2BytesGenerator();
-		generator.init(params);
-		generator.generateBytes(rawPassword.toString().toCharArray(), hash);
+		generate(params, rawPassword, hash);
 		return Argon2EncodingUtils.encode(hash, params);
 	}
 
@@ -141,9 +155,7 @@ public class Argon2PasswordEncoder implements PasswordEncoder {
 			return false;
 		}
 		byte[] hashBytes = new byte[decoded.getHash().length];
-		Argon2BytesGenerator generator = new Argon2BytesGenerator();
-		generator.init(decoded.getParameters());
-		generator.generateBytes(rawPassword.toString().toCharArray(), hashBytes);
+		generate(decoded.getParameters(), rawPassword, hashBytes);
 		return constantTimeArrayEquals(decoded.getHash(), hashBytes);
 	}
 
@@ -157,6 +169,17 @@ public class Argon2PasswordEncoder implements PasswordEncoder {
 		return parameters.getMemory() < this.memory || parameters.getIterations() < this.iterations;
 	}
 
+	private void generate(Argon2Parameters parameters, CharSequence rawPassword, byte[] hash) {
+		Argon2BytesGenerator generator = new Argon2BytesGenerator();
+		generator.init(parameters);
+		if (this.memoryLimiter == null) {
+			generator.generateBytes(rawPassword.toString().toCharArray(), hash);
+			return;
+		}
+		this.memoryLimiter.hash(parameters.getMemory(),
+				() -> generator.generateBytes(rawPassword.toString().toCharArray(), hash));
+	}
+
 	private static boolean constantTimeArrayEquals(byte[] expected, byte[] actual) {
 		if (expected.length != actual.length) {
 			return false;
@@ -17,7 +17,6 @@ package org.springframework.security.crypto.bcrypt;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.SecureRandom;
-import java.util.Arrays;
 
 /**
  * BCrypt implements OpenBSD-style Blowfish password hashing using the scheme described in
@@ -66,15 +65,12 @@ public class BCrypt {
 
 	private static final int BCRYPT_SALT_LEN = 16;
 
-	// Blowfish parameters
-	private static final int BLOWFISH_NUM_ROUNDS = 16;
-
 	// Initial contents of key schedule
-	private static final int P_orig[] = { 0x243f6a88, 0x85a308d3, 0x13198a2e, 0x03707344, 0xa4093822, 0x299f31d0,
+	static final int P_orig[] = { 0x243f6a88, 0x85a308d3, 0x13198a2e, 0x03707344, 0xa4093822, 0x299f31d0,
 			0x082efa98, 0xec4e6c89, 0x452821e6, 0x38d01377, 0xbe5466cf, 0x34e90c6c, 0xc0ac29b7, 0xc97c50dd, 0x3f84d5b5,
 			0xb5470917, 0x9216d5d9, 0x8979fb1b };
 
-	private static final int S_orig[] = { 0xd1310ba6, 0x98dfb5ac, 0x2ffd72db, 0xd01adfb7, 0xb8e1afed, 0x6a267e96,
+	static final int S_orig[] = { 0xd1310ba6, 0x98dfb5ac, 0x2ffd72db, 0xd01adfb7, 0xb8e1afed, 0x6a267e96,
 			0xba7c9045, 0xf12c7f99, 0x24a19947, 0xb3916cf7, 0x0801f2e2, 0x858efc16, 0x636920d8, 0x71574e69, 0xa458fea3,
 			0xf4933d7e, 0x0d95748f, 0x728eb658, 0x718bcd58, 0x82154aee, 0x7b54a41d, 0xc25a59b5, 0x9c30d539, 0x2af26013,
 			0xc5d1b023, 0x286085f0, 0xca417918, 0xb8db38ef, 0x8e79dcb0, 0x603a180e, 0x6c9e0e8b, 0xb01e8a3e, 0xd71577c1,
@@ -191,7 +187,7 @@ public class BCrypt {
 			0x3ac372e6 };
 
 	// bcrypt IV: "OrpheanBeholderScryDoubt"
-	static private final int bf_crypt_ciphertext[] = { 0x4f727068, 0x65616e42, 0x65686f6c, 0x64657253, 0x63727944,
+	static final int bf_crypt_ciphertext[] = { 0x4f727068, 0x65616e42, 0x65686f6c, 0x64657253, 0x63727944,
 			0x6f756274 };
 
 	// Table for Base64 encoding
@@ -209,11 +205,6 @@ public class BCrypt {
 	static final int MIN_LOG_ROUNDS = 4;
 	static final int MAX_LOG_ROUNDS = 31;
 
-	// Expanded Blowfish key
-	private int P[];
-
-	private int S[];
-
 	/**
 	 * Encode a byte array using bcrypt's slightly-modified base64 encoding scheme. Note
 	 * that this is <strong>not</strong> compatible with the standard MIME-base64
@@ -321,195 +312,6 @@ public class BCrypt {
 		return ret;
 	}
 
-	/**
-	 * Blowfish encipher a single 64-bit block encoded as two 32-bit halves
-	 * @param lr an array containing the two 32-bit half blocks
-	 * @param off the position in the array of the blocks
-	 */
-	private void encipher(int lr[], int off) {
-		int i, n, l = lr[off], r = lr[off + 1];
-
-		l ^= this.P[0];
-		for (i = 0; i <= BLOWFISH_NUM_ROUNDS - 2;) {
-			// Feistel substitution on left word
-			n = this.S[(l >> 24) & 0xff];
-			n += this.S[0x100 | ((l >> 16) & 0xff)];
-			n ^= this.S[0x200 | ((l >> 8) & 0xff)];
-			n += this.S[0x300 | (l & 0xff)];
-			r ^= n ^ this.P[++i];
-
-			// Feistel substitution on right word
-			n = this.S[(r >> 24) & 0xff];
-			n += this.S[0x100 | ((r >> 16) & 0xff)];
-			n ^= this.S[0x200 | ((r >> 8) & 0xff)];
-			n += this.S[0x300 | (r & 0xff)];
-			l ^= n ^ this.P[++i];
-		}
-		lr[off] = r ^ this.P[BLOWFISH_NUM_ROUNDS + 1];
-		lr[off + 1] = l;
-	}
-
-	/**
-	 * Cycically extract a word of key material
-	 * @param data the string to extract the data from
-	 * @param offp a "pointer" (as a one-entry array) to the current offset into data
-	 * @param signp a "pointer" (as a one-entry array) to the cumulative flag for
-	 * non-benign sign extension
-	 * @return correct and buggy next word of material from data as int[2]
-	 */
-	private static int[] streamtowords(byte data[], int offp[], int signp[]) {
-		int i;
-		int words[] = { 0, 0 };
-		int off = offp[0];
-		int sign = signp[0];
-
-		for (i = 0; i < 4; i++) {
-			words[0] = (words[0] << 8) | (data[off] & 0xff);
-			words[1] = (words[1] << 8) | data[off]; // sign extension bug
-			if (i > 0) {
-				sign |= words[1] & 0x80;
-			}
-			off = (off + 1) % data.length;
-		}
-
-		offp[0] = off;
-		signp[0] = sign;
-		return words;
-	}
-
-	/**
-	 * Cycically extract a word of key material
-	 * @param data the string to extract the data from
-	 * @param offp a "pointer" (as a one-entry array) to the current offset into data
-	 * @return the next word of material from data
-	 */
-	private static int streamtoword(byte data[], int offp[]) {
-		int signp[] = { 0 };
-		return streamtowords(data, offp, signp)[0];
-	}
-
-	/**
-	 * Cycically extract a word of key material, with sign-extension bug
-	 * @param data the string to extract the data from
-	 * @param offp a "pointer" (as a one-entry array) to the current offset into data
-	 * @return the next word of material from data
-	 */
-	private static int streamtoword_bug(byte data[], int offp[]) {
-		int signp[] = { 0 };
-		return streamtowords(data, offp, signp)[1];
-	}
-
-	/**
-	 * Initialise the Blowfish key schedule
-	 */
-	private void init_key() {
-		this.P = P_orig.clone();
-		this.S = S_orig.clone();
-	}
-
-	/**
-	 * Key the Blowfish cipher
-	 * @param key an array containing the key
-	 * @param sign_ext_bug true to implement the 2x bug
-	 * @param safety bit 16 is set when the safety measure is requested
-	 */
-	private void key(byte key[], boolean sign_ext_bug, int safety) {
-		int i;
-		int koffp[] = { 0 };
-		int lr[] = { 0, 0 };
-		int plen = this.P.length, slen = this.S.length;
-
-		for (i = 0; i < plen; i++) {
-			if (!sign_ext_bug) {
-				this.P[i] = this.P[i] ^ streamtoword(key, koffp);
-			}
-			else {
-				this.P[i] = this.P[i] ^ streamtoword_bug(key, koffp);
-			}
-		}
-
-		for (i = 0; i < plen; i += 2) {
-			encipher(lr, 0);
-			this.P[i] = lr[0];
-			this.P[i + 1] = lr[1];
-		}
-
-		for (i = 0; i < slen; i += 2) {
-			encipher(lr, 0);
-			this.S[i] = lr[0];
-			this.S[i + 1] = lr[1];
-		}
-	}
-
-	/**
-	 * Perform the "enhanced key schedule" step described by Provos and Mazieres in "A
-	 * Future-Adaptable Password Scheme" https://www.openbsd.org/papers/bcrypt-paper.ps
-	 * @param data salt information
-	 * @param key password information
-	 * @param sign_ext_bug true to implement the 2x bug
-	 * @param safety bit 16 is set when the safety measure is requested
-	 */
-	private void ekskey(byte data[], byte key[], boolean sign_ext_bug, int safety) {
-		int i;
-		int koffp[] = { 0 }, doffp[] = { 0 };
-		int lr[] = { 0, 0 };
-		int plen = this.P.length, slen = this.S.length;
-		int signp[] = { 0 }; // non-benign sign-extension flag
-		int diff = 0; // zero iff correct and buggy are same
-
-		for (i = 0; i < plen; i++) {
-			int words[] = streamtowords(key, koffp, signp);
-			diff |= words[0] ^ words[1];
-			this.P[i] = this.P[i] ^ words[sign_ext_bug ? 1 : 0];
-		}
-
-		int sign = signp[0];
-
-		/*
-		 * At this point, "diff" is zero iff the correct and buggy algorithms produced
-		 * exactly the same result. If so and if "sign" is non-zero, which indicates that
-		 * there was a non-benign sign extension, this means that we have a collision
-		 * between the correctly computed hash for this password and a set of passwords
-		 * that could be supplied to the buggy algorithm. Our safety measure is meant to
-		 * protect from such many-buggy to one-correct collisions, by deviating from the
-		 * correct algorithm in such cases. Let's check for this.
-		 */
-		diff |= diff >> 16; /* still zero iff exact match */
-		diff &= 0xffff; /* ditto */
-		diff += 0xffff; /* bit 16 set iff "diff" was non-zero (on non-match) */
-		sign <<= 9; /* move the non-benign sign extension flag to bit 16 */
-		sign &= ~diff & safety; /* action needed? */
-
-		/*
-		 * If we have determined that we need to deviate from the correct algorithm, flip
-		 * bit 16 in initial expanded key. (The choice of 16 is arbitrary, but let's stick
-		 * to it now. It came out of the approach we used above, and it's not any worse
-		 * than any other choice we could make.)
-		 *
-		 * It is crucial that we don't do the same to the expanded key used in the main
-		 * Eksblowfish loop. By doing it to only one of these two, we deviate from a state
-		 * that could be directly specified by a password to the buggy algorithm (and to
-		 * the fully correct one as well, but that's a side-effect).
-		 */
-		this.P[0] ^= sign;
-
-		for (i = 0; i < plen; i += 2) {
-			lr[0] ^= streamtoword(data, doffp);
-			lr[1] ^= streamtoword(data, doffp);
-			encipher(lr, 0);
-			this.P[i] = lr[0];
-			this.P[i + 1] = lr[1];
-		}
-
-		for (i = 0; i < slen; i += 2) {
-			lr[0] ^= streamtoword(data, doffp);
-			lr[1] ^= streamtoword(data, doffp);
-			encipher(lr, 0);
-			this.S[i] = lr[0];
-			this.S[i + 1] = lr[1];
-		}
-	}
-
 	static long roundsForLogRounds(int log_rounds) {
 		if (log_rounds < 4 || log_rounds > 31) {
 			throw new IllegalArgumentException("Bad number of rounds");
@@ -520,17 +322,15 @@ public class BCrypt {
 	/**
 	 * Perform the central password hashing step in the bcrypt scheme
 	 * @param password the password to hash
+	 * @param terminate true to hash the password followed by a null byte
 	 * @param salt the binary salt to hash with the password
 	 * @param log_rounds the binary logarithm of the number of rounds of hashing to apply
 	 * @param sign_ext_bug true to implement the 2x bug
 	 * @param safety bit 16 is set when the safety measure is requested
 	 * @return an array containing the binary hashed password
 	 */
-	private byte[] crypt_raw(byte password[], byte salt[], int log_rounds, boolean sign_ext_bug, int safety,
-			boolean for_check) {
-		int cdata[] = bf_crypt_ciphertext.clone();
-		int clen = cdata.length;
-
+	private static byte[] crypt_raw(byte password[], boolean terminate, byte salt[], int log_rounds,
+			boolean sign_ext_bug, int safety, boolean for_check) {
 		long rounds;
 		if (log_rounds < 4 || log_rounds > 31) {
 			if (!for_check) {
@@ -552,27 +352,7 @@ public class BCrypt {
 			throw new IllegalArgumentException("Bad salt length");
 		}
 
-		init_key();
-		ekskey(salt, password, sign_ext_bug, safety);
-		for (int i = 0; i < rounds; i++) {
-			key(password, sign_ext_bug, safety);
-			key(salt, false, safety);
-		}
-
-		for (int i = 0; i < 64; i++) {
-			for (int j = 0; j < (clen >> 1); j++) {
-				encipher(cdata, j << 1);
-			}
-		}
-
-		byte[] ret = new byte[clen * 4];
-		for (int i = 0, j = 0; i < clen; i++) {
-			ret[j++] = (byte) ((cdata[i] >> 24) & 0xff);
-			ret[j++] = (byte) ((cdata[i] >> 16) & 0xff);
-			ret[j++] = (byte) ((cdata[i] >> 8) & 0xff);
-			ret[j++] = (byte) (cdata[i] & 0xff);
-		}
-		return ret;
+		return BCryptEngine.crypt_raw(password, terminate, salt, rounds, sign_ext_bug, safety);
 	}
 
 	private static String hashpwforcheck(byte[] passwordb, String salt) {
@@ -604,7 +384,6 @@ public class BCrypt {
 	}
 
 	private static String hashpw(byte passwordb[], String salt, boolean for_check) {
-		BCrypt B;
 		String real_salt;
 		byte saltb[], hashed[];
 		char minor = (char) 0;
@@ -648,12 +427,8 @@ public class BCrypt {
 		real_salt = salt.substring(off + 3, off + 25);
 		saltb = decode_base64(real_salt, BCRYPT_SALT_LEN);
 
-		if (minor >= 'a') {
-			passwordb = Arrays.copyOf(passwordb, passwordb.length + 1);
-		}
-
-		B = new BCrypt();
-		hashed = B.crypt_raw(passwordb, saltb, rounds, minor == 'x', minor == 'a' ? 0x10000 : 0, for_check);
+		hashed = crypt_raw(passwordb, minor >= 'a', saltb, rounds, minor == 'x', minor == 'a' ? 0x10000 : 0,
+				for_check);
 
 		rs.append("$2");
 		if (minor >= 'a') {
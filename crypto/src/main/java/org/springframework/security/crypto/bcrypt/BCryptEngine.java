@@ -0,0 +1,306 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.crypto.bcrypt;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The Eksblowfish key schedule and encryption that {@link BCrypt} uses to hash a
+ * password.
+ * <p>
+ * The password and salt are converted to key words once, so the expensive key
+ * expansion loop only XORs precomputed words into the key schedule and runs unrolled
+ * Blowfish rounds. The key schedule arrays are borrowed from a small pool instead of
+ * being allocated for every hash, and are cleared before they are returned to it. The
+ * pool is not tied to threads, so it also works with virtual threads. The only
+ * allocation of a hash is its result.
+ *
+ * @since 6.1
+ */
+final class BCryptEngine {
+
+	private static final int P_LENGTH = BCrypt.P_orig.length;
+
+	private static final int S_LENGTH = BCrypt.S_orig.length;
+
+	private static final int CIPHERTEXT_LENGTH = BCrypt.bf_crypt_ciphertext.length;
+
+	private static final int[] NO_SALT = new int[4];
+
+	private static final AtomicReferenceArray<BCryptEngine> POOL = new AtomicReferenceArray<>(
+			Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1);
+
+	// Expanded Blowfish key, with the four S-boxes in separate arrays so that indexing
+	// them only needs a byte of the word
+	private final int[] p = new int[P_LENGTH];
+
+	private final int[] s0 = new int[256];
+
+	private final int[] s1 = new int[256];
+
+	private final int[] s2 = new int[256];
+
+	private final int[] s3 = new int[256];
+
+	private final int[][] s = { this.s0, this.s1, this.s2, this.s3 };
+
+	// The key streams of the password and of the salt, repeated to the length of p
+	private final int[] passwordWords = new int[P_LENGTH];
+
+	private final int[] saltWords = new int[P_LENGTH];
+
+	private final int[] cdata = new int[CIPHERTEXT_LENGTH];
+
+	private BCryptEngine() {
+	}
+
+	/**
+	 * Perform the central password hashing step in the bcrypt scheme
+	 * @param password the password to hash
+	 * @param terminate true to hash the password followed by a null byte, as revisions
+	 * $2a and later do
+	 * @param salt the binary salt to hash with the password, 16 bytes
+	 * @param rounds the number of rounds of hashing to apply
+	 * @param sign_ext_bug true to implement the 2x bug
+	 * @param safety bit 16 is set when the safety measure is requested
+	 * @return an array containing the binary hashed password
+	 */
+	static byte[] crypt_raw(byte[] password, boolean terminate, byte[] salt, long rounds, boolean sign_ext_bug,
+			int safety) {
+		if (password.length == 0 && !terminate) {
+			throw new IllegalArgumentException("Password cannot be empty without a terminating null byte");
+		}
+		BCryptEngine engine = acquire();
+		try {
+			return engine.crypt(password, terminate, salt, rounds, sign_ext_bug, safety);
+		}
+		finally {
+			engine.clear();
+			release(engine);
+		}
+	}
+
+	private static BCryptEngine acquire() {
+		int length = POOL.length();
+		int start = (int) Thread.currentThread().getId() & (length - 1);
+		for (int i = 0; i < length; i++) {
+			BCryptEngine engine = POOL.getAndSet((start + i) & (length - 1), null);
+			if (engine != null) {
+				return engine;
+			}
+		}
+		return new BCryptEngine();
+	}
+
+	private static void release(BCryptEngine engine) {
+		int length = POOL.length();
+		int start = (int) Thread.currentThread().getId() & (length - 1);
+		for (int i = 0; i < length; i++) {
+			if (POOL.compareAndSet((start + i) & (length - 1), null, engine)) {
+				return;
+			}
+		}
+	}
+
+	private byte[] crypt(byte[] password, boolean terminate, byte[] salt, long rounds, boolean sign_ext_bug,
+			int safety) {
+		int[] p = this.p;
+		int[] passwordWords = this.passwordWords;
+		int[] saltWords = this.saltWords;
+		for (int i = 0; i < P_LENGTH; i++) {
+			int off = (i & 3) * 4;
+			saltWords[i] = ((salt[off] & 0xff) << 24) | ((salt[off + 1] & 0xff) << 16)
+					| ((salt[off + 2] & 0xff) << 8) | (salt[off + 3] & 0xff);
+		}
+		int sign = streamPassword(password, terminate, sign_ext_bug, safety);
+
+		// Enhanced key schedule
+		System.arraycopy(BCrypt.P_orig, 0, p, 0, P_LENGTH);
+		for (int i = 0; i < this.s.length; i++) {
+			System.arraycopy(BCrypt.S_orig, i * 256, this.s[i], 0, 256);
+		}
+		xor(passwordWords);
+		p[0] ^= sign;
+		expand(saltWords);
+		for (long i = 0; i < rounds; i++) {
+			xor(passwordWords);
+			expand(NO_SALT);
+			xor(saltWords);
+			expand(NO_SALT);
+		}
+
+		int[] cdata = this.cdata;
+		System.arraycopy(BCrypt.bf_crypt_ciphertext, 0, cdata, 0, CIPHERTEXT_LENGTH);
+		for (int i = 0; i < 64; i++) {
+			for (int j = 0; j < CIPHERTEXT_LENGTH; j += 2) {
+				encipher(cdata, j);
+			}
+		}
+
+		byte[] ret = new byte[CIPHERTEXT_LENGTH * 4];
+		for (int i = 0, j = 0; i < CIPHERTEXT_LENGTH; i++) {
+			ret[j++] = (byte) (cdata[i] >>> 24);
+			ret[j++] = (byte) (cdata[i] >>> 16);
+			ret[j++] = (byte) (cdata[i] >>> 8);
+			ret[j++] = (byte) cdata[i];
+		}
+		return ret;
+	}
+
+	/**
+	 * Cyclically extract the key words of the password into {@link #passwordWords}
+	 * @return the flag of the safety measure to apply to the first word of the expanded
+	 * key, either 0 or bit 16
+	 */
+	private int streamPassword(byte[] password, boolean terminate, boolean sign_ext_bug, int safety) {
+		int length = terminate ? password.length + 1 : password.length;
+		int off = 0;
+		int sign = 0; // non-benign sign-extension flag
+		int diff = 0; // zero iff correct and buggy are same
+		for (int i = 0; i < P_LENGTH; i++) {
+			int correct = 0;
+			int buggy = 0;
+			for (int j = 0; j < 4; j++) {
+				int b = (off < password.length) ? password[off] : 0;
+				correct = (correct << 8) | (b & 0xff);
+				buggy = (buggy << 8) | b; // sign extension bug
+				if (j > 0) {
+					sign |= buggy & 0x80;
+				}
+				off = (off + 1 == length) ? 0 : off + 1;
+			}
+			diff |= correct ^ buggy;
+			this.passwordWords[i] = sign_ext_bug ? buggy : correct;
+		}
+		/*
+		 * At this point, "diff" is zero iff the correct and buggy algorithms produced
+		 * exactly the same result. If so and if "sign" is non-zero, which indicates that
+		 * there was a non-benign sign extension, this means that we have a collision
+		 * between the correctly computed hash for this password and a set of passwords
+		 * that could be supplied to the buggy algorithm. Our safety measure is meant to
+		 * protect from such many-buggy to one-correct collisions, by deviating from the
+		 * correct algorithm in such cases, flipping bit 16 in the initial expanded key
+		 * but not in the one used in the main Eksblowfish loop.
+		 */
+		diff |= diff >> 16; /* still zero iff exact match */
+		diff &= 0xffff; /* ditto */
+		diff += 0xffff; /* bit 16 set iff "diff" was non-zero (on non-match) */
+		sign <<= 9; /* move the non-benign sign extension flag to bit 16 */
+		return sign & ~diff & safety; /* action needed? */
+	}
+
+	/**
+	 * XOR a key stream into the expanded key
+	 * @param words the key stream, as long as the expanded key
+	 */
+	private void xor(int[] words) {
+		int[] p = this.p;
+		for (int i = 0; i < P_LENGTH; i++) {
+			p[i] ^= words[i];
+		}
+	}
+
+	/**
+	 * Replace the expanded key and the S-boxes with the chained encryption of their own
+	 * contents. Each block is XORed with the next two salt words before it is enciphered,
+	 * the salt stream continuing from the expanded key into the S-boxes.
+	 * <p>
+	 * This is where bcrypt spends nearly all of its time, so the 16 Blowfish rounds are
+	 * unrolled into the loop instead of calling a method that would be too large for the
+	 * JIT compiler to inline.
+	 * @param salt the salt key stream, or {@link #NO_SALT}
+	 */
+	private void expand(int[] salt) {
+		int[] p = this.p;
+		int[] s0 = this.s0;
+		int[] s1 = this.s1;
+		int[] s2 = this.s2;
+		int[] s3 = this.s3;
+		int[][] s = this.s;
+		int l = 0;
+		int r = 0;
+		for (int i = 0; i < P_LENGTH + S_LENGTH; i += 2) {
+			l ^= salt[i & 3] ^ p[0];
+			r ^= salt[(i + 1) & 3];
+			r ^= (((s0[l >>> 24] + s1[(l >>> 16) & 0xff]) ^ s2[(l >>> 8) & 0xff]) + s3[l & 0xff]) ^ p[1];
+			l ^= (((s0[r >>> 24] + s1[(r >>> 16) & 0xff]) ^ s2[(r >>> 8) & 0xff]) + s3[r & 0xff]) ^ p[2];
+			r ^= (((s0[l >>> 24] + s1[(l >>> 16) & 0xff]) ^ s2[(l >>> 8) & 0xff]) + s3[l & 0xff]) ^ p[3];
+			l ^= (((s0[r >>> 24] + s1[(r >>> 16) & 0xff]) ^ s2[(r >>> 8) & 0xff]) + s3[r & 0xff]) ^ p[4];
+			r ^= (((s0[l >>> 24] + s1[(l >>> 16) & 0xff]) ^ s2[(l >>> 8) & 0xff]) + s3[l & 0xff]) ^ p[5];
+			l ^= (((s0[r >>> 24] + s1[(r >>> 16) & 0xff]) ^ s2[(r >>> 8) & 0xff]) + s3[r & 0xff]) ^ p[6];
+			r ^= (((s0[l >>> 24] + s1[(l >>> 16) & 0xff]) ^ s2[(l >>> 8) & 0xff]) + s3[l & 0xff]) ^ p[7];
+			l ^= (((s0[r >>> 24] + s1[(r >>> 16) & 0xff]) ^ s2[(r >>> 8) & 0xff]) + s3[r & 0xff]) ^ p[8];
+			r ^= (((s0[l >>> 24] + s1[(l >>> 16) & 0xff]) ^ s2[(l >>> 8) & 0xff]) + s3[l & 0xff]) ^ p[9];
+			l ^= (((s0[r >>> 24] + s1[(r >>> 16) & 0xff]) ^ s2[(r >>> 8) & 0xff]) + s3[r & 0xff]) ^ p[10];
+			r ^= (((s0[l >>> 24] + s1[(l >>> 16) & 0xff]) ^ s2[(l >>> 8) & 0xff]) + s3[l & 0xff]) ^ p[11];
+			l ^= (((s0[r >>> 24] + s1[(r >>> 16) & 0xff]) ^ s2[(r >>> 8) & 0xff]) + s3[r & 0xff]) ^ p[12];
+			r ^= (((s0[l >>> 24] + s1[(l >>> 16) & 0xff]) ^ s2[(l >>> 8) & 0xff]) + s3[l & 0xff]) ^ p[13];
+			l ^= (((s0[r >>> 24] + s1[(r >>> 16) & 0xff]) ^ s2[(r >>> 8) & 0xff]) + s3[r & 0xff]) ^ p[14];
+			r ^= (((s0[l >>> 24] + s1[(l >>> 16) & 0xff]) ^ s2[(l >>> 8) & 0xff]) + s3[l & 0xff]) ^ p[15];
+			l ^= (((s0[r >>> 24] + s1[(r >>> 16) & 0xff]) ^ s2[(r >>> 8) & 0xff]) + s3[r & 0xff]) ^ p[16];
+			int left = r ^ p[17];
+			r = l;
+			l = left;
+			if (i < P_LENGTH) {
+				p[i] = l;
+				p[i + 1] = r;
+			}
+			else {
+				int[] box = s[(i - P_LENGTH) >>> 8];
+				box[(i - P_LENGTH) & 0xff] = l;
+				box[(i - P_LENGTH + 1) & 0xff] = r;
+			}
+		}
+	}
+
+	/**
+	 * Blowfish encipher a single 64-bit block encoded as two 32-bit halves
+	 * @param lr an array containing the two 32-bit half blocks
+	 * @param off the position in the array of the blocks
+	 */
+	private void encipher(int[] lr, int off) {
+		int[] p = this.p;
+		int l = lr[off] ^ p[0];
+		int r = lr[off + 1];
+		for (int i = 1; i < 17; i += 2) {
+			r ^= f(l) ^ p[i];
+			l ^= f(r) ^ p[i + 1];
+		}
+		lr[off] = r ^ p[17];
+		lr[off + 1] = l;
+	}
+
+	/**
+	 * The Blowfish Feistel function
+	 */
+	private int f(int x) {
+		return ((this.s0[x >>> 24] + this.s1[(x >>> 16) & 0xff]) ^ this.s2[(x >>> 8) & 0xff])
+				+ this.s3[x & 0xff];
+	}
+
+	private void clear() {
+		Arrays.fill(this.p, 0);
+		for (int[] box : this.s) {
+			Arrays.fill(box, 0);
+		}
+		Arrays.fill(this.passwordWords, 0);
+		Arrays.fill(this.saltWords, 0);
+		Arrays.fill(this.cdata, 0);
+	}
+
+}
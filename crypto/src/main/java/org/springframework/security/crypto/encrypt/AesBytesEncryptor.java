@@ -16,9 +16,16 @@
 
 package org.springframework.security.crypto.encrypt;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.security.spec.AlgorithmParameterSpec;
 
 import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.CipherOutputStream;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
@@ -33,6 +40,10 @@ import org.springframework.security.crypto.util.EncodingUtils;
 /**
  * Encryptor that uses AES encryption.
  *
+ * <p>
+ * It is safe to use from many threads at once: each operation uses a cipher from a
+ * pool, without locking.
+ *
  * @author Keith Donald
  * @author Dave Syer
  */
@@ -40,9 +51,7 @@ public final class AesBytesEncryptor implements BytesEncryptor {
 
 	private final SecretKey secretKey;
 
-	private final Cipher encryptor;
-
-	private final Cipher decryptor;
+	private final CipherPool<Cipher> ciphers;
 
 	private final BytesKeyGenerator ivGenerator;
 
@@ -111,29 +120,139 @@ public final class AesBytesEncryptor implements BytesEncryptor {
 	public AesBytesEncryptor(SecretKey secretKey, BytesKeyGenerator ivGenerator, CipherAlgorithm alg) {
 		this.secretKey = new SecretKeySpec(secretKey.getEncoded(), "AES");
 		this.alg = alg;
-		this.encryptor = alg.createCipher();
-		this.decryptor = alg.createCipher();
+		this.ciphers = new CipherPool<>(alg::createCipher);
 		this.ivGenerator = (ivGenerator != null) ? ivGenerator : alg.defaultIvGenerator();
 	}
 
 	@Override
 	public byte[] encrypt(byte[] bytes) {
-		synchronized (this.encryptor) {
-			byte[] iv = this.ivGenerator.generateKey();
-			CipherUtils.initCipher(this.encryptor, Cipher.ENCRYPT_MODE, this.secretKey, this.alg.getParameterSpec(iv));
-			byte[] encrypted = CipherUtils.doFinal(this.encryptor, bytes);
+		byte[] iv = this.ivGenerator.generateKey();
+		Cipher cipher = this.ciphers.acquire();
+		try {
+			CipherUtils.initCipher(cipher, Cipher.ENCRYPT_MODE, this.secretKey, this.alg.getParameterSpec(iv));
+			byte[] encrypted = CipherUtils.doFinal(cipher, bytes);
 			return (this.ivGenerator != NULL_IV_GENERATOR) ? EncodingUtils.concatenate(iv, encrypted) : encrypted;
 		}
+		finally {
+			this.ciphers.release(cipher);
+		}
 	}
 
 	@Override
 	public byte[] decrypt(byte[] encryptedBytes) {
-		synchronized (this.decryptor) {
-			byte[] iv = iv(encryptedBytes);
-			CipherUtils.initCipher(this.decryptor, Cipher.DECRYPT_MODE, this.secretKey, this.alg.getParameterSpec(iv));
-			return CipherUtils.doFinal(this.decryptor,
+		byte[] iv = iv(encryptedBytes);
+		Cipher cipher = this.ciphers.acquire();
+		try {
+			CipherUtils.initCipher(cipher, Cipher.DECRYPT_MODE, this.secretKey, this.alg.getParameterSpec(iv));
+			return CipherUtils.doFinal(cipher,
 					(this.ivGenerator != NULL_IV_GENERATOR) ? encrypted(encryptedBytes, iv.length) : encryptedBytes);
 		}
+		finally {
+			this.ciphers.release(cipher);
+		}
+	}
+
+	/**
+	 * Encrypts the remaining bytes of the input buffer directly into the output buffer,
+	 * without copying them to an intermediate array.
+	 * @since 6.1
+	 */
+	@Override
+	public int encrypt(ByteBuffer input, ByteBuffer output) {
+		byte[] iv = this.ivGenerator.generateKey();
+		int ivLength = (this.ivGenerator != NULL_IV_GENERATOR) ? iv.length : 0;
+		Cipher cipher = this.ciphers.acquire();
+		try {
+			CipherUtils.initCipher(cipher, Cipher.ENCRYPT_MODE, this.secretKey, this.alg.getParameterSpec(iv));
+			if (output.remaining() < ivLength + cipher.getOutputSize(input.remaining())) {
+				throw new IllegalArgumentException("output buffer is too small");
+			}
+			output.put(iv, 0, ivLength);
+			return ivLength + CipherUtils.doFinal(cipher, input, output);
+		}
+		finally {
+			this.ciphers.release(cipher);
+		}
+	}
+
+	/**
+	 * Decrypts the remaining bytes of the input buffer directly into the output buffer,
+	 * without copying them to an intermediate array. The output buffer must have room
+	 * for as many bytes as are encrypted, padding included.
+	 * @since 6.1
+	 */
+	@Override
+	public int decrypt(ByteBuffer input, ByteBuffer output) {
+		ByteBuffer encrypted = input.duplicate();
+		byte[] iv = NULL_IV_GENERATOR.generateKey();
+		if (this.ivGenerator != NULL_IV_GENERATOR) {
+			if (encrypted.remaining() < this.ivGenerator.getKeyLength()) {
+				throw new IllegalArgumentException("encrypted bytes are too short");
+			}
+			iv = new byte[this.ivGenerator.getKeyLength()];
+			encrypted.get(iv);
+		}
+		Cipher cipher = this.ciphers.acquire();
+		try {
+			CipherUtils.initCipher(cipher, Cipher.DECRYPT_MODE, this.secretKey, this.alg.getParameterSpec(iv));
+			int written = CipherUtils.doFinal(cipher, encrypted, output);
+			input.position(input.limit());
+			return written;
+		}
+		finally {
+			this.ciphers.release(cipher);
+		}
+	}
+
+	/**
+	 * Returns a stream that encrypts the bytes written to it into the provided stream, in
+	 * the format of {@link #encrypt(byte[])}, without holding the payload in memory.
+	 * Closing the returned stream completes the encryption and closes the provided
+	 * stream.
+	 * <p>
+	 * With {@link CipherAlgorithm#GCM}, as used by
+	 * {@link Encryptors#stronger(CharSequence, CharSequence)}, only encrypting is
+	 * streamed: {@link #decryptingStream(InputStream)} holds the whole decrypted payload
+	 * in memory, so a payload that does not fit in memory cannot be decrypted again.
+	 * @param out the stream to write the encrypted bytes to
+	 * @return the stream to write the bytes to encrypt to
+	 * @throws IOException if the initialization vector cannot be written
+	 * @since 6.1
+	 */
+	public OutputStream encryptingStream(OutputStream out) throws IOException {
+		byte[] iv = this.ivGenerator.generateKey();
+		Cipher cipher = this.alg.createCipher();
+		CipherUtils.initCipher(cipher, Cipher.ENCRYPT_MODE, this.secretKey, this.alg.getParameterSpec(iv));
+		if (this.ivGenerator != NULL_IV_GENERATOR) {
+			out.write(iv);
+		}
+		return new CipherOutputStream(out, cipher);
+	}
+
+	/**
+	 * Returns a stream of the decrypted bytes of the provided stream, whose bytes are in
+	 * the format of {@link #encrypt(byte[])}. Closing the returned stream closes the
+	 * provided stream. With {@link CipherAlgorithm#GCM}, the JCE provider buffers all of
+	 * the decrypted bytes and only releases them once the authentication tag at the end
+	 * of the stream is verified, so the memory used grows with the size of the payload.
+	 * With {@link CipherAlgorithm#CBC}, the decrypted bytes are released as they are
+	 * read.
+	 * @param in the stream to read the encrypted bytes from
+	 * @return the stream to read the decrypted bytes from
+	 * @throws IOException if the initialization vector cannot be read
+	 * @since 6.1
+	 */
+	public InputStream decryptingStream(InputStream in) throws IOException {
+		byte[] iv = NULL_IV_GENERATOR.generateKey();
+		if (this.ivGenerator != NULL_IV_GENERATOR) {
+			iv = in.readNBytes(this.ivGenerator.getKeyLength());
+			if (iv.length < this.ivGenerator.getKeyLength()) {
+				throw new EOFException("Unable to read the initialization vector");
+			}
+		}
+		Cipher cipher = this.alg.createCipher();
+		CipherUtils.initCipher(cipher, Cipher.DECRYPT_MODE, this.secretKey, this.alg.getParameterSpec(iv));
+		return new CipherInputStream(in, cipher);
 	}
 
 	private byte[] iv(byte[] encrypted) {
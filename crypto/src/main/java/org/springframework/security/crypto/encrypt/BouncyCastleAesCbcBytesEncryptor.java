@@ -16,8 +16,15 @@
 
 package org.springframework.security.crypto.encrypt;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 import org.bouncycastle.crypto.BufferedBlockCipher;
 import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.io.CipherInputStream;
+import org.bouncycastle.crypto.io.CipherOutputStream;
 import org.bouncycastle.crypto.modes.CBCBlockCipher;
 import org.bouncycastle.crypto.paddings.PKCS7Padding;
 import org.bouncycastle.crypto.paddings.PaddedBufferedBlockCipher;
@@ -32,10 +39,17 @@ import org.springframework.security.crypto.util.EncodingUtils;
  * that uses Bouncy Castle instead of JCE. The algorithm is equivalent to
  * "AES/CBC/PKCS5Padding".
  *
+ * <p>
+ * It is safe to use from many threads at once: each operation uses a cipher from a
+ * pool, without locking.
+ *
  * @author William Tran
  */
 public class BouncyCastleAesCbcBytesEncryptor extends BouncyCastleAesBytesEncryptor {
 
+	private final CipherPool<BufferedBlockCipher> ciphers = new CipherPool<>(
+			BouncyCastleAesCbcBytesEncryptor::newBlockCipher);
+
 	public BouncyCastleAesCbcBytesEncryptor(String password, CharSequence salt) {
 		super(password, salt);
 	}
@@ -45,25 +59,74 @@ public class BouncyCastleAesCbcBytesEncryptor extends BouncyCastleAesBytesEncryp
 	}
 
 	@Override
-	@SuppressWarnings("deprecation")
 	public byte[] encrypt(byte[] bytes) {
 		byte[] iv = this.ivGenerator.generateKey();
-		PaddedBufferedBlockCipher blockCipher = new PaddedBufferedBlockCipher(
-				new CBCBlockCipher(new org.bouncycastle.crypto.engines.AESFastEngine()), new PKCS7Padding());
-		blockCipher.init(true, new ParametersWithIV(this.secretKey, iv));
-		byte[] encrypted = process(blockCipher, bytes);
-		return (iv != null) ? EncodingUtils.concatenate(iv, encrypted) : encrypted;
+		BufferedBlockCipher blockCipher = this.ciphers.acquire();
+		try {
+			blockCipher.init(true, new ParametersWithIV(this.secretKey, iv));
+			byte[] encrypted = process(blockCipher, bytes);
+			return (iv != null) ? EncodingUtils.concatenate(iv, encrypted) : encrypted;
+		}
+		finally {
+			this.ciphers.release(blockCipher);
+		}
 	}
 
 	@Override
-	@SuppressWarnings("deprecation")
 	public byte[] decrypt(byte[] encryptedBytes) {
 		byte[] iv = EncodingUtils.subArray(encryptedBytes, 0, this.ivGenerator.getKeyLength());
 		encryptedBytes = EncodingUtils.subArray(encryptedBytes, this.ivGenerator.getKeyLength(), encryptedBytes.length);
-		PaddedBufferedBlockCipher blockCipher = new PaddedBufferedBlockCipher(
-				new CBCBlockCipher(new org.bouncycastle.crypto.engines.AESFastEngine()), new PKCS7Padding());
+		BufferedBlockCipher blockCipher = this.ciphers.acquire();
+		try {
+			blockCipher.init(false, new ParametersWithIV(this.secretKey, iv));
+			return process(blockCipher, encryptedBytes);
+		}
+		finally {
+			this.ciphers.release(blockCipher);
+		}
+	}
+
+	/**
+	 * Returns a stream that encrypts the bytes written to it into the provided stream, in
+	 * the format of {@link #encrypt(byte[])}, so that payloads too large to be held in
+	 * memory can be encrypted. Closing the returned stream completes the encryption and
+	 * closes the provided stream.
+	 * @param out the stream to write the encrypted bytes to
+	 * @return the stream to write the bytes to encrypt to
+	 * @throws IOException if the initialization vector cannot be written
+	 * @since 6.1
+	 */
+	public OutputStream encryptingStream(OutputStream out) throws IOException {
+		byte[] iv = this.ivGenerator.generateKey();
+		BufferedBlockCipher blockCipher = newBlockCipher();
+		blockCipher.init(true, new ParametersWithIV(this.secretKey, iv));
+		out.write(iv);
+		return new CipherOutputStream(out, blockCipher);
+	}
+
+	/**
+	 * Returns a stream of the decrypted bytes of the provided stream, whose bytes are in
+	 * the format of {@link #encrypt(byte[])}. Closing the returned stream closes the
+	 * provided stream.
+	 * @param in the stream to read the encrypted bytes from
+	 * @return the stream to read the decrypted bytes from
+	 * @throws IOException if the initialization vector cannot be read
+	 * @since 6.1
+	 */
+	public InputStream decryptingStream(InputStream in) throws IOException {
+		byte[] iv = in.readNBytes(this.ivGenerator.getKeyLength());
+		if (iv.length < this.ivGenerator.getKeyLength()) {
+			throw new EOFException("Unable to read the initialization vector");
+		}
+		BufferedBlockCipher blockCipher = newBlockCipher();
 		blockCipher.init(false, new ParametersWithIV(this.secretKey, iv));
-		return process(blockCipher, encryptedBytes);
+		return new CipherInputStream(in, blockCipher);
+	}
+
+	@SuppressWarnings("deprecation")
+	private static BufferedBlockCipher newBlockCipher() {
+		return new PaddedBufferedBlockCipher(new CBCBlockCipher(new org.bouncycastle.crypto.engines.AESFastEngine()),
+				new PKCS7Padding());
 	}
 
 	private byte[] process(BufferedBlockCipher blockCipher, byte[] in) {
@@ -16,7 +16,14 @@
 
 package org.springframework.security.crypto.encrypt;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.io.CipherInputStream;
+import org.bouncycastle.crypto.io.CipherOutputStream;
 import org.bouncycastle.crypto.modes.AEADBlockCipher;
 import org.bouncycastle.crypto.modes.GCMBlockCipher;
 import org.bouncycastle.crypto.params.AEADParameters;
@@ -30,11 +37,18 @@ import org.springframework.security.crypto.util.EncodingUtils;
  * that uses Bouncy Castle instead of JCE. The algorithm is equivalent to
  * "AES/GCM/NoPadding".
  *
+ * <p>
+ * It is safe to use from many threads at once: each operation uses a cipher from a
+ * pool, without locking.
+ *
  * @author William Tran
  *
  */
 public class BouncyCastleAesGcmBytesEncryptor extends BouncyCastleAesBytesEncryptor {
 
+	private final CipherPool<AEADBlockCipher> ciphers = new CipherPool<>(
+			BouncyCastleAesGcmBytesEncryptor::newBlockCipher);
+
 	public BouncyCastleAesGcmBytesEncryptor(String password, CharSequence salt) {
 		super(password, salt);
 	}
@@ -44,23 +58,75 @@ public class BouncyCastleAesGcmBytesEncryptor extends BouncyCastleAesBytesEncryp
 	}
 
 	@Override
-	@SuppressWarnings("deprecation")
 	public byte[] encrypt(byte[] bytes) {
 		byte[] iv = this.ivGenerator.generateKey();
-		GCMBlockCipher blockCipher = new GCMBlockCipher(new org.bouncycastle.crypto.engines.AESFastEngine());
-		blockCipher.init(true, new AEADParameters(this.secretKey, 128, iv, null));
-		byte[] encrypted = process(blockCipher, bytes);
-		return (iv != null) ? EncodingUtils.concatenate(iv, encrypted) : encrypted;
+		AEADBlockCipher blockCipher = this.ciphers.acquire();
+		try {
+			blockCipher.init(true, new AEADParameters(this.secretKey, 128, iv, null));
+			byte[] encrypted = process(blockCipher, bytes);
+			return (iv != null) ? EncodingUtils.concatenate(iv, encrypted) : encrypted;
+		}
+		finally {
+			this.ciphers.release(blockCipher);
+		}
 	}
 
 	@Override
-	@SuppressWarnings("deprecation")
 	public byte[] decrypt(byte[] encryptedBytes) {
 		byte[] iv = EncodingUtils.subArray(encryptedBytes, 0, this.ivGenerator.getKeyLength());
 		encryptedBytes = EncodingUtils.subArray(encryptedBytes, this.ivGenerator.getKeyLength(), encryptedBytes.length);
-		GCMBlockCipher blockCipher = new GCMBlockCipher(new org.bouncycastle.crypto.engines.AESFastEngine());
+		AEADBlockCipher blockCipher = this.ciphers.acquire();
+		try {
+			blockCipher.init(false, new AEADParameters(this.secretKey, 128, iv, null));
+			return process(blockCipher, encryptedBytes);
+		}
+		finally {
+			this.ciphers.release(blockCipher);
+		}
+	}
+
+	/**
+	 * Returns a stream that encrypts the bytes written to it into the provided stream, in
+	 * the format of {@link #encrypt(byte[])}, so that payloads too large to be held in
+	 * memory can be encrypted. Closing the returned stream completes the encryption and
+	 * closes the provided stream.
+	 * @param out the stream to write the encrypted bytes to
+	 * @return the stream to write the bytes to encrypt to
+	 * @throws IOException if the initialization vector cannot be written
+	 * @since 6.1
+	 */
+	public OutputStream encryptingStream(OutputStream out) throws IOException {
+		byte[] iv = this.ivGenerator.generateKey();
+		AEADBlockCipher blockCipher = newBlockCipher();
+		blockCipher.init(true, new AEADParameters(this.secretKey, 128, iv, null));
+		out.write(iv);
+		return new CipherOutputStream(out, blockCipher);
+	}
+
+	/**
+	 * Returns a stream of the decrypted bytes of the provided stream, whose bytes are in
+	 * the format of {@link #encrypt(byte[])}. Closing the returned stream closes the
+	 * provided stream. Unlike the JCE, Bouncy Castle releases the decrypted bytes as they
+	 * are read, so they are only authenticated once the end of the stream is reached
+	 * without an {@link IOException}.
+	 * @param in the stream to read the encrypted bytes from
+	 * @return the stream to read the decrypted bytes from
+	 * @throws IOException if the initialization vector cannot be read
+	 * @since 6.1
+	 */
+	public InputStream decryptingStream(InputStream in) throws IOException {
+		byte[] iv = in.readNBytes(this.ivGenerator.getKeyLength());
+		if (iv.length < this.ivGenerator.getKeyLength()) {
+			throw new EOFException("Unable to read the initialization vector");
+		}
+		AEADBlockCipher blockCipher = newBlockCipher();
 		blockCipher.init(false, new AEADParameters(this.secretKey, 128, iv, null));
-		return process(blockCipher, encryptedBytes);
+		return new CipherInputStream(in, blockCipher);
+	}
+
+	@SuppressWarnings("deprecation")
+	private static AEADBlockCipher newBlockCipher() {
+		return new GCMBlockCipher(new org.bouncycastle.crypto.engines.AESFastEngine());
 	}
 
 	private byte[] process(AEADBlockCipher blockCipher, byte[] in) {
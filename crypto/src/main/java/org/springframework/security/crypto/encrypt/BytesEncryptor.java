@@ -16,6 +16,8 @@
 
 package org.springframework.security.crypto.encrypt;
 
+import java.nio.ByteBuffer;
+
 /**
  * Service interface for symmetric data encryption.
  *
@@ -33,4 +35,48 @@ public interface BytesEncryptor {
 	 */
 	byte[] decrypt(byte[] encryptedByteArray);
 
+	/**
+	 * Encrypt the remaining bytes of the input buffer into the output buffer, in the
+	 * format of {@link #encrypt(byte[])}. On success, the position of the input buffer is
+	 * advanced to its limit and the position of the output buffer by the number of bytes
+	 * written. By default, the bytes are copied to an array and encrypted with
+	 * {@link #encrypt(byte[])}.
+	 * @param input the bytes to encrypt
+	 * @param output the buffer to write the encrypted bytes to
+	 * @return the number of bytes written
+	 * @throws IllegalArgumentException if the output buffer is too small
+	 * @since 6.1
+	 */
+	default int encrypt(ByteBuffer input, ByteBuffer output) {
+		byte[] bytes = new byte[input.remaining()];
+		input.duplicate().get(bytes);
+		return transfer(encrypt(bytes), input, output);
+	}
+
+	/**
+	 * Decrypt the remaining bytes of the input buffer into the output buffer. On
+	 * success, the position of the input buffer is advanced to its limit and the position
+	 * of the output buffer by the number of bytes written. By default, the bytes are
+	 * copied to an array and decrypted with {@link #decrypt(byte[])}.
+	 * @param input the bytes to decrypt
+	 * @param output the buffer to write the decrypted bytes to
+	 * @return the number of bytes written
+	 * @throws IllegalArgumentException if the output buffer is too small
+	 * @since 6.1
+	 */
+	default int decrypt(ByteBuffer input, ByteBuffer output) {
+		byte[] bytes = new byte[input.remaining()];
+		input.duplicate().get(bytes);
+		return transfer(decrypt(bytes), input, output);
+	}
+
+	private static int transfer(byte[] result, ByteBuffer input, ByteBuffer output) {
+		if (output.remaining() < result.length) {
+			throw new IllegalArgumentException("output buffer is too small");
+		}
+		output.put(result);
+		input.position(input.limit());
+		return result.length;
+	}
+
 }
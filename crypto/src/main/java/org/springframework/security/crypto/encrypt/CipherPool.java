@@ -0,0 +1,65 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.crypto.encrypt;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A pool of ciphers, so that an encryptor can be used by many threads at once without
+ * creating a cipher per operation nor holding a lock while encrypting. Ciphers are
+ * created on demand and at most one per available processor, times two, are kept idle.
+ * The pool does not lock, so that it does not pin virtual threads.
+ *
+ * <p>
+ * A cipher is initialized by whoever acquires it, so a cipher left in any state by a
+ * failed operation can be released.
+ */
+final class CipherPool<T> {
+
+	private static final int MAXIMUM_IDLE = 2 * Runtime.getRuntime().availableProcessors();
+
+	private final Supplier<T> factory;
+
+	private final Queue<T> idle = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger idleCount = new AtomicInteger();
+
+	CipherPool(Supplier<T> factory) {
+		this.factory = factory;
+	}
+
+	T acquire() {
+		T cipher = this.idle.poll();
+		if (cipher == null) {
+			return this.factory.get();
+		}
+		this.idleCount.decrementAndGet();
+		return cipher;
+	}
+
+	void release(T cipher) {
+		if (this.idleCount.incrementAndGet() > MAXIMUM_IDLE) {
+			this.idleCount.decrementAndGet();
+			return;
+		}
+		this.idle.offer(cipher);
+	}
+
+}
@@ -16,6 +16,7 @@
 
 package org.springframework.security.crypto.encrypt;
 
+import java.nio.ByteBuffer;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
@@ -29,6 +30,7 @@ import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.PBEParameterSpec;
 
@@ -142,4 +144,23 @@ final class CipherUtils {
 		}
 	}
 
+	/**
+	 * Invokes the Cipher to perform encryption or decryption (depending on the
+	 * initialized mode) from the input buffer into the output buffer.
+	 */
+	static int doFinal(Cipher cipher, ByteBuffer input, ByteBuffer output) {
+		try {
+			return cipher.doFinal(input, output);
+		}
+		catch (ShortBufferException ex) {
+			throw new IllegalArgumentException("output buffer is too small", ex);
+		}
+		catch (IllegalBlockSizeException ex) {
+			throw new IllegalStateException("Unable to invoke Cipher due to illegal block size", ex);
+		}
+		catch (BadPaddingException ex) {
+			throw new IllegalStateException("Unable to invoke Cipher due to bad padding", ex);
+		}
+	}
+
 }
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.crypto.factory;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm;
+import org.springframework.security.crypto.scrypt.SCryptPasswordEncoder;
+
+/**
+ * Creates adaptive {@link PasswordEncoder}s whose parameters are sized for the current
+ * host by hashing with them, typically once at startup. Each encoder is given the
+ * strongest parameters whose hashing time does not exceed the target latency and whose
+ * memory does not exceed the maximum memory per hash.
+ *
+ * <p>
+ * The parameters are never weaker than those of the {@code defaultsForSpringSecurity_v5_8}
+ * encoders, even if the host is too slow or too busy to hash with them within the target
+ * latency or the maximum memory. In that case the minimum parameters are used and a
+ * warning is logged.
+ *
+ * <p>
+ * The {@code upgradeEncoding} methods of {@link Argon2PasswordEncoder} and
+ * {@link SCryptPasswordEncoder} report the hashes whose parameters are weaker than the
+ * calibrated ones, so that a
+ * {@link org.springframework.security.crypto.password.DelegatingPasswordEncoder}
+ * upgrades them on the next login. {@link Pbkdf2PasswordEncoder} hashes do not record
+ * their number of iterations, so they cannot be upgraded that way.
+ *
+ * <p>
+ * Calibrated parameters depend on the load of the host while calibrating. To bound the
+ * memory used by concurrent hashes, set a
+ * {@link org.springframework.security.crypto.password.PasswordHashMemoryLimiter} on the
+ * memory-hard encoders.
+ *
+ * @since 6.1
+ */
+public final class PasswordEncoderCalibrator {
+
+	private static final int PBKDF2_PROBE_ITERATIONS = 10000;
+
+	// the parameters of the defaultsForSpringSecurity_v5_8 encoders
+
+	private static final int MINIMUM_ARGON2_MEMORY = 1 << 14;
+
+	private static final int MINIMUM_ARGON2_ITERATIONS = 2;
+
+	private static final int MINIMUM_SCRYPT_CPU_COST = 1 << 16;
+
+	private static final int MINIMUM_PBKDF2_ITERATIONS = 310000;
+
+	private static final String PASSWORD = "calibration-password";
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private final Duration targetLatency;
+
+	private int maximumMemory = 1 << 16;
+
+	private int samples = 3;
+
+	/**
+	 * Constructs a {@code PasswordEncoderCalibrator} with the provided target latency.
+	 * @param targetLatency the time that hashing a password should take on this host,
+	 * for example 500 milliseconds
+	 */
+	public PasswordEncoderCalibrator(Duration targetLatency) {
+		if (targetLatency == null || targetLatency.isNegative() || targetLatency.isZero()) {
+			throw new IllegalArgumentException("targetLatency must be positive");
+		}
+		this.targetLatency = targetLatency;
+	}
+
+	/**
+	 * Sets the maximum memory of a single hash of the memory-hard encoders. The default
+	 * is 64 MiB.
+	 * @param maximumMemory the maximum memory (in KiB)
+	 */
+	public void setMaximumMemory(int maximumMemory) {
+		if (maximumMemory < 8) {
+			throw new IllegalArgumentException("maximumMemory must be at least 8 KiB");
+		}
+		this.maximumMemory = maximumMemory;
+	}
+
+	/**
+	 * Sets the number of hashes whose median time is compared with the target latency.
+	 * The default is 3.
+	 * @param samples the number of hashes
+	 */
+	public void setSamples(int samples) {
+		if (samples <= 0) {
+			throw new IllegalArgumentException("samples must be greater than 0");
+		}
+		this.samples = samples;
+	}
+
+	/**
+	 * Creates an {@link Argon2PasswordEncoder} that uses the maximum memory, but at least
+	 * 16 MiB, and as many iterations as fit in the target latency, but at least two. The
+	 * salt length is 16 bytes, the hash length 32 bytes and the parallelism 1.
+	 * @return the calibrated {@link Argon2PasswordEncoder}
+	 */
+	public Argon2PasswordEncoder argon2() {
+		int memory = Math.max(this.maximumMemory, MINIMUM_ARGON2_MEMORY);
+		long oneIteration = measure(new Argon2PasswordEncoder(16, 32, 1, memory, 1));
+		int iterations = (int) Math.min(Integer.MAX_VALUE, this.targetLatency.toNanos() / oneIteration);
+		if (memory > this.maximumMemory || iterations < MINIMUM_ARGON2_ITERATIONS) {
+			iterations = Math.max(iterations, MINIMUM_ARGON2_ITERATIONS);
+			warnMinimum("Argon2", String.format("a memory cost of %d and %d iterations", memory, iterations));
+		}
+		if (this.logger.isDebugEnabled()) {
+			this.logger.debug(String.format("Calibrated Argon2 to a memory cost of %d and %d iterations", memory,
+					iterations));
+		}
+		return new Argon2PasswordEncoder(16, 32, 1, memory, iterations);
+	}
+
+	/**
+	 * Creates an {@link SCryptPasswordEncoder} with the largest cpu cost (N) that fits
+	 * in both the target latency and the maximum memory, but at least 65536, a memory
+	 * cost (r) of 8 and a parallelization (p) of 1. The key length is 32 bytes and the
+	 * salt length 16 bytes.
+	 * @return the calibrated {@link SCryptPasswordEncoder}
+	 */
+	public SCryptPasswordEncoder scrypt() {
+		int memoryCost = 8;
+		int cpuCost = 2;
+		while (cpuCost <= (1 << 29) && scryptMemory(cpuCost * 2, memoryCost) <= this.maximumMemory) {
+			long latency = measure(new SCryptPasswordEncoder(cpuCost * 2, memoryCost, 1, 32, 16));
+			if (latency > this.targetLatency.toNanos()) {
+				break;
+			}
+			cpuCost *= 2;
+		}
+		if (cpuCost < MINIMUM_SCRYPT_CPU_COST) {
+			cpuCost = MINIMUM_SCRYPT_CPU_COST;
+			warnMinimum("SCrypt", String.format("a cpu cost of %d", cpuCost));
+		}
+		if (this.logger.isDebugEnabled()) {
+			this.logger.debug(String.format("Calibrated SCrypt to a cpu cost of %d and a memory cost of %d", cpuCost,
+					memoryCost));
+		}
+		return new SCryptPasswordEncoder(cpuCost, memoryCost, 1, 32, 16);
+	}
+
+	/**
+	 * Creates a {@link Pbkdf2PasswordEncoder} using
+	 * {@link SecretKeyFactoryAlgorithm#PBKDF2WithHmacSHA256} with as many iterations as
+	 * fit in the target latency, but at least 310000, no secret and a salt length of 16
+	 * bytes.
+	 * @return the calibrated {@link Pbkdf2PasswordEncoder}
+	 */
+	public Pbkdf2PasswordEncoder pbkdf2() {
+		long probe = measure(new Pbkdf2PasswordEncoder("", 16, PBKDF2_PROBE_ITERATIONS,
+				SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256));
+		int iterations = (int) Math.min(Integer.MAX_VALUE,
+				PBKDF2_PROBE_ITERATIONS * this.targetLatency.toNanos() / probe);
+		if (iterations < MINIMUM_PBKDF2_ITERATIONS) {
+			iterations = MINIMUM_PBKDF2_ITERATIONS;
+			warnMinimum("PBKDF2", String.format("%d iterations", iterations));
+		}
+		if (this.logger.isDebugEnabled()) {
+			this.logger.debug(String.format("Calibrated PBKDF2 to %d iterations", iterations));
+		}
+		return new Pbkdf2PasswordEncoder("", 16, iterations, SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256);
+	}
+
+	private void warnMinimum(String algorithm, String parameters) {
+		this.logger.warn(String.format(
+				"Using the minimum parameters of %s, %s, since the target latency of %s ms or the maximum memory "
+						+ "of %d KiB only allow weaker ones on this host",
+				algorithm, parameters, this.targetLatency.toMillis(), this.maximumMemory));
+	}
+
+	/**
+	 * The memory (in KiB) of the large array of an scrypt hash, which dwarfs the few
+	 * blocks it needs besides
+	 */
+	private static long scryptMemory(long cpuCost, int memoryCost) {
+		return (128L * memoryCost * cpuCost + 1023) / 1024;
+	}
+
+	/**
+	 * Hash once to warm up, then return the median time (in nanoseconds) of hashing
+	 */
+	private long measure(PasswordEncoder encoder) {
+		encoder.encode(PASSWORD);
+		long[] times = new long[this.samples];
+		for (int i = 0; i < times.length; i++) {
+			long start = System.nanoTime();
+			encoder.encode(PASSWORD);
+			times[i] = Math.max(1, System.nanoTime() - start);
+		}
+		Arrays.sort(times);
+		return times[times.length / 2];
+	}
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.crypto.password;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Caps the memory of the password hashes that are computed at the same time by
+ * memory-hard encoders, such as
+ * {@link org.springframework.security.crypto.argon2.Argon2PasswordEncoder} and
+ * {@link org.springframework.security.crypto.scrypt.SCryptPasswordEncoder}, so that a
+ * burst of logins cannot exhaust the heap. A single instance can be shared by all the
+ * encoders of an application.
+ *
+ * <p>
+ * A hash waits up to {@link #setMaximumWait(Duration) the maximum wait} for enough
+ * memory to become available, and fails with a
+ * {@link PasswordHashMemoryUnavailableException} otherwise. A hash that needs more memory
+ * than the limit is admitted once it can run alone.
+ *
+ * @since 6.1
+ */
+public final class PasswordHashMemoryLimiter {
+
+	private final int maximumMemory;
+
+	private final Semaphore available;
+
+	private Duration maximumWait = Duration.ofSeconds(1);
+
+	/**
+	 * Constructs a {@code PasswordHashMemoryLimiter} with the provided limit.
+	 * @param maximumMemory the maximum memory (in KiB) of the hashes computed at the
+	 * same time
+	 */
+	public PasswordHashMemoryLimiter(int maximumMemory) {
+		if (maximumMemory <= 0) {
+			throw new IllegalArgumentException("maximumMemory must be greater than 0");
+		}
+		this.maximumMemory = maximumMemory;
+		this.available = new Semaphore(maximumMemory, true);
+	}
+
+	/**
+	 * Sets the maximum time a hash waits for memory to become available. The default is
+	 * one second.
+	 * @param maximumWait the maximum wait, zero to fail immediately
+	 */
+	public void setMaximumWait(Duration maximumWait) {
+		if (maximumWait == null || maximumWait.isNegative()) {
+			throw new IllegalArgumentException("maximumWait cannot be null or negative");
+		}
+		this.maximumWait = maximumWait;
+	}
+
+	/**
+	 * Computes a hash once the memory it needs is available.
+	 * @param memory the memory (in KiB) that the hash needs
+	 * @param hash computes the hash
+	 * @param <T> the type of the hash
+	 * @return the hash
+	 * @throws PasswordHashMemoryUnavailableException if the memory did not become
+	 * available in time
+	 */
+	public <T> T hash(long memory, Supplier<T> hash) {
+		int permits = (int) Math.max(1, Math.min(memory, this.maximumMemory));
+		acquire(permits);
+		try {
+			return hash.get();
+		}
+		finally {
+			this.available.release(permits);
+		}
+	}
+
+	/**
+	 * Returns the memory (in KiB) that is not used by hashes being computed.
+	 * @return the available memory
+	 */
+	public int getAvailableMemory() {
+		return this.available.availablePermits();
+	}
+
+	private void acquire(int permits) {
+		try {
+			if (!this.available.tryAcquire(permits, this.maximumWait.toNanos(), TimeUnit.NANOSECONDS)) {
+				throw new PasswordHashMemoryUnavailableException(
+						"Too many passwords are being hashed, try again later");
+			}
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new PasswordHashMemoryUnavailableException("Interrupted while waiting to hash the password", ex);
+		}
+	}
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.crypto.password;
+
+/**
+ * Thrown by a {@link PasswordHashMemoryLimiter} if the memory that a password hash needs
+ * did not become available in time. Unlike other failures of an encoder, the hash can be
+ * attempted again later.
+ *
+ * @since 6.1
+ */
+public class PasswordHashMemoryUnavailableException extends IllegalStateException {
+
+	/**
+	 * Constructs a {@code PasswordHashMemoryUnavailableException} with the specified
+	 * message.
+	 * @param msg the detail message
+	 */
+	public PasswordHashMemoryUnavailableException(String msg) {
+		super(msg);
+	}
+
+	/**
+	 * Constructs a {@code PasswordHashMemoryUnavailableException} with the specified
+	 * message and root cause.
+	 * @param msg the detail message
+	 * @param cause the root cause
+	 */
+	public PasswordHashMemoryUnavailableException(String msg, Throwable cause) {
+		super(msg, cause);
+	}
+
+}
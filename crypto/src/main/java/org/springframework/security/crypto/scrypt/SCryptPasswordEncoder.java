@@ -27,6 +27,7 @@ import org.springframework.security.crypto.codec.Utf8;
 import org.springframework.security.crypto.keygen.BytesKeyGenerator;
 import org.springframework.security.crypto.keygen.KeyGenerators;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.PasswordHashMemoryLimiter;
 
 /**
  * <p>
@@ -80,6 +81,8 @@ public class SCryptPasswordEncoder implements PasswordEncoder {
 
 	private final BytesKeyGenerator saltGenerator;
 
+	private PasswordHashMemoryLimiter memoryLimiter;
+
 	/**
 	 * Constructs a SCrypt password encoder with the provided parameters.
 	 * @param cpuCost cpu cost of the algorithm (as defined in scrypt this is N). must be
@@ -145,6 +148,19 @@ public class SCryptPasswordEncoder implements PasswordEncoder {
 				DEFAULT_SALT_LENGTH);
 	}
 
+	/**
+	 * Sets the {@link PasswordHashMemoryLimiter} that caps the memory of the hashes
+	 * computed at the same time. The default is no limit.
+	 * @param memoryLimiter the {@link PasswordHashMemoryLimiter} to use
+	 * @since 6.1
+	 */
+	public void setMemoryLimiter(PasswordHashMemoryLimiter memoryLimiter) {
+		if (memoryLimiter == null) {
+			throw new IllegalArgumentException("memoryLimiter cannot be null");
+		}
+		this.memoryLimiter = memoryLimiter;
+	}
+
 	@Override
 	public String encode(CharSequence rawPassword) {
 		return digest(rawPassword, this.saltGenerator.generateKey());
@@ -186,14 +202,12 @@ public class SCryptPasswordEncoder implements PasswordEncoder {
 		int cpuCost = (int) Math.pow(2, params >> 16 & 0xffff);
 		int memoryCost = (int) params >> 8 & 0xff;
 		int parallelization = (int) params & 0xff;
-		byte[] generated = SCrypt.generate(Utf8.encode(rawPassword), salt, cpuCost, memoryCost, parallelization,
-				this.keyLength);
+		byte[] generated = generate(rawPassword, salt, cpuCost, memoryCost, parallelization);
 		return MessageDigest.isEqual(derived, generated);
 	}
 
 	private String digest(CharSequence rawPassword, byte[] salt) {
-		byte[] derived = SCrypt.generate(Utf8.encode(rawPassword), salt, this.cpuCost, this.memoryCost,
-				this.parallelization, this.keyLength);
+		byte[] derived = generate(rawPassword, salt, this.cpuCost, this.memoryCost, this.parallelization);
 		String params = Long.toString(
 				((int) (Math.log(this.cpuCost) / Math.log(2)) << 16L) | this.memoryCost << 8 | this.parallelization,
 				16);
@@ -204,6 +218,18 @@ public class SCryptPasswordEncoder implements PasswordEncoder {
 		return sb.toString();
 	}
 
+	private byte[] generate(CharSequence rawPassword, byte[] salt, int cpuCost, int memoryCost,
+			int parallelization) {
+		if (this.memoryLimiter == null) {
+			return SCrypt.generate(Utf8.encode(rawPassword), salt, cpuCost, memoryCost, parallelization,
+					this.keyLength);
+		}
+		// scrypt uses 128 * r * N bytes for V and 128 * r * p bytes for B
+		long memory = (128L * memoryCost * ((long) cpuCost + parallelization) + 1023) / 1024;
+		return this.memoryLimiter.hash(memory, () -> SCrypt.generate(Utf8.encode(rawPassword), salt, cpuCost,
+				memoryCost, parallelization, this.keyLength));
+	}
+
 	private byte[] decodePart(String part) {
 		return Base64.getDecoder().decode(Utf8.encode(part));
 	}
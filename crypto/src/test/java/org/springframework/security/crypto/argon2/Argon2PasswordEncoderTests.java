@@ -17,6 +17,7 @@
 package org.springframework.security.crypto.argon2;
 
 import java.lang.reflect.Field;
+import java.time.Duration;
 import java.util.Arrays;
 
 import org.junit.jupiter.api.Test;
@@ -26,8 +27,11 @@ import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import org.springframework.security.crypto.keygen.BytesKeyGenerator;
+import org.springframework.security.crypto.password.PasswordHashMemoryLimiter;
+import org.springframework.security.crypto.password.PasswordHashMemoryUnavailableException;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 
 /**
@@ -196,6 +200,30 @@ public class Argon2PasswordEncoderTests {
 		assertThatIllegalArgumentException().isThrownBy(() -> this.encoder.upgradeEncoding("thisIsNoValidHash"));
 	}
 
+	@Test
+	public void matchesWhenMemoryLimiterHasMemoryThenMatches() {
+		PasswordHashMemoryLimiter limiter = new PasswordHashMemoryLimiter(1 << 12);
+		this.encoder.setMemoryLimiter(limiter);
+		String result = this.encoder.encode("password");
+		assertThat(this.encoder.matches("password", result)).isTrue();
+		assertThat(limiter.getAvailableMemory()).isEqualTo(1 << 12);
+	}
+
+	@Test
+	public void matchesWhenMemoryLimiterExhaustedThenPasswordHashMemoryUnavailableException() {
+		String result = this.encoder.encode("password");
+		PasswordHashMemoryLimiter limiter = new PasswordHashMemoryLimiter(1 << 12);
+		limiter.setMaximumWait(Duration.ZERO);
+		this.encoder.setMemoryLimiter(limiter);
+		limiter.hash(1, () -> assertThatExceptionOfType(PasswordHashMemoryUnavailableException.class)
+				.isThrownBy(() -> this.encoder.matches("password", result)));
+	}
+
+	@Test
+	public void setMemoryLimiterWhenNullThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.encoder.setMemoryLimiter(null));
+	}
+
 	private void injectPredictableSaltGen() throws Exception {
 		byte[] bytes = new byte[16];
 		Arrays.fill(bytes, (byte) 0x41);
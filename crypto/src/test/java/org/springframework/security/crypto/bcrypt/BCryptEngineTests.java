@@ -0,0 +1,160 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.crypto.bcrypt;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Cross-checks {@link BCryptEngine} against {@link ReferenceBCrypt}.
+ */
+public class BCryptEngineTests {
+
+	private static final char[] MINORS = { 0, 'a', 'b', 'x', 'y' };
+
+	@Test
+	public void cryptRawWhenEveryPasswordLengthThenMatchesReference() {
+		Random random = new Random(0);
+		for (int length = 0; length <= 80; length++) {
+			byte[] password = new byte[length];
+			random.nextBytes(password);
+			byte[] salt = new byte[16];
+			random.nextBytes(salt);
+			for (char minor : MINORS) {
+				if (minor == 0 && length == 0) {
+					continue;
+				}
+				assertMatchesReference(password, salt, 4, minor);
+			}
+		}
+	}
+
+	@Test
+	public void cryptRawWhenEveryLogRoundsThenMatchesReference() {
+		Random random = new Random(1);
+		for (int logRounds = 4; logRounds <= 8; logRounds++) {
+			byte[] password = new byte[logRounds * 9];
+			random.nextBytes(password);
+			byte[] salt = new byte[16];
+			random.nextBytes(salt);
+			for (char minor : MINORS) {
+				assertMatchesReference(password, salt, logRounds, minor);
+			}
+		}
+	}
+
+	@Test
+	public void cryptRawWhenNonAsciiPasswordsThenMatchesReference() {
+		String[] passwords = { "pässwörd", "пароль", "パスワード", "🔑🔒", "ÿÿÿ",
+				"££££", "ÿ".repeat(40) };
+		Random random = new Random(2);
+		for (String password : passwords) {
+			byte[] salt = new byte[16];
+			random.nextBytes(salt);
+			for (char minor : MINORS) {
+				assertMatchesReference(password.getBytes(StandardCharsets.UTF_8), salt, 5, minor);
+				assertMatchesReference(password.getBytes(StandardCharsets.ISO_8859_1), salt, 5, minor);
+			}
+		}
+	}
+
+	@Test
+	public void cryptRawWhenSafetyMeasureTriggeredThenMatchesReference() {
+		// bytes with the high bit set whose buggy sign extension collides
+		byte[] password = { (byte) 0xff, (byte) 0xa3, 0x33, 0x34, (byte) 0xff, (byte) 0xff, (byte) 0xff,
+				(byte) 0xa3, 0x33, 0x35 };
+		byte[] salt = new byte[16];
+		for (char minor : MINORS) {
+			assertMatchesReference(password, salt, 5, minor);
+			assertMatchesReference(new byte[] { (byte) 0x80 }, salt, 5, minor);
+			assertMatchesReference(new byte[] { (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff }, salt, 5, minor);
+		}
+	}
+
+	@Test
+	public void cryptRawWhenZeroRoundsThenMatchesReference() {
+		byte[] password = "password".getBytes(StandardCharsets.UTF_8);
+		byte[] salt = new byte[16];
+		byte[] expected = new ReferenceBCrypt().crypt_raw(Arrays.copyOf(password, password.length + 1), salt, 0,
+				false, 0x10000, true);
+		assertThat(BCryptEngine.crypt_raw(password, true, salt, 0, false, 0x10000)).isEqualTo(expected);
+	}
+
+	@Test
+	public void cryptRawWhenEmptyPasswordWithoutTerminatorThenIllegalArgumentException() {
+		assertThatIllegalArgumentException()
+				.isThrownBy(() -> BCryptEngine.crypt_raw(new byte[0], false, new byte[16], 16, false, 0));
+	}
+
+	@Test
+	public void cryptRawWhenConcurrentThenMatchesReference() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> results = new ArrayList<>();
+			for (int i = 0; i < 64; i++) {
+				Random random = new Random(i);
+				byte[] password = new byte[random.nextInt(72)];
+				random.nextBytes(password);
+				byte[] salt = new byte[16];
+				random.nextBytes(salt);
+				results.add(executor.submit(() -> assertMatchesReference(password, salt, 4, 'b')));
+			}
+			for (Future<?> result : results) {
+				result.get();
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void hashpwWhenRandomPasswordsThenChecks() {
+		Random random = new Random(3);
+		for (String prefix : new String[] { "$2a", "$2b", "$2y" }) {
+			for (int i = 0; i < 8; i++) {
+				byte[] password = new byte[random.nextInt(100)];
+				random.nextBytes(password);
+				String hashed = BCrypt.hashpw(password, BCrypt.gensalt(prefix, 4));
+				assertThat(BCrypt.checkpw(password, hashed)).isTrue();
+			}
+		}
+	}
+
+	private static void assertMatchesReference(byte[] password, byte[] salt, int logRounds, char minor) {
+		boolean terminate = minor >= 'a';
+		boolean signExtBug = minor == 'x';
+		int safety = (minor == 'a') ? 0x10000 : 0;
+		byte[] key = terminate ? Arrays.copyOf(password, password.length + 1) : password;
+		byte[] expected = new ReferenceBCrypt().crypt_raw(key, salt, logRounds, signExtBug, safety, false);
+		byte[] actual = BCryptEngine.crypt_raw(password, terminate, salt, 1L << logRounds, signExtBug, safety);
+		assertThat(actual).describedAs("password %s with minor %s", Arrays.toString(password), minor)
+				.isEqualTo(expected);
+	}
+
+}
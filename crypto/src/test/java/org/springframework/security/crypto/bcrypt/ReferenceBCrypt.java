@@ -0,0 +1,279 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.crypto.bcrypt;
+
+/**
+ * The straightforward port of the bcrypt key schedule that {@link BCrypt} used before
+ * {@link BCryptEngine}, kept to cross-check the engine.
+ *
+ * @author Damien Miller
+ */
+class ReferenceBCrypt {
+
+	// Expanded Blowfish key
+	private int P[];
+
+	private int S[];
+
+	/**
+	 * Blowfish encipher a single 64-bit block encoded as two 32-bit halves
+	 * @param lr an array containing the two 32-bit half blocks
+	 * @param off the position in the array of the blocks
+	 */
+	private void encipher(int lr[], int off) {
+		int i, n, l = lr[off], r = lr[off + 1];
+
+		l ^= this.P[0];
+		for (i = 0; i <= 16 - 2;) {
+			// Feistel substitution on left word
+			n = this.S[(l >> 24) & 0xff];
+			n += this.S[0x100 | ((l >> 16) & 0xff)];
+			n ^= this.S[0x200 | ((l >> 8) & 0xff)];
+			n += this.S[0x300 | (l & 0xff)];
+			r ^= n ^ this.P[++i];
+
+			// Feistel substitution on right word
+			n = this.S[(r >> 24) & 0xff];
+			n += this.S[0x100 | ((r >> 16) & 0xff)];
+			n ^= this.S[0x200 | ((r >> 8) & 0xff)];
+			n += this.S[0x300 | (r & 0xff)];
+			l ^= n ^ this.P[++i];
+		}
+		lr[off] = r ^ this.P[16 + 1];
+		lr[off + 1] = l;
+	}
+
+	/**
+	 * Cycically extract a word of key material
+	 * @param data the string to extract the data from
+	 * @param offp a "pointer" (as a one-entry array) to the current offset into data
+	 * @param signp a "pointer" (as a one-entry array) to the cumulative flag for
+	 * non-benign sign extension
+	 * @return correct and buggy next word of material from data as int[2]
+	 */
+	private static int[] streamtowords(byte data[], int offp[], int signp[]) {
+		int i;
+		int words[] = { 0, 0 };
+		int off = offp[0];
+		int sign = signp[0];
+
+		for (i = 0; i < 4; i++) {
+			words[0] = (words[0] << 8) | (data[off] & 0xff);
+			words[1] = (words[1] << 8) | data[off]; // sign extension bug
+			if (i > 0) {
+				sign |= words[1] & 0x80;
+			}
+			off = (off + 1) % data.length;
+		}
+
+		offp[0] = off;
+		signp[0] = sign;
+		return words;
+	}
+
+	/**
+	 * Cycically extract a word of key material
+	 * @param data the string to extract the data from
+	 * @param offp a "pointer" (as a one-entry array) to the current offset into data
+	 * @return the next word of material from data
+	 */
+	private static int streamtoword(byte data[], int offp[]) {
+		int signp[] = { 0 };
+		return streamtowords(data, offp, signp)[0];
+	}
+
+	/**
+	 * Cycically extract a word of key material, with sign-extension bug
+	 * @param data the string to extract the data from
+	 * @param offp a "pointer" (as a one-entry array) to the current offset into data
+	 * @return the next word of material from data
+	 */
+	private static int streamtoword_bug(byte data[], int offp[]) {
+		int signp[] = { 0 };
+		return streamtowords(data, offp, signp)[1];
+	}
+
+	/**
+	 * Initialise the Blowfish key schedule
+	 */
+	private void init_key() {
+		this.P = BCrypt.P_orig.clone();
+		this.S = BCrypt.S_orig.clone();
+	}
+
+	/**
+	 * Key the Blowfish cipher
+	 * @param key an array containing the key
+	 * @param sign_ext_bug true to implement the 2x bug
+	 * @param safety bit 16 is set when the safety measure is requested
+	 */
+	private void key(byte key[], boolean sign_ext_bug, int safety) {
+		int i;
+		int koffp[] = { 0 };
+		int lr[] = { 0, 0 };
+		int plen = this.P.length, slen = this.S.length;
+
+		for (i = 0; i < plen; i++) {
+			if (!sign_ext_bug) {
+				this.P[i] = this.P[i] ^ streamtoword(key, koffp);
+			}
+			else {
+				this.P[i] = this.P[i] ^ streamtoword_bug(key, koffp);
+			}
+		}
+
+		for (i = 0; i < plen; i += 2) {
+			encipher(lr, 0);
+			this.P[i] = lr[0];
+			this.P[i + 1] = lr[1];
+		}
+
+		for (i = 0; i < slen; i += 2) {
+			encipher(lr, 0);
+			this.S[i] = lr[0];
+			this.S[i + 1] = lr[1];
+		}
+	}
+
+	/**
+	 * Perform the "enhanced key schedule" step described by Provos and Mazieres in "A
+	 * Future-Adaptable Password Scheme" https://www.openbsd.org/papers/bcrypt-paper.ps
+	 * @param data salt information
+	 * @param key password information
+	 * @param sign_ext_bug true to implement the 2x bug
+	 * @param safety bit 16 is set when the safety measure is requested
+	 */
+	private void ekskey(byte data[], byte key[], boolean sign_ext_bug, int safety) {
+		int i;
+		int koffp[] = { 0 }, doffp[] = { 0 };
+		int lr[] = { 0, 0 };
+		int plen = this.P.length, slen = this.S.length;
+		int signp[] = { 0 }; // non-benign sign-extension flag
+		int diff = 0; // zero iff correct and buggy are same
+
+		for (i = 0; i < plen; i++) {
+			int words[] = streamtowords(key, koffp, signp);
+			diff |= words[0] ^ words[1];
+			this.P[i] = this.P[i] ^ words[sign_ext_bug ? 1 : 0];
+		}
+
+		int sign = signp[0];
+
+		/*
+		 * At this point, "diff" is zero iff the correct and buggy algorithms produced
+		 * exactly the same result. If so and if "sign" is non-zero, which indicates that
+		 * there was a non-benign sign extension, this means that we have a collision
+		 * between the correctly computed hash for this password and a set of passwords
+		 * that could be supplied to the buggy algorithm. Our safety measure is meant to
+		 * protect from such many-buggy to one-correct collisions, by deviating from the
+		 * correct algorithm in such cases. Let's check for this.
+		 */
+		diff |= diff >> 16; /* still zero iff exact match */
+		diff &= 0xffff; /* ditto */
+		diff += 0xffff; /* bit 16 set iff "diff" was non-zero (on non-match) */
+		sign <<= 9; /* move the non-benign sign extension flag to bit 16 */
+		sign &= ~diff & safety; /* action needed? */
+
+		/*
+		 * If we have determined that we need to deviate from the correct algorithm, flip
+		 * bit 16 in initial expanded key. (The choice of 16 is arbitrary, but let's stick
+		 * to it now. It came out of the approach we used above, and it's not any worse
+		 * than any other choice we could make.)
+		 *
+		 * It is crucial that we don't do the same to the expanded key used in the main
+		 * Eksblowfish loop. By doing it to only one of these two, we deviate from a state
+		 * that could be directly specified by a password to the buggy algorithm (and to
+		 * the fully correct one as well, but that's a side-effect).
+		 */
+		this.P[0] ^= sign;
+
+		for (i = 0; i < plen; i += 2) {
+			lr[0] ^= streamtoword(data, doffp);
+			lr[1] ^= streamtoword(data, doffp);
+			encipher(lr, 0);
+			this.P[i] = lr[0];
+			this.P[i + 1] = lr[1];
+		}
+
+		for (i = 0; i < slen; i += 2) {
+			lr[0] ^= streamtoword(data, doffp);
+			lr[1] ^= streamtoword(data, doffp);
+			encipher(lr, 0);
+			this.S[i] = lr[0];
+			this.S[i + 1] = lr[1];
+		}
+	}
+
+	/**
+	 * Perform the central password hashing step in the bcrypt scheme
+	 * @param password the password to hash
+	 * @param salt the binary salt to hash with the password
+	 * @param log_rounds the binary logarithm of the number of rounds of hashing to apply
+	 * @param sign_ext_bug true to implement the 2x bug
+	 * @param safety bit 16 is set when the safety measure is requested
+	 * @return an array containing the binary hashed password
+	 */
+	byte[] crypt_raw(byte password[], byte salt[], int log_rounds, boolean sign_ext_bug, int safety,
+			boolean for_check) {
+		int cdata[] = BCrypt.bf_crypt_ciphertext.clone();
+		int clen = cdata.length;
+
+		long rounds;
+		if (log_rounds < 4 || log_rounds > 31) {
+			if (!for_check) {
+				throw new IllegalArgumentException("Bad number of rounds");
+			}
+			if (log_rounds != 0) {
+				throw new IllegalArgumentException("Bad number of rounds");
+			}
+			rounds = 0;
+		}
+		else {
+			rounds = BCrypt.roundsForLogRounds(log_rounds);
+			if (rounds < 16 || rounds > 2147483648L) {
+				throw new IllegalArgumentException("Bad number of rounds");
+			}
+		}
+
+		if (salt.length != 16) {
+			throw new IllegalArgumentException("Bad salt length");
+		}
+
+		init_key();
+		ekskey(salt, password, sign_ext_bug, safety);
+		for (int i = 0; i < rounds; i++) {
+			key(password, sign_ext_bug, safety);
+			key(salt, false, safety);
+		}
+
+		for (int i = 0; i < 64; i++) {
+			for (int j = 0; j < (clen >> 1); j++) {
+				encipher(cdata, j << 1);
+			}
+		}
+
+		byte[] ret = new byte[clen * 4];
+		for (int i = 0, j = 0; i < clen; i++) {
+			ret[j++] = (byte) ((cdata[i] >> 24) & 0xff);
+			ret[j++] = (byte) ((cdata[i] >> 16) & 0xff);
+			ret[j++] = (byte) ((cdata[i] >> 8) & 0xff);
+			ret[j++] = (byte) (cdata[i] & 0xff);
+		}
+		return ret;
+	}
+
+}
@@ -16,6 +16,17 @@
 
 package org.springframework.security.crypto.encrypt;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import javax.crypto.SecretKey;
 import javax.crypto.spec.PBEKeySpec;
 
@@ -25,9 +36,11 @@ import org.junit.jupiter.api.Test;
 import org.springframework.security.crypto.codec.Hex;
 import org.springframework.security.crypto.encrypt.AesBytesEncryptor.CipherAlgorithm;
 import org.springframework.security.crypto.keygen.BytesKeyGenerator;
+import org.springframework.security.crypto.keygen.KeyGenerators;
 import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
 
@@ -96,4 +109,70 @@ public class AesBytesEncryptorTests {
 		assertThat(new String(decryption)).isEqualTo(this.secret);
 	}
 
+	@Test
+	public void roundtripWhenUsingByteBuffersThenSameAsByteArrays() {
+		CryptoAssumptions.assumeCBCJCE();
+		AesBytesEncryptor encryptor = new AesBytesEncryptor(this.password, this.hexSalt, this.generator);
+		ByteBuffer encryption = ByteBuffer.allocateDirect(64);
+		int encrypted = encryptor.encrypt(ByteBuffer.wrap(this.secret.getBytes()), encryption);
+		encryption.flip();
+		byte[] encryptedBytes = new byte[encrypted];
+		encryption.duplicate().get(encryptedBytes);
+		assertThat(new String(Hex.encode(encryptedBytes)))
+				.isEqualTo("4b0febebd439db7ca77153cb254520c3b7232ac29355d07869433f1ecf55fe94");
+		ByteBuffer decryption = ByteBuffer.allocate(encrypted);
+		int decrypted = encryptor.decrypt(encryption, decryption);
+		assertThat(encryption.hasRemaining()).isFalse();
+		assertThat(new String(decryption.array(), 0, decrypted)).isEqualTo(this.secret);
+	}
+
+	@Test
+	public void encryptWhenOutputBufferTooSmallThenIllegalArgumentException() {
+		CryptoAssumptions.assumeGCMJCE();
+		AesBytesEncryptor encryptor = new AesBytesEncryptor(this.password, this.hexSalt,
+				KeyGenerators.secureRandom(16), CipherAlgorithm.GCM);
+		ByteBuffer input = ByteBuffer.wrap(this.secret.getBytes());
+		ByteBuffer output = ByteBuffer.allocate(16);
+		assertThatIllegalArgumentException().isThrownBy(() -> encryptor.encrypt(input, output));
+		assertThat(input.remaining()).isEqualTo(this.secret.length());
+		assertThat(output.position()).isZero();
+	}
+
+	@Test
+	public void roundtripWhenUsingStreamsThenSameFormatAsByteArrays() throws Exception {
+		CryptoAssumptions.assumeGCMJCE();
+		AesBytesEncryptor encryptor = new AesBytesEncryptor(this.password, this.hexSalt,
+				KeyGenerators.secureRandom(16), CipherAlgorithm.GCM);
+		byte[] payload = KeyGenerators.secureRandom(100000).generateKey();
+		ByteArrayOutputStream encryption = new ByteArrayOutputStream();
+		try (OutputStream out = encryptor.encryptingStream(encryption)) {
+			out.write(payload, 0, 4096);
+			out.write(payload, 4096, payload.length - 4096);
+		}
+		assertThat(encryptor.decrypt(encryption.toByteArray())).isEqualTo(payload);
+		try (InputStream in = encryptor.decryptingStream(new ByteArrayInputStream(encryptor.encrypt(payload)))) {
+			assertThat(in.readAllBytes()).isEqualTo(payload);
+		}
+	}
+
+	@Test
+	public void roundtripWhenConcurrentThenEncryptsAndDecrypts() throws Exception {
+		CryptoAssumptions.assumeGCMJCE();
+		AesBytesEncryptor encryptor = new AesBytesEncryptor(this.password, this.hexSalt,
+				KeyGenerators.secureRandom(16), CipherAlgorithm.GCM);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<byte[]>> decryptions = new ArrayList<>();
+			for (int i = 0; i < 256; i++) {
+				decryptions.add(executor.submit(() -> encryptor.decrypt(encryptor.encrypt(this.secret.getBytes()))));
+			}
+			for (Future<byte[]> decryption : decryptions) {
+				assertThat(new String(decryption.get())).isEqualTo(this.secret);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
 }
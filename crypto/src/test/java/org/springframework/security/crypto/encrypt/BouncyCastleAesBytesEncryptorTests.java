@@ -16,6 +16,11 @@
 
 package org.springframework.security.crypto.encrypt;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.security.SecureRandom;
 import java.util.UUID;
 
@@ -27,6 +32,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.security.crypto.codec.Hex;
 import org.springframework.security.crypto.keygen.KeyGenerators;
 
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 
 public class BouncyCastleAesBytesEncryptorTests {
@@ -71,6 +77,39 @@ public class BouncyCastleAesBytesEncryptorTests {
 		Assertions.assertArrayEquals(this.testData, decrypted2);
 	}
 
+	@Test
+	public void bcCbcWhenStreamsThenSameFormatAsByteArrays() throws Exception {
+		BouncyCastleAesCbcBytesEncryptor bcEncryptor = new BouncyCastleAesCbcBytesEncryptor(this.password, this.salt);
+		ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+		try (OutputStream out = bcEncryptor.encryptingStream(encrypted)) {
+			out.write(this.testData);
+		}
+		Assertions.assertArrayEquals(this.testData, bcEncryptor.decrypt(encrypted.toByteArray()));
+		InputStream in = bcEncryptor.decryptingStream(new ByteArrayInputStream(bcEncryptor.encrypt(this.testData)));
+		Assertions.assertArrayEquals(this.testData, in.readAllBytes());
+	}
+
+	@Test
+	public void bcGcmWhenStreamsThenSameFormatAsByteArrays() throws Exception {
+		BouncyCastleAesGcmBytesEncryptor bcEncryptor = new BouncyCastleAesGcmBytesEncryptor(this.password, this.salt);
+		ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+		try (OutputStream out = bcEncryptor.encryptingStream(encrypted)) {
+			out.write(this.testData);
+		}
+		Assertions.assertArrayEquals(this.testData, bcEncryptor.decrypt(encrypted.toByteArray()));
+		InputStream in = bcEncryptor.decryptingStream(new ByteArrayInputStream(bcEncryptor.encrypt(this.testData)));
+		Assertions.assertArrayEquals(this.testData, in.readAllBytes());
+	}
+
+	@Test
+	public void bcGcmWhenStreamTamperedThenIOException() throws Exception {
+		BouncyCastleAesGcmBytesEncryptor bcEncryptor = new BouncyCastleAesGcmBytesEncryptor(this.password, this.salt);
+		byte[] encrypted = bcEncryptor.encrypt(this.testData);
+		encrypted[encrypted.length - 1] ^= 1;
+		InputStream in = bcEncryptor.decryptingStream(new ByteArrayInputStream(encrypted));
+		assertThatExceptionOfType(IOException.class).isThrownBy(in::readAllBytes);
+	}
+
 	@Test
 	public void bcCbcWithWrongLengthIv() {
 		assertThatIllegalArgumentException().isThrownBy(
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.crypto.factory;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+import org.springframework.security.crypto.scrypt.SCryptPasswordEncoder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link PasswordEncoderCalibrator}.
+ */
+public class PasswordEncoderCalibratorTests {
+
+	private final PasswordEncoderCalibrator calibrator = new PasswordEncoderCalibrator(Duration.ofMillis(20));
+
+	@BeforeEach
+	public void setup() {
+		this.calibrator.setMaximumMemory(1 << 10);
+		this.calibrator.setSamples(1);
+	}
+
+	@Test
+	public void constructorWhenZeroThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new PasswordEncoderCalibrator(Duration.ZERO));
+	}
+
+	@Test
+	public void setMaximumMemoryWhenTooSmallThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.calibrator.setMaximumMemory(4));
+	}
+
+	@Test
+	public void argon2WhenMaximumMemoryTooSmallThenMinimumMemory() {
+		Argon2PasswordEncoder encoder = this.calibrator.argon2();
+		String encoded = encoder.encode("password");
+		assertThat(encoded).contains("m=16384,");
+		assertThat(encoder.matches("password", encoded)).isTrue();
+		assertThat(encoder.upgradeEncoding(encoded)).isFalse();
+		assertThat(encoder.upgradeEncoding(new Argon2PasswordEncoder(16, 32, 1, 512, 1).encode("password"))).isTrue();
+	}
+
+	@Test
+	public void scryptWhenMaximumMemoryTooSmallThenMinimumCpuCost() {
+		SCryptPasswordEncoder encoder = this.calibrator.scrypt();
+		String encoded = encoder.encode("password");
+		int log2CpuCost = (int) (Long.parseLong(encoded.split("\\$")[1], 16) >> 16);
+		assertThat(log2CpuCost).isEqualTo(16);
+		assertThat(encoder.matches("password", encoded)).isTrue();
+		assertThat(encoder.upgradeEncoding(encoded)).isFalse();
+	}
+
+	@Test
+	public void pbkdf2WhenTargetLatencyTooSmallThenMinimumIterations() {
+		PasswordEncoderCalibrator calibrator = new PasswordEncoderCalibrator(Duration.ofMillis(1));
+		calibrator.setSamples(1);
+		Pbkdf2PasswordEncoder encoder = calibrator.pbkdf2();
+		String encoded = encoder.encode("password");
+		assertThat(encoder.matches("password", encoded)).isTrue();
+		assertThat(Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8().matches("password", encoded)).isTrue();
+	}
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.crypto.password;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link PasswordHashMemoryLimiter}.
+ */
+public class PasswordHashMemoryLimiterTests {
+
+	private final PasswordHashMemoryLimiter limiter = new PasswordHashMemoryLimiter(100);
+
+	@Test
+	public void constructorWhenZeroThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new PasswordHashMemoryLimiter(0));
+	}
+
+	@Test
+	public void setMaximumWaitWhenNegativeThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.limiter.setMaximumWait(Duration.ofSeconds(-1)));
+	}
+
+	@Test
+	public void hashWhenMemoryAvailableThenReleasedAfterwards() {
+		assertThat(this.limiter.hash(60, () -> this.limiter.getAvailableMemory())).isEqualTo(40);
+		assertThat(this.limiter.getAvailableMemory()).isEqualTo(100);
+	}
+
+	@Test
+	public void hashWhenHashFailsThenReleased() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.limiter.hash(60, () -> {
+			throw new IllegalArgumentException("failed");
+		}));
+		assertThat(this.limiter.getAvailableMemory()).isEqualTo(100);
+	}
+
+	@Test
+	public void hashWhenMoreThanMaximumThenRunsAlone() {
+		assertThat(this.limiter.hash(1000, () -> this.limiter.getAvailableMemory())).isEqualTo(0);
+	}
+
+	@Test
+	public void hashWhenMemoryExhaustedThenPasswordHashMemoryUnavailableException() throws Exception {
+		this.limiter.setMaximumWait(Duration.ofMillis(10));
+		CountDownLatch hashing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> this.limiter.hash(60, () -> {
+			hashing.countDown();
+			try {
+				return release.await(10, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException ex) {
+				throw new IllegalStateException(ex);
+			}
+		}));
+		try {
+			assertThat(hashing.await(10, TimeUnit.SECONDS)).isTrue();
+			assertThatExceptionOfType(PasswordHashMemoryUnavailableException.class)
+				.isThrownBy(() -> this.limiter.hash(60, () -> true));
+			assertThat(this.limiter.hash(40, () -> true)).isTrue();
+		}
+		finally {
+			release.countDown();
+		}
+		assertThat(running.get(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(this.limiter.getAvailableMemory()).isEqualTo(100);
+	}
+
+}
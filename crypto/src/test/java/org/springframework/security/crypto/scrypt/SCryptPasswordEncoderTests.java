@@ -16,9 +16,15 @@
 
 package org.springframework.security.crypto.scrypt;
 
+import java.time.Duration;
+
 import org.junit.jupiter.api.Test;
 
+import org.springframework.security.crypto.password.PasswordHashMemoryLimiter;
+import org.springframework.security.crypto.password.PasswordHashMemoryUnavailableException;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 
 /**
@@ -163,4 +169,24 @@ public class SCryptPasswordEncoderTests {
 				() -> SCryptPasswordEncoder.defaultsForSpringSecurity_v4_1().upgradeEncoding("not-a-scrypt-password"));
 	}
 
+	@Test
+	public void matchesWhenMemoryLimiterExhaustedThenPasswordHashMemoryUnavailableException() {
+		SCryptPasswordEncoder encoder = new SCryptPasswordEncoder(1024, 8, 1, 32, 16);
+		String result = encoder.encode("password");
+		// 128 * 8 * (1024 + 1) bytes
+		PasswordHashMemoryLimiter limiter = new PasswordHashMemoryLimiter(1025);
+		limiter.setMaximumWait(Duration.ZERO);
+		encoder.setMemoryLimiter(limiter);
+		assertThat(encoder.matches("password", result)).isTrue();
+		limiter.hash(1, () -> assertThatExceptionOfType(PasswordHashMemoryUnavailableException.class)
+				.isThrownBy(() -> encoder.matches("password", result)));
+		assertThat(limiter.getAvailableMemory()).isEqualTo(1025);
+	}
+
+	@Test
+	public void setMemoryLimiterWhenNullThenIllegalArgumentException() {
+		SCryptPasswordEncoder encoder = SCryptPasswordEncoder.defaultsForSpringSecurity_v5_8();
+		assertThatIllegalArgumentException().isThrownBy(() -> encoder.setMemoryLimiter(null));
+	}
+
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentLruCache;
+
+/**
+ * A bounded read-through cache of {@link OAuth2AuthorizedClient}s used by
+ * {@link JdbcOAuth2AuthorizedClientService} and
+ * {@link R2dbcReactiveOAuth2AuthorizedClientService}. The authorized clients are held in
+ * a least recently used cache, and expire after the configured time to live so that
+ * changes made by other nodes are eventually observed.
+ *
+ * <p>
+ * An authorized client that was read from the database is only cached by
+ * {@link Load#loaded(OAuth2AuthorizedClient)} if it was not saved or removed since the
+ * {@link #load(OAuth2AuthorizedClientId) load} started, so that a slow read does not
+ * replace a newer save.
+ *
+ * @since 6.1
+ */
+final class AuthorizedClientCache {
+
+	private static final Entry REMOVED = new Entry(null, Instant.MIN);
+
+	private final ConcurrentLruCache<OAuth2AuthorizedClientId, AtomicReference<Entry>> entries;
+
+	private final Duration timeToLive;
+
+	private Clock clock = Clock.systemUTC();
+
+	AuthorizedClientCache(int maximumSize, Duration timeToLive) {
+		Assert.isTrue(maximumSize > 0, "maximumSize must be greater than 0");
+		Assert.notNull(timeToLive, "timeToLive cannot be null");
+		Assert.isTrue(!timeToLive.isNegative() && !timeToLive.isZero(), "timeToLive must be positive");
+		this.entries = new ConcurrentLruCache<>(maximumSize, (id) -> new AtomicReference<>());
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * Start loading the authorized client with the given id. Must be called before the
+	 * authorized client is looked up anywhere else.
+	 * @param id the id of the authorized client
+	 * @return the {@link Load} that serves the cached authorized client or caches the one
+	 * that was read
+	 */
+	Load load(OAuth2AuthorizedClientId id) {
+		AtomicReference<Entry> holder = holder(id);
+		return new Load(holder, holder.get());
+	}
+
+	void put(OAuth2AuthorizedClientId id, OAuth2AuthorizedClient authorizedClient) {
+		holder(id).set(entry(authorizedClient));
+	}
+
+	void remove(OAuth2AuthorizedClientId id) {
+		// a load that started before the removal has created the holder
+		if (this.entries.contains(id)) {
+			holder(id).set(REMOVED);
+		}
+	}
+
+	void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	private AtomicReference<Entry> holder(OAuth2AuthorizedClientId id) {
+		AtomicReference<Entry> holder = this.entries.get(id);
+		// racing callers may each have created a holder, so settle on the cached one
+		return (holder.get() != null) ? holder : this.entries.get(id);
+	}
+
+	private Entry entry(OAuth2AuthorizedClient authorizedClient) {
+		return new Entry(authorizedClient, this.clock.instant().plus(this.timeToLive));
+	}
+
+	/**
+	 * The load of an authorized client.
+	 */
+	final class Load {
+
+		private final AtomicReference<Entry> holder;
+
+		private final Entry previous;
+
+		private Load(AtomicReference<Entry> holder, Entry previous) {
+			this.holder = holder;
+			this.previous = previous;
+		}
+
+		/**
+		 * Return the cached authorized client
+		 * @return the cached authorized client or {@code null} if it has to be read
+		 */
+		OAuth2AuthorizedClient getAuthorizedClient() {
+			if (this.previous == null) {
+				return null;
+			}
+			Instant now = AuthorizedClientCache.this.clock.instant();
+			return now.isBefore(this.previous.expiresAt) ? this.previous.authorizedClient : null;
+		}
+
+		/**
+		 * Cache the authorized client that was read, unless it was saved or removed in
+		 * the meantime.
+		 * @param authorizedClient the authorized client that was read, or {@code null}
+		 */
+		void loaded(OAuth2AuthorizedClient authorizedClient) {
+			if (authorizedClient != null) {
+				this.holder.compareAndSet(this.previous, entry(authorizedClient));
+			}
+		}
+
+	}
+
+	private static final class Entry {
+
+		private final OAuth2AuthorizedClient authorizedClient;
+
+		private final Instant expiresAt;
+
+		private Entry(OAuth2AuthorizedClient authorizedClient, Instant expiresAt) {
+			this.authorizedClient = authorizedClient;
+			this.expiresAt = expiresAt;
+		}
+
+	}
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.lang.Nullable;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.util.Assert;
+
+/**
+ * The authorized clients renewed ahead of time by
+ * {@link CoalescingOAuth2AuthorizedClientProvider} and
+ * {@link CoalescingReactiveOAuth2AuthorizedClientProvider}, along with when their access
+ * tokens are due for renewal.
+ *
+ * <p>
+ * A renewed client is only handed out in place of the exact access token it was renewed
+ * from, so that a client that was removed or authorized again since is not replaced by
+ * a stale renewal.
+ */
+final class AuthorizedClientRenewals {
+
+	private static final int MAXIMUM_RENEWED_CLIENTS = 10000;
+
+	private final Map<Key, Renewal> renewals = new ConcurrentHashMap<>();
+
+	private Duration clockSkew = Duration.ofSeconds(60);
+
+	private Duration refreshAheadWindow;
+
+	private Clock clock = Clock.systemUTC();
+
+	/**
+	 * Returns the client renewed from the access token of the given client, if any
+	 * @param key the registration id and principal name
+	 * @param authorizedClient the authorized client of the context, if any
+	 * @return the renewed client, or {@code null} if the given client is to be used
+	 */
+	@Nullable
+	OAuth2AuthorizedClient getRenewedClient(Key key, @Nullable OAuth2AuthorizedClient authorizedClient) {
+		Renewal renewal = this.renewals.get(key);
+		if (renewal == null) {
+			return null;
+		}
+		if (authorizedClient != null && !hasTokenExpired(renewal.renewedClient)
+				&& authorizedClient.getAccessToken().getTokenValue().equals(renewal.renewedFrom)) {
+			return renewal.renewedClient;
+		}
+		// either the renewed client was saved, or the client was removed or replaced since
+		this.renewals.remove(key, renewal);
+		return null;
+	}
+
+	void putRenewedClient(Key key, OAuth2AuthorizedClient authorizedClient, OAuth2AuthorizedClient renewedClient) {
+		makeRoom();
+		this.renewals.put(key, new Renewal(authorizedClient.getAccessToken().getTokenValue(), renewedClient));
+	}
+
+	private void makeRoom() {
+		Iterator<Key> keys = this.renewals.keySet().iterator();
+		while (this.renewals.size() >= MAXIMUM_RENEWED_CLIENTS && keys.hasNext()) {
+			keys.next();
+			keys.remove();
+		}
+	}
+
+	boolean hasTokenExpired(OAuth2AuthorizedClient authorizedClient) {
+		return hasTokenExpired(authorizedClient.getAccessToken(), this.clockSkew);
+	}
+
+	boolean isDueForRenewal(OAuth2AuthorizedClient authorizedClient) {
+		return this.refreshAheadWindow != null
+				&& hasTokenExpired(authorizedClient.getAccessToken(), this.clockSkew.plus(this.refreshAheadWindow));
+	}
+
+	private boolean hasTokenExpired(OAuth2AccessToken token, Duration clockSkew) {
+		Instant expiresAt = token.getExpiresAt();
+		return expiresAt != null && this.clock.instant().isAfter(expiresAt.minus(clockSkew));
+	}
+
+	void setClockSkew(Duration clockSkew) {
+		Assert.notNull(clockSkew, "clockSkew cannot be null");
+		Assert.isTrue(clockSkew.getSeconds() >= 0, "clockSkew must be >= 0");
+		this.clockSkew = clockSkew;
+	}
+
+	void setRefreshAheadWindow(Duration refreshAheadWindow) {
+		Assert.notNull(refreshAheadWindow, "refreshAheadWindow cannot be null");
+		Assert.isTrue(!refreshAheadWindow.isNegative() && !refreshAheadWindow.isZero(),
+				"refreshAheadWindow must be positive");
+		this.refreshAheadWindow = refreshAheadWindow;
+	}
+
+	void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	/**
+	 * Returns a copy of the context whose access token is expired, so that the delegate
+	 * renews it
+	 */
+	static OAuth2AuthorizationContext expire(OAuth2AuthorizationContext context) {
+		OAuth2AuthorizedClient authorizedClient = context.getAuthorizedClient();
+		OAuth2AccessToken accessToken = authorizedClient.getAccessToken();
+		OAuth2AccessToken expiredToken = new OAuth2AccessToken(accessToken.getTokenType(),
+				accessToken.getTokenValue(), null, Instant.EPOCH, accessToken.getScopes());
+		OAuth2AuthorizedClient expiredClient = new OAuth2AuthorizedClient(authorizedClient.getClientRegistration(),
+				authorizedClient.getPrincipalName(), expiredToken, authorizedClient.getRefreshToken());
+		// @formatter:off
+		return OAuth2AuthorizationContext.withAuthorizedClient(expiredClient)
+				.principal(context.getPrincipal())
+				.attributes((attributes) -> attributes.putAll(context.getAttributes()))
+				.build();
+		// @formatter:on
+	}
+
+	static final class Key {
+
+		private final String registrationId;
+
+		private final String principalName;
+
+		Key(OAuth2AuthorizationContext context) {
+			this.registrationId = context.getClientRegistration().getRegistrationId();
+			this.principalName = context.getPrincipal().getName();
+		}
+
+		String getRegistrationId() {
+			return this.registrationId;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key other)) {
+				return false;
+			}
+			return this.registrationId.equals(other.registrationId)
+					&& this.principalName.equals(other.principalName);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.registrationId, this.principalName);
+		}
+
+	}
+
+	private static final class Renewal {
+
+		private final String renewedFrom;
+
+		private final OAuth2AuthorizedClient renewedClient;
+
+		private Renewal(String renewedFrom, OAuth2AuthorizedClient renewedClient) {
+			this.renewedFrom = renewedFrom;
+			this.renewedClient = renewedClient;
+		}
+
+	}
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.util.Assert;
+
+/**
+ * The saves that {@link JdbcOAuth2AuthorizedClientService} and
+ * {@link R2dbcReactiveOAuth2AuthorizedClientService} have not written yet. Saves of the
+ * same {@link OAuth2AuthorizedClientId} are coalesced so that only the latest one is
+ * written. At most {@code capacity} saves are pending, further saves of other ids are
+ * refused and expected to be written right away.
+ *
+ * @param <T> the type of the pending save
+ * @since 6.1
+ */
+final class AuthorizedClientWriteBehindQueue<T> {
+
+	private final Map<OAuth2AuthorizedClientId, T> pending = new LinkedHashMap<>();
+
+	private final int batchSize;
+
+	private final int capacity;
+
+	AuthorizedClientWriteBehindQueue(int batchSize, int capacity) {
+		Assert.isTrue(batchSize > 0, "batchSize must be greater than 0");
+		Assert.isTrue(capacity >= batchSize, "capacity must be greater than or equal to batchSize");
+		this.batchSize = batchSize;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Queue the save, replacing any pending save of the same id
+	 * @param id the id
+	 * @param save the save
+	 * @return {@code false} if the queue is full and the save was not queued
+	 */
+	synchronized boolean offer(OAuth2AuthorizedClientId id, T save) {
+		if (this.pending.remove(id) == null && this.pending.size() >= this.capacity) {
+			return false;
+		}
+		this.pending.put(id, save);
+		return true;
+	}
+
+	/**
+	 * Whether enough saves are pending to write a full batch
+	 * @return {@code true} if a full batch is pending
+	 */
+	synchronized boolean isBatchPending() {
+		return this.pending.size() >= this.batchSize;
+	}
+
+	synchronized T get(OAuth2AuthorizedClientId id) {
+		return this.pending.get(id);
+	}
+
+	synchronized void remove(OAuth2AuthorizedClientId id) {
+		this.pending.remove(id);
+	}
+
+	/**
+	 * Return at most one batch of the oldest pending saves. They stay pending, and so
+	 * visible to {@link #get(OAuth2AuthorizedClientId)}, until they are
+	 * {@link #written(List) written}.
+	 * @return the saves, empty if none are pending
+	 */
+	synchronized List<Map.Entry<OAuth2AuthorizedClientId, T>> peek() {
+		List<Map.Entry<OAuth2AuthorizedClientId, T>> batch = new ArrayList<>(
+				Math.min(this.pending.size(), this.batchSize));
+		Iterator<Map.Entry<OAuth2AuthorizedClientId, T>> saves = this.pending.entrySet().iterator();
+		while (batch.size() < this.batchSize && saves.hasNext()) {
+			Map.Entry<OAuth2AuthorizedClientId, T> save = saves.next();
+			batch.add(new AbstractMap.SimpleImmutableEntry<>(save.getKey(), save.getValue()));
+		}
+		return batch;
+	}
+
+	/**
+	 * Remove the saves that have been written, unless they have been replaced by a
+	 * newer save in the meantime
+	 * @param batch the saves that have been written
+	 */
+	synchronized void written(List<Map.Entry<OAuth2AuthorizedClientId, T>> batch) {
+		for (Map.Entry<OAuth2AuthorizedClientId, T> save : batch) {
+			this.pending.remove(save.getKey(), save.getValue());
+		}
+	}
+
+	/**
+	 * Remove the save that has been written, or that failed to be written and is dropped,
+	 * unless it has been replaced by a newer save in the meantime
+	 * @param save the save
+	 */
+	synchronized void written(Map.Entry<OAuth2AuthorizedClientId, T> save) {
+		this.pending.remove(save.getKey(), save.getValue());
+	}
+
+	synchronized int size() {
+		return this.pending.size();
+	}
+
+	/**
+	 * Whether a save failed because the database could not be reached, rather than
+	 * because of the save itself. Such a save is kept pending and retried, whereas
+	 * others are dropped, so that a single bad save does not hold up the queue.
+	 * @param ex the failure
+	 * @return {@code true} if the save should be retried
+	 */
+	static boolean isRetryable(Throwable ex) {
+		return ex instanceof TransientDataAccessException || ex instanceof RecoverableDataAccessException
+				|| ex instanceof DataAccessResourceFailureException;
+	}
+
+}
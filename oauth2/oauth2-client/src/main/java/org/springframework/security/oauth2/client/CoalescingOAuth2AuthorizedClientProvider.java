@@ -0,0 +1,235 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.log.LogMessage;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.oauth2.client.AuthorizedClientRenewals.Key;
+import org.springframework.util.Assert;
+
+/**
+ * An {@link OAuth2AuthorizedClientProvider} that lets concurrent authorizations of the
+ * same client and principal share a single call to the token endpoint, and that can renew
+ * access tokens in the background before they expire.
+ * <p>
+ * When the {@link OAuth2AuthorizationContext#getAuthorizedClient() authorized client} is
+ * missing or its access token has expired, the first caller for a given
+ * {@link org.springframework.security.oauth2.client.registration.ClientRegistration#getRegistrationId()
+ * registration id} and {@link OAuth2AuthorizationContext#getPrincipal() principal name}
+ * invokes the delegate and every concurrent caller for the same pair receives its result,
+ * so that a service-wide token expiring does not cause a token request per thread.
+ * <p>
+ * If a {@link #setRefreshAheadWindow(Duration) refresh-ahead window} is configured, an
+ * access token that expires within that window (on top of the
+ * {@link #setClockSkew(Duration) clock skew}) is renewed on the
+ * {@link #setExecutor(Executor) executor}, while callers keep using the current one. To
+ * do so, the delegate is given a copy of the authorized client whose access token is
+ * expired, so any provider that renews expired tokens, such as
+ * {@link ClientCredentialsOAuth2AuthorizedClientProvider} or
+ * {@link RefreshTokenOAuth2AuthorizedClientProvider}, renews it. The renewed client is
+ * returned to the next caller that still holds the access token it was renewed from, so
+ * that it is saved by the {@link OAuth2AuthorizedClientManager}.
+ * <p>
+ * This provider can be used with any {@link OAuth2AuthorizedClientManager}, for example:
+ * <pre>
+ *	OAuth2AuthorizedClientProvider authorizedClientProvider = OAuth2AuthorizedClientProviderBuilder.builder()
+ *			.clientCredentials()
+ *			.refreshToken()
+ *			.build();
+ *	CoalescingOAuth2AuthorizedClientProvider coalescing = new CoalescingOAuth2AuthorizedClientProvider(authorizedClientProvider);
+ *	coalescing.setRefreshAheadWindow(Duration.ofMinutes(1));
+ *	authorizedClientManager.setAuthorizedClientProvider(coalescing);
+ * </pre>
+ *
+ * @since 6.1
+ * @see CoalescingReactiveOAuth2AuthorizedClientProvider
+ */
+public final class CoalescingOAuth2AuthorizedClientProvider implements OAuth2AuthorizedClientProvider {
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private final OAuth2AuthorizedClientProvider delegate;
+
+	private final Map<Key, CompletableFuture<OAuth2AuthorizedClient>> authorizations = new ConcurrentHashMap<>();
+
+	private final AuthorizedClientRenewals renewals = new AuthorizedClientRenewals();
+
+	private Executor executor = defaultExecutor();
+
+	/**
+	 * Constructs a {@code CoalescingOAuth2AuthorizedClientProvider} using the provided
+	 * parameters.
+	 * @param delegate the {@link OAuth2AuthorizedClientProvider} to delegate to
+	 */
+	public CoalescingOAuth2AuthorizedClientProvider(OAuth2AuthorizedClientProvider delegate) {
+		Assert.notNull(delegate, "delegate cannot be null");
+		this.delegate = delegate;
+	}
+
+	@Override
+	@Nullable
+	public OAuth2AuthorizedClient authorize(OAuth2AuthorizationContext context) {
+		Assert.notNull(context, "context cannot be null");
+		Key key = new Key(context);
+		OAuth2AuthorizedClient authorizedClient = context.getAuthorizedClient();
+		OAuth2AuthorizedClient renewedClient = this.renewals.getRenewedClient(key, authorizedClient);
+		if (renewedClient != null) {
+			return renewedClient;
+		}
+		if (authorizedClient != null && !this.renewals.hasTokenExpired(authorizedClient)) {
+			if (this.renewals.isDueForRenewal(authorizedClient)) {
+				renewInBackground(key, context);
+			}
+			return this.delegate.authorize(context);
+		}
+		return authorizeOnce(key, context);
+	}
+
+	private OAuth2AuthorizedClient authorizeOnce(Key key, OAuth2AuthorizationContext context) {
+		CompletableFuture<OAuth2AuthorizedClient> authorization = new CompletableFuture<>();
+		CompletableFuture<OAuth2AuthorizedClient> inFlight = this.authorizations.putIfAbsent(key, authorization);
+		if (inFlight != null) {
+			OAuth2AuthorizedClient authorizedClient = await(inFlight);
+			// the other caller may not have needed a new authorized client
+			return (authorizedClient != null) ? authorizedClient : this.delegate.authorize(context);
+		}
+		try {
+			OAuth2AuthorizedClient authorizedClient = this.delegate.authorize(context);
+			authorization.complete(authorizedClient);
+			return authorizedClient;
+		}
+		catch (RuntimeException ex) {
+			authorization.completeExceptionally(ex);
+			throw ex;
+		}
+		finally {
+			this.authorizations.remove(key, authorization);
+		}
+	}
+
+	private void renewInBackground(Key key, OAuth2AuthorizationContext context) {
+		CompletableFuture<OAuth2AuthorizedClient> renewal = new CompletableFuture<>();
+		if (this.authorizations.putIfAbsent(key, renewal) != null) {
+			return;
+		}
+		try {
+			this.executor.execute(() -> renew(key, context, renewal));
+		}
+		catch (RuntimeException ex) {
+			this.logger.debug("Could not schedule the renewal of the authorized client", ex);
+			this.authorizations.remove(key, renewal);
+			renewal.complete(null);
+		}
+	}
+
+	private void renew(Key key, OAuth2AuthorizationContext context, CompletableFuture<OAuth2AuthorizedClient> renewal) {
+		try {
+			OAuth2AuthorizedClient renewedClient = this.delegate.authorize(AuthorizedClientRenewals.expire(context));
+			if (renewedClient != null) {
+				this.renewals.putRenewedClient(key, context.getAuthorizedClient(), renewedClient);
+			}
+			renewal.complete(renewedClient);
+		}
+		catch (RuntimeException ex) {
+			this.logger.debug(
+					LogMessage.format("Failed to renew the authorized client for '%s'", key.getRegistrationId()), ex);
+			// callers waiting for the renewal authorize by themselves
+			renewal.complete(null);
+		}
+		finally {
+			this.authorizations.remove(key, renewal);
+		}
+	}
+
+	private OAuth2AuthorizedClient await(CompletableFuture<OAuth2AuthorizedClient> authorization) {
+		try {
+			return authorization.join();
+		}
+		catch (CompletionException ex) {
+			if (ex.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw ex;
+		}
+	}
+
+	private static Executor defaultExecutor() {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("oauth2-client-renewal-");
+		threadFactory.setDaemon(true);
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(100), threadFactory);
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * Sets the maximum acceptable clock skew, which is used when checking the access
+	 * token expiry. It should match the clock skew of the delegate. The default is 60
+	 * seconds.
+	 * @param clockSkew the maximum acceptable clock skew
+	 */
+	public void setClockSkew(Duration clockSkew) {
+		this.renewals.setClockSkew(clockSkew);
+	}
+
+	/**
+	 * Sets how long before the access token is considered expired it is renewed in the
+	 * background. By default, access tokens are not renewed ahead of time.
+	 * @param refreshAheadWindow the window in which to renew access tokens ahead of time
+	 */
+	public void setRefreshAheadWindow(Duration refreshAheadWindow) {
+		this.renewals.setRefreshAheadWindow(refreshAheadWindow);
+	}
+
+	/**
+	 * Sets the {@link Executor} on which access tokens are renewed ahead of time. A
+	 * renewal that the executor rejects is skipped, and attempted again on a later
+	 * authorization. The default runs at most two renewals at once on daemon threads,
+	 * with at most 100 renewals waiting.
+	 * @param executor the {@link Executor} to use
+	 */
+	public void setExecutor(Executor executor) {
+		Assert.notNull(executor, "executor cannot be null");
+		this.executor = executor;
+	}
+
+	/**
+	 * Sets the {@link Clock} used in {@link Instant#now(Clock)} when checking the access
+	 * token expiry.
+	 * @param clock the clock
+	 */
+	public void setClock(Clock clock) {
+		this.renewals.setClock(clock);
+	}
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.log.LogMessage;
+import org.springframework.security.oauth2.client.AuthorizedClientRenewals.Key;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link ReactiveOAuth2AuthorizedClientProvider} that lets concurrent authorizations of
+ * the same client and principal share a single call to the token endpoint, and that can
+ * renew access tokens in the background before they expire.
+ * <p>
+ * When the {@link OAuth2AuthorizationContext#getAuthorizedClient() authorized client} is
+ * missing or its access token has expired, the first subscriber for a given
+ * {@link org.springframework.security.oauth2.client.registration.ClientRegistration#getRegistrationId()
+ * registration id} and {@link OAuth2AuthorizationContext#getPrincipal() principal name}
+ * subscribes to the delegate and every concurrent subscriber for the same pair receives
+ * its result.
+ * <p>
+ * If a {@link #setRefreshAheadWindow(Duration) refresh-ahead window} is configured, an
+ * access token that expires within that window (on top of the
+ * {@link #setClockSkew(Duration) clock skew}) is renewed in the background, while
+ * subscribers keep using the current one. To do so, the delegate is given a copy of the
+ * authorized client whose access token is expired, so any provider that renews expired
+ * tokens, such as {@link ClientCredentialsReactiveOAuth2AuthorizedClientProvider} or
+ * {@link RefreshTokenReactiveOAuth2AuthorizedClientProvider}, renews it. The renewed
+ * client is returned to the next subscriber that still holds the access token it was
+ * renewed from, so that it is saved by the {@link ReactiveOAuth2AuthorizedClientManager}.
+ *
+ * @since 6.1
+ * @see CoalescingOAuth2AuthorizedClientProvider
+ */
+public final class CoalescingReactiveOAuth2AuthorizedClientProvider implements ReactiveOAuth2AuthorizedClientProvider {
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private final ReactiveOAuth2AuthorizedClientProvider delegate;
+
+	private final Map<Key, Mono<OAuth2AuthorizedClient>> authorizations = new ConcurrentHashMap<>();
+
+	private final AuthorizedClientRenewals renewals = new AuthorizedClientRenewals();
+
+	/**
+	 * Constructs a {@code CoalescingReactiveOAuth2AuthorizedClientProvider} using the
+	 * provided parameters.
+	 * @param delegate the {@link ReactiveOAuth2AuthorizedClientProvider} to delegate to
+	 */
+	public CoalescingReactiveOAuth2AuthorizedClientProvider(ReactiveOAuth2AuthorizedClientProvider delegate) {
+		Assert.notNull(delegate, "delegate cannot be null");
+		this.delegate = delegate;
+	}
+
+	@Override
+	public Mono<OAuth2AuthorizedClient> authorize(OAuth2AuthorizationContext context) {
+		Assert.notNull(context, "context cannot be null");
+		return Mono.defer(() -> {
+			Key key = new Key(context);
+			OAuth2AuthorizedClient authorizedClient = context.getAuthorizedClient();
+			OAuth2AuthorizedClient renewedClient = this.renewals.getRenewedClient(key, authorizedClient);
+			if (renewedClient != null) {
+				return Mono.just(renewedClient);
+			}
+			if (authorizedClient != null && !this.renewals.hasTokenExpired(authorizedClient)) {
+				if (this.renewals.isDueForRenewal(authorizedClient)) {
+					renewInBackground(key, context);
+				}
+				return this.delegate.authorize(context);
+			}
+			return authorizeOnce(key, context);
+		});
+	}
+
+	private Mono<OAuth2AuthorizedClient> authorizeOnce(Key key, OAuth2AuthorizationContext context) {
+		Mono<OAuth2AuthorizedClient> inFlight = this.authorizations.get(key);
+		if (inFlight == null) {
+			Mono<OAuth2AuthorizedClient> authorization = share(key, Mono.defer(() -> this.delegate.authorize(context)));
+			inFlight = this.authorizations.putIfAbsent(key, authorization);
+			if (inFlight == null) {
+				return authorization;
+			}
+		}
+		// the other subscriber may not have needed a new authorized client
+		return inFlight.switchIfEmpty(Mono.defer(() -> this.delegate.authorize(context)));
+	}
+
+	private void renewInBackground(Key key, OAuth2AuthorizationContext context) {
+		if (this.authorizations.containsKey(key)) {
+			return;
+		}
+		// @formatter:off
+		Mono<OAuth2AuthorizedClient> renewal = share(key,
+				Mono.defer(() -> this.delegate.authorize(AuthorizedClientRenewals.expire(context)))
+					.doOnNext((renewedClient) -> this.renewals.putRenewedClient(key, context.getAuthorizedClient(),
+							renewedClient))
+					.onErrorResume((ex) -> {
+						this.logger.debug(LogMessage.format("Failed to renew the authorized client for '%s'",
+								key.getRegistrationId()), ex);
+						// subscribers waiting for the renewal authorize by themselves
+						return Mono.empty();
+					}));
+		// @formatter:on
+		if (this.authorizations.putIfAbsent(key, renewal) == null) {
+			renewal.subscribe();
+		}
+	}
+
+	private Mono<OAuth2AuthorizedClient> share(Key key, Mono<OAuth2AuthorizedClient> authorization) {
+		AtomicReference<Mono<OAuth2AuthorizedClient>> shared = new AtomicReference<>();
+		shared.set(authorization.doFinally((signal) -> this.authorizations.remove(key, shared.get())).cache());
+		return shared.get();
+	}
+
+	/**
+	 * Sets the maximum acceptable clock skew, which is used when checking the access
+	 * token expiry. It should match the clock skew of the delegate. The default is 60
+	 * seconds.
+	 * @param clockSkew the maximum acceptable clock skew
+	 */
+	public void setClockSkew(Duration clockSkew) {
+		this.renewals.setClockSkew(clockSkew);
+	}
+
+	/**
+	 * Sets how long before the access token is considered expired it is renewed in the
+	 * background. By default, access tokens are not renewed ahead of time.
+	 * @param refreshAheadWindow the window in which to renew access tokens ahead of time
+	 */
+	public void setRefreshAheadWindow(Duration refreshAheadWindow) {
+		this.renewals.setRefreshAheadWindow(refreshAheadWindow);
+	}
+
+	/**
+	 * Sets the {@link Clock} used in {@link Instant#now(Clock)} when checking the access
+	 * token expiry.
+	 * @param clock the clock
+	 */
+	public void setClock(Clock clock) {
+		this.renewals.setClock(clock);
+	}
+
+}
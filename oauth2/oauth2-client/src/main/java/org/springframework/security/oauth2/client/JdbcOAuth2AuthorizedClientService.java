@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2023 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,16 +22,30 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.log.LogMessage;
 import org.springframework.dao.DataRetrievalFailureException;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcOperations;
 import org.springframework.jdbc.core.PreparedStatementSetter;
 import org.springframework.jdbc.core.RowMapper;
@@ -39,6 +53,7 @@ import org.springframework.jdbc.core.SqlParameterValue;
 import org.springframework.jdbc.support.lob.DefaultLobHandler;
 import org.springframework.jdbc.support.lob.LobCreator;
 import org.springframework.jdbc.support.lob.LobHandler;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.client.registration.ClientRegistration;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
@@ -58,6 +73,14 @@ import org.springframework.util.StringUtils;
  * "classpath:org/springframework/security/oauth2/client/oauth2-client-schema.sql" and
  * therefore MUST be defined in the database schema.
  *
+ * <p>
+ * By default, each save looks up the authorized client and then updates or inserts it.
+ * Setting an {@link #setUpsertDialect(UpsertDialect) upsert dialect} saves it with a
+ * single statement instead. Saves can also be
+ * {@link #setWriteBehindInterval(Duration) written behind}, in which case they are
+ * coalesced and written in JDBC batches, and loads can be served from a bounded
+ * {@link #setCacheMaximumSize(int) cache}.
+ *
  * @author Joe Grandja
  * @author Stav Shamir
  * @author Craig Andrews
@@ -67,7 +90,7 @@ import org.springframework.util.StringUtils;
  * @see JdbcOperations
  * @see RowMapper
  */
-public class JdbcOAuth2AuthorizedClientService implements OAuth2AuthorizedClientService {
+public class JdbcOAuth2AuthorizedClientService implements OAuth2AuthorizedClientService, DisposableBean {
 
 	// @formatter:off
 	private static final String COLUMN_NAMES = "client_registration_id, "
@@ -106,6 +129,8 @@ public class JdbcOAuth2AuthorizedClientService implements OAuth2AuthorizedClient
 			+ " WHERE " + PK_FILTER;
 	// @formatter:on
 
+	private final Log logger = LogFactory.getLog(getClass());
+
 	protected final JdbcOperations jdbcOperations;
 
 	protected RowMapper<OAuth2AuthorizedClient> authorizedClientRowMapper;
@@ -114,6 +139,34 @@ public class JdbcOAuth2AuthorizedClientService implements OAuth2AuthorizedClient
 
 	protected final LobHandler lobHandler;
 
+	private final Object writeLock = new Object();
+
+	private final AtomicBoolean writeBehindFlushRequested = new AtomicBoolean();
+
+	private UpsertDialect upsertDialect;
+
+	private int cacheMaximumSize;
+
+	private Duration cacheTimeToLive = Duration.ofMinutes(1);
+
+	private AuthorizedClientCache cache;
+
+	private Duration writeBehindInterval;
+
+	private int writeBehindBatchSize = 100;
+
+	private int writeBehindCapacity = 10000;
+
+	private AuthorizedClientWriteBehindQueue<OAuth2AuthorizedClientHolder> writeBehind;
+
+	private ScheduledExecutorService writeBehindScheduler;
+
+	private boolean defaultWriteBehindScheduler;
+
+	private ScheduledFuture<?> writeBehindFlush;
+
+	private boolean destroyed;
+
 	/**
 	 * Constructs a {@code JdbcOAuth2AuthorizedClientService} using the provided
 	 * parameters.
@@ -153,37 +206,150 @@ public class JdbcOAuth2AuthorizedClientService implements OAuth2AuthorizedClient
 			String principalName) {
 		Assert.hasText(clientRegistrationId, "clientRegistrationId cannot be empty");
 		Assert.hasText(principalName, "principalName cannot be empty");
+		AuthorizedClientWriteBehindQueue<OAuth2AuthorizedClientHolder> writeBehind = this.writeBehind;
+		AuthorizedClientCache cache = this.cache;
+		if (writeBehind == null && cache == null) {
+			return (T) selectAuthorizedClient(clientRegistrationId, principalName);
+		}
+		OAuth2AuthorizedClientId id = new OAuth2AuthorizedClientId(clientRegistrationId, principalName);
+		// started first, so that a save made in the meantime is not replaced by the read
+		AuthorizedClientCache.Load load = (cache != null) ? cache.load(id) : null;
+		if (writeBehind != null) {
+			OAuth2AuthorizedClientHolder pending = writeBehind.get(id);
+			if (pending != null) {
+				return (T) pending.getAuthorizedClient();
+			}
+		}
+		OAuth2AuthorizedClient authorizedClient = (load != null) ? load.getAuthorizedClient() : null;
+		if (authorizedClient == null) {
+			authorizedClient = selectAuthorizedClient(clientRegistrationId, principalName);
+			if (load != null) {
+				load.loaded(authorizedClient);
+			}
+		}
+		return (T) authorizedClient;
+	}
+
+	private OAuth2AuthorizedClient selectAuthorizedClient(String clientRegistrationId, String principalName) {
 		SqlParameterValue[] parameters = new SqlParameterValue[] {
 				new SqlParameterValue(Types.VARCHAR, clientRegistrationId),
 				new SqlParameterValue(Types.VARCHAR, principalName) };
 		PreparedStatementSetter pss = new ArgumentPreparedStatementSetter(parameters);
 		List<OAuth2AuthorizedClient> result = this.jdbcOperations.query(LOAD_AUTHORIZED_CLIENT_SQL, pss,
 				this.authorizedClientRowMapper);
-		return !result.isEmpty() ? (T) result.get(0) : null;
+		return !result.isEmpty() ? result.get(0) : null;
 	}
 
 	@Override
 	public void saveAuthorizedClient(OAuth2AuthorizedClient authorizedClient, Authentication principal) {
 		Assert.notNull(authorizedClient, "authorizedClient cannot be null");
 		Assert.notNull(principal, "principal cannot be null");
-		boolean existsAuthorizedClient = null != this.loadAuthorizedClient(
+		OAuth2AuthorizedClientHolder authorizedClientHolder = new OAuth2AuthorizedClientHolder(authorizedClient,
+				principal);
+		OAuth2AuthorizedClientId id = new OAuth2AuthorizedClientId(
 				authorizedClient.getClientRegistration().getRegistrationId(), principal.getName());
+		AuthorizedClientWriteBehindQueue<OAuth2AuthorizedClientHolder> writeBehind = this.writeBehind;
+		if (writeBehind != null && writeBehind.offer(id, authorizedClientHolder)) {
+			if (this.cache != null) {
+				this.cache.put(id, authorizedClient);
+			}
+			scheduleWriteBehind(writeBehind.isBatchPending());
+			return;
+		}
+		writeAuthorizedClient(authorizedClientHolder);
+		if (this.cache != null) {
+			this.cache.put(id, authorizedClient);
+		}
+	}
+
+	/**
+	 * Saves the {@link OAuth2AuthorizedClient}s. When an
+	 * {@link #setUpsertDialect(UpsertDialect) upsert dialect} is set, they are saved with
+	 * a single JDBC batch update, otherwise they are saved one after the other.
+	 * @param authorizedClients the authorized clients and their End-User
+	 * {@link Authentication}s (Resource Owners)
+	 * @since 6.1
+	 */
+	public void saveAuthorizedClients(Collection<OAuth2AuthorizedClientHolder> authorizedClients) {
+		Assert.notNull(authorizedClients, "authorizedClients cannot be null");
+		Assert.noNullElements(authorizedClients, "authorizedClients cannot contain null elements");
+		List<OAuth2AuthorizedClientHolder> holders = new ArrayList<>(authorizedClients);
+		if (this.writeBehind != null) {
+			holders.forEach((holder) -> saveAuthorizedClient(holder.getAuthorizedClient(), holder.getPrincipal()));
+			return;
+		}
+		writeAuthorizedClients(holders);
+		if (this.cache != null) {
+			for (OAuth2AuthorizedClientHolder holder : holders) {
+				OAuth2AuthorizedClient authorizedClient = holder.getAuthorizedClient();
+				this.cache.put(new OAuth2AuthorizedClientId(authorizedClient.getClientRegistration().getRegistrationId(),
+						holder.getPrincipal().getName()), authorizedClient);
+			}
+		}
+	}
+
+	private void writeAuthorizedClients(List<OAuth2AuthorizedClientHolder> authorizedClientHolders) {
+		if (authorizedClientHolders.isEmpty()) {
+			return;
+		}
+		if (this.upsertDialect == null || authorizedClientHolders.size() == 1) {
+			authorizedClientHolders.forEach(this::writeAuthorizedClient);
+			return;
+		}
+		List<Object[]> batch = new ArrayList<>(authorizedClientHolders.size());
+		for (OAuth2AuthorizedClientHolder authorizedClientHolder : authorizedClientHolders) {
+			batch.add(this.authorizedClientParametersMapper.apply(authorizedClientHolder).toArray());
+		}
+		try (LobCreator lobCreator = this.lobHandler.getLobCreator()) {
+			this.jdbcOperations.batchUpdate(this.upsertDialect.getSql(), new BatchPreparedStatementSetter() {
+
+				@Override
+				public void setValues(PreparedStatement ps, int i) throws SQLException {
+					new LobCreatorArgumentPreparedStatementSetter(lobCreator, batch.get(i)).setValues(ps);
+				}
+
+				@Override
+				public int getBatchSize() {
+					return batch.size();
+				}
+
+			});
+		}
+	}
+
+	private void writeAuthorizedClient(OAuth2AuthorizedClientHolder authorizedClientHolder) {
+		if (this.upsertDialect != null) {
+			upsertAuthorizedClient(authorizedClientHolder);
+			return;
+		}
+		OAuth2AuthorizedClient authorizedClient = authorizedClientHolder.getAuthorizedClient();
+		boolean existsAuthorizedClient = null != selectAuthorizedClient(
+				authorizedClient.getClientRegistration().getRegistrationId(),
+				authorizedClientHolder.getPrincipal().getName());
 		if (existsAuthorizedClient) {
-			updateAuthorizedClient(authorizedClient, principal);
+			updateAuthorizedClient(authorizedClientHolder);
 		}
 		else {
 			try {
-				insertAuthorizedClient(authorizedClient, principal);
+				insertAuthorizedClient(authorizedClientHolder);
 			}
 			catch (DuplicateKeyException ex) {
-				updateAuthorizedClient(authorizedClient, principal);
+				updateAuthorizedClient(authorizedClientHolder);
 			}
 		}
 	}
 
-	private void updateAuthorizedClient(OAuth2AuthorizedClient authorizedClient, Authentication principal) {
-		List<SqlParameterValue> parameters = this.authorizedClientParametersMapper
-				.apply(new OAuth2AuthorizedClientHolder(authorizedClient, principal));
+	private void upsertAuthorizedClient(OAuth2AuthorizedClientHolder authorizedClientHolder) {
+		List<SqlParameterValue> parameters = this.authorizedClientParametersMapper.apply(authorizedClientHolder);
+		try (LobCreator lobCreator = this.lobHandler.getLobCreator()) {
+			PreparedStatementSetter pss = new LobCreatorArgumentPreparedStatementSetter(lobCreator,
+					parameters.toArray());
+			this.jdbcOperations.update(this.upsertDialect.getSql(), pss);
+		}
+	}
+
+	private void updateAuthorizedClient(OAuth2AuthorizedClientHolder authorizedClientHolder) {
+		List<SqlParameterValue> parameters = this.authorizedClientParametersMapper.apply(authorizedClientHolder);
 		SqlParameterValue clientRegistrationIdParameter = parameters.remove(0);
 		SqlParameterValue principalNameParameter = parameters.remove(0);
 		parameters.add(clientRegistrationIdParameter);
@@ -195,9 +361,8 @@ public class JdbcOAuth2AuthorizedClientService implements OAuth2AuthorizedClient
 		}
 	}
 
-	private void insertAuthorizedClient(OAuth2AuthorizedClient authorizedClient, Authentication principal) {
-		List<SqlParameterValue> parameters = this.authorizedClientParametersMapper
-				.apply(new OAuth2AuthorizedClientHolder(authorizedClient, principal));
+	private void insertAuthorizedClient(OAuth2AuthorizedClientHolder authorizedClientHolder) {
+		List<SqlParameterValue> parameters = this.authorizedClientParametersMapper.apply(authorizedClientHolder);
 		try (LobCreator lobCreator = this.lobHandler.getLobCreator()) {
 			PreparedStatementSetter pss = new LobCreatorArgumentPreparedStatementSetter(lobCreator,
 					parameters.toArray());
@@ -209,6 +374,23 @@ public class JdbcOAuth2AuthorizedClientService implements OAuth2AuthorizedClient
 	public void removeAuthorizedClient(String clientRegistrationId, String principalName) {
 		Assert.hasText(clientRegistrationId, "clientRegistrationId cannot be empty");
 		Assert.hasText(principalName, "principalName cannot be empty");
+		OAuth2AuthorizedClientId id = new OAuth2AuthorizedClientId(clientRegistrationId, principalName);
+		if (this.writeBehind != null) {
+			// a pending save that is being written could otherwise resurrect the row
+			synchronized (this.writeLock) {
+				this.writeBehind.remove(id);
+				deleteAuthorizedClient(clientRegistrationId, principalName);
+			}
+		}
+		else {
+			deleteAuthorizedClient(clientRegistrationId, principalName);
+		}
+		if (this.cache != null) {
+			this.cache.remove(id);
+		}
+	}
+
+	private void deleteAuthorizedClient(String clientRegistrationId, String principalName) {
 		SqlParameterValue[] parameters = new SqlParameterValue[] {
 				new SqlParameterValue(Types.VARCHAR, clientRegistrationId),
 				new SqlParameterValue(Types.VARCHAR, principalName) };
@@ -216,6 +398,119 @@ public class JdbcOAuth2AuthorizedClientService implements OAuth2AuthorizedClient
 		this.jdbcOperations.update(REMOVE_AUTHORIZED_CLIENT_SQL, pss);
 	}
 
+	/**
+	 * Writes the saves that have been {@link #setWriteBehindInterval(Duration) written
+	 * behind} and are still pending. When a batch fails, its saves are written one by
+	 * one, and those that still fail are dropped, unless the database could not be
+	 * reached, in which case they are kept pending and the failure is thrown.
+	 * @since 6.1
+	 */
+	public void flush() {
+		AuthorizedClientWriteBehindQueue<OAuth2AuthorizedClientHolder> writeBehind = this.writeBehind;
+		if (writeBehind == null) {
+			return;
+		}
+		synchronized (this.writeLock) {
+			List<Map.Entry<OAuth2AuthorizedClientId, OAuth2AuthorizedClientHolder>> batch = writeBehind.peek();
+			while (!batch.isEmpty()) {
+				List<OAuth2AuthorizedClientHolder> authorizedClientHolders = new ArrayList<>(batch.size());
+				batch.forEach((save) -> authorizedClientHolders.add(save.getValue()));
+				try {
+					writeAuthorizedClients(authorizedClientHolders);
+					writeBehind.written(batch);
+				}
+				catch (RuntimeException ex) {
+					if (AuthorizedClientWriteBehindQueue.isRetryable(ex)) {
+						throw ex;
+					}
+					this.logger.debug("Failed to write a batch of authorized clients, writing them one by one", ex);
+					writeEach(writeBehind, batch);
+				}
+				batch = writeBehind.peek();
+			}
+		}
+	}
+
+	private void writeEach(AuthorizedClientWriteBehindQueue<OAuth2AuthorizedClientHolder> writeBehind,
+			List<Map.Entry<OAuth2AuthorizedClientId, OAuth2AuthorizedClientHolder>> batch) {
+		for (Map.Entry<OAuth2AuthorizedClientId, OAuth2AuthorizedClientHolder> save : batch) {
+			try {
+				writeAuthorizedClient(save.getValue());
+			}
+			catch (RuntimeException ex) {
+				if (AuthorizedClientWriteBehindQueue.isRetryable(ex)) {
+					throw ex;
+				}
+				this.logger.warn(LogMessage.format("Dropped a pending save of an authorized client of registration '%s'",
+						save.getValue().getAuthorizedClient().getClientRegistration().getRegistrationId()), ex);
+			}
+			writeBehind.written(save);
+		}
+	}
+
+	private void scheduleWriteBehind(boolean batchPending) {
+		synchronized (this.writeLock) {
+			if (!this.destroyed) {
+				if (this.writeBehindScheduler == null) {
+					CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+							"oauth2-authorized-client-write-behind-");
+					threadFactory.setDaemon(true);
+					ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, threadFactory);
+					scheduler.setRemoveOnCancelPolicy(true);
+					this.writeBehindScheduler = scheduler;
+					this.defaultWriteBehindScheduler = true;
+				}
+				if (this.writeBehindFlush == null) {
+					long interval = this.writeBehindInterval.toMillis();
+					this.writeBehindFlush = this.writeBehindScheduler.scheduleWithFixedDelay(this::flushWriteBehind,
+							interval, interval, TimeUnit.MILLISECONDS);
+				}
+				// a requested flush writes every full batch, so a single one is queued at a time
+				if (batchPending && this.writeBehindFlushRequested.compareAndSet(false, true)) {
+					this.writeBehindScheduler.execute(() -> {
+						this.writeBehindFlushRequested.set(false);
+						flushWriteBehind();
+					});
+				}
+				return;
+			}
+		}
+		// saved after destroy(), so there is no scheduler left to write it
+		flush();
+	}
+
+	private void flushWriteBehind() {
+		try {
+			flush();
+		}
+		catch (RuntimeException ex) {
+			this.logger.warn("Failed to write the pending authorized clients, retrying on the next flush", ex);
+		}
+	}
+
+	/**
+	 * Stops writing behind, shutting down the default
+	 * {@link #setWriteBehindScheduler(ScheduledExecutorService) scheduler}, and writes the
+	 * saves that are still pending. Saves made afterwards are written immediately.
+	 * @since 6.1
+	 */
+	@Override
+	public void destroy() {
+		synchronized (this.writeLock) {
+			this.destroyed = true;
+			if (this.writeBehindFlush != null) {
+				this.writeBehindFlush.cancel(false);
+				this.writeBehindFlush = null;
+			}
+			if (this.defaultWriteBehindScheduler) {
+				this.writeBehindScheduler.shutdown();
+				this.writeBehindScheduler = null;
+				this.defaultWriteBehindScheduler = false;
+			}
+		}
+		flush();
+	}
+
 	/**
 	 * Sets the {@link RowMapper} used for mapping the current row in
 	 * {@code java.sql.ResultSet} to {@link OAuth2AuthorizedClient}. The default is
@@ -241,6 +536,171 @@ public class JdbcOAuth2AuthorizedClientService implements OAuth2AuthorizedClient
 		this.authorizedClientParametersMapper = authorizedClientParametersMapper;
 	}
 
+	/**
+	 * Sets the {@link UpsertDialect} used to save an {@link OAuth2AuthorizedClient} with a
+	 * single statement. By default, saving looks up the authorized client first and then
+	 * updates or inserts it.
+	 * @param upsertDialect the {@link UpsertDialect}
+	 * @since 6.1
+	 */
+	public final void setUpsertDialect(UpsertDialect upsertDialect) {
+		Assert.notNull(upsertDialect, "upsertDialect cannot be null");
+		this.upsertDialect = upsertDialect;
+	}
+
+	/**
+	 * Sets the maximum number of {@link OAuth2AuthorizedClient}s that are cached in
+	 * front of {@link #loadAuthorizedClient(String, String)}. The default is {@code 0},
+	 * which disables the cache. The cache is local to this instance, so only enable it
+	 * when other nodes do not modify the same authorized clients or when serving a stale
+	 * authorized client for up to the {@link #setCacheTimeToLive(Duration) time to live}
+	 * is acceptable.
+	 * @param cacheMaximumSize the maximum number of cached authorized clients
+	 * @since 6.1
+	 */
+	public final void setCacheMaximumSize(int cacheMaximumSize) {
+		Assert.isTrue(cacheMaximumSize >= 0, "cacheMaximumSize cannot be negative");
+		this.cacheMaximumSize = cacheMaximumSize;
+		this.cache = createCache();
+	}
+
+	/**
+	 * Sets how long a cached {@link OAuth2AuthorizedClient} is served without reading it
+	 * again. The default is 1 minute.
+	 * @param cacheTimeToLive how long a cached authorized client is served
+	 * @since 6.1
+	 */
+	public final void setCacheTimeToLive(Duration cacheTimeToLive) {
+		Assert.notNull(cacheTimeToLive, "cacheTimeToLive cannot be null");
+		Assert.isTrue(!cacheTimeToLive.isNegative() && !cacheTimeToLive.isZero(), "cacheTimeToLive must be positive");
+		this.cacheTimeToLive = cacheTimeToLive;
+		this.cache = createCache();
+	}
+
+	private AuthorizedClientCache createCache() {
+		return (this.cacheMaximumSize > 0) ? new AuthorizedClientCache(this.cacheMaximumSize, this.cacheTimeToLive)
+				: null;
+	}
+
+	/**
+	 * Sets the interval at which saves are written. When set, a save only queues the
+	 * {@link OAuth2AuthorizedClient}, coalescing it with any pending save of the same
+	 * authorized client, and the queue is written in JDBC batches of up to the
+	 * {@link #setWriteBehindBatchSize(int) batch size}. Pending saves are visible to
+	 * {@link #loadAuthorizedClient(String, String)} of this instance, but are lost if
+	 * the application stops before {@link #destroy()} is called. By default, saves are
+	 * written immediately.
+	 * @param writeBehindInterval the interval at which saves are written
+	 * @since 6.1
+	 */
+	public final void setWriteBehindInterval(Duration writeBehindInterval) {
+		Assert.notNull(writeBehindInterval, "writeBehindInterval cannot be null");
+		Assert.isTrue(!writeBehindInterval.isNegative() && !writeBehindInterval.isZero(),
+				"writeBehindInterval must be positive");
+		Assert.state(this.writeBehind == null, "writeBehindInterval has already been set");
+		this.writeBehindInterval = writeBehindInterval;
+		this.writeBehind = new AuthorizedClientWriteBehindQueue<>(this.writeBehindBatchSize,
+				this.writeBehindCapacity);
+	}
+
+	/**
+	 * Sets the maximum number of saves written in a single JDBC batch. A full batch is
+	 * written without waiting for the {@link #setWriteBehindInterval(Duration) interval}.
+	 * The default is 100.
+	 * @param writeBehindBatchSize the maximum number of saves written in a batch
+	 * @since 6.1
+	 */
+	public final void setWriteBehindBatchSize(int writeBehindBatchSize) {
+		Assert.isTrue(writeBehindBatchSize > 0, "writeBehindBatchSize must be greater than 0");
+		Assert.state(this.writeBehind == null, "writeBehindBatchSize must be set before writeBehindInterval");
+		this.writeBehindBatchSize = writeBehindBatchSize;
+	}
+
+	/**
+	 * Sets the maximum number of pending saves. Once reached, saves of other authorized
+	 * clients are written immediately, until the pending saves are written. The default
+	 * is 10000.
+	 * @param writeBehindCapacity the maximum number of pending saves
+	 * @since 6.1
+	 */
+	public final void setWriteBehindCapacity(int writeBehindCapacity) {
+		Assert.isTrue(writeBehindCapacity > 0, "writeBehindCapacity must be greater than 0");
+		Assert.state(this.writeBehind == null, "writeBehindCapacity must be set before writeBehindInterval");
+		this.writeBehindCapacity = writeBehindCapacity;
+	}
+
+	/**
+	 * Sets the {@link ScheduledExecutorService} that writes the pending saves. The
+	 * default is a single daemon thread, which is shut down on {@link #destroy()}.
+	 * @param writeBehindScheduler the {@link ScheduledExecutorService} that writes the
+	 * pending saves
+	 * @since 6.1
+	 */
+	public final void setWriteBehindScheduler(ScheduledExecutorService writeBehindScheduler) {
+		Assert.notNull(writeBehindScheduler, "writeBehindScheduler cannot be null");
+		this.writeBehindScheduler = writeBehindScheduler;
+	}
+
+	/**
+	 * The statements that save an {@link OAuth2AuthorizedClient} with a single statement,
+	 * inserting it or updating the existing one. They take the parameters in the order
+	 * produced by {@link OAuth2AuthorizedClientParametersMapper}.
+	 *
+	 * @since 6.1
+	 */
+	public enum UpsertDialect {
+
+		// @formatter:off
+		/**
+		 * H2 {@code MERGE INTO ... KEY}.
+		 */
+		H2("MERGE INTO " + TABLE_NAME + " (" + COLUMN_NAMES + ")"
+				+ " KEY (client_registration_id, principal_name)"
+				+ " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)"),
+
+		/**
+		 * PostgreSQL {@code INSERT ... ON CONFLICT DO UPDATE}.
+		 */
+		POSTGRESQL(SAVE_AUTHORIZED_CLIENT_SQL
+				+ " ON CONFLICT (client_registration_id, principal_name) DO UPDATE"
+				+ " SET access_token_type = EXCLUDED.access_token_type,"
+				+ " access_token_value = EXCLUDED.access_token_value,"
+				+ " access_token_issued_at = EXCLUDED.access_token_issued_at,"
+				+ " access_token_expires_at = EXCLUDED.access_token_expires_at,"
+				+ " access_token_scopes = EXCLUDED.access_token_scopes,"
+				+ " refresh_token_value = EXCLUDED.refresh_token_value,"
+				+ " refresh_token_issued_at = EXCLUDED.refresh_token_issued_at"),
+
+		/**
+		 * MySQL and MariaDB {@code INSERT ... ON DUPLICATE KEY UPDATE}.
+		 */
+		MYSQL(SAVE_AUTHORIZED_CLIENT_SQL
+				+ " ON DUPLICATE KEY UPDATE"
+				+ " access_token_type = VALUES(access_token_type),"
+				+ " access_token_value = VALUES(access_token_value),"
+				+ " access_token_issued_at = VALUES(access_token_issued_at),"
+				+ " access_token_expires_at = VALUES(access_token_expires_at),"
+				+ " access_token_scopes = VALUES(access_token_scopes),"
+				+ " refresh_token_value = VALUES(refresh_token_value),"
+				+ " refresh_token_issued_at = VALUES(refresh_token_issued_at)");
+		// @formatter:on
+
+		private final String sql;
+
+		UpsertDialect(String sql) {
+			this.sql = sql;
+		}
+
+		/**
+		 * Returns the upsert statement.
+		 * @return the upsert statement
+		 */
+		public String getSql() {
+			return this.sql;
+		}
+
+	}
+
 	/**
 	 * The default {@link RowMapper} that maps the current row in
 	 * {@code java.sql.ResultSet} to {@link OAuth2AuthorizedClient}.
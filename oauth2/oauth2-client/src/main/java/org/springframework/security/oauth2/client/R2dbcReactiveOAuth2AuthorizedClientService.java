@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2022 the original author or authors.
+ * Copyright 2002-2023 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,21 +18,34 @@ package org.springframework.security.oauth2.client;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
 import io.r2dbc.spi.Row;
 import io.r2dbc.spi.RowMetadata;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.log.LogMessage;
 import org.springframework.dao.DataRetrievalFailureException;
 import org.springframework.r2dbc.core.DatabaseClient;
 import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
@@ -55,6 +68,14 @@ import org.springframework.util.StringUtils;
  * "classpath:org/springframework/security/oauth2/client/oauth2-client-schema.sql" and
  * therefore MUST be defined in the database schema.
  *
+ * <p>
+ * By default, each save looks up the authorized client and then updates or inserts it.
+ * Setting an {@link #setUpsertDialect(UpsertDialect) upsert dialect} saves it with a
+ * single statement instead. Saves can also be
+ * {@link #setWriteBehindInterval(Duration) written behind}, in which case they are
+ * coalesced and written periodically, and loads can be served from a bounded
+ * {@link #setCacheMaximumSize(int) cache}.
+ *
  * @author Ovidiu Popa
  * @since 5.5
  * @see ReactiveOAuth2AuthorizedClientService
@@ -62,7 +83,8 @@ import org.springframework.util.StringUtils;
  * @see DatabaseClient
  *
  */
-public class R2dbcReactiveOAuth2AuthorizedClientService implements ReactiveOAuth2AuthorizedClientService {
+public class R2dbcReactiveOAuth2AuthorizedClientService
+		implements ReactiveOAuth2AuthorizedClientService, DisposableBean {
 
 	// @formatter:off
 	private static final String COLUMN_NAMES =
@@ -108,6 +130,8 @@ public class R2dbcReactiveOAuth2AuthorizedClientService implements ReactiveOAuth
 			PK_FILTER;
 	// @formatter:on
 
+	private final Log logger = LogFactory.getLog(getClass());
+
 	protected final DatabaseClient databaseClient;
 
 	protected final ReactiveClientRegistrationRepository clientRegistrationRepository;
@@ -116,6 +140,32 @@ public class R2dbcReactiveOAuth2AuthorizedClientService implements ReactiveOAuth
 
 	protected BiFunction<Row, RowMetadata, OAuth2AuthorizedClientHolder> authorizedClientRowMapper;
 
+	private final Object writeBehindLock = new Object();
+
+	private final AtomicReference<Mono<Void>> inFlightFlush = new AtomicReference<>();
+
+	private UpsertDialect upsertDialect;
+
+	private int cacheMaximumSize;
+
+	private Duration cacheTimeToLive = Duration.ofMinutes(1);
+
+	private AuthorizedClientCache cache;
+
+	private Duration writeBehindInterval;
+
+	private int writeBehindBatchSize = 100;
+
+	private int writeBehindCapacity = 10000;
+
+	private AuthorizedClientWriteBehindQueue<PendingSave> writeBehind;
+
+	private Scheduler writeBehindScheduler = Schedulers.parallel();
+
+	private Disposable writeBehindFlush;
+
+	private volatile boolean destroyed;
+
 	/**
 	 * Constructs a {@code R2dbcReactiveOAuth2AuthorizedClientService} using the provided
 	 * parameters.
@@ -138,10 +188,34 @@ public class R2dbcReactiveOAuth2AuthorizedClientService implements ReactiveOAuth
 			String principalName) {
 		Assert.hasText(clientRegistrationId, "clientRegistrationId cannot be empty");
 		Assert.hasText(principalName, "principalName cannot be empty");
+		AuthorizedClientWriteBehindQueue<PendingSave> writeBehind = this.writeBehind;
+		AuthorizedClientCache cache = this.cache;
+		if (writeBehind == null && cache == null) {
+			return (Mono<T>) selectAuthorizedClient(clientRegistrationId, principalName);
+		}
+		return (Mono<T>) Mono.defer(() -> {
+			OAuth2AuthorizedClientId id = new OAuth2AuthorizedClientId(clientRegistrationId, principalName);
+			// started first, so that a save made in the meantime is not replaced by the read
+			AuthorizedClientCache.Load load = (cache != null) ? cache.load(id) : null;
+			if (writeBehind != null) {
+				PendingSave pending = writeBehind.get(id);
+				if (pending != null) {
+					return Mono.just(pending.authorizedClient);
+				}
+			}
+			OAuth2AuthorizedClient authorizedClient = (load != null) ? load.getAuthorizedClient() : null;
+			if (authorizedClient != null) {
+				return Mono.just(authorizedClient);
+			}
+			Mono<OAuth2AuthorizedClient> selected = selectAuthorizedClient(clientRegistrationId, principalName);
+			return (load != null) ? selected.doOnNext(load::loaded) : selected;
+		});
+	}
 
-		return (Mono<T>) this.databaseClient.sql(LOAD_AUTHORIZED_CLIENT_SQL)
-				.bind("clientRegistrationId", clientRegistrationId).bind("principalName", principalName)
-				.map(this.authorizedClientRowMapper).first().flatMap(this::getAuthorizedClient);
+	private Mono<OAuth2AuthorizedClient> selectAuthorizedClient(String clientRegistrationId, String principalName) {
+		return this.databaseClient.sql(LOAD_AUTHORIZED_CLIENT_SQL).bind("clientRegistrationId", clientRegistrationId)
+				.bind("principalName", principalName).map(this.authorizedClientRowMapper).first()
+				.flatMap(this::getAuthorizedClient);
 	}
 
 	private Mono<OAuth2AuthorizedClient> getAuthorizedClient(OAuth2AuthorizedClientHolder authorizedClientHolder) {
@@ -162,12 +236,45 @@ public class R2dbcReactiveOAuth2AuthorizedClientService implements ReactiveOAuth
 	public Mono<Void> saveAuthorizedClient(OAuth2AuthorizedClient authorizedClient, Authentication principal) {
 		Assert.notNull(authorizedClient, "authorizedClient cannot be null");
 		Assert.notNull(principal, "principal cannot be null");
-		return this
-				.loadAuthorizedClient(authorizedClient.getClientRegistration().getRegistrationId(), principal.getName())
+		return Mono.defer(() -> {
+			OAuth2AuthorizedClientId id = new OAuth2AuthorizedClientId(
+					authorizedClient.getClientRegistration().getRegistrationId(), principal.getName());
+			AuthorizedClientWriteBehindQueue<PendingSave> writeBehind = this.writeBehind;
+			if (writeBehind != null && !this.destroyed
+					&& writeBehind.offer(id, new PendingSave(authorizedClient, principal))) {
+				if (this.cache != null) {
+					this.cache.put(id, authorizedClient);
+				}
+				scheduleWriteBehind(writeBehind.isBatchPending());
+				return Mono.empty();
+			}
+			return writeAuthorizedClient(authorizedClient, principal).doOnSuccess((written) -> {
+				if (this.cache != null) {
+					this.cache.put(id, authorizedClient);
+				}
+			});
+		});
+	}
+
+	private Mono<Void> writeAuthorizedClient(OAuth2AuthorizedClient authorizedClient, Authentication principal) {
+		if (this.upsertDialect != null) {
+			return upsertAuthorizedClient(authorizedClient, principal).then();
+		}
+		return selectAuthorizedClient(authorizedClient.getClientRegistration().getRegistrationId(),
+				principal.getName())
 				.flatMap((dbAuthorizedClient) -> updateAuthorizedClient(authorizedClient, principal))
 				.switchIfEmpty(Mono.defer(() -> insertAuthorizedClient(authorizedClient, principal))).then();
 	}
 
+	private Mono<Long> upsertAuthorizedClient(OAuth2AuthorizedClient authorizedClient, Authentication principal) {
+		GenericExecuteSpec executeSpec = this.databaseClient.sql(this.upsertDialect.getSql());
+		for (Entry<String, Parameter> entry : this.authorizedClientParametersMapper
+				.apply(new OAuth2AuthorizedClientHolder(authorizedClient, principal)).entrySet()) {
+			executeSpec = executeSpec.bind(entry.getKey(), entry.getValue());
+		}
+		return executeSpec.fetch().rowsUpdated();
+	}
+
 	private Mono<Long> updateAuthorizedClient(OAuth2AuthorizedClient authorizedClient, Authentication principal) {
 		GenericExecuteSpec executeSpec = this.databaseClient.sql(UPDATE_AUTHORIZED_CLIENT_SQL);
 		for (Entry<String, Parameter> entry : this.authorizedClientParametersMapper
@@ -190,8 +297,227 @@ public class R2dbcReactiveOAuth2AuthorizedClientService implements ReactiveOAuth
 	public Mono<Void> removeAuthorizedClient(String clientRegistrationId, String principalName) {
 		Assert.hasText(clientRegistrationId, "clientRegistrationId cannot be empty");
 		Assert.hasText(principalName, "principalName cannot be empty");
-		return this.databaseClient.sql(REMOVE_AUTHORIZED_CLIENT_SQL).bind("clientRegistrationId", clientRegistrationId)
-				.bind("principalName", principalName).then();
+		Mono<Void> delete = this.databaseClient.sql(REMOVE_AUTHORIZED_CLIENT_SQL)
+				.bind("clientRegistrationId", clientRegistrationId).bind("principalName", principalName).then();
+		if (this.writeBehind == null && this.cache == null) {
+			return delete;
+		}
+		return Mono.defer(() -> {
+			OAuth2AuthorizedClientId id = new OAuth2AuthorizedClientId(clientRegistrationId, principalName);
+			Mono<Void> removed = delete;
+			if (this.writeBehind != null) {
+				this.writeBehind.remove(id);
+				// a pending save that is being written could otherwise resurrect the row
+				Mono<Void> inFlightFlush = this.inFlightFlush.get();
+				if (inFlightFlush != null) {
+					removed = inFlightFlush.onErrorResume((ex) -> Mono.empty()).then(delete);
+				}
+			}
+			return removed.doOnSuccess((deleted) -> {
+				if (this.cache != null) {
+					this.cache.remove(id);
+				}
+			});
+		});
+	}
+
+	/**
+	 * Writes the saves that have been {@link #setWriteBehindInterval(Duration) written
+	 * behind} and are still pending. Saves that fail to be written are dropped, unless
+	 * the database could not be reached, in which case they are kept pending and the
+	 * failure is emitted.
+	 * @return a {@code Mono} that completes once the pending saves have been written
+	 * @since 6.1
+	 */
+	public Mono<Void> flush() {
+		return Mono.defer(() -> {
+			AuthorizedClientWriteBehindQueue<PendingSave> writeBehind = this.writeBehind;
+			if (writeBehind == null) {
+				return Mono.empty();
+			}
+			Sinks.Empty<Void> flushed = Sinks.empty();
+			Mono<Void> flush = flushed.asMono();
+			Mono<Void> inFlightFlush = this.inFlightFlush.get();
+			if (inFlightFlush != null || !this.inFlightFlush.compareAndSet(null, flush)) {
+				Mono<Void> previous = (inFlightFlush != null) ? inFlightFlush : Mono.empty();
+				return previous.onErrorResume((ex) -> Mono.empty()).then(flush());
+			}
+			return writePending(writeBehind).doFinally((signal) -> {
+				this.inFlightFlush.compareAndSet(flush, null);
+				flushed.tryEmitEmpty();
+			});
+		});
+	}
+
+	private Mono<Void> writePending(AuthorizedClientWriteBehindQueue<PendingSave> writeBehind) {
+		return Mono.defer(() -> {
+			List<Map.Entry<OAuth2AuthorizedClientId, PendingSave>> batch = writeBehind.peek();
+			if (batch.isEmpty()) {
+				return Mono.empty();
+			}
+			// @formatter:off
+			return Flux.fromIterable(batch)
+					.concatMap((save) -> writePending(save)
+							.then(Mono.fromRunnable(() -> writeBehind.written(save))))
+					.then(writePending(writeBehind));
+			// @formatter:on
+		});
+	}
+
+	private Mono<Void> writePending(Map.Entry<OAuth2AuthorizedClientId, PendingSave> save) {
+		PendingSave pendingSave = save.getValue();
+		return writeAuthorizedClient(pendingSave.authorizedClient, pendingSave.principal).onErrorResume(
+				(ex) -> !AuthorizedClientWriteBehindQueue.isRetryable(ex), (ex) -> {
+					this.logger.warn(LogMessage.format(
+							"Dropped a pending save of an authorized client of registration '%s'",
+							pendingSave.authorizedClient.getClientRegistration().getRegistrationId()), ex);
+					return Mono.empty();
+				});
+	}
+
+	private void scheduleWriteBehind(boolean batchPending) {
+		boolean flush = batchPending;
+		synchronized (this.writeBehindLock) {
+			if (this.destroyed) {
+				// queued while destroy() ran, so there is no periodic flush left to write it
+				flush = true;
+			}
+			else if (this.writeBehindFlush == null) {
+				long interval = this.writeBehindInterval.toMillis();
+				this.writeBehindFlush = this.writeBehindScheduler.schedulePeriodically(this::flushWriteBehind, interval,
+						interval, TimeUnit.MILLISECONDS);
+			}
+		}
+		if (flush && this.inFlightFlush.get() == null) {
+			flushWriteBehind();
+		}
+	}
+
+	private void flushWriteBehind() {
+		flush().subscribe(null, (ex) -> this.logger
+				.warn("Failed to write the pending authorized clients, retrying on the next flush", ex));
+	}
+
+	/**
+	 * Stops writing behind and writes the saves that are still pending. Saves made
+	 * afterwards are written immediately.
+	 * @since 6.1
+	 */
+	@Override
+	public void destroy() {
+		synchronized (this.writeBehindLock) {
+			this.destroyed = true;
+			if (this.writeBehindFlush != null) {
+				this.writeBehindFlush.dispose();
+				this.writeBehindFlush = null;
+			}
+		}
+		flush().block();
+	}
+
+	/**
+	 * Sets the {@link UpsertDialect} used to save an {@link OAuth2AuthorizedClient} with a
+	 * single statement. By default, saving looks up the authorized client first and then
+	 * updates or inserts it.
+	 * @param upsertDialect the {@link UpsertDialect}
+	 * @since 6.1
+	 */
+	public final void setUpsertDialect(UpsertDialect upsertDialect) {
+		Assert.notNull(upsertDialect, "upsertDialect cannot be null");
+		this.upsertDialect = upsertDialect;
+	}
+
+	/**
+	 * Sets the maximum number of {@link OAuth2AuthorizedClient}s that are cached in
+	 * front of {@link #loadAuthorizedClient(String, String)}. The default is {@code 0},
+	 * which disables the cache. The cache is local to this instance, so only enable it
+	 * when other nodes do not modify the same authorized clients or when serving a stale
+	 * authorized client for up to the {@link #setCacheTimeToLive(Duration) time to live}
+	 * is acceptable.
+	 * @param cacheMaximumSize the maximum number of cached authorized clients
+	 * @since 6.1
+	 */
+	public final void setCacheMaximumSize(int cacheMaximumSize) {
+		Assert.isTrue(cacheMaximumSize >= 0, "cacheMaximumSize cannot be negative");
+		this.cacheMaximumSize = cacheMaximumSize;
+		this.cache = createCache();
+	}
+
+	/**
+	 * Sets how long a cached {@link OAuth2AuthorizedClient} is served without reading it
+	 * again. The default is 1 minute.
+	 * @param cacheTimeToLive how long a cached authorized client is served
+	 * @since 6.1
+	 */
+	public final void setCacheTimeToLive(Duration cacheTimeToLive) {
+		Assert.notNull(cacheTimeToLive, "cacheTimeToLive cannot be null");
+		Assert.isTrue(!cacheTimeToLive.isNegative() && !cacheTimeToLive.isZero(), "cacheTimeToLive must be positive");
+		this.cacheTimeToLive = cacheTimeToLive;
+		this.cache = createCache();
+	}
+
+	private AuthorizedClientCache createCache() {
+		return (this.cacheMaximumSize > 0) ? new AuthorizedClientCache(this.cacheMaximumSize, this.cacheTimeToLive)
+				: null;
+	}
+
+	/**
+	 * Sets the interval at which saves are written. When set, a save only queues the
+	 * {@link OAuth2AuthorizedClient}, coalescing it with any pending save of the same
+	 * authorized client, and the queue is written in batches of up to the
+	 * {@link #setWriteBehindBatchSize(int) batch size}. Pending saves are visible to
+	 * {@link #loadAuthorizedClient(String, String)} of this instance, but are lost if
+	 * the application stops before {@link #destroy()} is called. By default, saves are
+	 * written immediately.
+	 * @param writeBehindInterval the interval at which saves are written
+	 * @since 6.1
+	 */
+	public final void setWriteBehindInterval(Duration writeBehindInterval) {
+		Assert.notNull(writeBehindInterval, "writeBehindInterval cannot be null");
+		Assert.isTrue(!writeBehindInterval.isNegative() && !writeBehindInterval.isZero(),
+				"writeBehindInterval must be positive");
+		Assert.state(this.writeBehind == null, "writeBehindInterval has already been set");
+		this.writeBehindInterval = writeBehindInterval;
+		this.writeBehind = new AuthorizedClientWriteBehindQueue<>(this.writeBehindBatchSize,
+				this.writeBehindCapacity);
+	}
+
+	/**
+	 * Sets the maximum number of saves written in a batch. A full batch is written
+	 * without waiting for the {@link #setWriteBehindInterval(Duration) interval}. The
+	 * default is 100.
+	 * @param writeBehindBatchSize the maximum number of saves written in a batch
+	 * @since 6.1
+	 */
+	public final void setWriteBehindBatchSize(int writeBehindBatchSize) {
+		Assert.isTrue(writeBehindBatchSize > 0, "writeBehindBatchSize must be greater than 0");
+		Assert.state(this.writeBehind == null, "writeBehindBatchSize must be set before writeBehindInterval");
+		this.writeBehindBatchSize = writeBehindBatchSize;
+	}
+
+	/**
+	 * Sets the maximum number of pending saves. Once reached, saves of other authorized
+	 * clients are written immediately, until the pending saves are written. The default
+	 * is 10000.
+	 * @param writeBehindCapacity the maximum number of pending saves
+	 * @since 6.1
+	 */
+	public final void setWriteBehindCapacity(int writeBehindCapacity) {
+		Assert.isTrue(writeBehindCapacity > 0, "writeBehindCapacity must be greater than 0");
+		Assert.state(this.writeBehind == null, "writeBehindCapacity must be set before writeBehindInterval");
+		this.writeBehindCapacity = writeBehindCapacity;
+	}
+
+	/**
+	 * Sets the {@link Scheduler} that schedules writing the pending saves. The default is
+	 * {@link Schedulers#parallel()}.
+	 * @param writeBehindScheduler the {@link Scheduler} that schedules writing the
+	 * pending saves
+	 * @since 6.1
+	 */
+	public final void setWriteBehindScheduler(Scheduler writeBehindScheduler) {
+		Assert.notNull(writeBehindScheduler, "writeBehindScheduler cannot be null");
+		this.writeBehindScheduler = writeBehindScheduler;
 	}
 
 	/**
@@ -221,6 +547,68 @@ public class R2dbcReactiveOAuth2AuthorizedClientService implements ReactiveOAuth
 		this.authorizedClientRowMapper = authorizedClientRowMapper;
 	}
 
+	/**
+	 * The statements that save an {@link OAuth2AuthorizedClient} with a single statement,
+	 * inserting it or updating the existing one. They use the parameter names produced
+	 * by {@link OAuth2AuthorizedClientParametersMapper}.
+	 *
+	 * @since 6.1
+	 */
+	public enum UpsertDialect {
+
+		// @formatter:off
+		/**
+		 * H2 {@code MERGE INTO ... KEY}.
+		 */
+		H2("MERGE INTO " + TABLE_NAME + " (" + COLUMN_NAMES + ")"
+				+ " KEY (client_registration_id, principal_name)"
+				+ " VALUES (:clientRegistrationId, :principalName, :accessTokenType, :accessTokenValue,"
+				+ " :accessTokenIssuedAt, :accessTokenExpiresAt, :accessTokenScopes, :refreshTokenValue,"
+				+ " :refreshTokenIssuedAt)"),
+
+		/**
+		 * PostgreSQL {@code INSERT ... ON CONFLICT DO UPDATE}.
+		 */
+		POSTGRESQL(SAVE_AUTHORIZED_CLIENT_SQL
+				+ " ON CONFLICT (client_registration_id, principal_name) DO UPDATE"
+				+ " SET access_token_type = EXCLUDED.access_token_type,"
+				+ " access_token_value = EXCLUDED.access_token_value,"
+				+ " access_token_issued_at = EXCLUDED.access_token_issued_at,"
+				+ " access_token_expires_at = EXCLUDED.access_token_expires_at,"
+				+ " access_token_scopes = EXCLUDED.access_token_scopes,"
+				+ " refresh_token_value = EXCLUDED.refresh_token_value,"
+				+ " refresh_token_issued_at = EXCLUDED.refresh_token_issued_at"),
+
+		/**
+		 * MySQL and MariaDB {@code INSERT ... ON DUPLICATE KEY UPDATE}.
+		 */
+		MYSQL(SAVE_AUTHORIZED_CLIENT_SQL
+				+ " ON DUPLICATE KEY UPDATE"
+				+ " access_token_type = VALUES(access_token_type),"
+				+ " access_token_value = VALUES(access_token_value),"
+				+ " access_token_issued_at = VALUES(access_token_issued_at),"
+				+ " access_token_expires_at = VALUES(access_token_expires_at),"
+				+ " access_token_scopes = VALUES(access_token_scopes),"
+				+ " refresh_token_value = VALUES(refresh_token_value),"
+				+ " refresh_token_issued_at = VALUES(refresh_token_issued_at)");
+		// @formatter:on
+
+		private final String sql;
+
+		UpsertDialect(String sql) {
+			this.sql = sql;
+		}
+
+		/**
+		 * Returns the upsert statement.
+		 * @return the upsert statement
+		 */
+		public String getSql() {
+			return this.sql;
+		}
+
+	}
+
 	/**
 	 * A holder for {@link OAuth2AuthorizedClient} data and End-User
 	 * {@link Authentication} (Resource Owner).
@@ -384,4 +772,17 @@ public class R2dbcReactiveOAuth2AuthorizedClientService implements ReactiveOAuth
 
 	}
 
+	private static final class PendingSave {
+
+		private final OAuth2AuthorizedClient authorizedClient;
+
+		private final Authentication principal;
+
+		private PendingSave(OAuth2AuthorizedClient authorizedClient, Authentication principal) {
+			this.authorizedClient = authorizedClient;
+			this.principal = principal;
+		}
+
+	}
+
 }
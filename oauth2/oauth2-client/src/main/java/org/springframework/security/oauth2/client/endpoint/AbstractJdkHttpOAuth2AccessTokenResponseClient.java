@@ -0,0 +1,340 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client.endpoint;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.security.oauth2.client.http.OAuth2ErrorResponseErrorHandler;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AuthorizationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AccessTokenResponse;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.ConcurrentLruCache;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.ResponseErrorHandler;
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Abstract base class for all of the {@code JdkHttp*TokenResponseClient}s that
+ * communicate to the Authorization Server's Token Endpoint using a
+ * {@link java.net.http.HttpClient}.
+ *
+ * <p>
+ * The parts of the token request that only depend on the {@link ClientRegistration},
+ * which are the token uri, the headers including the client authentication and the
+ * static form parameters, are computed once per {@link ClientRegistration} and reused for
+ * every request. The JSON response body is read with a streaming parser directly into an
+ * {@link OAuth2AccessTokenResponse}, so Jackson must be on the classpath.
+ * </p>
+ *
+ * <p>
+ * The {@link HttpClient} pools its connections and does not hold monitors while waiting
+ * for the response, so these clients can be called from virtual threads without pinning
+ * their carrier threads.
+ * </p>
+ *
+ * @param <T> type of grant request
+ * @since 6.1
+ * @see JdkHttpAuthorizationCodeTokenResponseClient
+ * @see JdkHttpClientCredentialsTokenResponseClient
+ * @see JdkHttpJwtBearerTokenResponseClient
+ * @see JdkHttpRefreshTokenTokenResponseClient
+ * @see <a href="https://tools.ietf.org/html/rfc6749#section-3.2">RFC-6749 Token
+ * Endpoint</a>
+ */
+public abstract class AbstractJdkHttpOAuth2AccessTokenResponseClient<T extends AbstractOAuth2AuthorizationGrantRequest>
+		implements OAuth2AccessTokenResponseClient<T> {
+
+	private static final String INVALID_TOKEN_RESPONSE_ERROR_CODE = "invalid_token_response";
+
+	private static final int MAXIMUM_TOKEN_REQUESTS = 1024;
+
+	private static final String FORM_CONTENT_TYPE = MediaType.APPLICATION_FORM_URLENCODED_VALUE + ";charset=UTF-8";
+
+	private final ConcurrentLruCache<ClientRegistration, TokenRequest> tokenRequests = new ConcurrentLruCache<>(
+			MAXIMUM_TOKEN_REQUESTS, this::createTokenRequest);
+
+	private HttpClient httpClient = HttpClient.newHttpClient();
+
+	private Duration requestTimeout;
+
+	private Converter<T, MultiValueMap<String, String>> additionalParametersConverter = (grantRequest) -> null;
+
+	private ResponseErrorHandler errorHandler = new OAuth2ErrorResponseErrorHandler();
+
+	AbstractJdkHttpOAuth2AccessTokenResponseClient() {
+	}
+
+	@Override
+	public OAuth2AccessTokenResponse getTokenResponse(T grantRequest) {
+		Assert.notNull(grantRequest, "grantRequest cannot be null");
+		TokenRequest tokenRequest = this.tokenRequests.get(grantRequest.getClientRegistration());
+		StringBuilder body = new StringBuilder(tokenRequest.body());
+		addParameters(grantRequest, body);
+		MultiValueMap<String, String> additionalParameters = this.additionalParametersConverter.convert(grantRequest);
+		if (additionalParameters != null) {
+			additionalParameters.forEach((name, values) -> values.forEach((value) -> addParameter(body, name, value)));
+		}
+		// @formatter:off
+		HttpRequest.Builder request = HttpRequest.newBuilder(tokenRequest.uri())
+				.headers(tokenRequest.headers())
+				.POST(HttpRequest.BodyPublishers.ofString(body.toString(), StandardCharsets.UTF_8));
+		// @formatter:on
+		if (this.requestTimeout != null) {
+			request.timeout(this.requestTimeout);
+		}
+		return populateTokenResponse(grantRequest, readTokenResponse(send(request.build())));
+	}
+
+	/**
+	 * Appends the form parameters that only depend on the given
+	 * {@link ClientRegistration}, including the {@code grant_type}. They are computed
+	 * once per {@link ClientRegistration}.
+	 * @param clientRegistration the client registration
+	 * @param body the form encoded request body
+	 */
+	abstract void addStaticParameters(ClientRegistration clientRegistration, StringBuilder body);
+
+	/**
+	 * Appends the form parameters that are specific to the given grant request.
+	 * @param grantRequest the grant request
+	 * @param body the form encoded request body
+	 */
+	void addParameters(T grantRequest, StringBuilder body) {
+	}
+
+	/**
+	 * Populates the token response for the given grant request, for example with
+	 * defaults for the parameters that the Authorization Server omitted.
+	 * @param grantRequest the grant request
+	 * @param accessTokenResponse the token response read from the response body
+	 * @return the populated token response
+	 */
+	OAuth2AccessTokenResponse populateTokenResponse(T grantRequest, OAuth2AccessTokenResponse accessTokenResponse) {
+		return accessTokenResponse;
+	}
+
+	/**
+	 * Appends the {@code client_id} and {@code client_secret} parameters when the client
+	 * authenticates with {@link ClientAuthenticationMethod#CLIENT_SECRET_POST}.
+	 * @param clientRegistration the client registration
+	 * @param body the form encoded request body
+	 */
+	static void addClientSecretPostParameters(ClientRegistration clientRegistration, StringBuilder body) {
+		if (ClientAuthenticationMethod.CLIENT_SECRET_POST.equals(clientRegistration.getClientAuthenticationMethod())) {
+			addParameter(body, OAuth2ParameterNames.CLIENT_ID, clientRegistration.getClientId());
+			addParameter(body, OAuth2ParameterNames.CLIENT_SECRET, clientRegistration.getClientSecret());
+		}
+	}
+
+	/**
+	 * Appends the {@code scope} parameter, unless there are no scopes.
+	 * @param body the form encoded request body
+	 * @param scopes the scopes
+	 */
+	static void addScopeParameter(StringBuilder body, Collection<String> scopes) {
+		if (!CollectionUtils.isEmpty(scopes)) {
+			addParameter(body, OAuth2ParameterNames.SCOPE, StringUtils.collectionToDelimitedString(scopes, " "));
+		}
+	}
+
+	static void addParameter(StringBuilder body, String name, String value) {
+		if (body.length() > 0) {
+			body.append('&');
+		}
+		body.append(URLEncoder.encode(name, StandardCharsets.UTF_8));
+		if (value != null) {
+			body.append('=').append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+		}
+	}
+
+	private TokenRequest createTokenRequest(ClientRegistration clientRegistration) {
+		URI uri = URI.create(clientRegistration.getProviderDetails().getTokenUri());
+		List<String> headers = new ArrayList<>();
+		Collections.addAll(headers, HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_UTF8_VALUE);
+		Collections.addAll(headers, HttpHeaders.CONTENT_TYPE, FORM_CONTENT_TYPE);
+		if (ClientAuthenticationMethod.CLIENT_SECRET_BASIC.equals(clientRegistration.getClientAuthenticationMethod())) {
+			String clientId = URLEncoder.encode(clientRegistration.getClientId(), StandardCharsets.UTF_8);
+			String clientSecret = URLEncoder.encode(clientRegistration.getClientSecret(), StandardCharsets.UTF_8);
+			Collections.addAll(headers, HttpHeaders.AUTHORIZATION,
+					"Basic " + HttpHeaders.encodeBasicAuth(clientId, clientSecret, StandardCharsets.ISO_8859_1));
+		}
+		StringBuilder body = new StringBuilder();
+		addStaticParameters(clientRegistration, body);
+		return new TokenRequest(uri, headers.toArray(new String[0]), body.toString());
+	}
+
+	private HttpResponse<InputStream> send(HttpRequest request) {
+		try {
+			return this.httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+		}
+		catch (IOException ex) {
+			throw invalidTokenResponse(ex);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw invalidTokenResponse(ex);
+		}
+	}
+
+	private OAuth2AccessTokenResponse readTokenResponse(HttpResponse<InputStream> response) {
+		try (ClientHttpResponse clientResponse = new JdkClientHttpResponse(response)) {
+			if (this.errorHandler.hasError(clientResponse)) {
+				this.errorHandler.handleError(clientResponse);
+			}
+			return JsonOAuth2AccessTokenResponseReader.read(clientResponse.getBody());
+		}
+		catch (IOException | RestClientException | IllegalArgumentException ex) {
+			throw invalidTokenResponse(ex);
+		}
+	}
+
+	private static OAuth2AuthorizationException invalidTokenResponse(Exception ex) {
+		OAuth2Error oauth2Error = new OAuth2Error(INVALID_TOKEN_RESPONSE_ERROR_CODE,
+				"An error occurred while attempting to retrieve the OAuth 2.0 Access Token Response: "
+						+ ex.getMessage(),
+				null);
+		return new OAuth2AuthorizationException(oauth2Error, ex);
+	}
+
+	/**
+	 * Sets the {@link HttpClient} used when requesting the OAuth 2.0 Access Token
+	 * Response. The default is {@link HttpClient#newHttpClient()}.
+	 * @param httpClient the {@link HttpClient} used when requesting the Access Token
+	 * Response
+	 */
+	public final void setHttpClient(HttpClient httpClient) {
+		Assert.notNull(httpClient, "httpClient cannot be null");
+		this.httpClient = httpClient;
+	}
+
+	/**
+	 * Sets the timeout of each OAuth 2.0 Access Token Request. By default, requests do
+	 * not time out.
+	 * @param requestTimeout the timeout of each Access Token Request
+	 */
+	public final void setRequestTimeout(Duration requestTimeout) {
+		Assert.notNull(requestTimeout, "requestTimeout cannot be null");
+		Assert.isTrue(!requestTimeout.isNegative() && !requestTimeout.isZero(), "requestTimeout must be positive");
+		this.requestTimeout = requestTimeout;
+	}
+
+	/**
+	 * Sets the {@link Converter} used for converting the grant request to the additional
+	 * parameters of the OAuth 2.0 Access Token Request body, for example
+	 * {@link NimbusJwtClientAuthenticationParametersConverter}. They are computed for
+	 * every request and appended to the precomputed parameters.
+	 * @param additionalParametersConverter the {@link Converter} used for converting to
+	 * the additional parameters
+	 */
+	public final void setAdditionalParametersConverter(
+			Converter<T, MultiValueMap<String, String>> additionalParametersConverter) {
+		Assert.notNull(additionalParametersConverter, "additionalParametersConverter cannot be null");
+		this.additionalParametersConverter = additionalParametersConverter;
+	}
+
+	/**
+	 * Sets the {@link ResponseErrorHandler} used when the Authorization Server responds
+	 * with an error. The default is {@link OAuth2ErrorResponseErrorHandler}.
+	 * @param errorHandler the {@link ResponseErrorHandler} used when the Authorization
+	 * Server responds with an error
+	 */
+	public final void setErrorHandler(ResponseErrorHandler errorHandler) {
+		Assert.notNull(errorHandler, "errorHandler cannot be null");
+		this.errorHandler = errorHandler;
+	}
+
+	private record TokenRequest(URI uri, String[] headers, String body) {
+
+	}
+
+	private static final class JdkClientHttpResponse implements ClientHttpResponse {
+
+		private final HttpResponse<InputStream> response;
+
+		private HttpHeaders headers;
+
+		private JdkClientHttpResponse(HttpResponse<InputStream> response) {
+			this.response = response;
+		}
+
+		@Override
+		public HttpStatusCode getStatusCode() {
+			return HttpStatusCode.valueOf(this.response.statusCode());
+		}
+
+		@Override
+		public int getRawStatusCode() {
+			return this.response.statusCode();
+		}
+
+		@Override
+		public String getStatusText() {
+			HttpStatus httpStatus = HttpStatus.resolve(this.response.statusCode());
+			return (httpStatus != null) ? httpStatus.getReasonPhrase() : "";
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			if (this.headers == null) {
+				this.headers = new HttpHeaders(new LinkedMultiValueMap<>(this.response.headers().map()));
+			}
+			return this.headers;
+		}
+
+		@Override
+		public InputStream getBody() {
+			return this.response.body();
+		}
+
+		@Override
+		public void close() {
+			try {
+				this.response.body().close();
+			}
+			catch (IOException ex) {
+				// ignore
+			}
+		}
+
+	}
+
+}
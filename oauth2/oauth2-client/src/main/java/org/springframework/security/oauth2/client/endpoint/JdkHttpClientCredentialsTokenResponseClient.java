@@ -0,0 +1,46 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client.endpoint;
+
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+
+/**
+ * An implementation of an {@link OAuth2AccessTokenResponseClient} for the
+ * {@link AuthorizationGrantType#CLIENT_CREDENTIALS client_credentials} grant, which uses
+ * a {@link java.net.http.HttpClient} and precomputes the static parts of the token
+ * request per {@link ClientRegistration}.
+ *
+ * @since 6.1
+ * @see AbstractJdkHttpOAuth2AccessTokenResponseClient
+ * @see OAuth2ClientCredentialsGrantRequest
+ * @see <a target="_blank" href=
+ * "https://tools.ietf.org/html/rfc6749#section-4.4.2">Section 4.4.2 Access Token Request
+ * (Client Credentials Grant)</a>
+ */
+public final class JdkHttpClientCredentialsTokenResponseClient
+		extends AbstractJdkHttpOAuth2AccessTokenResponseClient<OAuth2ClientCredentialsGrantRequest> {
+
+	@Override
+	void addStaticParameters(ClientRegistration clientRegistration, StringBuilder body) {
+		addParameter(body, OAuth2ParameterNames.GRANT_TYPE, AuthorizationGrantType.CLIENT_CREDENTIALS.getValue());
+		addScopeParameter(body, clientRegistration.getScopes());
+		addClientSecretPostParameters(clientRegistration, body);
+	}
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client.endpoint;
+
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+
+/**
+ * An implementation of an {@link OAuth2AccessTokenResponseClient} for the
+ * {@link AuthorizationGrantType#JWT_BEARER jwt-bearer} grant, which uses a
+ * {@link java.net.http.HttpClient} and precomputes the static parts of the token request
+ * per {@link ClientRegistration}.
+ *
+ * @since 6.1
+ * @see AbstractJdkHttpOAuth2AccessTokenResponseClient
+ * @see JwtBearerGrantRequest
+ * @see <a target="_blank" href=
+ * "https://datatracker.ietf.org/doc/html/rfc7523#section-2.1">Section 2.1 Using JWTs as
+ * Authorization Grants</a>
+ */
+public final class JdkHttpJwtBearerTokenResponseClient
+		extends AbstractJdkHttpOAuth2AccessTokenResponseClient<JwtBearerGrantRequest> {
+
+	@Override
+	void addStaticParameters(ClientRegistration clientRegistration, StringBuilder body) {
+		addParameter(body, OAuth2ParameterNames.GRANT_TYPE, AuthorizationGrantType.JWT_BEARER.getValue());
+		addScopeParameter(body, clientRegistration.getScopes());
+		addClientSecretPostParameters(clientRegistration, body);
+	}
+
+	@Override
+	void addParameters(JwtBearerGrantRequest grantRequest, StringBuilder body) {
+		addParameter(body, OAuth2ParameterNames.ASSERTION, grantRequest.getJwt().getTokenValue());
+	}
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client.endpoint;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.endpoint.DefaultMapOAuth2AccessTokenResponseConverter;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AccessTokenResponse;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.util.StringUtils;
+
+/**
+ * Reads an OAuth 2.0 Access Token Response with a streaming JSON parser directly into an
+ * {@link OAuth2AccessTokenResponse}, without an intermediate {@code Map} of all the
+ * parameters. The parameters are interpreted like
+ * {@link DefaultMapOAuth2AccessTokenResponseConverter} does.
+ *
+ * @since 6.1
+ */
+final class JsonOAuth2AccessTokenResponseReader {
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private JsonOAuth2AccessTokenResponseReader() {
+	}
+
+	static OAuth2AccessTokenResponse read(InputStream body) throws IOException {
+		try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new JsonParseException(parser, "The Access Token Response must be a JSON object");
+			}
+			String accessToken = null;
+			OAuth2AccessToken.TokenType accessTokenType = null;
+			long expiresIn = 0;
+			Set<String> scopes = Collections.emptySet();
+			String refreshToken = null;
+			Map<String, Object> additionalParameters = new LinkedHashMap<>();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+				Object value = readValue(parser, parser.nextToken());
+				if (OAuth2ParameterNames.ACCESS_TOKEN.equals(name)) {
+					accessToken = toString(value);
+				}
+				else if (OAuth2ParameterNames.TOKEN_TYPE.equals(name)) {
+					accessTokenType = OAuth2AccessToken.TokenType.BEARER.getValue().equalsIgnoreCase(toString(value))
+							? OAuth2AccessToken.TokenType.BEARER : null;
+				}
+				else if (OAuth2ParameterNames.EXPIRES_IN.equals(name)) {
+					expiresIn = toLong(value);
+				}
+				else if (OAuth2ParameterNames.SCOPE.equals(name)) {
+					scopes = new HashSet<>(Arrays.asList(StringUtils.delimitedListToStringArray(toString(value), " ")));
+				}
+				else if (OAuth2ParameterNames.REFRESH_TOKEN.equals(name)) {
+					refreshToken = toString(value);
+				}
+				else {
+					additionalParameters.put(name, value);
+				}
+			}
+			// @formatter:off
+			return OAuth2AccessTokenResponse.withToken(accessToken)
+					.tokenType(accessTokenType)
+					.expiresIn(expiresIn)
+					.scopes(scopes)
+					.refreshToken(refreshToken)
+					.additionalParameters(additionalParameters)
+					.build();
+			// @formatter:on
+		}
+	}
+
+	private static Object readValue(JsonParser parser, JsonToken token) throws IOException {
+		if (token == JsonToken.START_OBJECT) {
+			Map<String, Object> object = new LinkedHashMap<>();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+				object.put(name, readValue(parser, parser.nextToken()));
+			}
+			return object;
+		}
+		if (token == JsonToken.START_ARRAY) {
+			List<Object> array = new ArrayList<>();
+			for (JsonToken element = parser.nextToken(); element != JsonToken.END_ARRAY; element = parser
+					.nextToken()) {
+				array.add(readValue(parser, element));
+			}
+			return array;
+		}
+		if (token == JsonToken.VALUE_STRING) {
+			return parser.getText();
+		}
+		if (token == JsonToken.VALUE_NUMBER_INT) {
+			return parser.getNumberValue();
+		}
+		if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+			return parser.getDoubleValue();
+		}
+		if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
+			return parser.getBooleanValue();
+		}
+		if (token == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		throw new JsonParseException(parser, "Unexpected token " + token);
+	}
+
+	private static String toString(Object value) {
+		return (value != null) ? value.toString() : null;
+	}
+
+	private static long toLong(Object value) {
+		if (value instanceof Long || value instanceof Integer) {
+			return ((Number) value).longValue();
+		}
+		if (value != null) {
+			try {
+				return Long.parseLong(value.toString());
+			}
+			catch (NumberFormatException ignored) {
+			}
+		}
+		return 0;
+	}
+
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client.registration;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.log.LogMessage;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link ClientRegistrationRepository} that obtains its {@link ClientRegistration}s
+ * from suppliers that typically perform OpenID Connect or OAuth 2.0 Authorization Server
+ * Metadata discovery, for example:
+ *
+ * <pre>
+ * Map&lt;String, Supplier&lt;ClientRegistration&gt;&gt; registrations = new LinkedHashMap&lt;&gt;();
+ * registrations.put("tenant-1", () -&gt; ClientRegistrations.fromIssuerLocation(issuer)
+ *     .registrationId("tenant-1")
+ *     .clientId(clientId)
+ *     .clientSecret(clientSecret)
+ *     .build());
+ * DiscoveryClientRegistrationRepository repository = new DiscoveryClientRegistrationRepository(registrations);
+ * repository.setRefreshInterval(Duration.ofHours(1));
+ * repository.afterPropertiesSet();
+ * </pre>
+ *
+ * <p>
+ * {@link #afterPropertiesSet()} discovers all registrations in parallel and waits at most
+ * the {@link #setDiscoveryTimeout(Duration) discovery timeout} for them. A registration
+ * whose discovery fails or times out is not available until a later refresh succeeds,
+ * but does not hold up the others. When a {@link #setRefreshInterval(Duration) refresh
+ * interval} is set, all registrations are discovered again on that schedule and the last
+ * good {@link ClientRegistration} is served until a refresh succeeds, so changes to the
+ * provider metadata are picked up without a restart.
+ *
+ * <p>
+ * The discovery timeout only bounds how long the repository waits: a discovery that
+ * times out keeps running, and is not started again until it returns. Suppliers should
+ * therefore bound their own I/O, as {@link ClientRegistrations} does with connect and
+ * read timeouts.
+ *
+ * @since 6.1
+ * @see ClientRegistrations
+ * @see DiscoveryReactiveClientRegistrationRepository
+ */
+public final class DiscoveryClientRegistrationRepository
+		implements ClientRegistrationRepository, Iterable<ClientRegistration>, InitializingBean, DisposableBean {
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private final Map<String, Supplier<ClientRegistration>> discoveries;
+
+	private final Map<String, ClientRegistration> registrations = new ConcurrentHashMap<>();
+
+	private final Map<String, CompletableFuture<ClientRegistration>> inFlight = new ConcurrentHashMap<>();
+
+	private Executor executor;
+
+	private ScheduledExecutorService scheduler;
+
+	private ExecutorService defaultExecutor;
+
+	private ScheduledExecutorService defaultScheduler;
+
+	private Duration discoveryTimeout = Duration.ofSeconds(30);
+
+	private Duration refreshInterval;
+
+	private ScheduledFuture<?> refresh;
+
+	/**
+	 * Constructs a {@code DiscoveryClientRegistrationRepository} using the provided
+	 * parameters.
+	 * @param discoveries the {@code Map} of
+	 * {@link ClientRegistration#getRegistrationId() registration id} to the
+	 * {@code Supplier} that discovers the {@link ClientRegistration}
+	 */
+	public DiscoveryClientRegistrationRepository(Map<String, Supplier<ClientRegistration>> discoveries) {
+		Assert.notEmpty(discoveries, "discoveries cannot be empty");
+		Assert.noNullElements(discoveries.values(), "discoveries cannot contain null values");
+		this.discoveries = Collections.unmodifiableMap(new LinkedHashMap<>(discoveries));
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		if (this.executor == null) {
+			this.defaultExecutor = defaultExecutor(this.discoveries.size());
+			this.executor = this.defaultExecutor;
+		}
+		refresh();
+		if (this.refreshInterval != null && this.refresh == null) {
+			if (this.scheduler == null) {
+				this.defaultScheduler = defaultScheduler();
+				this.scheduler = this.defaultScheduler;
+			}
+			long interval = this.refreshInterval.toMillis();
+			this.refresh = this.scheduler.scheduleWithFixedDelay(this::refresh, interval, interval,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		if (this.refresh != null) {
+			this.refresh.cancel(false);
+			this.refresh = null;
+		}
+		if (this.defaultScheduler != null) {
+			this.defaultScheduler.shutdown();
+			this.defaultScheduler = null;
+			this.scheduler = null;
+		}
+		if (this.defaultExecutor != null) {
+			this.defaultExecutor.shutdown();
+			this.defaultExecutor = null;
+			this.executor = null;
+		}
+	}
+
+	@Override
+	public ClientRegistration findByRegistrationId(String registrationId) {
+		Assert.hasText(registrationId, "registrationId cannot be empty");
+		return this.registrations.get(registrationId);
+	}
+
+	/**
+	 * Returns an {@code Iterator} of the {@link ClientRegistration}s that have been
+	 * discovered.
+	 * @return an {@code Iterator<ClientRegistration>}
+	 */
+	@Override
+	public Iterator<ClientRegistration> iterator() {
+		return Collections.unmodifiableCollection(this.registrations.values()).iterator();
+	}
+
+	/**
+	 * Discover all registrations in parallel and wait at most the discovery timeout for
+	 * them. A registration whose previous discovery is still in flight is not discovered
+	 * again.
+	 */
+	void refresh() {
+		Map<String, CompletableFuture<ClientRegistration>> discovered = new LinkedHashMap<>();
+		this.discoveries.forEach((registrationId, discovery) -> {
+			CompletableFuture<ClientRegistration> registration = discover(registrationId, discovery);
+			if (registration != null) {
+				discovered.put(registrationId, registration);
+			}
+		});
+		discovered.forEach(this::await);
+	}
+
+	private CompletableFuture<ClientRegistration> discover(String registrationId,
+			Supplier<ClientRegistration> discovery) {
+		CompletableFuture<ClientRegistration> registration = new CompletableFuture<>();
+		if (this.inFlight.putIfAbsent(registrationId, registration) != null) {
+			this.logger.debug(LogMessage
+					.format("Skipping the discovery of '%s' since the previous one is still in flight", registrationId));
+			return null;
+		}
+		try {
+			this.executor.execute(() -> discover(registrationId, discovery, registration));
+		}
+		catch (RuntimeException ex) {
+			this.inFlight.remove(registrationId, registration);
+			failed(registrationId, ex);
+			registration.completeExceptionally(ex);
+		}
+		return registration.copy().orTimeout(this.discoveryTimeout.toMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stores the registration even if the discovery timed out, and only then lets it be
+	 * discovered again
+	 */
+	private void discover(String registrationId, Supplier<ClientRegistration> discovery,
+			CompletableFuture<ClientRegistration> registration) {
+		ClientRegistration discovered;
+		try {
+			discovered = discovery.get();
+			Assert.state(discovered != null, () -> "Discovery of '" + registrationId + "' returned null");
+			Assert.state(registrationId.equals(discovered.getRegistrationId()), () -> "Discovered registration id '"
+					+ discovered.getRegistrationId() + "' does not match '" + registrationId + "'");
+			this.registrations.put(registrationId, discovered);
+		}
+		catch (Throwable ex) {
+			this.inFlight.remove(registrationId, registration);
+			failed(registrationId, ex);
+			registration.completeExceptionally(ex);
+			return;
+		}
+		this.inFlight.remove(registrationId, registration);
+		registration.complete(discovered);
+	}
+
+	private void await(String registrationId, CompletableFuture<ClientRegistration> discovery) {
+		try {
+			discovery.join();
+		}
+		catch (CompletionException ex) {
+			if (ex.getCause() instanceof TimeoutException) {
+				failed(registrationId, ex.getCause());
+			}
+		}
+	}
+
+	private void failed(String registrationId, Throwable ex) {
+		if (this.registrations.containsKey(registrationId)) {
+			this.logger.warn(LogMessage.format("Failed to refresh '%s', keeping the last discovered registration",
+					registrationId), ex);
+		}
+		else {
+			this.logger.warn(LogMessage.format("Failed to discover '%s'", registrationId), ex);
+		}
+	}
+
+	/**
+	 * Sets the {@link Executor} that runs the discoveries. Since discoveries block on
+	 * I/O, it should allow as many of them to run in parallel as there are
+	 * registrations, as the discovery timeout includes the time a discovery waits to be
+	 * run. The default is a pool of one daemon thread per registration, which is shut
+	 * down by {@link #destroy()}.
+	 * @param executor the {@link Executor} that runs the discoveries
+	 */
+	public void setExecutor(Executor executor) {
+		Assert.notNull(executor, "executor cannot be null");
+		this.executor = executor;
+	}
+
+	/**
+	 * Sets the {@link ScheduledExecutorService} that schedules the refresh. The default
+	 * is a single daemon thread, which is shut down by {@link #destroy()}.
+	 * @param scheduler the {@link ScheduledExecutorService} that schedules the refresh
+	 */
+	public void setScheduler(ScheduledExecutorService scheduler) {
+		Assert.notNull(scheduler, "scheduler cannot be null");
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Sets how long to wait for the discoveries. The default is 30 seconds.
+	 * @param discoveryTimeout how long to wait for the discoveries
+	 */
+	public void setDiscoveryTimeout(Duration discoveryTimeout) {
+		Assert.notNull(discoveryTimeout, "discoveryTimeout cannot be null");
+		Assert.isTrue(!discoveryTimeout.isNegative() && !discoveryTimeout.isZero(),
+				"discoveryTimeout must be positive");
+		this.discoveryTimeout = discoveryTimeout;
+	}
+
+	/**
+	 * Sets the interval at which all registrations are discovered again. By default,
+	 * registrations are only discovered by {@link #afterPropertiesSet()}.
+	 * @param refreshInterval the interval at which all registrations are discovered
+	 * again
+	 */
+	public void setRefreshInterval(Duration refreshInterval) {
+		Assert.notNull(refreshInterval, "refreshInterval cannot be null");
+		Assert.isTrue(!refreshInterval.isNegative() && !refreshInterval.isZero(), "refreshInterval must be positive");
+		this.refreshInterval = refreshInterval;
+	}
+
+	/**
+	 * At most one discovery per registration is in flight, so that they never wait for
+	 * one another
+	 */
+	private static ExecutorService defaultExecutor(int registrations) {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("client-registration-discovery-");
+		threadFactory.setDaemon(true);
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(registrations, registrations, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(registrations), threadFactory);
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	private static ScheduledExecutorService defaultScheduler() {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("client-registration-refresh-");
+		threadFactory.setDaemon(true);
+		ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, threadFactory);
+		scheduler.setRemoveOnCancelPolicy(true);
+		return scheduler;
+	}
+
+}
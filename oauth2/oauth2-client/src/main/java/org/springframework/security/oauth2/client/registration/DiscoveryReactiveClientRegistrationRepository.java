@@ -0,0 +1,246 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client.registration;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.log.LogMessage;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link ReactiveClientRegistrationRepository} that obtains its
+ * {@link ClientRegistration}s from suppliers that typically perform OpenID Connect or
+ * OAuth 2.0 Authorization Server Metadata discovery, like
+ * {@link DiscoveryClientRegistrationRepository}.
+ *
+ * <p>
+ * {@link #afterPropertiesSet()} starts discovering all registrations in parallel on the
+ * {@link #setDiscoveryScheduler(Scheduler) discovery scheduler} without waiting for
+ * them. Lookups of a registration that has not been discovered yet wait for the initial
+ * discovery to finish. A registration whose discovery fails or exceeds the
+ * {@link #setDiscoveryTimeout(Duration) discovery timeout} is not available until a
+ * later refresh succeeds, but does not hold up the others. When a
+ * {@link #setRefreshInterval(Duration) refresh interval} is set, all registrations are
+ * discovered again on that schedule and the last good {@link ClientRegistration} is
+ * served until a refresh succeeds.
+ *
+ * <p>
+ * The discovery timeout only bounds how long the repository waits: a discovery that
+ * times out keeps running, and is not started again until it returns. Suppliers should
+ * therefore bound their own I/O, as {@link ClientRegistrations} does with connect and
+ * read timeouts.
+ *
+ * @since 6.1
+ * @see ClientRegistrations
+ * @see DiscoveryClientRegistrationRepository
+ */
+public final class DiscoveryReactiveClientRegistrationRepository implements ReactiveClientRegistrationRepository,
+		Iterable<ClientRegistration>, InitializingBean, DisposableBean {
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private final Map<String, Supplier<ClientRegistration>> discoveries;
+
+	private final Map<String, ClientRegistration> registrations = new ConcurrentHashMap<>();
+
+	private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+	private Scheduler discoveryScheduler = Schedulers.boundedElastic();
+
+	private Scheduler refreshScheduler = Schedulers.parallel();
+
+	private Duration discoveryTimeout = Duration.ofSeconds(30);
+
+	private Duration refreshInterval;
+
+	private Mono<Void> initialDiscovery = Mono.empty();
+
+	private Disposable refresh;
+
+	/**
+	 * Constructs a {@code DiscoveryReactiveClientRegistrationRepository} using the
+	 * provided parameters.
+	 * @param discoveries the {@code Map} of
+	 * {@link ClientRegistration#getRegistrationId() registration id} to the
+	 * {@code Supplier} that discovers the {@link ClientRegistration}, which may block
+	 */
+	public DiscoveryReactiveClientRegistrationRepository(Map<String, Supplier<ClientRegistration>> discoveries) {
+		Assert.notEmpty(discoveries, "discoveries cannot be empty");
+		Assert.noNullElements(discoveries.values(), "discoveries cannot contain null values");
+		this.discoveries = Collections.unmodifiableMap(new LinkedHashMap<>(discoveries));
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		this.initialDiscovery = refresh().cache();
+		this.initialDiscovery.subscribe();
+		if (this.refreshInterval != null && this.refresh == null) {
+			// @formatter:off
+			this.refresh = Flux.interval(this.refreshInterval, this.refreshInterval, this.refreshScheduler)
+					.onBackpressureDrop()
+					.concatMap((tick) -> refresh())
+					.subscribe();
+			// @formatter:on
+		}
+	}
+
+	@Override
+	public void destroy() {
+		if (this.refresh != null) {
+			this.refresh.dispose();
+			this.refresh = null;
+		}
+	}
+
+	@Override
+	public Mono<ClientRegistration> findByRegistrationId(String registrationId) {
+		return Mono.defer(() -> {
+			ClientRegistration registration = this.registrations.get(registrationId);
+			if (registration != null) {
+				return Mono.just(registration);
+			}
+			return this.initialDiscovery.then(Mono.fromSupplier(() -> this.registrations.get(registrationId)));
+		});
+	}
+
+	/**
+	 * Returns an {@code Iterator} of the {@link ClientRegistration}s that have been
+	 * discovered.
+	 * @return an {@code Iterator<ClientRegistration>}
+	 */
+	@Override
+	public Iterator<ClientRegistration> iterator() {
+		return Collections.unmodifiableCollection(this.registrations.values()).iterator();
+	}
+
+	/**
+	 * Discover all registrations in parallel. A registration whose previous discovery
+	 * is still in flight is not discovered again.
+	 * @return a {@code Mono} that completes once all discoveries finished
+	 */
+	Mono<Void> refresh() {
+		// @formatter:off
+		return Flux.fromIterable(this.discoveries.entrySet())
+				.filter((discovery) -> this.inFlight.add(discovery.getKey()))
+				.flatMap((discovery) -> discover(discovery.getKey(), discovery.getValue()))
+				.then();
+		// @formatter:on
+	}
+
+	/**
+	 * The discovery is not cancelled by the timeout, so that it is only discovered again
+	 * once the supplier returns, and so that what it returns late is still stored
+	 */
+	private Mono<ClientRegistration> discover(String registrationId, Supplier<ClientRegistration> discovery) {
+		// @formatter:off
+		CompletableFuture<ClientRegistration> discovered = Mono.fromSupplier(discovery)
+				.subscribeOn(this.discoveryScheduler)
+				.switchIfEmpty(Mono.error(() -> new IllegalStateException(
+						"Discovery of '" + registrationId + "' returned null")))
+				.doOnNext((registration) -> {
+					Assert.state(registrationId.equals(registration.getRegistrationId()),
+							() -> "Discovered registration id '" + registration.getRegistrationId()
+									+ "' does not match '" + registrationId + "'");
+					this.registrations.put(registrationId, registration);
+				})
+				.doOnError((ex) -> failed(registrationId, ex))
+				.doOnTerminate(() -> this.inFlight.remove(registrationId))
+				.toFuture();
+		return Mono.fromFuture(discovered, true)
+				.timeout(this.discoveryTimeout)
+				.onErrorResume((ex) -> {
+					if (ex instanceof TimeoutException) {
+						failed(registrationId, ex);
+					}
+					return Mono.empty();
+				});
+		// @formatter:on
+	}
+
+	private void failed(String registrationId, Throwable ex) {
+		if (this.registrations.containsKey(registrationId)) {
+			this.logger.warn(LogMessage.format("Failed to refresh '%s', keeping the last discovered registration",
+					registrationId), ex);
+		}
+		else {
+			this.logger.warn(LogMessage.format("Failed to discover '%s'", registrationId), ex);
+		}
+	}
+
+	/**
+	 * Sets the {@link Scheduler} that runs the discoveries, which may block. The default
+	 * is {@link Schedulers#boundedElastic()}.
+	 * @param discoveryScheduler the {@link Scheduler} that runs the discoveries
+	 */
+	public void setDiscoveryScheduler(Scheduler discoveryScheduler) {
+		Assert.notNull(discoveryScheduler, "discoveryScheduler cannot be null");
+		this.discoveryScheduler = discoveryScheduler;
+	}
+
+	/**
+	 * Sets the {@link Scheduler} that schedules the refresh. The default is
+	 * {@link Schedulers#parallel()}.
+	 * @param refreshScheduler the {@link Scheduler} that schedules the refresh
+	 */
+	public void setRefreshScheduler(Scheduler refreshScheduler) {
+		Assert.notNull(refreshScheduler, "refreshScheduler cannot be null");
+		this.refreshScheduler = refreshScheduler;
+	}
+
+	/**
+	 * Sets how long to wait for each discovery. The default is 30 seconds.
+	 * @param discoveryTimeout how long to wait for each discovery
+	 */
+	public void setDiscoveryTimeout(Duration discoveryTimeout) {
+		Assert.notNull(discoveryTimeout, "discoveryTimeout cannot be null");
+		Assert.isTrue(!discoveryTimeout.isNegative() && !discoveryTimeout.isZero(),
+				"discoveryTimeout must be positive");
+		this.discoveryTimeout = discoveryTimeout;
+	}
+
+	/**
+	 * Sets the interval at which all registrations are discovered again. By default,
+	 * registrations are only discovered by {@link #afterPropertiesSet()}.
+	 * @param refreshInterval the interval at which all registrations are discovered
+	 * again
+	 */
+	public void setRefreshInterval(Duration refreshInterval) {
+		Assert.notNull(refreshInterval, "refreshInterval cannot be null");
+		Assert.isTrue(!refreshInterval.isNegative() && !refreshInterval.isZero(), "refreshInterval must be positive");
+		this.refreshInterval = refreshInterval;
+	}
+
+}
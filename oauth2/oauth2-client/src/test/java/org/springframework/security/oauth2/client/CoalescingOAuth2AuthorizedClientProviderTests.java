@@ -0,0 +1,229 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.client.endpoint.OAuth2AccessTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2ClientCredentialsGrantRequest;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.TestClientRegistrations;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthorizationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AccessTokenResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link CoalescingOAuth2AuthorizedClientProvider}.
+ */
+public class CoalescingOAuth2AuthorizedClientProviderTests {
+
+	private final Instant now = Instant.now();
+
+	private final AtomicInteger tokenRequests = new AtomicInteger();
+
+	private ClientCredentialsOAuth2AuthorizedClientProvider clientCredentials;
+
+	private CoalescingOAuth2AuthorizedClientProvider authorizedClientProvider;
+
+	private ClientRegistration clientRegistration;
+
+	private Authentication principal;
+
+	@BeforeEach
+	public void setup() {
+		this.clientCredentials = new ClientCredentialsOAuth2AuthorizedClientProvider();
+		this.clientCredentials.setAccessTokenResponseClient(tokenResponses((request) -> {
+		}));
+		this.clientCredentials.setClock(Clock.fixed(this.now, ZoneOffset.UTC));
+		this.authorizedClientProvider = new CoalescingOAuth2AuthorizedClientProvider(this.clientCredentials);
+		this.authorizedClientProvider.setClock(Clock.fixed(this.now, ZoneOffset.UTC));
+		this.clientRegistration = TestClientRegistrations.clientCredentials().build();
+		this.principal = new TestingAuthenticationToken("principal", "password");
+	}
+
+	@Test
+	public void constructorWhenDelegateIsNullThenThrowIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new CoalescingOAuth2AuthorizedClientProvider(null))
+				.withMessage("delegate cannot be null");
+	}
+
+	@Test
+	public void setRefreshAheadWindowWhenNotPositiveThenThrowIllegalArgumentException() {
+		assertThatIllegalArgumentException()
+				.isThrownBy(() -> this.authorizedClientProvider.setRefreshAheadWindow(Duration.ZERO))
+				.withMessage("refreshAheadWindow must be positive");
+	}
+
+	@Test
+	public void authorizeWhenTokenNotExpiredThenNotReauthorized() {
+		OAuth2AuthorizedClient authorizedClient = authorizedClient(this.now.plus(Duration.ofHours(1)));
+		assertThat(this.authorizedClientProvider.authorize(context(authorizedClient))).isNull();
+		assertThat(this.tokenRequests).hasValue(0);
+	}
+
+	@Test
+	public void authorizeWhenConcurrentThenTokenRequestedOnce() throws Exception {
+		CountDownLatch requesting = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		this.clientCredentials.setAccessTokenResponseClient(tokenResponses((request) -> {
+			requesting.countDown();
+			await(release);
+		}));
+		OAuth2AuthorizationContext context = context(authorizedClient(this.now.minus(Duration.ofMinutes(5))));
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<OAuth2AuthorizedClient> first = executor
+					.submit(() -> this.authorizedClientProvider.authorize(context));
+			assertThat(requesting.await(5, TimeUnit.SECONDS)).isTrue();
+			Future<OAuth2AuthorizedClient> second = executor
+					.submit(() -> this.authorizedClientProvider.authorize(context));
+			Thread.sleep(50);
+			assertThat(second).isNotDone();
+			release.countDown();
+			OAuth2AuthorizedClient authorizedClient = first.get(5, TimeUnit.SECONDS);
+			assertThat(authorizedClient.getAccessToken().getTokenValue()).isEqualTo("token-1");
+			assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(authorizedClient);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		assertThat(this.tokenRequests).hasValue(1);
+	}
+
+	@Test
+	public void authorizeWhenWithinRefreshAheadWindowThenRenewedInBackground() {
+		this.authorizedClientProvider.setRefreshAheadWindow(Duration.ofMinutes(1));
+		this.authorizedClientProvider.setExecutor(Runnable::run);
+		OAuth2AuthorizedClient authorizedClient = authorizedClient(this.now.plus(Duration.ofSeconds(90)));
+		assertThat(this.authorizedClientProvider.authorize(context(authorizedClient))).isNull();
+		assertThat(this.tokenRequests).hasValue(1);
+		OAuth2AuthorizedClient renewedClient = this.authorizedClientProvider.authorize(context(authorizedClient));
+		assertThat(renewedClient.getAccessToken().getTokenValue()).isEqualTo("token-1");
+		assertThat(this.authorizedClientProvider.authorize(context(renewedClient))).isNull();
+		assertThat(this.tokenRequests).hasValue(1);
+	}
+
+	@Test
+	public void authorizeWhenOutsideRefreshAheadWindowThenNotRenewed() {
+		this.authorizedClientProvider.setRefreshAheadWindow(Duration.ofMinutes(1));
+		this.authorizedClientProvider.setExecutor(Runnable::run);
+		OAuth2AuthorizedClient authorizedClient = authorizedClient(this.now.plus(Duration.ofMinutes(3)));
+		assertThat(this.authorizedClientProvider.authorize(context(authorizedClient))).isNull();
+		assertThat(this.tokenRequests).hasValue(0);
+	}
+
+	@Test
+	public void authorizeWhenClientRemovedAfterRenewalThenRenewedClientNotReturned() {
+		this.authorizedClientProvider.setRefreshAheadWindow(Duration.ofMinutes(1));
+		this.authorizedClientProvider.setExecutor(Runnable::run);
+		OAuth2AuthorizedClient authorizedClient = authorizedClient(this.now.plus(Duration.ofSeconds(90)));
+		assertThat(this.authorizedClientProvider.authorize(context(authorizedClient))).isNull();
+		// @formatter:off
+		OAuth2AuthorizationContext removed = OAuth2AuthorizationContext.withClientRegistration(this.clientRegistration)
+				.principal(this.principal)
+				.build();
+		// @formatter:on
+		OAuth2AuthorizedClient reauthorizedClient = this.authorizedClientProvider.authorize(removed);
+		assertThat(reauthorizedClient.getAccessToken().getTokenValue()).isEqualTo("token-2");
+		assertThat(this.authorizedClientProvider.authorize(context(authorizedClient))).isNull();
+		assertThat(this.tokenRequests).hasValue(3);
+	}
+
+	@Test
+	public void authorizeWhenClientReplacedAfterRenewalThenRenewedClientNotReturned() {
+		this.authorizedClientProvider.setRefreshAheadWindow(Duration.ofMinutes(1));
+		this.authorizedClientProvider.setExecutor(Runnable::run);
+		OAuth2AuthorizedClient authorizedClient = authorizedClient(this.now.plus(Duration.ofSeconds(90)));
+		assertThat(this.authorizedClientProvider.authorize(context(authorizedClient))).isNull();
+		OAuth2AccessToken otherToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "other",
+				this.now, this.now.plus(Duration.ofHours(1)));
+		OAuth2AuthorizedClient otherClient = new OAuth2AuthorizedClient(this.clientRegistration,
+				this.principal.getName(), otherToken);
+		assertThat(this.authorizedClientProvider.authorize(context(otherClient))).isNull();
+		assertThat(this.tokenRequests).hasValue(1);
+	}
+
+	@Test
+	public void authorizeWhenRenewalFailsThenCurrentClientKept() {
+		this.clientCredentials.setAccessTokenResponseClient(tokenResponses((request) -> {
+			throw new OAuth2AuthorizationException(new OAuth2Error("server_error"));
+		}));
+		this.authorizedClientProvider.setRefreshAheadWindow(Duration.ofMinutes(1));
+		this.authorizedClientProvider.setExecutor(Runnable::run);
+		OAuth2AuthorizedClient authorizedClient = authorizedClient(this.now.plus(Duration.ofSeconds(90)));
+		assertThat(this.authorizedClientProvider.authorize(context(authorizedClient))).isNull();
+		assertThat(this.authorizedClientProvider.authorize(context(authorizedClient))).isNull();
+		assertThat(this.tokenRequests).hasValue(2);
+	}
+
+	private OAuth2AccessTokenResponseClient<OAuth2ClientCredentialsGrantRequest> tokenResponses(
+			Consumer<OAuth2ClientCredentialsGrantRequest> onRequest) {
+		return (request) -> {
+			int tokenRequest = this.tokenRequests.incrementAndGet();
+			onRequest.accept(request);
+			// @formatter:off
+			return OAuth2AccessTokenResponse.withToken("token-" + tokenRequest)
+					.tokenType(OAuth2AccessToken.TokenType.BEARER)
+					.expiresIn(3600)
+					.build();
+			// @formatter:on
+		};
+	}
+
+	private OAuth2AuthorizedClient authorizedClient(Instant expiresAt) {
+		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "token-0",
+				expiresAt.minus(Duration.ofHours(1)), expiresAt);
+		return new OAuth2AuthorizedClient(this.clientRegistration, this.principal.getName(), accessToken);
+	}
+
+	private OAuth2AuthorizationContext context(OAuth2AuthorizedClient authorizedClient) {
+		// @formatter:off
+		return OAuth2AuthorizationContext.withAuthorizedClient(authorizedClient)
+				.principal(this.principal)
+				.build();
+		// @formatter:on
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
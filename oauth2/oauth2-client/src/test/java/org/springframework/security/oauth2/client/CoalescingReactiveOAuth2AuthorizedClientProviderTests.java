@@ -0,0 +1,166 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.TestClientRegistrations;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthorizationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AccessTokenResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link CoalescingReactiveOAuth2AuthorizedClientProvider}.
+ */
+public class CoalescingReactiveOAuth2AuthorizedClientProviderTests {
+
+	private final Instant now = Instant.now();
+
+	private final AtomicInteger tokenRequests = new AtomicInteger();
+
+	private ClientCredentialsReactiveOAuth2AuthorizedClientProvider clientCredentials;
+
+	private CoalescingReactiveOAuth2AuthorizedClientProvider authorizedClientProvider;
+
+	private ClientRegistration clientRegistration;
+
+	private Authentication principal;
+
+	@BeforeEach
+	public void setup() {
+		this.clientCredentials = new ClientCredentialsReactiveOAuth2AuthorizedClientProvider();
+		this.clientCredentials.setAccessTokenResponseClient((request) -> Mono.fromSupplier(this::tokenResponse));
+		this.clientCredentials.setClock(Clock.fixed(this.now, ZoneOffset.UTC));
+		this.authorizedClientProvider = new CoalescingReactiveOAuth2AuthorizedClientProvider(this.clientCredentials);
+		this.authorizedClientProvider.setClock(Clock.fixed(this.now, ZoneOffset.UTC));
+		this.clientRegistration = TestClientRegistrations.clientCredentials().build();
+		this.principal = new TestingAuthenticationToken("principal", "password");
+	}
+
+	@Test
+	public void constructorWhenDelegateIsNullThenThrowIllegalArgumentException() {
+		assertThatIllegalArgumentException()
+				.isThrownBy(() -> new CoalescingReactiveOAuth2AuthorizedClientProvider(null))
+				.withMessage("delegate cannot be null");
+	}
+
+	@Test
+	public void authorizeWhenTokenNotExpiredThenNotReauthorized() {
+		OAuth2AuthorizedClient authorizedClient = authorizedClient(this.now.plus(Duration.ofHours(1)));
+		StepVerifier.create(this.authorizedClientProvider.authorize(context(authorizedClient))).verifyComplete();
+		assertThat(this.tokenRequests).hasValue(0);
+	}
+
+	@Test
+	public void authorizeWhenConcurrentThenTokenRequestedOnce() {
+		Sinks.One<OAuth2AccessTokenResponse> tokenResponse = Sinks.one();
+		this.clientCredentials.setAccessTokenResponseClient((request) -> tokenResponse.asMono());
+		OAuth2AuthorizationContext context = context(authorizedClient(this.now.minus(Duration.ofMinutes(5))));
+		Mono<OAuth2AuthorizedClient> first = this.authorizedClientProvider.authorize(context);
+		Mono<OAuth2AuthorizedClient> second = this.authorizedClientProvider.authorize(context);
+		StepVerifier.create(Mono.zip(first, second))
+				.then(() -> tokenResponse.tryEmitValue(tokenResponse()))
+				.assertNext((both) -> assertThat(both.getT2()).isSameAs(both.getT1()))
+				.verifyComplete();
+		assertThat(this.tokenRequests).hasValue(1);
+	}
+
+	@Test
+	public void authorizeWhenWithinRefreshAheadWindowThenRenewedInBackground() {
+		this.authorizedClientProvider.setRefreshAheadWindow(Duration.ofMinutes(1));
+		OAuth2AuthorizedClient authorizedClient = authorizedClient(this.now.plus(Duration.ofSeconds(90)));
+		StepVerifier.create(this.authorizedClientProvider.authorize(context(authorizedClient))).verifyComplete();
+		assertThat(this.tokenRequests).hasValue(1);
+		OAuth2AuthorizedClient renewedClient = this.authorizedClientProvider.authorize(context(authorizedClient))
+				.block();
+		assertThat(renewedClient.getAccessToken().getTokenValue()).isEqualTo("token-1");
+		StepVerifier.create(this.authorizedClientProvider.authorize(context(renewedClient))).verifyComplete();
+		assertThat(this.tokenRequests).hasValue(1);
+	}
+
+	@Test
+	public void authorizeWhenClientRemovedAfterRenewalThenRenewedClientNotReturned() {
+		this.authorizedClientProvider.setRefreshAheadWindow(Duration.ofMinutes(1));
+		OAuth2AuthorizedClient authorizedClient = authorizedClient(this.now.plus(Duration.ofSeconds(90)));
+		StepVerifier.create(this.authorizedClientProvider.authorize(context(authorizedClient))).verifyComplete();
+		// @formatter:off
+		OAuth2AuthorizationContext removed = OAuth2AuthorizationContext.withClientRegistration(this.clientRegistration)
+				.principal(this.principal)
+				.build();
+		// @formatter:on
+		StepVerifier.create(this.authorizedClientProvider.authorize(removed))
+				.assertNext((client) -> assertThat(client.getAccessToken().getTokenValue()).isEqualTo("token-2"))
+				.verifyComplete();
+		StepVerifier.create(this.authorizedClientProvider.authorize(context(authorizedClient))).verifyComplete();
+		assertThat(this.tokenRequests).hasValue(3);
+	}
+
+	@Test
+	public void authorizeWhenRenewalFailsThenCurrentClientKept() {
+		this.clientCredentials.setAccessTokenResponseClient((request) -> Mono.defer(() -> {
+			this.tokenRequests.incrementAndGet();
+			return Mono.error(new OAuth2AuthorizationException(new OAuth2Error("server_error")));
+		}));
+		this.authorizedClientProvider.setRefreshAheadWindow(Duration.ofMinutes(1));
+		OAuth2AuthorizedClient authorizedClient = authorizedClient(this.now.plus(Duration.ofSeconds(90)));
+		StepVerifier.create(this.authorizedClientProvider.authorize(context(authorizedClient))).verifyComplete();
+		StepVerifier.create(this.authorizedClientProvider.authorize(context(authorizedClient))).verifyComplete();
+		assertThat(this.tokenRequests).hasValue(2);
+	}
+
+	private OAuth2AccessTokenResponse tokenResponse() {
+		int tokenRequest = this.tokenRequests.incrementAndGet();
+		// @formatter:off
+		return OAuth2AccessTokenResponse.withToken("token-" + tokenRequest)
+				.tokenType(OAuth2AccessToken.TokenType.BEARER)
+				.expiresIn(3600)
+				.build();
+		// @formatter:on
+	}
+
+	private OAuth2AuthorizedClient authorizedClient(Instant expiresAt) {
+		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "token-0",
+				expiresAt.minus(Duration.ofHours(1)), expiresAt);
+		return new OAuth2AuthorizedClient(this.clientRegistration, this.principal.getName(), accessToken);
+	}
+
+	private OAuth2AuthorizationContext context(OAuth2AuthorizedClient authorizedClient) {
+		// @formatter:off
+		return OAuth2AuthorizationContext.withAuthorizedClient(authorizedClient)
+				.principal(this.principal)
+				.build();
+		// @formatter:on
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2023 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,18 +21,24 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
 import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcOperations;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementSetter;
@@ -56,12 +62,19 @@ import org.springframework.util.StringUtils;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
 import static org.assertj.core.api.Assertions.within;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willCallRealMethod;
+import static org.mockito.BDDMockito.willThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 /**
@@ -339,6 +352,254 @@ public class JdbcOAuth2AuthorizedClientServiceTests {
 		assertThat(authorizedClient).isNull();
 	}
 
+	@Test
+	public void setUpsertDialectWhenNullThenThrowIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.authorizedClientService.setUpsertDialect(null))
+				.withMessage("upsertDialect cannot be null");
+	}
+
+	@Test
+	public void setWriteBehindBatchSizeWhenWriteBehindIntervalSetThenThrowIllegalStateException() {
+		this.authorizedClientService.setWriteBehindInterval(Duration.ofMinutes(1));
+		assertThatIllegalStateException().isThrownBy(() -> this.authorizedClientService.setWriteBehindBatchSize(10));
+	}
+
+	@Test
+	public void saveAuthorizedClientWhenUpsertDialectThenInsertsAndUpdates() {
+		EmbeddedDatabase db = createDb(EmbeddedDatabaseType.H2, OAUTH2_CLIENT_SCHEMA_SQL_RESOURCE);
+		try {
+			JdbcOperations jdbcOperations = spy(new JdbcTemplate(db));
+			JdbcOAuth2AuthorizedClientService authorizedClientService = new JdbcOAuth2AuthorizedClientService(
+					jdbcOperations, this.clientRegistrationRepository);
+			authorizedClientService.setUpsertDialect(JdbcOAuth2AuthorizedClientService.UpsertDialect.H2);
+			Authentication principal = createPrincipal();
+			OAuth2AuthorizedClient authorizedClient = createAuthorizedClient(principal, this.clientRegistration);
+			authorizedClientService.saveAuthorizedClient(authorizedClient, principal);
+			OAuth2AuthorizedClient updatedClient = createAuthorizedClient(principal, this.clientRegistration, true);
+			authorizedClientService.saveAuthorizedClient(updatedClient, principal);
+			verify(jdbcOperations, never()).query(anyString(), any(PreparedStatementSetter.class),
+					any(RowMapper.class));
+			OAuth2AuthorizedClient savedClient = authorizedClientService
+					.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), principal.getName());
+			assertThat(savedClient.getAccessToken().getTokenValue())
+					.isEqualTo(updatedClient.getAccessToken().getTokenValue());
+			assertThat(savedClient.getAccessToken().getScopes()).isEmpty();
+			assertThat(savedClient.getRefreshToken()).isNull();
+		}
+		finally {
+			db.shutdown();
+		}
+	}
+
+	@Test
+	public void saveAuthorizedClientsWhenUpsertDialectThenBatchUpdate() {
+		EmbeddedDatabase db = createDb(EmbeddedDatabaseType.H2, OAUTH2_CLIENT_SCHEMA_SQL_RESOURCE);
+		try {
+			JdbcOperations jdbcOperations = spy(new JdbcTemplate(db));
+			JdbcOAuth2AuthorizedClientService authorizedClientService = new JdbcOAuth2AuthorizedClientService(
+					jdbcOperations, this.clientRegistrationRepository);
+			authorizedClientService.setUpsertDialect(JdbcOAuth2AuthorizedClientService.UpsertDialect.H2);
+			Authentication principal1 = createPrincipal();
+			Authentication principal2 = createPrincipal();
+			authorizedClientService.saveAuthorizedClients(Arrays.asList(
+					new JdbcOAuth2AuthorizedClientService.OAuth2AuthorizedClientHolder(
+							createAuthorizedClient(principal1, this.clientRegistration), principal1),
+					new JdbcOAuth2AuthorizedClientService.OAuth2AuthorizedClientHolder(
+							createAuthorizedClient(principal2, this.clientRegistration), principal2)));
+			verify(jdbcOperations).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+			assertThat((OAuth2AuthorizedClient) authorizedClientService
+					.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), principal1.getName())).isNotNull();
+			assertThat((OAuth2AuthorizedClient) authorizedClientService
+					.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), principal2.getName())).isNotNull();
+		}
+		finally {
+			db.shutdown();
+		}
+	}
+
+	@Test
+	public void loadAuthorizedClientWhenCachedThenNotQueriedAgain() {
+		JdbcOperations jdbcOperations = spy(this.jdbcOperations);
+		JdbcOAuth2AuthorizedClientService authorizedClientService = new JdbcOAuth2AuthorizedClientService(
+				jdbcOperations, this.clientRegistrationRepository);
+		authorizedClientService.setCacheMaximumSize(10);
+		Authentication principal = createPrincipal();
+		OAuth2AuthorizedClient authorizedClient = createAuthorizedClient(principal, this.clientRegistration);
+		this.authorizedClientService.saveAuthorizedClient(authorizedClient, principal);
+		OAuth2AuthorizedClient loaded = authorizedClientService
+				.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), principal.getName());
+		assertThat(loaded).isNotNull();
+		assertThat((OAuth2AuthorizedClient) authorizedClientService
+				.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), principal.getName()))
+				.isSameAs(loaded);
+		verify(jdbcOperations, times(1)).query(anyString(), any(PreparedStatementSetter.class),
+				any(RowMapper.class));
+		authorizedClientService.removeAuthorizedClient(this.clientRegistration.getRegistrationId(),
+				principal.getName());
+		assertThat((OAuth2AuthorizedClient) authorizedClientService
+				.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), principal.getName())).isNull();
+	}
+
+	@Test
+	public void loadAuthorizedClientWhenSavedWhileReadingThenReadNotCached() {
+		JdbcOperations jdbcOperations = spy(this.jdbcOperations);
+		JdbcOAuth2AuthorizedClientService authorizedClientService = new JdbcOAuth2AuthorizedClientService(
+				jdbcOperations, this.clientRegistrationRepository);
+		authorizedClientService.setCacheMaximumSize(10);
+		Authentication principal = createPrincipal();
+		OAuth2AuthorizedClient authorizedClient = createAuthorizedClient(principal, this.clientRegistration);
+		OAuth2AuthorizedClient updatedClient = createAuthorizedClient(principal, this.clientRegistration, true);
+		this.authorizedClientService.saveAuthorizedClient(authorizedClient, principal);
+		AtomicBoolean saved = new AtomicBoolean();
+		willAnswer((invocation) -> {
+			Object result = invocation.callRealMethod();
+			if (saved.compareAndSet(false, true)) {
+				authorizedClientService.saveAuthorizedClient(updatedClient, principal);
+			}
+			return result;
+		}).given(jdbcOperations).query(anyString(), any(PreparedStatementSetter.class), any(RowMapper.class));
+		OAuth2AuthorizedClient loaded = authorizedClientService
+				.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), principal.getName());
+		assertThat(loaded).isNotSameAs(updatedClient);
+		assertThat((OAuth2AuthorizedClient) authorizedClientService
+				.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), principal.getName()))
+				.isSameAs(updatedClient);
+	}
+
+	@Test
+	public void saveAuthorizedClientWhenWriteBehindBatchesPendingThenSingleFlushRequested() {
+		ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+		this.authorizedClientService.setWriteBehindBatchSize(1);
+		this.authorizedClientService.setWriteBehindInterval(Duration.ofHours(1));
+		this.authorizedClientService.setWriteBehindScheduler(scheduler);
+		for (int i = 0; i < 3; i++) {
+			Authentication principal = createPrincipal();
+			this.authorizedClientService.saveAuthorizedClient(createAuthorizedClient(principal, this.clientRegistration),
+					principal);
+		}
+		verify(scheduler).execute(any(Runnable.class));
+	}
+
+	@Test
+	public void saveAuthorizedClientWhenDestroyedThenWrittenImmediately() {
+		this.authorizedClientService.setWriteBehindInterval(Duration.ofHours(1));
+		this.authorizedClientService.destroy();
+		Authentication principal = createPrincipal();
+		this.authorizedClientService.saveAuthorizedClient(createAuthorizedClient(principal, this.clientRegistration),
+				principal);
+		JdbcOAuth2AuthorizedClientService reader = new JdbcOAuth2AuthorizedClientService(this.jdbcOperations,
+				this.clientRegistrationRepository);
+		assertThat((OAuth2AuthorizedClient) reader.loadAuthorizedClient(this.clientRegistration.getRegistrationId(),
+				principal.getName())).isNotNull();
+	}
+
+	@Test
+	public void saveAuthorizedClientWhenWriteBehindThenWrittenOnFlush() {
+		this.authorizedClientService.setWriteBehindInterval(Duration.ofHours(1));
+		Authentication principal = createPrincipal();
+		OAuth2AuthorizedClient authorizedClient = createAuthorizedClient(principal, this.clientRegistration);
+		OAuth2AuthorizedClient updatedClient = createAuthorizedClient(principal, this.clientRegistration, true);
+		this.authorizedClientService.saveAuthorizedClient(authorizedClient, principal);
+		this.authorizedClientService.saveAuthorizedClient(updatedClient, principal);
+		assertThat((OAuth2AuthorizedClient) this.authorizedClientService
+				.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), principal.getName()))
+				.isSameAs(updatedClient);
+		JdbcOAuth2AuthorizedClientService reader = new JdbcOAuth2AuthorizedClientService(this.jdbcOperations,
+				this.clientRegistrationRepository);
+		assertThat((OAuth2AuthorizedClient) reader.loadAuthorizedClient(this.clientRegistration.getRegistrationId(),
+				principal.getName())).isNull();
+		this.authorizedClientService.flush();
+		OAuth2AuthorizedClient savedClient = reader.loadAuthorizedClient(this.clientRegistration.getRegistrationId(),
+				principal.getName());
+		assertThat(savedClient.getAccessToken().getTokenValue())
+				.isEqualTo(updatedClient.getAccessToken().getTokenValue());
+		this.authorizedClientService.destroy();
+	}
+
+	@Test
+	public void removeAuthorizedClientWhenWriteBehindPendingThenNotWritten() {
+		this.authorizedClientService.setWriteBehindInterval(Duration.ofHours(1));
+		Authentication principal = createPrincipal();
+		OAuth2AuthorizedClient authorizedClient = createAuthorizedClient(principal, this.clientRegistration);
+		this.authorizedClientService.saveAuthorizedClient(authorizedClient, principal);
+		this.authorizedClientService.removeAuthorizedClient(this.clientRegistration.getRegistrationId(),
+				principal.getName());
+		this.authorizedClientService.destroy();
+		assertThat((OAuth2AuthorizedClient) this.authorizedClientService
+				.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), principal.getName())).isNull();
+	}
+
+	@Test
+	public void flushWhenWriteBehindSaveFailsThenDroppedAndOthersWritten() {
+		this.authorizedClientService.setWriteBehindInterval(Duration.ofHours(1));
+		Authentication principal = createPrincipal();
+		Authentication invalidPrincipal = new TestingAuthenticationToken("principal".repeat(50), "password");
+		this.authorizedClientService.saveAuthorizedClient(
+				createAuthorizedClient(invalidPrincipal, this.clientRegistration), invalidPrincipal);
+		this.authorizedClientService.saveAuthorizedClient(createAuthorizedClient(principal, this.clientRegistration),
+				principal);
+		this.authorizedClientService.flush();
+		JdbcOAuth2AuthorizedClientService reader = new JdbcOAuth2AuthorizedClientService(this.jdbcOperations,
+				this.clientRegistrationRepository);
+		assertThat((OAuth2AuthorizedClient) reader.loadAuthorizedClient(this.clientRegistration.getRegistrationId(),
+				principal.getName())).isNotNull();
+		assertThat((OAuth2AuthorizedClient) this.authorizedClientService.loadAuthorizedClient(
+				this.clientRegistration.getRegistrationId(), invalidPrincipal.getName())).isNull();
+		this.authorizedClientService.destroy();
+	}
+
+	@Test
+	public void flushWhenDatabaseUnavailableThenKeptPending() {
+		JdbcOperations jdbcOperations = spy(this.jdbcOperations);
+		JdbcOAuth2AuthorizedClientService authorizedClientService = new JdbcOAuth2AuthorizedClientService(
+				jdbcOperations, this.clientRegistrationRepository);
+		authorizedClientService.setWriteBehindInterval(Duration.ofHours(1));
+		Authentication principal = createPrincipal();
+		OAuth2AuthorizedClient authorizedClient = createAuthorizedClient(principal, this.clientRegistration);
+		authorizedClientService.saveAuthorizedClient(authorizedClient, principal);
+		willThrow(new CannotGetJdbcConnectionException("unavailable")).given(jdbcOperations)
+				.query(anyString(), any(PreparedStatementSetter.class), any(RowMapper.class));
+		assertThatExceptionOfType(CannotGetJdbcConnectionException.class)
+				.isThrownBy(authorizedClientService::flush);
+		assertThat((OAuth2AuthorizedClient) authorizedClientService
+				.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), principal.getName()))
+				.isSameAs(authorizedClient);
+		willCallRealMethod().given(jdbcOperations).query(anyString(), any(PreparedStatementSetter.class),
+				any(RowMapper.class));
+		authorizedClientService.destroy();
+		JdbcOAuth2AuthorizedClientService reader = new JdbcOAuth2AuthorizedClientService(this.jdbcOperations,
+				this.clientRegistrationRepository);
+		assertThat((OAuth2AuthorizedClient) reader.loadAuthorizedClient(this.clientRegistration.getRegistrationId(),
+				principal.getName())).isNotNull();
+	}
+
+	@Test
+	public void saveAuthorizedClientWhenWriteBehindFullThenWrittenImmediately() {
+		this.authorizedClientService.setWriteBehindBatchSize(1);
+		this.authorizedClientService.setWriteBehindCapacity(1);
+		this.authorizedClientService.setWriteBehindInterval(Duration.ofHours(1));
+		this.authorizedClientService.setWriteBehindScheduler(mock(ScheduledExecutorService.class));
+		Authentication pendingPrincipal = createPrincipal();
+		Authentication principal = createPrincipal();
+		this.authorizedClientService.saveAuthorizedClient(
+				createAuthorizedClient(pendingPrincipal, this.clientRegistration), pendingPrincipal);
+		this.authorizedClientService.saveAuthorizedClient(createAuthorizedClient(principal, this.clientRegistration),
+				principal);
+		JdbcOAuth2AuthorizedClientService reader = new JdbcOAuth2AuthorizedClientService(this.jdbcOperations,
+				this.clientRegistrationRepository);
+		assertThat((OAuth2AuthorizedClient) reader.loadAuthorizedClient(this.clientRegistration.getRegistrationId(),
+				pendingPrincipal.getName())).isNull();
+		assertThat((OAuth2AuthorizedClient) reader.loadAuthorizedClient(this.clientRegistration.getRegistrationId(),
+				principal.getName())).isNotNull();
+	}
+
+	@Test
+	public void setWriteBehindCapacityWhenLessThanBatchSizeThenThrowIllegalArgumentException() {
+		this.authorizedClientService.setWriteBehindCapacity(10);
+		assertThatIllegalArgumentException()
+				.isThrownBy(() -> this.authorizedClientService.setWriteBehindInterval(Duration.ofMinutes(1)));
+	}
+
 	@Test
 	public void tableDefinitionWhenCustomThenAbleToOverride() {
 		CustomTableDefinitionJdbcOAuth2AuthorizedClientService customAuthorizedClientService = new CustomTableDefinitionJdbcOAuth2AuthorizedClientService(
@@ -361,10 +622,14 @@ public class JdbcOAuth2AuthorizedClientServiceTests {
 	}
 
 	private static EmbeddedDatabase createDb(String schema) {
+		return createDb(EmbeddedDatabaseType.HSQL, schema);
+	}
+
+	private static EmbeddedDatabase createDb(EmbeddedDatabaseType type, String schema) {
 		// @formatter:off
 		return new EmbeddedDatabaseBuilder()
 				.generateUniqueName(true)
-				.setType(EmbeddedDatabaseType.HSQL)
+				.setType(type)
 				.setScriptEncoding("UTF-8")
 				.addScript(schema)
 				.build();
@@ -50,6 +50,9 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 /**
  * Tests for {@link R2dbcReactiveOAuth2AuthorizedClientService}
@@ -318,6 +321,125 @@ public class R2dbcReactiveOAuth2AuthorizedClientServiceTests {
 				.as(StepVerifier::create).expectNextCount(0).verifyComplete();
 	}
 
+	@Test
+	public void saveAuthorizedClientWhenUpsertDialectThenInsertsAndUpdates() {
+		this.authorizedClientService.setUpsertDialect(R2dbcReactiveOAuth2AuthorizedClientService.UpsertDialect.H2);
+		Authentication principal = createPrincipal();
+		OAuth2AuthorizedClient authorizedClient = createAuthorizedClient(principal, this.clientRegistration);
+		OAuth2AuthorizedClient updatedClient = createAuthorizedClient(principal, this.clientRegistration, true);
+		this.authorizedClientService.saveAuthorizedClient(authorizedClient, principal).as(StepVerifier::create)
+				.verifyComplete();
+		this.authorizedClientService.saveAuthorizedClient(updatedClient, principal).as(StepVerifier::create)
+				.verifyComplete();
+		this.authorizedClientService
+				.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), principal.getName())
+				.as(StepVerifier::create).assertNext((dbAuthorizedClient) -> {
+					assertThat(dbAuthorizedClient.getAccessToken().getTokenValue())
+							.isEqualTo(updatedClient.getAccessToken().getTokenValue());
+					assertThat(dbAuthorizedClient.getRefreshToken()).isNull();
+				}).verifyComplete();
+	}
+
+	@Test
+	public void loadAuthorizedClientWhenCachedThenNotQueriedAgain() {
+		DatabaseClient databaseClient = spy(this.databaseClient);
+		R2dbcReactiveOAuth2AuthorizedClientService authorizedClientService = new R2dbcReactiveOAuth2AuthorizedClientService(
+				databaseClient, this.clientRegistrationRepository);
+		authorizedClientService.setCacheMaximumSize(10);
+		Authentication principal = createPrincipal();
+		OAuth2AuthorizedClient authorizedClient = createAuthorizedClient(principal, this.clientRegistration);
+		this.authorizedClientService.saveAuthorizedClient(authorizedClient, principal).as(StepVerifier::create)
+				.verifyComplete();
+		authorizedClientService.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), principal.getName())
+				.as(StepVerifier::create).expectNextCount(1).verifyComplete();
+		authorizedClientService.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), principal.getName())
+				.as(StepVerifier::create).expectNextCount(1).verifyComplete();
+		verify(databaseClient, times(1)).sql(anyString());
+		authorizedClientService.removeAuthorizedClient(this.clientRegistration.getRegistrationId(), principal.getName())
+				.as(StepVerifier::create).verifyComplete();
+		authorizedClientService.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), principal.getName())
+				.as(StepVerifier::create).verifyComplete();
+	}
+
+	@Test
+	public void saveAuthorizedClientWhenWriteBehindThenWrittenOnFlush() {
+		this.authorizedClientService.setWriteBehindInterval(Duration.ofHours(1));
+		Authentication principal = createPrincipal();
+		OAuth2AuthorizedClient authorizedClient = createAuthorizedClient(principal, this.clientRegistration);
+		OAuth2AuthorizedClient updatedClient = createAuthorizedClient(principal, this.clientRegistration, true);
+		this.authorizedClientService.saveAuthorizedClient(authorizedClient, principal).as(StepVerifier::create)
+				.verifyComplete();
+		this.authorizedClientService.saveAuthorizedClient(updatedClient, principal).as(StepVerifier::create)
+				.verifyComplete();
+		this.authorizedClientService
+				.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), principal.getName())
+				.as(StepVerifier::create).expectNext(updatedClient).verifyComplete();
+		R2dbcReactiveOAuth2AuthorizedClientService reader = new R2dbcReactiveOAuth2AuthorizedClientService(
+				this.databaseClient, this.clientRegistrationRepository);
+		reader.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), principal.getName())
+				.as(StepVerifier::create).verifyComplete();
+		this.authorizedClientService.flush().as(StepVerifier::create).verifyComplete();
+		reader.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), principal.getName())
+				.as(StepVerifier::create)
+				.assertNext((dbAuthorizedClient) -> assertThat(dbAuthorizedClient.getAccessToken().getTokenValue())
+						.isEqualTo(updatedClient.getAccessToken().getTokenValue()))
+				.verifyComplete();
+		this.authorizedClientService.destroy();
+	}
+
+	@Test
+	public void removeAuthorizedClientWhenWriteBehindPendingThenNotWritten() {
+		this.authorizedClientService.setWriteBehindInterval(Duration.ofHours(1));
+		Authentication principal = createPrincipal();
+		OAuth2AuthorizedClient authorizedClient = createAuthorizedClient(principal, this.clientRegistration);
+		this.authorizedClientService.saveAuthorizedClient(authorizedClient, principal).as(StepVerifier::create)
+				.verifyComplete();
+		this.authorizedClientService
+				.removeAuthorizedClient(this.clientRegistration.getRegistrationId(), principal.getName())
+				.as(StepVerifier::create).verifyComplete();
+		this.authorizedClientService.destroy();
+		this.authorizedClientService
+				.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), principal.getName())
+				.as(StepVerifier::create).verifyComplete();
+	}
+
+	@Test
+	public void saveAuthorizedClientWhenDestroyedThenWrittenImmediately() {
+		this.authorizedClientService.setWriteBehindInterval(Duration.ofHours(1));
+		this.authorizedClientService.destroy();
+		Authentication principal = createPrincipal();
+		this.authorizedClientService
+				.saveAuthorizedClient(createAuthorizedClient(principal, this.clientRegistration), principal)
+				.as(StepVerifier::create).verifyComplete();
+		R2dbcReactiveOAuth2AuthorizedClientService reader = new R2dbcReactiveOAuth2AuthorizedClientService(
+				this.databaseClient, this.clientRegistrationRepository);
+		reader.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), principal.getName())
+				.as(StepVerifier::create).expectNextCount(1).verifyComplete();
+	}
+
+	@Test
+	public void flushWhenWriteBehindSaveFailsThenDroppedAndOthersWritten() {
+		this.authorizedClientService.setWriteBehindInterval(Duration.ofHours(1));
+		Authentication principal = createPrincipal();
+		Authentication invalidPrincipal = new TestingAuthenticationToken("principal".repeat(50), "password");
+		this.authorizedClientService
+				.saveAuthorizedClient(createAuthorizedClient(invalidPrincipal, this.clientRegistration),
+						invalidPrincipal)
+				.as(StepVerifier::create).verifyComplete();
+		this.authorizedClientService
+				.saveAuthorizedClient(createAuthorizedClient(principal, this.clientRegistration), principal)
+				.as(StepVerifier::create).verifyComplete();
+		this.authorizedClientService.flush().as(StepVerifier::create).verifyComplete();
+		R2dbcReactiveOAuth2AuthorizedClientService reader = new R2dbcReactiveOAuth2AuthorizedClientService(
+				this.databaseClient, this.clientRegistrationRepository);
+		reader.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), principal.getName())
+				.as(StepVerifier::create).expectNextCount(1).verifyComplete();
+		this.authorizedClientService
+				.loadAuthorizedClient(this.clientRegistration.getRegistrationId(), invalidPrincipal.getName())
+				.as(StepVerifier::create).verifyComplete();
+		this.authorizedClientService.destroy();
+	}
+
 	@Test
 	public void setAuthorizedClientRowMapperWhenNullThenThrowIllegalArgumentException() {
 		assertThatExceptionOfType(IllegalArgumentException.class)
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client.registration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link DiscoveryClientRegistrationRepository}.
+ */
+public class DiscoveryClientRegistrationRepositoryTests {
+
+	private final ClientRegistration registration = TestClientRegistrations.clientRegistration().build();
+
+	private final ClientRegistration other = TestClientRegistrations.clientRegistration2().build();
+
+	@Test
+	public void constructorWhenEmptyThenIllegalArgumentException() {
+		assertThatIllegalArgumentException()
+				.isThrownBy(() -> new DiscoveryClientRegistrationRepository(Collections.emptyMap()));
+	}
+
+	@Test
+	public void setDiscoveryTimeoutWhenZeroThenIllegalArgumentException() {
+		DiscoveryClientRegistrationRepository repository = repository(this.registration);
+		assertThatIllegalArgumentException().isThrownBy(() -> repository.setDiscoveryTimeout(Duration.ZERO));
+	}
+
+	@Test
+	public void setRefreshIntervalWhenNegativeThenIllegalArgumentException() {
+		DiscoveryClientRegistrationRepository repository = repository(this.registration);
+		assertThatIllegalArgumentException().isThrownBy(() -> repository.setRefreshInterval(Duration.ofSeconds(-1)));
+	}
+
+	@Test
+	public void afterPropertiesSetWhenDiscoveredThenFound() {
+		DiscoveryClientRegistrationRepository repository = repository(this.registration, this.other);
+		repository.afterPropertiesSet();
+		assertThat(repository.findByRegistrationId(this.registration.getRegistrationId()))
+				.isEqualTo(this.registration);
+		assertThat(repository.findByRegistrationId(this.other.getRegistrationId())).isEqualTo(this.other);
+		assertThat(repository).containsExactlyInAnyOrder(this.registration, this.other);
+	}
+
+	@Test
+	public void afterPropertiesSetWhenDiscoveriesBlockThenRunInParallel() {
+		CountDownLatch started = new CountDownLatch(2);
+		Map<String, Supplier<ClientRegistration>> discoveries = new LinkedHashMap<>();
+		discoveries.put(this.registration.getRegistrationId(), awaiting(started, this.registration));
+		discoveries.put(this.other.getRegistrationId(), awaiting(started, this.other));
+		DiscoveryClientRegistrationRepository repository = new DiscoveryClientRegistrationRepository(discoveries);
+		repository.setDiscoveryTimeout(Duration.ofSeconds(5));
+		repository.afterPropertiesSet();
+		assertThat(repository).containsExactlyInAnyOrder(this.registration, this.other);
+	}
+
+	@Test
+	public void afterPropertiesSetWhenDiscoveryTimesOutThenOthersFound() {
+		CountDownLatch never = new CountDownLatch(2);
+		Map<String, Supplier<ClientRegistration>> discoveries = new LinkedHashMap<>();
+		discoveries.put(this.registration.getRegistrationId(), awaiting(never, this.registration));
+		discoveries.put(this.other.getRegistrationId(), () -> this.other);
+		DiscoveryClientRegistrationRepository repository = new DiscoveryClientRegistrationRepository(discoveries);
+		repository.setDiscoveryTimeout(Duration.ofMillis(100));
+		try {
+			repository.afterPropertiesSet();
+			assertThat(repository.findByRegistrationId(this.registration.getRegistrationId())).isNull();
+			assertThat(repository.findByRegistrationId(this.other.getRegistrationId())).isEqualTo(this.other);
+		}
+		finally {
+			never.countDown();
+		}
+	}
+
+	@Test
+	public void refreshWhenDiscoveryTimedOutThenNotDiscoveredAgainUntilItReturns() {
+		List<Runnable> discoveries = new ArrayList<>();
+		DiscoveryClientRegistrationRepository repository = repository(this.registration);
+		repository.setExecutor(discoveries::add);
+		repository.setDiscoveryTimeout(Duration.ofMillis(10));
+		repository.afterPropertiesSet();
+		repository.refresh();
+		assertThat(discoveries).hasSize(1);
+		assertThat(repository.findByRegistrationId(this.registration.getRegistrationId())).isNull();
+		discoveries.get(0).run();
+		assertThat(repository.findByRegistrationId(this.registration.getRegistrationId()))
+				.isEqualTo(this.registration);
+		repository.refresh();
+		assertThat(discoveries).hasSize(2);
+	}
+
+	@Test
+	public void afterPropertiesSetWhenDiscoveryFailsThenNotFound() {
+		Map<String, Supplier<ClientRegistration>> discoveries = Collections
+				.singletonMap(this.registration.getRegistrationId(), () -> {
+					throw new IllegalArgumentException("unreachable");
+				});
+		DiscoveryClientRegistrationRepository repository = new DiscoveryClientRegistrationRepository(discoveries);
+		repository.afterPropertiesSet();
+		assertThat(repository.findByRegistrationId(this.registration.getRegistrationId())).isNull();
+	}
+
+	@Test
+	public void afterPropertiesSetWhenRegistrationIdDoesNotMatchThenNotFound() {
+		Map<String, Supplier<ClientRegistration>> discoveries = Collections.singletonMap("mismatch",
+				() -> this.registration);
+		DiscoveryClientRegistrationRepository repository = new DiscoveryClientRegistrationRepository(discoveries);
+		repository.afterPropertiesSet();
+		assertThat(repository.findByRegistrationId("mismatch")).isNull();
+		assertThat(repository).isEmpty();
+	}
+
+	@Test
+	public void refreshWhenDiscoveryChangesThenUpdated() {
+		ClientRegistration updated = ClientRegistration.withClientRegistration(this.registration)
+				.jwkSetUri("https://provider.com/oauth2/keys/rotated").build();
+		AtomicReference<ClientRegistration> current = new AtomicReference<>(this.registration);
+		DiscoveryClientRegistrationRepository repository = new DiscoveryClientRegistrationRepository(
+				Collections.singletonMap(this.registration.getRegistrationId(), current::get));
+		repository.afterPropertiesSet();
+		current.set(updated);
+		repository.refresh();
+		assertThat(repository.findByRegistrationId(this.registration.getRegistrationId())).isSameAs(updated);
+	}
+
+	@Test
+	public void refreshWhenDiscoveryFailsThenKeepsLastGood() {
+		AtomicInteger calls = new AtomicInteger();
+		DiscoveryClientRegistrationRepository repository = new DiscoveryClientRegistrationRepository(
+				Collections.singletonMap(this.registration.getRegistrationId(), () -> {
+					if (calls.incrementAndGet() > 1) {
+						throw new IllegalStateException("unavailable");
+					}
+					return this.registration;
+				}));
+		repository.afterPropertiesSet();
+		repository.refresh();
+		assertThat(calls).hasValue(2);
+		assertThat(repository.findByRegistrationId(this.registration.getRegistrationId()))
+				.isSameAs(this.registration);
+	}
+
+	@Test
+	public void afterPropertiesSetWhenRefreshIntervalThenRefreshesOnSchedule() throws Exception {
+		CountDownLatch refreshed = new CountDownLatch(3);
+		DiscoveryClientRegistrationRepository repository = new DiscoveryClientRegistrationRepository(
+				Collections.singletonMap(this.registration.getRegistrationId(), () -> {
+					refreshed.countDown();
+					return this.registration;
+				}));
+		repository.setRefreshInterval(Duration.ofMillis(10));
+		repository.afterPropertiesSet();
+		try {
+			assertThat(refreshed.await(5, TimeUnit.SECONDS)).isTrue();
+		}
+		finally {
+			repository.destroy();
+		}
+	}
+
+	private DiscoveryClientRegistrationRepository repository(ClientRegistration... registrations) {
+		Map<String, Supplier<ClientRegistration>> discoveries = new LinkedHashMap<>();
+		for (ClientRegistration registration : registrations) {
+			discoveries.put(registration.getRegistrationId(), () -> registration);
+		}
+		return new DiscoveryClientRegistrationRepository(discoveries);
+	}
+
+	private static Supplier<ClientRegistration> awaiting(CountDownLatch latch, ClientRegistration registration) {
+		return () -> {
+			latch.countDown();
+			try {
+				latch.await(10, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			return registration;
+		};
+	}
+
+}
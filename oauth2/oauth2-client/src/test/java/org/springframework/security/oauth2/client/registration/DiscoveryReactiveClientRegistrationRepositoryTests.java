@@ -0,0 +1,192 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.client.registration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link DiscoveryReactiveClientRegistrationRepository}.
+ */
+public class DiscoveryReactiveClientRegistrationRepositoryTests {
+
+	private final ClientRegistration registration = TestClientRegistrations.clientRegistration().build();
+
+	private final ClientRegistration other = TestClientRegistrations.clientRegistration2().build();
+
+	@Test
+	public void constructorWhenEmptyThenIllegalArgumentException() {
+		assertThatIllegalArgumentException()
+				.isThrownBy(() -> new DiscoveryReactiveClientRegistrationRepository(Collections.emptyMap()));
+	}
+
+	@Test
+	public void setDiscoveryTimeoutWhenZeroThenIllegalArgumentException() {
+		DiscoveryReactiveClientRegistrationRepository repository = new DiscoveryReactiveClientRegistrationRepository(
+				Collections.singletonMap("id", () -> this.registration));
+		assertThatIllegalArgumentException().isThrownBy(() -> repository.setDiscoveryTimeout(Duration.ZERO));
+	}
+
+	@Test
+	public void findByRegistrationIdWhenDiscoveryInProgressThenWaits() {
+		CountDownLatch release = new CountDownLatch(1);
+		DiscoveryReactiveClientRegistrationRepository repository = new DiscoveryReactiveClientRegistrationRepository(
+				Collections.singletonMap(this.registration.getRegistrationId(), () -> {
+					try {
+						release.await(10, TimeUnit.SECONDS);
+					}
+					catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+					}
+					return this.registration;
+				}));
+		repository.afterPropertiesSet();
+		// @formatter:off
+		StepVerifier.create(repository.findByRegistrationId(this.registration.getRegistrationId()))
+				.then(release::countDown)
+				.expectNext(this.registration)
+				.verifyComplete();
+		// @formatter:on
+	}
+
+	@Test
+	public void findByRegistrationIdWhenDiscoveryTimesOutThenOthersFound() {
+		CountDownLatch never = new CountDownLatch(1);
+		Map<String, Supplier<ClientRegistration>> discoveries = new LinkedHashMap<>();
+		discoveries.put(this.registration.getRegistrationId(), () -> {
+			try {
+				never.await(10, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			return this.registration;
+		});
+		discoveries.put(this.other.getRegistrationId(), () -> this.other);
+		DiscoveryReactiveClientRegistrationRepository repository = new DiscoveryReactiveClientRegistrationRepository(
+				discoveries);
+		repository.setDiscoveryTimeout(Duration.ofMillis(100));
+		repository.afterPropertiesSet();
+		try {
+			StepVerifier.create(repository.findByRegistrationId(this.registration.getRegistrationId()))
+					.verifyComplete();
+			StepVerifier.create(repository.findByRegistrationId(this.other.getRegistrationId()))
+					.expectNext(this.other).verifyComplete();
+		}
+		finally {
+			never.countDown();
+		}
+	}
+
+	@Test
+	public void refreshWhenDiscoveryTimedOutThenNotDiscoveredAgainUntilItReturns() {
+		List<Runnable> discoveries = new ArrayList<>();
+		DiscoveryReactiveClientRegistrationRepository repository = new DiscoveryReactiveClientRegistrationRepository(
+				Collections.singletonMap(this.registration.getRegistrationId(), () -> this.registration));
+		repository.setDiscoveryScheduler(Schedulers.fromExecutor(discoveries::add));
+		repository.setDiscoveryTimeout(Duration.ofMillis(10));
+		repository.afterPropertiesSet();
+		StepVerifier.create(repository.findByRegistrationId(this.registration.getRegistrationId()))
+				.verifyComplete();
+		repository.refresh().block(Duration.ofSeconds(5));
+		assertThat(discoveries).hasSize(1);
+		discoveries.get(0).run();
+		StepVerifier.create(repository.findByRegistrationId(this.registration.getRegistrationId()))
+				.expectNext(this.registration).verifyComplete();
+		repository.refresh().subscribe();
+		assertThat(discoveries).hasSize(2);
+	}
+
+	@Test
+	public void findByRegistrationIdWhenRegistrationIdDoesNotMatchThenEmpty() {
+		DiscoveryReactiveClientRegistrationRepository repository = new DiscoveryReactiveClientRegistrationRepository(
+				Collections.singletonMap("mismatch", () -> this.registration));
+		repository.afterPropertiesSet();
+		StepVerifier.create(repository.findByRegistrationId("mismatch")).verifyComplete();
+		assertThat(repository).isEmpty();
+	}
+
+	@Test
+	public void refreshWhenDiscoveryChangesThenUpdated() {
+		ClientRegistration updated = ClientRegistration.withClientRegistration(this.registration)
+				.jwkSetUri("https://provider.com/oauth2/keys/rotated").build();
+		AtomicReference<ClientRegistration> current = new AtomicReference<>(this.registration);
+		DiscoveryReactiveClientRegistrationRepository repository = new DiscoveryReactiveClientRegistrationRepository(
+				Collections.singletonMap(this.registration.getRegistrationId(), current::get));
+		repository.afterPropertiesSet();
+		StepVerifier.create(repository.findByRegistrationId(this.registration.getRegistrationId()))
+				.expectNext(this.registration).verifyComplete();
+		current.set(updated);
+		repository.refresh().block(Duration.ofSeconds(5));
+		StepVerifier.create(repository.findByRegistrationId(this.registration.getRegistrationId()))
+				.expectNext(updated).verifyComplete();
+	}
+
+	@Test
+	public void refreshWhenDiscoveryFailsThenKeepsLastGood() {
+		AtomicInteger calls = new AtomicInteger();
+		DiscoveryReactiveClientRegistrationRepository repository = new DiscoveryReactiveClientRegistrationRepository(
+				Collections.singletonMap(this.registration.getRegistrationId(), () -> {
+					if (calls.incrementAndGet() > 1) {
+						throw new IllegalStateException("unavailable");
+					}
+					return this.registration;
+				}));
+		repository.afterPropertiesSet();
+		StepVerifier.create(repository.findByRegistrationId(this.registration.getRegistrationId()))
+				.expectNext(this.registration).verifyComplete();
+		repository.refresh().block(Duration.ofSeconds(5));
+		assertThat(calls).hasValue(2);
+		StepVerifier.create(repository.findByRegistrationId(this.registration.getRegistrationId()))
+				.expectNext(this.registration).verifyComplete();
+	}
+
+	@Test
+	public void afterPropertiesSetWhenRefreshIntervalThenRefreshesOnSchedule() throws Exception {
+		CountDownLatch refreshed = new CountDownLatch(3);
+		DiscoveryReactiveClientRegistrationRepository repository = new DiscoveryReactiveClientRegistrationRepository(
+				Collections.singletonMap(this.registration.getRegistrationId(), () -> {
+					refreshed.countDown();
+					return this.registration;
+				}));
+		repository.setRefreshInterval(Duration.ofMillis(10));
+		repository.afterPropertiesSet();
+		try {
+			assertThat(refreshed.await(5, TimeUnit.SECONDS)).isTrue();
+		}
+		finally {
+			repository.destroy();
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.time.Duration;
+
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.util.Assert;
+
+/**
+ * A base for the builders of {@link JwtDecoder}s and {@link ReactiveJwtDecoder}s that
+ * can cache verified {@link Jwt}s.
+ *
+ * @param <B> the type of the builder
+ * @since 6.1
+ */
+abstract class AbstractVerifiedJwtCacheBuilder<B extends AbstractVerifiedJwtCacheBuilder<B>> {
+
+	private static final Duration DEFAULT_CLOCK_SKEW = Duration.ofSeconds(60);
+
+	private int verifiedJwtCacheSize;
+
+	private Duration verifiedJwtClockSkew;
+
+	/**
+	 * Cache successfully decoded {@link Jwt}s by a digest of their token value, so that
+	 * decoding the same token again skips parsing and signature verification. The
+	 * configured {@link OAuth2TokenValidator} still runs on every call. An entry is kept
+	 * until the token's {@code exp} claim minus 60 seconds of clock skew.
+	 * @param maximumSize the maximum number of cached {@link Jwt}s
+	 * @return the builder for further configurations
+	 */
+	public B verifiedJwtCache(int maximumSize) {
+		return verifiedJwtCache(maximumSize, DEFAULT_CLOCK_SKEW);
+	}
+
+	/**
+	 * Cache successfully decoded {@link Jwt}s by a digest of their token value, so that
+	 * decoding the same token again skips parsing and signature verification. The
+	 * configured {@link OAuth2TokenValidator} still runs on every call. An entry is kept
+	 * until the token's {@code exp} claim minus the given clock skew.
+	 * @param maximumSize the maximum number of cached {@link Jwt}s
+	 * @param clockSkew how long before its expiry a {@link Jwt} is no longer cached
+	 * @return the builder for further configurations
+	 */
+	public B verifiedJwtCache(int maximumSize, Duration clockSkew) {
+		Assert.isTrue(maximumSize > 0, "maximumSize must be greater than 0");
+		Assert.notNull(clockSkew, "clockSkew cannot be null");
+		Assert.isTrue(!clockSkew.isNegative(), "clockSkew must not be negative");
+		this.verifiedJwtCacheSize = maximumSize;
+		this.verifiedJwtClockSkew = clockSkew;
+		return getThis();
+	}
+
+	VerifiedJwtCache createVerifiedJwtCache() {
+		return (this.verifiedJwtCacheSize > 0) ? new VerifiedJwtCache(this.verifiedJwtCacheSize,
+				this.verifiedJwtClockSkew) : null;
+	}
+
+	@SuppressWarnings("unchecked")
+	private B getThis() {
+		return (B) this;
+	}
+
+}
@@ -21,6 +21,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.security.interfaces.RSAPublicKey;
 import java.text.ParseException;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -28,6 +29,7 @@ import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Consumer;
 
 import javax.crypto.SecretKey;
@@ -36,6 +38,7 @@ import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.RemoteKeySourceException;
 import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.DefaultJWKSetCache;
 import com.nimbusds.jose.jwk.source.JWKSetCache;
 import com.nimbusds.jose.jwk.source.JWKSource;
 import com.nimbusds.jose.jwk.source.RemoteJWKSet;
@@ -55,6 +58,7 @@ import com.nimbusds.jwt.proc.JWTProcessor;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.cache.Cache;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.http.HttpHeaders;
@@ -81,7 +85,7 @@ import org.springframework.web.client.RestTemplate;
  * @author Mykyta Bezverkhyi
  * @since 5.2
  */
-public final class NimbusJwtDecoder implements JwtDecoder {
+public final class NimbusJwtDecoder implements JwtDecoder, DisposableBean {
 
 	private final Log logger = LogFactory.getLog(getClass());
 
@@ -94,13 +98,22 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 
 	private OAuth2TokenValidator<Jwt> jwtValidator = JwtValidators.createDefault();
 
+	private final VerifiedJwtCache verifiedJwtCache;
+
+	private RefreshAheadJWKSource refreshAheadJwkSource;
+
 	/**
 	 * Configures a {@link NimbusJwtDecoder} with the given parameters
 	 * @param jwtProcessor - the {@link JWTProcessor} to use
 	 */
 	public NimbusJwtDecoder(JWTProcessor<SecurityContext> jwtProcessor) {
+		this(jwtProcessor, null);
+	}
+
+	NimbusJwtDecoder(JWTProcessor<SecurityContext> jwtProcessor, VerifiedJwtCache verifiedJwtCache) {
 		Assert.notNull(jwtProcessor, "jwtProcessor cannot be null");
 		this.jwtProcessor = jwtProcessor;
+		this.verifiedJwtCache = verifiedJwtCache;
 	}
 
 	/**
@@ -119,6 +132,22 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 	public void setClaimSetConverter(Converter<Map<String, Object>, Map<String, Object>> claimSetConverter) {
 		Assert.notNull(claimSetConverter, "claimSetConverter cannot be null");
 		this.claimSetConverter = claimSetConverter;
+		if (this.verifiedJwtCache != null) {
+			this.verifiedJwtCache.clear();
+		}
+	}
+
+	/**
+	 * Stop refreshing the JWK Set in the background, if a
+	 * {@link JwkSetUriJwtDecoderBuilder#jwkSetRefreshInterval(Duration) refresh interval}
+	 * is configured, shutting down its default scheduler.
+	 * @since 6.1
+	 */
+	@Override
+	public void destroy() {
+		if (this.refreshAheadJwkSource != null) {
+			this.refreshAheadJwkSource.destroy();
+		}
 	}
 
 	/**
@@ -129,13 +158,23 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 	 */
 	@Override
 	public Jwt decode(String token) throws JwtException {
+		if (this.verifiedJwtCache != null) {
+			Jwt cached = this.verifiedJwtCache.get(token);
+			if (cached != null) {
+				return validateJwt(cached);
+			}
+		}
 		JWT jwt = parse(token);
 		if (jwt instanceof PlainJWT) {
 			this.logger.trace("Failed to decode unsigned token");
 			throw new BadJwtException("Unsupported algorithm of " + jwt.getHeader().getAlgorithm());
 		}
 		Jwt createdJwt = createJwt(token, jwt);
-		return validateJwt(createdJwt);
+		Jwt validatedJwt = validateJwt(createdJwt);
+		if (this.verifiedJwtCache != null) {
+			this.verifiedJwtCache.put(validatedJwt);
+		}
+		return validatedJwt;
 	}
 
 	private JWT parse(String token) {
@@ -233,7 +272,8 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 	 * <a target="_blank" href="https://tools.ietf.org/html/rfc7517#section-5">JWK Set</a>
 	 * uri.
 	 */
-	public static final class JwkSetUriJwtDecoderBuilder {
+	public static final class JwkSetUriJwtDecoderBuilder
+			extends AbstractVerifiedJwtCacheBuilder<JwkSetUriJwtDecoderBuilder> {
 
 		private String jwkSetUri;
 
@@ -245,6 +285,10 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 
 		private Consumer<ConfigurableJWTProcessor<SecurityContext>> jwtProcessorCustomizer;
 
+		private Duration jwkSetRefreshInterval;
+
+		private ScheduledExecutorService jwkSetRefreshScheduler;
+
 		private JwkSetUriJwtDecoderBuilder(String jwkSetUri) {
 			Assert.hasText(jwkSetUri, "jwkSetUri cannot be empty");
 			this.jwkSetUri = jwkSetUri;
@@ -322,6 +366,42 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 			return this;
 		}
 
+		/**
+		 * Refresh the <a href="https://tools.ietf.org/html/rfc7517#section-5">JWK Set</a>
+		 * in the background every {@code refreshInterval}, instead of on the thread
+		 * decoding a token once the cached JWK Set expires.
+		 *
+		 * <p>
+		 * The last successfully retrieved JWK Set keeps being used while a refresh is in
+		 * flight or failing. A token signed with an unknown key id still triggers an
+		 * immediate fetch, but at most once every 30 seconds.
+		 * @param refreshInterval the time between two refreshes
+		 * @return a {@link JwkSetUriJwtDecoderBuilder} for further configurations
+		 * @since 6.1
+		 */
+		public JwkSetUriJwtDecoderBuilder jwkSetRefreshInterval(Duration refreshInterval) {
+			Assert.notNull(refreshInterval, "refreshInterval cannot be null");
+			Assert.isTrue(refreshInterval.toMillis() > 0, "refreshInterval must be positive");
+			this.jwkSetRefreshInterval = refreshInterval;
+			return this;
+		}
+
+		/**
+		 * Use the given {@link ScheduledExecutorService} to refresh the
+		 * <a href="https://tools.ietf.org/html/rfc7517#section-5">JWK Set</a> when a
+		 * {@link #jwkSetRefreshInterval(Duration) refresh interval} is configured. By
+		 * default, each decoder uses a daemon thread of its own, which is shut down when
+		 * the decoder is {@link NimbusJwtDecoder#destroy() destroyed}.
+		 * @param scheduler the {@link ScheduledExecutorService} to use
+		 * @return a {@link JwkSetUriJwtDecoderBuilder} for further configurations
+		 * @since 6.1
+		 */
+		public JwkSetUriJwtDecoderBuilder jwkSetRefreshScheduler(ScheduledExecutorService scheduler) {
+			Assert.notNull(scheduler, "scheduler cannot be null");
+			this.jwkSetRefreshScheduler = scheduler;
+			return this;
+		}
+
 		JWSKeySelector<SecurityContext> jwsKeySelector(JWKSource<SecurityContext> jwkSource) {
 			if (this.signatureAlgorithms.isEmpty()) {
 				return new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSource);
@@ -335,16 +415,52 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 		}
 
 		JWKSource<SecurityContext> jwkSource(ResourceRetriever jwkSetRetriever) {
-			if (this.cache == null) {
+			return jwkSource(jwkSetRetriever, null);
+		}
+
+		JWKSource<SecurityContext> jwkSource(ResourceRetriever jwkSetRetriever, VerifiedJwtCache verifiedJwtCache) {
+			if (this.jwkSetRefreshInterval != null) {
+				return refreshAheadJwkSource(jwkSetRetriever, verifiedJwtCache);
+			}
+			if (this.cache == null && verifiedJwtCache == null) {
 				return new RemoteJWKSet<>(toURL(this.jwkSetUri), jwkSetRetriever);
 			}
-			JWKSetCache jwkSetCache = new SpringJWKSetCache(this.jwkSetUri, this.cache);
+			JWKSetCache jwkSetCache = (this.cache != null) ? new SpringJWKSetCache(this.jwkSetUri, this.cache)
+					: new DefaultJWKSetCache();
+			if (verifiedJwtCache != null) {
+				jwkSetCache = new KeyChangeAwareJWKSetCache(jwkSetCache, verifiedJwtCache);
+			}
 			return new RemoteJWKSet<>(toURL(this.jwkSetUri), jwkSetRetriever, jwkSetCache);
 		}
 
+		private JWKSource<SecurityContext> refreshAheadJwkSource(ResourceRetriever jwkSetRetriever,
+				VerifiedJwtCache verifiedJwtCache) {
+			RefreshAheadJWKSource jwkSource = new RefreshAheadJWKSource(toURL(this.jwkSetUri), jwkSetRetriever);
+			Consumer<JWKSet> jwkSetListener = (jwkSet) -> {
+			};
+			if (this.cache != null) {
+				SpringJWKSetCache jwkSetCache = new SpringJWKSetCache(this.jwkSetUri, this.cache);
+				jwkSource.setJwkSet(jwkSetCache.get());
+				jwkSetListener = jwkSetCache::put;
+			}
+			if (verifiedJwtCache != null) {
+				jwkSetListener = jwkSetListener.andThen(verifiedJwtCache::keysChanged);
+			}
+			jwkSource.setJwkSetListener(jwkSetListener);
+			if (this.jwkSetRefreshScheduler != null) {
+				jwkSource.scheduleRefresh(this.jwkSetRefreshScheduler, this.jwkSetRefreshInterval);
+			}
+			else {
+				jwkSource.scheduleRefresh(this.jwkSetRefreshInterval);
+			}
+			return jwkSource;
+		}
+
 		JWTProcessor<SecurityContext> processor() {
-			ResourceRetriever jwkSetRetriever = new RestOperationsResourceRetriever(this.restOperations);
-			JWKSource<SecurityContext> jwkSource = jwkSource(jwkSetRetriever);
+			return processor(jwkSource(new RestOperationsResourceRetriever(this.restOperations), null));
+		}
+
+		JWTProcessor<SecurityContext> processor(JWKSource<SecurityContext> jwkSource) {
 			ConfigurableJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
 			jwtProcessor.setJWSKeySelector(jwsKeySelector(jwkSource));
 			// Spring Security validates the claim set independent from Nimbus
@@ -359,7 +475,14 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 		 * @return the configured {@link NimbusJwtDecoder}
 		 */
 		public NimbusJwtDecoder build() {
-			return new NimbusJwtDecoder(processor());
+			VerifiedJwtCache verifiedJwtCache = createVerifiedJwtCache();
+			ResourceRetriever jwkSetRetriever = new RestOperationsResourceRetriever(this.restOperations);
+			JWKSource<SecurityContext> jwkSource = jwkSource(jwkSetRetriever, verifiedJwtCache);
+			NimbusJwtDecoder jwtDecoder = new NimbusJwtDecoder(processor(jwkSource), verifiedJwtCache);
+			if (jwkSource instanceof RefreshAheadJWKSource refreshAheadJwkSource) {
+				jwtDecoder.refreshAheadJwkSource = refreshAheadJwkSource;
+			}
+			return jwtDecoder;
 		}
 
 		private static URL toURL(String url) {
@@ -417,6 +540,41 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 
 		}
 
+		/**
+		 * Drops the verified {@link Jwt}s whenever a refreshed JWK Set differs from the
+		 * previous one
+		 */
+		private static final class KeyChangeAwareJWKSetCache implements JWKSetCache {
+
+			private final JWKSetCache delegate;
+
+			private final VerifiedJwtCache verifiedJwtCache;
+
+			KeyChangeAwareJWKSetCache(JWKSetCache delegate, VerifiedJwtCache verifiedJwtCache) {
+				this.delegate = delegate;
+				this.verifiedJwtCache = verifiedJwtCache;
+			}
+
+			@Override
+			public void put(JWKSet jwkSet) {
+				this.delegate.put(jwkSet);
+				if (jwkSet != null) {
+					this.verifiedJwtCache.keysChanged(jwkSet);
+				}
+			}
+
+			@Override
+			public JWKSet get() {
+				return this.delegate.get();
+			}
+
+			@Override
+			public boolean requiresRefresh() {
+				return this.delegate.requiresRefresh();
+			}
+
+		}
+
 		private static class RestOperationsResourceRetriever implements ResourceRetriever {
 
 			private static final MediaType APPLICATION_JWK_SET_JSON = new MediaType("application", "jwk-set+json");
@@ -456,7 +614,8 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 	/**
 	 * A builder for creating {@link NimbusJwtDecoder} instances based on a public key.
 	 */
-	public static final class PublicKeyJwtDecoderBuilder {
+	public static final class PublicKeyJwtDecoderBuilder
+			extends AbstractVerifiedJwtCacheBuilder<PublicKeyJwtDecoderBuilder> {
 
 		private JWSAlgorithm jwsAlgorithm;
 
@@ -523,7 +682,7 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 		 * @return the configured {@link NimbusJwtDecoder}
 		 */
 		public NimbusJwtDecoder build() {
-			return new NimbusJwtDecoder(processor());
+			return new NimbusJwtDecoder(processor(), createVerifiedJwtCache());
 		}
 
 	}
@@ -532,7 +691,8 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 	 * A builder for creating {@link NimbusJwtDecoder} instances based on a
 	 * {@code SecretKey}.
 	 */
-	public static final class SecretKeyJwtDecoderBuilder {
+	public static final class SecretKeyJwtDecoderBuilder
+			extends AbstractVerifiedJwtCacheBuilder<SecretKeyJwtDecoderBuilder> {
 
 		private final SecretKey secretKey;
 
@@ -584,7 +744,7 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 		 * @return the configured {@link NimbusJwtDecoder}
 		 */
 		public NimbusJwtDecoder build() {
-			return new NimbusJwtDecoder(processor());
+			return new NimbusJwtDecoder(processor(), createVerifiedJwtCache());
 		}
 
 		JWTProcessor<SecurityContext> processor() {
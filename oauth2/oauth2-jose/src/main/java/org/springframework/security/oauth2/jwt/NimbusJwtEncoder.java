@@ -18,6 +18,7 @@ package org.springframework.security.oauth2.jwt;
 
 import java.net.URI;
 import java.net.URL;
+import java.text.ParseException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Date;
@@ -82,7 +83,11 @@ public final class NimbusJwtEncoder implements JwtEncoder {
 
 	private static final JWSSignerFactory JWS_SIGNER_FACTORY = new DefaultJWSSignerFactory();
 
-	private final Map<JWK, JWSSigner> jwsSigners = new ConcurrentHashMap<>();
+	private static final int MAXIMUM_SIGNING_CONTEXTS = 64;
+
+	private static final int PARALLEL_ENCODING_THRESHOLD = 8;
+
+	private final Map<Object, SigningContext> signingContexts = new ConcurrentHashMap<>();
 
 	private final JWKSource<SecurityContext> jwkSource;
 
@@ -106,11 +111,62 @@ public final class NimbusJwtEncoder implements JwtEncoder {
 		JwtClaimsSet claims = parameters.getClaims();
 
 		JWK jwk = selectJwk(headers);
-		headers = addKeyIdentifierHeadersIfNecessary(headers, jwk);
+		SigningContext signingContext = getSigningContext(headers, jwk);
 
-		String jws = serialize(headers, claims, jwk);
+		String jws = serialize(signingContext, claims);
+
+		return new Jwt(jws, claims.getIssuedAt(), claims.getExpiresAt(), signingContext.headers.getHeaders(),
+				claims.getClaims());
+	}
+
+	/**
+	 * Encodes a batch of JWTs. Larger batches are signed in parallel, using the common
+	 * {@link java.util.concurrent.ForkJoinPool}.
+	 * @param parameters the parameters of each JWT
+	 * @return the encoded JWTs, in the order of the given parameters
+	 * @throws JwtEncodingException if an error occurs while encoding any of the JWTs
+	 * @since 6.1
+	 */
+	public List<Jwt> encodeAll(List<JwtEncoderParameters> parameters) throws JwtEncodingException {
+		Assert.notNull(parameters, "parameters cannot be null");
+		Assert.noNullElements(parameters, "parameters cannot contain null elements");
+		if (parameters.size() < PARALLEL_ENCODING_THRESHOLD) {
+			return parameters.stream().map(this::encode).toList();
+		}
+		return parameters.parallelStream().map(this::encode).toList();
+	}
 
-		return new Jwt(jws, claims.getIssuedAt(), claims.getExpiresAt(), headers.getHeaders(), claims.getClaims());
+	/**
+	 * Returns the JOSE header and signer to use for the given requested headers and JWK.
+	 * They are cached by requested headers and reused for as long as the JWK source
+	 * keeps selecting the same JWK, so that neither the signer nor the serialized header
+	 * need to be created for every JWT.
+	 */
+	private SigningContext getSigningContext(JwsHeader headers, JWK jwk) {
+		Object key = signingContextKey(headers.getHeaders());
+		SigningContext signingContext = this.signingContexts.get(key);
+		if (signingContext != null && signingContext.jwk.equals(jwk)) {
+			return signingContext;
+		}
+		JwsHeader jwsHeaders = addKeyIdentifierHeadersIfNecessary(headers, jwk);
+		signingContext = new SigningContext(jwk, jwsHeaders, serialize(convert(jwsHeaders)), createSigner(jwk));
+		if (this.signingContexts.size() >= MAXIMUM_SIGNING_CONTEXTS) {
+			this.signingContexts.clear();
+		}
+		this.signingContexts.put(key, signingContext);
+		return signingContext;
+	}
+
+	private static Object signingContextKey(Map<String, Object> headers) {
+		for (Object value : headers.values()) {
+			if (value instanceof URL) {
+				// URL#equals and URL#hashCode resolve host names
+				Map<String, Object> key = new HashMap<>(headers);
+				key.replaceAll((name, header) -> (header instanceof URL url) ? url.toExternalForm() : header);
+				return key;
+			}
+		}
+		return headers;
 	}
 
 	private JWK selectJwk(JwsHeader headers) {
@@ -137,15 +193,12 @@ public final class NimbusJwtEncoder implements JwtEncoder {
 		return jwks.get(0);
 	}
 
-	private String serialize(JwsHeader headers, JwtClaimsSet claims, JWK jwk) {
-		JWSHeader jwsHeader = convert(headers);
+	private String serialize(SigningContext signingContext, JwtClaimsSet claims) {
 		JWTClaimsSet jwtClaimsSet = convert(claims);
 
-		JWSSigner jwsSigner = this.jwsSigners.computeIfAbsent(jwk, NimbusJwtEncoder::createSigner);
-
-		SignedJWT signedJwt = new SignedJWT(jwsHeader, jwtClaimsSet);
+		SignedJWT signedJwt = new SignedJWT(signingContext.jwsHeader, jwtClaimsSet);
 		try {
-			signedJwt.sign(jwsSigner);
+			signedJwt.sign(signingContext.jwsSigner);
 		}
 		catch (JOSEException ex) {
 			throw new JwtEncodingException(
@@ -154,6 +207,20 @@ public final class NimbusJwtEncoder implements JwtEncoder {
 		return signedJwt.serialize();
 	}
 
+	/**
+	 * Returns a parsed copy of the given header, which keeps its Base64URL encoding instead
+	 * of serializing the header again for every JWT that is signed with it.
+	 */
+	private static JWSHeader serialize(JWSHeader jwsHeader) {
+		try {
+			return JWSHeader.parse(jwsHeader.toBase64URL());
+		}
+		catch (ParseException ex) {
+			throw new JwtEncodingException(String.format(ENCODING_ERROR_MESSAGE_TEMPLATE,
+					"Failed to serialize the JOSE header -> " + ex.getMessage()), ex);
+		}
+	}
+
 	private static JWKMatcher createJwkMatcher(JwsHeader headers) {
 		JWSAlgorithm jwsAlgorithm = JWSAlgorithm.parse(headers.getAlgorithm().getName());
 
@@ -349,4 +416,7 @@ public final class NimbusJwtEncoder implements JwtEncoder {
 		}
 	}
 
+	private record SigningContext(JWK jwk, JwsHeader headers, JWSHeader jwsHeader, JWSSigner jwsSigner) {
+	}
+
 }
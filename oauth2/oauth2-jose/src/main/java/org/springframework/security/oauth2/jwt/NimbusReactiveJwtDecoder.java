@@ -55,6 +55,8 @@ import com.nimbusds.jwt.proc.DefaultJWTProcessor;
 import com.nimbusds.jwt.proc.JWTProcessor;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.security.oauth2.core.OAuth2Error;
@@ -97,6 +99,8 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 	private Converter<Map<String, Object>, Map<String, Object>> claimSetConverter = MappedJwtClaimSetConverter
 			.withDefaults(Collections.emptyMap());
 
+	private final VerifiedJwtCache verifiedJwtCache;
+
 	/**
 	 * Constructs a {@code NimbusReactiveJwtDecoder} using the provided parameters.
 	 * @param jwkSetUrl the JSON Web Key (JWK) Set {@code URL}
@@ -121,7 +125,12 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 	 * @since 5.2
 	 */
 	public NimbusReactiveJwtDecoder(Converter<JWT, Mono<JWTClaimsSet>> jwtProcessor) {
+		this(jwtProcessor, null);
+	}
+
+	NimbusReactiveJwtDecoder(Converter<JWT, Mono<JWTClaimsSet>> jwtProcessor, VerifiedJwtCache verifiedJwtCache) {
 		this.jwtProcessor = jwtProcessor;
+		this.verifiedJwtCache = verifiedJwtCache;
 	}
 
 	/**
@@ -140,14 +149,26 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 	public void setClaimSetConverter(Converter<Map<String, Object>, Map<String, Object>> claimSetConverter) {
 		Assert.notNull(claimSetConverter, "claimSetConverter cannot be null");
 		this.claimSetConverter = claimSetConverter;
+		if (this.verifiedJwtCache != null) {
+			this.verifiedJwtCache.clear();
+		}
 	}
 
 	@Override
 	public Mono<Jwt> decode(String token) throws JwtException {
+		if (this.verifiedJwtCache != null) {
+			Jwt cached = this.verifiedJwtCache.get(token);
+			if (cached != null) {
+				return Mono.fromCallable(() -> validateJwt(cached));
+			}
+		}
 		JWT jwt = parse(token);
 		if (jwt instanceof PlainJWT) {
 			throw new BadJwtException("Unsupported algorithm of " + jwt.getHeader().getAlgorithm());
 		}
+		if (this.verifiedJwtCache != null) {
+			return this.decode(jwt).doOnNext(this.verifiedJwtCache::put);
+		}
 		return this.decode(jwt);
 	}
 
@@ -274,10 +295,13 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 	 *
 	 * @since 5.2
 	 */
-	public static final class JwkSetUriReactiveJwtDecoderBuilder {
+	public static final class JwkSetUriReactiveJwtDecoderBuilder
+			extends AbstractVerifiedJwtCacheBuilder<JwkSetUriReactiveJwtDecoderBuilder> {
 
 		private static final Duration FOREVER = Duration.ofMillis(Long.MAX_VALUE);
 
+		private static final Duration MINIMUM_JWK_SET_REFETCH_INTERVAL = Duration.ofSeconds(30);
+
 		private final String jwkSetUri;
 
 		private Set<SignatureAlgorithm> signatureAlgorithms = new HashSet<>();
@@ -286,6 +310,10 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 
 		private BiFunction<ReactiveRemoteJWKSource, ConfigurableJWTProcessor<JWKSecurityContext>, Mono<ConfigurableJWTProcessor<JWKSecurityContext>>> jwtProcessorCustomizer;
 
+		private Duration jwkSetRefreshInterval;
+
+		private Scheduler jwkSetRefreshScheduler = Schedulers.parallel();
+
 		private JwkSetUriReactiveJwtDecoderBuilder(String jwkSetUri) {
 			Assert.hasText(jwkSetUri, "jwkSetUri cannot be empty");
 			this.jwkSetUri = jwkSetUri;
@@ -359,12 +387,48 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 			return this;
 		}
 
+		/**
+		 * Refresh the <a href="https://tools.ietf.org/html/rfc7517#section-5">JWK Set</a>
+		 * in the background every {@code refreshInterval}, instead of only when a token
+		 * with an unknown key id shows up.
+		 *
+		 * <p>
+		 * The last successfully retrieved JWK Set keeps being used while a refresh is in
+		 * flight or failing. A token signed with an unknown key id still triggers an
+		 * immediate fetch, but at most once every 30 seconds.
+		 * @param refreshInterval the time between two refreshes
+		 * @return a {@link JwkSetUriReactiveJwtDecoderBuilder} for further configurations
+		 * @since 6.1
+		 */
+		public JwkSetUriReactiveJwtDecoderBuilder jwkSetRefreshInterval(Duration refreshInterval) {
+			Assert.notNull(refreshInterval, "refreshInterval cannot be null");
+			Assert.isTrue(refreshInterval.toMillis() > 0, "refreshInterval must be positive");
+			this.jwkSetRefreshInterval = refreshInterval;
+			return this;
+		}
+
+		/**
+		 * Use the given {@link Scheduler} to refresh the
+		 * <a href="https://tools.ietf.org/html/rfc7517#section-5">JWK Set</a> when a
+		 * {@link #jwkSetRefreshInterval(Duration) refresh interval} is configured.
+		 * Defaults to {@link Schedulers#parallel()}.
+		 * @param scheduler the {@link Scheduler} to use
+		 * @return a {@link JwkSetUriReactiveJwtDecoderBuilder} for further configurations
+		 * @since 6.1
+		 */
+		public JwkSetUriReactiveJwtDecoderBuilder jwkSetRefreshScheduler(Scheduler scheduler) {
+			Assert.notNull(scheduler, "scheduler cannot be null");
+			this.jwkSetRefreshScheduler = scheduler;
+			return this;
+		}
+
 		/**
 		 * Build the configured {@link NimbusReactiveJwtDecoder}.
 		 * @return the configured {@link NimbusReactiveJwtDecoder}
 		 */
 		public NimbusReactiveJwtDecoder build() {
-			return new NimbusReactiveJwtDecoder(processor());
+			VerifiedJwtCache verifiedJwtCache = createVerifiedJwtCache();
+			return new NimbusReactiveJwtDecoder(processor(verifiedJwtCache), verifiedJwtCache);
 		}
 
 		JWSKeySelector<JWKSecurityContext> jwsKeySelector(JWKSource<JWKSecurityContext> jwkSource) {
@@ -380,6 +444,10 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 		}
 
 		Converter<JWT, Mono<JWTClaimsSet>> processor() {
+			return processor(null);
+		}
+
+		Converter<JWT, Mono<JWTClaimsSet>> processor(VerifiedJwtCache verifiedJwtCache) {
 			JWKSecurityContextJWKSet jwkSource = new JWKSecurityContextJWKSet();
 			DefaultJWTProcessor<JWKSecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
 			JWSKeySelector<JWKSecurityContext> jwsKeySelector = jwsKeySelector(jwkSource);
@@ -388,6 +456,13 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 			});
 			ReactiveRemoteJWKSource source = new ReactiveRemoteJWKSource(this.jwkSetUri);
 			source.setWebClient(this.webClient);
+			if (verifiedJwtCache != null) {
+				source.setJwkSetListener(verifiedJwtCache::keysChanged);
+			}
+			if (this.jwkSetRefreshInterval != null) {
+				source.scheduleRefresh(this.jwkSetRefreshInterval, MINIMUM_JWK_SET_REFETCH_INTERVAL,
+						this.jwkSetRefreshScheduler);
+			}
 			Function<JWSAlgorithm, Boolean> expectedJwsAlgorithms = getExpectedJwsAlgorithms(jwsKeySelector);
 			Mono<ConfigurableJWTProcessor<JWKSecurityContext>> jwtProcessorMono = this.jwtProcessorCustomizer
 					.apply(source, jwtProcessor)
@@ -423,7 +498,8 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 	 *
 	 * @since 5.2
 	 */
-	public static final class PublicKeyReactiveJwtDecoderBuilder {
+	public static final class PublicKeyReactiveJwtDecoderBuilder
+			extends AbstractVerifiedJwtCacheBuilder<PublicKeyReactiveJwtDecoderBuilder> {
 
 		private final RSAPublicKey key;
 
@@ -474,7 +550,7 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 		 * @return the configured {@link NimbusReactiveJwtDecoder}
 		 */
 		public NimbusReactiveJwtDecoder build() {
-			return new NimbusReactiveJwtDecoder(processor());
+			return new NimbusReactiveJwtDecoder(processor(), createVerifiedJwtCache());
 		}
 
 		Converter<JWT, Mono<JWTClaimsSet>> processor() {
@@ -499,7 +575,8 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 	 *
 	 * @since 5.2
 	 */
-	public static final class SecretKeyReactiveJwtDecoderBuilder {
+	public static final class SecretKeyReactiveJwtDecoderBuilder
+			extends AbstractVerifiedJwtCacheBuilder<SecretKeyReactiveJwtDecoderBuilder> {
 
 		private final SecretKey secretKey;
 
@@ -551,7 +628,7 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 		 * @return the configured {@link NimbusReactiveJwtDecoder}
 		 */
 		public NimbusReactiveJwtDecoder build() {
-			return new NimbusReactiveJwtDecoder(processor());
+			return new NimbusReactiveJwtDecoder(processor(), createVerifiedJwtCache());
 		}
 
 		Converter<JWT, Mono<JWTClaimsSet>> processor() {
@@ -573,7 +650,8 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 	 *
 	 * @since 5.2
 	 */
-	public static final class JwkSourceReactiveJwtDecoderBuilder {
+	public static final class JwkSourceReactiveJwtDecoderBuilder
+			extends AbstractVerifiedJwtCacheBuilder<JwkSourceReactiveJwtDecoderBuilder> {
 
 		private final Function<SignedJWT, Flux<JWK>> jwkSource;
 
@@ -621,7 +699,7 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 		 * @return the configured {@link NimbusReactiveJwtDecoder}
 		 */
 		public NimbusReactiveJwtDecoder build() {
-			return new NimbusReactiveJwtDecoder(processor());
+			return new NimbusReactiveJwtDecoder(processor(), createVerifiedJwtCache());
 		}
 
 		Converter<JWT, Mono<JWTClaimsSet>> processor() {
@@ -16,18 +16,28 @@
 
 package org.springframework.security.oauth2.jwt;
 
+import java.lang.ref.WeakReference;
 import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import com.nimbusds.jose.RemoteKeySourceException;
 import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.JWKMatcher;
 import com.nimbusds.jose.jwk.JWKSelector;
 import com.nimbusds.jose.jwk.JWKSet;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 import org.springframework.util.Assert;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -38,6 +48,8 @@ import org.springframework.web.reactive.function.client.WebClient;
  */
 class ReactiveRemoteJWKSource implements ReactiveJWKSource {
 
+	private final Log logger = LogFactory.getLog(getClass());
+
 	/**
 	 * The cached JWK set.
 	 */
@@ -47,6 +59,15 @@ class ReactiveRemoteJWKSource implements ReactiveJWKSource {
 
 	private final String jwkSetURL;
 
+	private Consumer<JWKSet> jwkSetListener = (jwkSet) -> {
+	};
+
+	private Duration minimumRefetchInterval;
+
+	private Clock clock = Clock.systemUTC();
+
+	private volatile Instant lastFetch;
+
 	ReactiveRemoteJWKSource(String jwkSetURL) {
 		Assert.hasText(jwkSetURL, "jwkSetURL cannot be empty");
 		this.jwkSetURL = jwkSetURL;
@@ -58,12 +79,21 @@ class ReactiveRemoteJWKSource implements ReactiveJWKSource {
 		return this.cachedJWKSet.get()
 				.switchIfEmpty(Mono.defer(() -> getJWKSet()))
 				.flatMap((jwkSet) -> get(jwkSelector, jwkSet))
-				.switchIfEmpty(Mono.defer(() -> getJWKSet()
-						.map((jwkSet) -> jwkSelector.select(jwkSet)))
+				.switchIfEmpty(Mono.defer(() -> isRefetchAllowed()
+						? getJWKSet().map((jwkSet) -> jwkSelector.select(jwkSet))
+						: Mono.just(Collections.emptyList()))
 				);
 		// @formatter:on
 	}
 
+	private boolean isRefetchAllowed() {
+		Instant lastFetch = this.lastFetch;
+		if (this.minimumRefetchInterval == null || lastFetch == null) {
+			return true;
+		}
+		return !this.clock.instant().isBefore(lastFetch.plus(this.minimumRefetchInterval));
+	}
+
 	private Mono<List<JWK>> get(JWKSelector jwkSelector, JWKSet jwkSet) {
 		return Mono.defer(() -> {
 			// Run the selector on the JWK set
@@ -99,10 +129,12 @@ class ReactiveRemoteJWKSource implements ReactiveJWKSource {
 				.uri(this.jwkSetURL)
 				.retrieve()
 				.bodyToMono(String.class)
+				.doOnSubscribe((subscription) -> this.lastFetch = this.clock.instant())
 				.map(this::parse)
 				.doOnNext((jwkSet) -> this.cachedJWKSet
 						.set(Mono.just(jwkSet))
 				)
+				.doOnNext(this.jwkSetListener)
 				.cache();
 		// @formatter:on
 	}
@@ -138,4 +170,52 @@ class ReactiveRemoteJWKSource implements ReactiveJWKSource {
 		this.webClient = webClient;
 	}
 
+	void setJwkSetListener(Consumer<JWKSet> jwkSetListener) {
+		this.jwkSetListener = jwkSetListener;
+	}
+
+	/**
+	 * Refresh the JWK set, keeping the cached one if that fails
+	 * @return a {@link Mono} completing once the refresh is done
+	 */
+	Mono<Void> refresh() {
+		// @formatter:off
+		return getJWKSet()
+				.doOnError((ex) -> this.logger.debug("Failed to refresh JWK Set, continuing to use the last retrieved one", ex))
+				.onErrorResume((ex) -> Mono.empty())
+				.then();
+		// @formatter:on
+	}
+
+	/**
+	 * Refresh the JWK set on the given scheduler every {@code refreshInterval} and limit
+	 * the refetches for unknown key ids to one every {@code minimumRefetchInterval}. The
+	 * scheduled refresh does not keep this source from being garbage collected, and stops
+	 * once it is.
+	 * @param refreshInterval the time between two refreshes
+	 * @param minimumRefetchInterval the minimum time between two fetches caused by an
+	 * unknown key id
+	 * @param scheduler the scheduler
+	 */
+	void scheduleRefresh(Duration refreshInterval, Duration minimumRefetchInterval, Scheduler scheduler) {
+		Assert.isTrue(refreshInterval.toMillis() > 0, "refreshInterval must be positive");
+		Assert.notNull(minimumRefetchInterval, "minimumRefetchInterval cannot be null");
+		Assert.notNull(scheduler, "scheduler cannot be null");
+		this.minimumRefetchInterval = minimumRefetchInterval;
+		WeakReference<ReactiveRemoteJWKSource> reference = new WeakReference<>(this);
+		// @formatter:off
+		Flux.interval(refreshInterval, refreshInterval, scheduler)
+				.onBackpressureDrop()
+				.map((tick) -> Optional.ofNullable(reference.get()))
+				.takeWhile(Optional::isPresent)
+				.concatMap((source) -> source.get().refresh())
+				.subscribe();
+		// @formatter:on
+	}
+
+	void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
 }
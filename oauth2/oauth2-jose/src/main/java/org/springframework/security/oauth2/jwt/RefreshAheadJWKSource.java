@@ -0,0 +1,305 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.RemoteKeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.Resource;
+import com.nimbusds.jose.util.ResourceRetriever;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link JWKSource} for a remote JWK Set which is refreshed in the background instead
+ * of on the thread verifying a token.
+ * <p>
+ * Only the very first lookup fetches the JWK Set on the calling thread. After that, the
+ * JWK Set is refreshed on a scheduler, and the last successfully retrieved JWK Set keeps
+ * being served while a refresh is in flight or failing. A lookup for a key id which is
+ * not in the current JWK Set fetches it again right away, but no more often than the
+ * configured minimum refetch interval, so that tokens with made-up key ids cannot flood
+ * the authorization server.
+ * <p>
+ * The scheduled refresh keeps running until {@link #destroy()} is called, which also
+ * shuts down the scheduler this {@link RefreshAheadJWKSource} created, if any.
+ *
+ * @since 6.1
+ */
+final class RefreshAheadJWKSource implements JWKSource<SecurityContext> {
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private final URL jwkSetUrl;
+
+	private final ResourceRetriever jwkSetRetriever;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private Duration minimumRefetchInterval = Duration.ofSeconds(30);
+
+	private Consumer<JWKSet> jwkSetListener = (jwkSet) -> {
+	};
+
+	private Clock clock = Clock.systemUTC();
+
+	private volatile JWKSet jwkSet;
+
+	private volatile Instant lastFetch;
+
+	private RefreshTask refreshTask;
+
+	RefreshAheadJWKSource(URL jwkSetUrl, ResourceRetriever jwkSetRetriever) {
+		Assert.notNull(jwkSetUrl, "jwkSetUrl cannot be null");
+		Assert.notNull(jwkSetRetriever, "jwkSetRetriever cannot be null");
+		this.jwkSetUrl = jwkSetUrl;
+		this.jwkSetRetriever = jwkSetRetriever;
+	}
+
+	@Override
+	public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) throws KeySourceException {
+		JWKSet jwkSet = this.jwkSet;
+		if (jwkSet == null) {
+			jwkSet = fetch(null, false);
+		}
+		List<JWK> matches = jwkSelector.select(jwkSet);
+		if (!matches.isEmpty()) {
+			return matches;
+		}
+		String soughtKeyId = getFirstSpecifiedKeyId(jwkSelector.getMatcher());
+		if (soughtKeyId == null || jwkSet.getKeyByKeyId(soughtKeyId) != null) {
+			return Collections.emptyList();
+		}
+		JWKSet refetched = fetch(jwkSet, true);
+		return (refetched != null) ? jwkSelector.select(refetched) : Collections.emptyList();
+	}
+
+	/**
+	 * Fetch the JWK Set unless another thread already replaced the given one
+	 * @param seen the JWK Set the caller looked at
+	 * @param rateLimited whether to honor the minimum refetch interval
+	 * @return the current JWK Set or {@code null} if the fetch was rate limited
+	 */
+	private JWKSet fetch(JWKSet seen, boolean rateLimited) throws KeySourceException {
+		this.lock.lock();
+		try {
+			JWKSet current = this.jwkSet;
+			if (current != seen) {
+				return current;
+			}
+			if (rateLimited && this.lastFetch != null
+					&& this.clock.instant().isBefore(this.lastFetch.plus(this.minimumRefetchInterval))) {
+				this.logger.trace("Skipping JWK Set refetch since it was fetched recently");
+				return null;
+			}
+			return retrieve();
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Refresh the JWK Set, keeping the current one if that fails. Does nothing when a
+	 * fetch is already in flight.
+	 */
+	void refresh() {
+		if (!this.lock.tryLock()) {
+			return;
+		}
+		try {
+			retrieve();
+		}
+		catch (KeySourceException ex) {
+			this.logger.debug("Failed to refresh JWK Set, continuing to use the last retrieved one", ex);
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	private JWKSet retrieve() throws RemoteKeySourceException {
+		this.lastFetch = this.clock.instant();
+		Resource resource;
+		try {
+			resource = this.jwkSetRetriever.retrieveResource(this.jwkSetUrl);
+		}
+		catch (IOException ex) {
+			throw new RemoteKeySourceException("Couldn't retrieve remote JWK set: " + ex.getMessage(), ex);
+		}
+		JWKSet jwkSet;
+		try {
+			jwkSet = JWKSet.parse(resource.getContent());
+		}
+		catch (ParseException ex) {
+			throw new RemoteKeySourceException("Couldn't parse remote JWK set: " + ex.getMessage(), ex);
+		}
+		this.jwkSet = jwkSet;
+		this.jwkSetListener.accept(jwkSet);
+		return jwkSet;
+	}
+
+	/**
+	 * Refresh the JWK Set every {@code refreshInterval} on a daemon thread of its own,
+	 * which is shut down on {@link #destroy()}
+	 * @param refreshInterval the time between two refreshes
+	 */
+	void scheduleRefresh(Duration refreshInterval) {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("jwk-set-refresh-");
+		threadFactory.setDaemon(true);
+		ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, threadFactory);
+		scheduler.setRemoveOnCancelPolicy(true);
+		scheduleRefresh(scheduler, refreshInterval, true);
+	}
+
+	/**
+	 * Refresh the JWK Set on the given scheduler every {@code refreshInterval}. The
+	 * scheduled task does not keep this {@link RefreshAheadJWKSource} from being garbage
+	 * collected, and cancels itself once it is.
+	 * @param scheduler the scheduler
+	 * @param refreshInterval the time between two refreshes
+	 */
+	void scheduleRefresh(ScheduledExecutorService scheduler, Duration refreshInterval) {
+		scheduleRefresh(scheduler, refreshInterval, false);
+	}
+
+	void scheduleRefresh(ScheduledExecutorService scheduler, Duration refreshInterval, boolean ownsScheduler) {
+		Assert.notNull(scheduler, "scheduler cannot be null");
+		Assert.isTrue(refreshInterval.toMillis() > 0, "refreshInterval must be positive");
+		Assert.state(this.refreshTask == null, "refresh is already scheduled");
+		RefreshTask task = new RefreshTask(this, scheduler, ownsScheduler);
+		long millis = refreshInterval.toMillis();
+		task.future = scheduler.scheduleWithFixedDelay(task, millis, millis, TimeUnit.MILLISECONDS);
+		this.refreshTask = task;
+	}
+
+	/**
+	 * Stop refreshing the JWK Set, shutting down the scheduler if it was created by this
+	 * {@link RefreshAheadJWKSource}
+	 */
+	void destroy() {
+		if (this.refreshTask != null) {
+			this.refreshTask.cancel();
+		}
+	}
+
+	/**
+	 * Use this JWK Set until the first fetch, for example one read from a cache
+	 * @param jwkSet the JWK Set
+	 */
+	void setJwkSet(JWKSet jwkSet) {
+		this.jwkSet = jwkSet;
+	}
+
+	void setJwkSetListener(Consumer<JWKSet> jwkSetListener) {
+		Assert.notNull(jwkSetListener, "jwkSetListener cannot be null");
+		this.jwkSetListener = jwkSetListener;
+	}
+
+	void setMinimumRefetchInterval(Duration minimumRefetchInterval) {
+		Assert.notNull(minimumRefetchInterval, "minimumRefetchInterval cannot be null");
+		this.minimumRefetchInterval = minimumRefetchInterval;
+	}
+
+	void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	private static String getFirstSpecifiedKeyId(JWKMatcher jwkMatcher) {
+		Set<String> keyIds = jwkMatcher.getKeyIDs();
+		if (keyIds == null) {
+			return null;
+		}
+		for (String keyId : keyIds) {
+			if (keyId != null) {
+				return keyId;
+			}
+		}
+		return null;
+	}
+
+	private static final class RefreshTask implements Runnable {
+
+		private final WeakReference<RefreshAheadJWKSource> source;
+
+		private final ScheduledExecutorService scheduler;
+
+		private final boolean ownsScheduler;
+
+		private volatile ScheduledFuture<?> future;
+
+		private RefreshTask(RefreshAheadJWKSource source, ScheduledExecutorService scheduler,
+				boolean ownsScheduler) {
+			this.source = new WeakReference<>(source);
+			this.scheduler = scheduler;
+			this.ownsScheduler = ownsScheduler;
+		}
+
+		@Override
+		public void run() {
+			RefreshAheadJWKSource source = this.source.get();
+			if (source == null) {
+				cancel();
+				return;
+			}
+			try {
+				source.refresh();
+			}
+			catch (RuntimeException ex) {
+				// thrown out of a scheduled task, it would stop any further refreshes
+				source.logger.warn("Failed to refresh JWK Set, continuing to use the last retrieved one", ex);
+			}
+		}
+
+		private void cancel() {
+			if (this.future != null) {
+				this.future.cancel(false);
+			}
+			if (this.ownsScheduler) {
+				this.scheduler.shutdown();
+			}
+		}
+
+	}
+
+}
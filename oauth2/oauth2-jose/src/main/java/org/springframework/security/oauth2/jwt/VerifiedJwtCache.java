@@ -0,0 +1,178 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.nimbusds.jose.jwk.JWKSet;
+
+import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentLruCache;
+
+/**
+ * A bounded, least recently used cache of {@link Jwt}s whose signature has already been
+ * verified, keyed by the SHA-256 digest of the raw token.
+ * <p>
+ * An entry is only usable until the token's {@code exp} claim minus the configured clock
+ * skew, so tokens without an expiry are never cached. All entries are dropped when the
+ * verification keys change, see {@link #keysChanged(JWKSet)}. A cache hit only saves
+ * parsing, signature verification and claim conversion; the decoder still runs its
+ * {@link org.springframework.security.oauth2.core.OAuth2TokenValidator} against the
+ * cached {@link Jwt}.
+ *
+ * @since 6.1
+ */
+final class VerifiedJwtCache {
+
+	private final ConcurrentLruCache<Key, AtomicReference<Entry>> entries;
+
+	private final Duration clockSkew;
+
+	private Clock clock = Clock.systemUTC();
+
+	private volatile byte[] keys;
+
+	VerifiedJwtCache(int maximumSize, Duration clockSkew) {
+		Assert.isTrue(maximumSize > 0, "maximumSize must be greater than 0");
+		Assert.notNull(clockSkew, "clockSkew cannot be null");
+		Assert.isTrue(!clockSkew.isNegative(), "clockSkew must not be negative");
+		this.entries = new ConcurrentLruCache<>(maximumSize, (key) -> new AtomicReference<>());
+		this.clockSkew = clockSkew;
+	}
+
+	/**
+	 * Return the cached {@link Jwt} for the given token, if any
+	 * @param token the raw token
+	 * @return the cached {@link Jwt} or {@code null} if none is cached or it is too close
+	 * to its expiry
+	 */
+	Jwt get(String token) {
+		Key key = new Key(token);
+		if (!this.entries.contains(key)) {
+			return null;
+		}
+		Entry entry = this.entries.get(key).get();
+		if (entry == null) {
+			return null;
+		}
+		if (!this.clock.instant().isBefore(entry.expiresAt)) {
+			this.entries.remove(key);
+			return null;
+		}
+		return entry.jwt.getTokenValue().equals(token) ? entry.jwt : null;
+	}
+
+	/**
+	 * Cache the given verified {@link Jwt}
+	 * @param jwt the {@link Jwt} which was successfully decoded and validated
+	 */
+	void put(Jwt jwt) {
+		if (jwt.getExpiresAt() == null) {
+			return;
+		}
+		Instant expiresAt = jwt.getExpiresAt().minus(this.clockSkew);
+		Instant now = this.clock.instant();
+		if (!now.isBefore(expiresAt)) {
+			return;
+		}
+		this.entries.get(new Key(jwt.getTokenValue())).set(new Entry(jwt, expiresAt));
+	}
+
+	/**
+	 * Notify this cache of a freshly retrieved JWK Set. Every cached {@link Jwt} is
+	 * dropped unless it is the same JWK Set as the one previously seen.
+	 * @param jwkSet the current JWK Set
+	 */
+	void keysChanged(JWKSet jwkSet) {
+		// symmetric keys are not public, so compare a digest of the complete keys
+		byte[] keys = sha256(jwkSet.toString(false));
+		byte[] previous = this.keys;
+		this.keys = keys;
+		if (!Arrays.equals(keys, previous)) {
+			clear();
+		}
+	}
+
+	/**
+	 * Drop every cached {@link Jwt}
+	 */
+	void clear() {
+		this.entries.clear();
+	}
+
+	int size() {
+		return this.entries.size();
+	}
+
+	void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	private static byte[] sha256(String value) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private static final class Key {
+
+		private final byte[] digest;
+
+		private final int hashCode;
+
+		private Key(String token) {
+			this.digest = sha256(token);
+			this.hashCode = Arrays.hashCode(this.digest);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Key other && Arrays.equals(this.digest, other.digest);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+
+	}
+
+	private static final class Entry {
+
+		private final Jwt jwt;
+
+		private final Instant expiresAt;
+
+		private Entry(Jwt jwt, Instant expiresAt) {
+			this.jwt = jwt;
+			this.expiresAt = expiresAt;
+		}
+
+	}
+
+}
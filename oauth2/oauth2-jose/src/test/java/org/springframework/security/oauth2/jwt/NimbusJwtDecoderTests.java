@@ -25,6 +25,7 @@ import java.security.spec.EncodedKeySpec;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.X509EncodedKeySpec;
 import java.text.ParseException;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Base64;
@@ -32,6 +33,9 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import javax.crypto.SecretKey;
 
@@ -80,9 +84,12 @@ import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -817,6 +824,129 @@ public class NimbusJwtDecoderTests {
 		// @formatter:on
 	}
 
+	@Test
+	public void withSecretKeyWhenVerifiedJwtCacheSizeZeroThenThrowsIllegalArgumentException() {
+		SecretKey secretKey = TestKeys.DEFAULT_SECRET_KEY;
+		// @formatter:off
+		assertThatIllegalArgumentException()
+				.isThrownBy(() -> NimbusJwtDecoder.withSecretKey(secretKey).verifiedJwtCache(0))
+				.withMessage("maximumSize must be greater than 0");
+		// @formatter:on
+	}
+
+	@Test
+	public void decodeWhenVerifiedJwtCacheThenProcessesOnceAndValidatesEveryTime() throws Exception {
+		SecretKey secretKey = TestKeys.DEFAULT_SECRET_KEY;
+		// @formatter:off
+		JWTClaimsSet claimsSet = new JWTClaimsSet.Builder()
+				.subject("test-subject")
+				.expirationTime(Date.from(Instant.now().plusSeconds(3600)))
+				.build();
+		// @formatter:on
+		String token = signedJwt(secretKey, MacAlgorithm.HS256, claimsSet).serialize();
+		NimbusJwtDecoder decoder = NimbusJwtDecoder.withSecretKey(secretKey).verifiedJwtCache(10).build();
+		Converter<Map<String, Object>, Map<String, Object>> defaults = MappedJwtClaimSetConverter
+				.withDefaults(Collections.emptyMap());
+		Converter<Map<String, Object>, Map<String, Object>> claimSetConverter = mock(Converter.class);
+		given(claimSetConverter.convert(any())).willAnswer((invocation) -> defaults.convert(invocation.getArgument(0)));
+		OAuth2TokenValidator<Jwt> jwtValidator = mock(OAuth2TokenValidator.class);
+		given(jwtValidator.validate(any())).willReturn(OAuth2TokenValidatorResult.success());
+		decoder.setClaimSetConverter(claimSetConverter);
+		decoder.setJwtValidator(jwtValidator);
+		Jwt first = decoder.decode(token);
+		Jwt second = decoder.decode(token);
+		assertThat(second).isSameAs(first);
+		verify(claimSetConverter).convert(any());
+		verify(jwtValidator, times(2)).validate(first);
+	}
+
+	@Test
+	public void decodeWhenVerifiedJwtCacheAndCachedJwtFailsValidationThenThrowsJwtValidationException()
+			throws Exception {
+		SecretKey secretKey = TestKeys.DEFAULT_SECRET_KEY;
+		JWTClaimsSet claimsSet = new JWTClaimsSet.Builder()
+				.expirationTime(Date.from(Instant.now().plusSeconds(3600))).build();
+		String token = signedJwt(secretKey, MacAlgorithm.HS256, claimsSet).serialize();
+		NimbusJwtDecoder decoder = NimbusJwtDecoder.withSecretKey(secretKey).verifiedJwtCache(10).build();
+		OAuth2TokenValidator<Jwt> jwtValidator = mock(OAuth2TokenValidator.class);
+		OAuth2Error error = new OAuth2Error("invalid_token", "Jwt expired", null);
+		given(jwtValidator.validate(any())).willReturn(OAuth2TokenValidatorResult.success(),
+				OAuth2TokenValidatorResult.failure(error));
+		decoder.setJwtValidator(jwtValidator);
+		decoder.decode(token);
+		// @formatter:off
+		assertThatExceptionOfType(JwtValidationException.class)
+				.isThrownBy(() -> decoder.decode(token))
+				.withMessageContaining("Jwt expired");
+		// @formatter:on
+	}
+
+	@Test
+	public void decodeWhenVerifiedJwtCacheAndJwkSetRotatedThenVerifiesAgain() {
+		RestOperations restOperations = mock(RestOperations.class);
+		given(restOperations.exchange(any(RequestEntity.class), eq(String.class))).willReturn(
+				new ResponseEntity<>(JWK_SET, HttpStatus.OK), new ResponseEntity<>(NEW_KID_JWK_SET, HttpStatus.OK));
+		// @formatter:off
+		NimbusJwtDecoder jwtDecoder = NimbusJwtDecoder.withJwkSetUri(JWK_SET_URI)
+				.restOperations(restOperations)
+				.verifiedJwtCache(10)
+				.build();
+		// @formatter:on
+		jwtDecoder.decode(SIGNED_JWT);
+		jwtDecoder.decode(SIGNED_JWT);
+		jwtDecoder.decode(NEW_KID_SIGNED_JWT);
+		// the key that signed SIGNED_JWT was rotated out
+		assertThatExceptionOfType(BadJwtException.class).isThrownBy(() -> jwtDecoder.decode(SIGNED_JWT));
+		verify(restOperations, times(2)).exchange(any(RequestEntity.class), eq(String.class));
+	}
+
+	@Test
+	public void withJwkSetUriWhenJwkSetRefreshIntervalNotPositiveThenThrowsIllegalArgumentException() {
+		// @formatter:off
+		assertThatIllegalArgumentException()
+				.isThrownBy(() -> NimbusJwtDecoder.withJwkSetUri(JWK_SET_URI).jwkSetRefreshInterval(Duration.ZERO))
+				.withMessage("refreshInterval must be positive");
+		// @formatter:on
+	}
+
+	@Test
+	public void decodeWhenJwkSetRefreshIntervalThenRefreshesOnScheduler() {
+		RestOperations restOperations = mock(RestOperations.class);
+		given(restOperations.exchange(any(RequestEntity.class), eq(String.class)))
+				.willReturn(new ResponseEntity<>(JWK_SET, HttpStatus.OK));
+		ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+		// @formatter:off
+		NimbusJwtDecoder jwtDecoder = NimbusJwtDecoder.withJwkSetUri(JWK_SET_URI)
+				.restOperations(restOperations)
+				.jwkSetRefreshInterval(Duration.ofMinutes(5))
+				.jwkSetRefreshScheduler(scheduler)
+				.build();
+		// @formatter:on
+		ArgumentCaptor<Runnable> refresh = ArgumentCaptor.forClass(Runnable.class);
+		verify(scheduler).scheduleWithFixedDelay(refresh.capture(), eq(300000L), eq(300000L),
+				eq(TimeUnit.MILLISECONDS));
+		refresh.getValue().run();
+		jwtDecoder.decode(SIGNED_JWT);
+		jwtDecoder.decode(SIGNED_JWT);
+		verify(restOperations).exchange(any(RequestEntity.class), eq(String.class));
+	}
+
+	@Test
+	public void destroyWhenJwkSetRefreshIntervalThenRefreshCancelled() {
+		ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+		ScheduledFuture<?> future = mock(ScheduledFuture.class);
+		willReturn(future).given(scheduler).scheduleWithFixedDelay(any(), anyLong(), anyLong(), any());
+		// @formatter:off
+		NimbusJwtDecoder jwtDecoder = NimbusJwtDecoder.withJwkSetUri(JWK_SET_URI)
+				.jwkSetRefreshInterval(Duration.ofMinutes(5))
+				.jwkSetRefreshScheduler(scheduler)
+				.build();
+		// @formatter:on
+		jwtDecoder.destroy();
+		verify(future).cancel(false);
+		verify(scheduler, never()).shutdown();
+	}
+
 	private RSAPublicKey key() throws InvalidKeySpecException {
 		byte[] decoded = Base64.getDecoder().decode(VERIFY_KEY.getBytes());
 		EncodedKeySpec spec = new X509EncodedKeySpec(decoded);
@@ -16,8 +16,12 @@
 
 package org.springframework.security.oauth2.jwt;
 
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
 import java.security.interfaces.ECPrivateKey;
 import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -290,6 +294,89 @@ public class NimbusJwtEncoderTests {
 		assertThat(jwk1.getKeyID()).isNotEqualTo(jwk2.getKeyID());
 	}
 
+	@Test
+	public void encodeWhenEqualHeadersThenSameSerializedHeader() throws Exception {
+		// @formatter:off
+		RSAKey rsaJwk = TestJwks.jwk(TestKeys.DEFAULT_PUBLIC_KEY, TestKeys.DEFAULT_PRIVATE_KEY)
+				.keyID("rsa-jwk-1")
+				.build();
+		this.jwkList.add(rsaJwk);
+		// @formatter:on
+
+		JwtClaimsSet jwtClaimsSet = TestJwtClaimsSets.jwtClaimsSet().build();
+		JwsHeader jwsHeader = JwsHeader.with(SignatureAlgorithm.RS256).jwkSetUrl("https://provider.com/jwks").build();
+		Jwt first = this.jwtEncoder.encode(JwtEncoderParameters.from(jwsHeader, jwtClaimsSet));
+		jwsHeader = JwsHeader.with(SignatureAlgorithm.RS256).jwkSetUrl("https://provider.com/jwks").build();
+		Jwt second = this.jwtEncoder.encode(JwtEncoderParameters.from(jwsHeader, jwtClaimsSet));
+
+		assertThat(second.getTokenValue().split("\\.")[0]).isEqualTo(first.getTokenValue().split("\\.")[0]);
+		assertThat(second.getHeaders()).isEqualTo(first.getHeaders());
+		assertThat(second.getHeaders().get(JoseHeaderNames.KID)).isEqualTo("rsa-jwk-1");
+		assertThat(second.getHeaders().get(JoseHeaderNames.JKU)).isEqualTo(jwsHeader.getJwkSetUrl());
+		NimbusJwtDecoder jwtDecoder = NimbusJwtDecoder.withPublicKey(rsaJwk.toRSAPublicKey()).build();
+		jwtDecoder.decode(first.getTokenValue());
+		jwtDecoder.decode(second.getTokenValue());
+	}
+
+	@Test
+	public void encodeWhenSelectedJwkChangesThenNewKeyUsed() throws Exception {
+		RSAKey rsaJwk = TestJwks.jwk(TestKeys.DEFAULT_PUBLIC_KEY, TestKeys.DEFAULT_PRIVATE_KEY).keyID("rsa").build();
+		KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+		keyPairGenerator.initialize(2048);
+		KeyPair keyPair = keyPairGenerator.generateKeyPair();
+		RSAKey rotatedRsaJwk = TestJwks.jwk((RSAPublicKey) keyPair.getPublic(), (RSAPrivateKey) keyPair.getPrivate())
+				.keyID("rsa")
+				.build();
+		this.jwkList.add(rsaJwk);
+		JwtEncoderParameters parameters = JwtEncoderParameters.from(JwsHeader.with(SignatureAlgorithm.RS256).build(),
+				TestJwtClaimsSets.jwtClaimsSet().build());
+
+		Jwt encodedJws = this.jwtEncoder.encode(parameters);
+		NimbusJwtDecoder.withPublicKey(rsaJwk.toRSAPublicKey()).build().decode(encodedJws.getTokenValue());
+
+		this.jwkList.set(0, rotatedRsaJwk);
+		encodedJws = this.jwtEncoder.encode(parameters);
+		NimbusJwtDecoder.withPublicKey(rotatedRsaJwk.toRSAPublicKey()).build().decode(encodedJws.getTokenValue());
+	}
+
+	@Test
+	public void encodeAllWhenParametersNullThenThrowIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.jwtEncoder.encodeAll(null))
+				.withMessage("parameters cannot be null");
+		assertThatIllegalArgumentException().isThrownBy(() -> this.jwtEncoder.encodeAll(Collections.singletonList(null)))
+				.withMessage("parameters cannot contain null elements");
+	}
+
+	@Test
+	public void encodeAllWhenBatchThenEncodedInOrder() throws Exception {
+		RSAKey rsaJwk = TestJwks.jwk(TestKeys.DEFAULT_PUBLIC_KEY, TestKeys.DEFAULT_PRIVATE_KEY).keyID("rsa").build();
+		this.jwkList.add(rsaJwk);
+		List<JwtEncoderParameters> parameters = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			JwtClaimsSet jwtClaimsSet = TestJwtClaimsSets.jwtClaimsSet().subject("subject-" + i).build();
+			parameters.add(JwtEncoderParameters.from(jwtClaimsSet));
+		}
+
+		List<Jwt> encodedJwts = this.jwtEncoder.encodeAll(parameters);
+
+		assertThat(encodedJwts).hasSize(50);
+		NimbusJwtDecoder jwtDecoder = NimbusJwtDecoder.withPublicKey(rsaJwk.toRSAPublicKey()).build();
+		for (int i = 0; i < 50; i++) {
+			assertThat(jwtDecoder.decode(encodedJwts.get(i).getTokenValue()).getSubject()).isEqualTo("subject-" + i);
+		}
+	}
+
+	@Test
+	public void encodeAllWhenJwkSelectEmptyThenThrowJwtEncodingException() {
+		List<JwtEncoderParameters> parameters = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			parameters.add(JwtEncoderParameters.from(TestJwtClaimsSets.jwtClaimsSet().build()));
+		}
+
+		assertThatExceptionOfType(JwtEncodingException.class).isThrownBy(() -> this.jwtEncoder.encodeAll(parameters))
+				.withMessageContaining("Failed to select a JWK signing key");
+	}
+
 	private static final class JwkListResultCaptor implements Answer<List<JWK>> {
 
 		private List<JWK> result;
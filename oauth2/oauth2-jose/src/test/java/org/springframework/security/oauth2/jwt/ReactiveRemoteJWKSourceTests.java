@@ -16,6 +16,7 @@
 
 package org.springframework.security.oauth2.jwt;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 
@@ -31,6 +32,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.scheduler.Schedulers;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -156,4 +158,35 @@ public class ReactiveRemoteJWKSourceTests {
 		assertThat(this.source.get(this.selector).block()).isEmpty();
 	}
 
+	@Test
+	public void getWhenNoMatchAndKeyIdNotMatchAndRecentlyFetchedThenEmptyWithoutRefetch() {
+		this.source.scheduleRefresh(Duration.ofDays(1), Duration.ofSeconds(30), Schedulers.parallel());
+		this.server.enqueue(new MockResponse().setBody(this.keys2));
+		given(this.matcher.matches(any())).willReturn(false);
+		given(this.matcher.getKeyIDs()).willReturn(Collections.singleton("rotated"));
+		assertThat(this.source.get(this.selector).block()).isEmpty();
+		assertThat(this.server.getRequestCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void refreshWhenSuccessfulThenUsesNewKeys() {
+		this.server.enqueue(new MockResponse().setBody(this.keys2));
+		given(this.matcher.matches(any())).willReturn(true);
+		this.source.get(this.selector).block();
+		this.source.refresh().block();
+		List<JWK> keys = this.source.get(this.selector).block();
+		assertThat(keys).extracting(JWK::getKeyID).containsExactly("rotated");
+		assertThat(this.server.getRequestCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void refreshWhenFailingThenKeepsLastKeys() {
+		this.server.enqueue(new MockResponse().setResponseCode(500));
+		given(this.matcher.matches(any())).willReturn(true);
+		this.source.get(this.selector).block();
+		this.source.refresh().block();
+		assertThat(this.source.get(this.selector).block()).hasSize(2);
+		assertThat(this.server.getRequestCount()).isEqualTo(2);
+	}
+
 }
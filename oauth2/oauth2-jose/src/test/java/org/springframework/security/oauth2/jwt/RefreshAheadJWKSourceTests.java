@@ -0,0 +1,218 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.net.URL;
+import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.nimbusds.jose.RemoteKeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.util.DefaultResourceRetriever;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.willReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link RefreshAheadJWKSource}
+ */
+public class RefreshAheadJWKSourceTests {
+
+	private static final String MODULUS = "m4I5Dk5GnbzzUtqaljDVbpMONi1JLNJ8ZuXE8VvjCAVebDg5vTYhQ33jUwGgbn1wFmytUMgMmvK8A8Gpshl0sO2GBIZoh6_pwLrk657ZEtv-hx9fYKnzwyrfHqxtSswMAyr7XtKl8Ha1I03uFMSaYaaBTwVXCHByhzr4PVXfKAYJNbbcteUZfE8ODlBQkjQLI0IB78Nu8XIRrdzTF_5LCuM6rLUNtX6_KdzPpeX9KEtB7OBAfkdZEtBzGI-aYNLtIaL4qO6cVxBeVDLMoj9kVsRPylrwhEFQcGOjtJhwJwXFzTMZVhkiLFCHxZkkjoMrK5osSRlhduuGI9ot8XTUKQ";
+
+	private static final String KEYS = jwkSet("one");
+
+	private static final String ROTATED_KEYS = jwkSet("rotated");
+
+	private final Instant now = Instant.parse("2023-01-01T00:00:00Z");
+
+	private MockWebServer server;
+
+	private RefreshAheadJWKSource source;
+
+	@BeforeEach
+	public void setup() throws Exception {
+		this.server = new MockWebServer();
+		this.server.start();
+		URL url = this.server.url("/jwks").url();
+		this.source = new RefreshAheadJWKSource(url, new DefaultResourceRetriever());
+		this.source.setClock(Clock.fixed(this.now, ZoneOffset.UTC));
+	}
+
+	@AfterEach
+	public void cleanup() throws Exception {
+		this.server.shutdown();
+	}
+
+	@Test
+	public void getWhenCalledTwiceThenFetchesOnce() throws Exception {
+		this.server.enqueue(new MockResponse().setBody(KEYS));
+		assertThat(this.source.get(selector("one"), null)).extracting(JWK::getKeyID).containsExactly("one");
+		assertThat(this.source.get(selector("one"), null)).extracting(JWK::getKeyID).containsExactly("one");
+		assertThat(this.server.getRequestCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void getWhenFirstFetchFailsThenRemoteKeySourceException() {
+		this.server.enqueue(new MockResponse().setResponseCode(500));
+		assertThatExceptionOfType(RemoteKeySourceException.class)
+				.isThrownBy(() -> this.source.get(selector("one"), null));
+	}
+
+	@Test
+	public void getWhenMalformedJwkSetThenRemoteKeySourceExceptionCausedByParseException() {
+		this.server.enqueue(new MockResponse().setBody("malformed"));
+		assertThatExceptionOfType(RemoteKeySourceException.class)
+				.isThrownBy(() -> this.source.get(selector("one"), null))
+				.withCauseInstanceOf(ParseException.class);
+	}
+
+	@Test
+	public void refreshWhenSuccessfulThenServesNewJwkSet() throws Exception {
+		this.server.enqueue(new MockResponse().setBody(KEYS));
+		this.server.enqueue(new MockResponse().setBody(ROTATED_KEYS));
+		this.source.get(selector("one"), null);
+		this.source.refresh();
+		assertThat(this.source.get(selector("rotated"), null)).extracting(JWK::getKeyID).containsExactly("rotated");
+		assertThat(this.server.getRequestCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void refreshWhenFailingThenKeepsServingLastJwkSet() throws Exception {
+		this.server.enqueue(new MockResponse().setBody(KEYS));
+		this.server.enqueue(new MockResponse().setResponseCode(503));
+		this.source.get(selector("one"), null);
+		this.source.refresh();
+		assertThat(this.source.get(selector("one"), null)).extracting(JWK::getKeyID).containsExactly("one");
+		assertThat(this.server.getRequestCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void getWhenUnknownKeyIdThenRefetchesAtMostOncePerMinimumInterval() throws Exception {
+		this.server.enqueue(new MockResponse().setBody(KEYS));
+		this.server.enqueue(new MockResponse().setBody(ROTATED_KEYS));
+		this.source.get(selector("one"), null);
+		this.source.setClock(Clock.fixed(this.now.plusSeconds(29), ZoneOffset.UTC));
+		assertThat(this.source.get(selector("rotated"), null)).isEmpty();
+		assertThat(this.server.getRequestCount()).isEqualTo(1);
+		this.source.setClock(Clock.fixed(this.now.plusSeconds(30), ZoneOffset.UTC));
+		assertThat(this.source.get(selector("rotated"), null)).extracting(JWK::getKeyID).containsExactly("rotated");
+		assertThat(this.server.getRequestCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void getWhenInitialJwkSetThenDoesNotFetch() throws Exception {
+		this.source.setJwkSet(JWKSet.parse(KEYS));
+		assertThat(this.source.get(selector("one"), null)).extracting(JWK::getKeyID).containsExactly("one");
+		assertThat(this.server.getRequestCount()).isZero();
+	}
+
+	@Test
+	public void refreshWhenSuccessfulThenNotifiesListener() throws Exception {
+		List<JWKSet> jwkSets = new ArrayList<>();
+		this.source.setJwkSetListener(jwkSets::add);
+		this.server.enqueue(new MockResponse().setBody(KEYS));
+		this.server.enqueue(new MockResponse().setResponseCode(500));
+		this.source.refresh();
+		this.source.refresh();
+		assertThat(jwkSets).hasSize(1);
+	}
+
+	@Test
+	public void scheduleRefreshThenRefreshesOnScheduler() throws Exception {
+		ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+		this.source.scheduleRefresh(scheduler, Duration.ofMinutes(5));
+		ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+		verify(scheduler).scheduleWithFixedDelay(task.capture(), eq(300000L), eq(300000L), any(TimeUnit.class));
+		this.server.enqueue(new MockResponse().setBody(KEYS));
+		task.getValue().run();
+		assertThat(this.server.getRequestCount()).isEqualTo(1);
+		assertThat(this.source.get(selector("one"), null)).extracting(JWK::getKeyID).containsExactly("one");
+		assertThat(this.server.getRequestCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void scheduleRefreshWhenRefreshThrowsThenKeepsRefreshing() {
+		ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+		this.source.setJwkSetListener((jwkSet) -> {
+			throw new IllegalStateException("listener failed");
+		});
+		this.source.scheduleRefresh(scheduler, Duration.ofMinutes(5));
+		ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+		verify(scheduler).scheduleWithFixedDelay(task.capture(), eq(300000L), eq(300000L), any(TimeUnit.class));
+		this.server.enqueue(new MockResponse().setBody(KEYS));
+		this.server.enqueue(new MockResponse().setBody(ROTATED_KEYS));
+		task.getValue().run();
+		task.getValue().run();
+		assertThat(this.server.getRequestCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void destroyWhenSchedulerOwnedThenCancelledAndShutDown() {
+		ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+		ScheduledFuture<?> future = mock(ScheduledFuture.class);
+		willReturn(future).given(scheduler).scheduleWithFixedDelay(any(), eq(300000L), eq(300000L), any());
+		this.source.scheduleRefresh(scheduler, Duration.ofMinutes(5), true);
+		this.source.destroy();
+		verify(future).cancel(false);
+		verify(scheduler).shutdown();
+	}
+
+	@Test
+	public void destroyWhenSchedulerGivenThenCancelledOnly() {
+		ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+		ScheduledFuture<?> future = mock(ScheduledFuture.class);
+		willReturn(future).given(scheduler).scheduleWithFixedDelay(any(), eq(300000L), eq(300000L), any());
+		this.source.scheduleRefresh(scheduler, Duration.ofMinutes(5));
+		this.source.destroy();
+		verify(future).cancel(false);
+		verify(scheduler, never()).shutdown();
+	}
+
+	private static JWKSelector selector(String keyId) {
+		return new JWKSelector(new JWKMatcher.Builder().keyID(keyId).build());
+	}
+
+	private static String jwkSet(String keyId) {
+		return "{\"keys\":[{\"kty\":\"RSA\",\"e\":\"AQAB\",\"use\":\"sig\",\"kid\":\"" + keyId + "\",\"n\":\"" + MODULUS
+				+ "\"}]}";
+	}
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import com.nimbusds.jose.jwk.JWKSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link VerifiedJwtCache}
+ */
+public class VerifiedJwtCacheTests {
+
+	private static final String JWK_SET = "{\"keys\":[{\"kty\":\"oct\",\"kid\":\"one\",\"k\":\"b25l\"}]}";
+
+	private static final String ROTATED_JWK_SET = "{\"keys\":[{\"kty\":\"oct\",\"kid\":\"two\",\"k\":\"dHdv\"}]}";
+
+	private final Instant now = Instant.parse("2023-01-01T00:00:00Z");
+
+	private VerifiedJwtCache cache;
+
+	@BeforeEach
+	public void setup() {
+		this.cache = new VerifiedJwtCache(2, Duration.ofSeconds(60));
+		this.cache.setClock(Clock.fixed(this.now, ZoneOffset.UTC));
+	}
+
+	@Test
+	public void constructorWhenMaximumSizeZeroThenException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new VerifiedJwtCache(0, Duration.ZERO));
+	}
+
+	@Test
+	public void constructorWhenNegativeClockSkewThenException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new VerifiedJwtCache(1, Duration.ofSeconds(-1)));
+	}
+
+	@Test
+	public void getWhenPutThenReturnsSameJwt() {
+		Jwt jwt = jwt("token", this.now.plusSeconds(3600));
+		this.cache.put(jwt);
+		assertThat(this.cache.get("token")).isSameAs(jwt);
+		assertThat(this.cache.get("other")).isNull();
+	}
+
+	@Test
+	public void putWhenNoExpiryThenNotCached() {
+		this.cache.put(Jwt.withTokenValue("token").header("alg", "HS256").claim("sub", "user").build());
+		assertThat(this.cache.get("token")).isNull();
+		assertThat(this.cache.size()).isZero();
+	}
+
+	@Test
+	public void putWhenWithinClockSkewOfExpiryThenNotCached() {
+		this.cache.put(jwt("token", this.now.plusSeconds(60)));
+		assertThat(this.cache.size()).isZero();
+	}
+
+	@Test
+	public void getWhenPastExpiryMinusClockSkewThenRemoved() {
+		this.cache.put(jwt("token", this.now.plusSeconds(120)));
+		this.cache.setClock(Clock.fixed(this.now.plusSeconds(59), ZoneOffset.UTC));
+		assertThat(this.cache.get("token")).isNotNull();
+		this.cache.setClock(Clock.fixed(this.now.plusSeconds(60), ZoneOffset.UTC));
+		assertThat(this.cache.get("token")).isNull();
+		assertThat(this.cache.size()).isZero();
+	}
+
+	@Test
+	public void putWhenFullThenEvictsLeastRecentlyUsed() {
+		this.cache.put(jwt("one", this.now.plusSeconds(3600)));
+		this.cache.put(jwt("two", this.now.plusSeconds(3600)));
+		assertThat(this.cache.get("one")).isNotNull();
+		this.cache.put(jwt("three", this.now.plusSeconds(3600)));
+		assertThat(this.cache.size()).isEqualTo(2);
+		assertThat(this.cache.get("two")).isNull();
+		assertThat(this.cache.get("one")).isNotNull();
+		assertThat(this.cache.get("three")).isNotNull();
+	}
+
+	@Test
+	public void putWhenFullAndNothingExpiredThenStaysBounded() {
+		this.cache.put(jwt("one", this.now.plusSeconds(3600)));
+		this.cache.put(jwt("two", this.now.plusSeconds(3600)));
+		this.cache.put(jwt("three", this.now.plusSeconds(3600)));
+		assertThat(this.cache.size()).isEqualTo(2);
+		assertThat(this.cache.get("three")).isNotNull();
+	}
+
+	@Test
+	public void keysChangedWhenSameJwkSetThenKeepsEntries() throws ParseException {
+		this.cache.keysChanged(JWKSet.parse(JWK_SET));
+		this.cache.put(jwt("token", this.now.plusSeconds(3600)));
+		this.cache.keysChanged(JWKSet.parse(JWK_SET));
+		assertThat(this.cache.get("token")).isNotNull();
+	}
+
+	@Test
+	public void keysChangedWhenRotatedThenDropsEntries() throws ParseException {
+		this.cache.keysChanged(JWKSet.parse(JWK_SET));
+		this.cache.put(jwt("token", this.now.plusSeconds(3600)));
+		this.cache.keysChanged(JWKSet.parse(ROTATED_JWK_SET));
+		assertThat(this.cache.get("token")).isNull();
+	}
+
+	@Test
+	public void keysChangedWhenFirstJwkSetThenDropsEntries() throws ParseException {
+		this.cache.put(jwt("token", this.now.plusSeconds(3600)));
+		this.cache.keysChanged(JWKSet.parse(JWK_SET));
+		assertThat(this.cache.get("token")).isNull();
+	}
+
+	private static Jwt jwt(String token, Instant expiresAt) {
+		return Jwt.withTokenValue(token).header("alg", "HS256").expiresAt(expiresAt).build();
+	}
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.server.resource.authentication;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.log.LogMessage;
+import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentLruCache;
+
+/**
+ * A bounded, least recently used cache of per-issuer values, whose entries optionally
+ * expire a fixed time after they were loaded.
+ * <p>
+ * Concurrent requests for an issuer that is not loaded yet share a single load. Once an
+ * entry expires, its value is still returned while a single load refreshes it on the
+ * {@link #setRefreshExecutor(Executor) refresh executor}. If the refresh fails, the
+ * previous value is kept and the next request tries again.
+ *
+ * @param <V> the type of the cached values
+ * @since 6.1
+ */
+final class IssuerCache<V> {
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private ConcurrentLruCache<String, AtomicReference<Entry<V>>> entries = entries(1024);
+
+	private Duration timeToLive;
+
+	private Executor refreshExecutor = Runnable::run;
+
+	private Clock clock = Clock.systemUTC();
+
+	/**
+	 * Return the value cached for the given issuer, loading it if it is absent, and
+	 * refreshing it if it is expired
+	 * @param issuer the issuer
+	 * @param loader the function to load the value, which is called on the calling
+	 * thread unless the value is being refreshed
+	 * @return the cached value, or the load of the value if none is cached
+	 */
+	CompletableFuture<V> get(String issuer, Function<String, CompletableFuture<V>> loader) {
+		AtomicReference<Entry<V>> holder = holder(issuer);
+		Instant now = this.clock.instant();
+		while (true) {
+			Entry<V> entry = holder.get();
+			if (entry != null && entry.value != null && !entry.isExpired(now)) {
+				return entry.value;
+			}
+			if (entry != null && entry.load != null) {
+				return (entry.value != null) ? entry.value : entry.load;
+			}
+			Entry<V> loading = (entry != null) ? new Entry<>(entry.value, entry.expiresAt, new CompletableFuture<>())
+					: new Entry<>(null, null, new CompletableFuture<>());
+			if (holder.compareAndSet(entry, loading)) {
+				if (loading.value == null) {
+					load(issuer, holder, loading, loader);
+					return loading.load;
+				}
+				this.refreshExecutor.execute(() -> load(issuer, holder, loading, loader));
+				return loading.value;
+			}
+		}
+	}
+
+	int size() {
+		return this.entries.size();
+	}
+
+	void setMaximumSize(int maximumSize) {
+		Assert.isTrue(maximumSize > 0, "maximumSize must be positive");
+		this.entries = entries(maximumSize);
+	}
+
+	void setTimeToLive(Duration timeToLive) {
+		Assert.notNull(timeToLive, "timeToLive cannot be null");
+		Assert.isTrue(!timeToLive.isNegative() && !timeToLive.isZero(), "timeToLive must be positive");
+		this.timeToLive = timeToLive;
+	}
+
+	void setRefreshExecutor(Executor refreshExecutor) {
+		Assert.notNull(refreshExecutor, "refreshExecutor cannot be null");
+		this.refreshExecutor = refreshExecutor;
+	}
+
+	void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	private AtomicReference<Entry<V>> holder(String issuer) {
+		AtomicReference<Entry<V>> holder = this.entries.get(issuer);
+		// racing callers may each have created a holder, so settle on the cached one
+		return (holder.get() != null) ? holder : this.entries.get(issuer);
+	}
+
+	private void load(String issuer, AtomicReference<Entry<V>> holder, Entry<V> loading,
+			Function<String, CompletableFuture<V>> loader) {
+		CompletableFuture<V> loaded;
+		try {
+			loaded = loader.apply(issuer);
+		}
+		catch (RuntimeException ex) {
+			loaded = CompletableFuture.failedFuture(ex);
+		}
+		loaded.whenComplete((value, ex) -> {
+			// only the load changes the entry until it is done
+			if (ex == null) {
+				Instant expiresAt = (this.timeToLive != null) ? this.clock.instant().plus(this.timeToLive) : null;
+				holder.set(new Entry<>(CompletableFuture.completedFuture(value), expiresAt, null));
+				loading.load.complete(value);
+				return;
+			}
+			holder.set(new Entry<>(loading.value, loading.expiresAt, null));
+			if (loading.value != null) {
+				this.logger.warn(LogMessage.format("Failed to refresh the value for issuer '%s'", issuer), ex);
+			}
+			loading.load.completeExceptionally(ex);
+		});
+	}
+
+	private static <V> ConcurrentLruCache<String, AtomicReference<Entry<V>>> entries(int maximumSize) {
+		return new ConcurrentLruCache<>(maximumSize, (issuer) -> new AtomicReference<>());
+	}
+
+	private static final class Entry<V> {
+
+		private final CompletableFuture<V> value;
+
+		private final Instant expiresAt;
+
+		private final CompletableFuture<V> load;
+
+		private Entry(CompletableFuture<V> value, Instant expiresAt, CompletableFuture<V> load) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+			this.load = load;
+		}
+
+		private boolean isExpired(Instant now) {
+			return this.expiresAt != null && !now.isBefore(this.expiresAt);
+		}
+
+	}
+
+}
@@ -20,6 +20,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -30,11 +35,18 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentLruCache;
 import org.springframework.util.StringUtils;
 
 /**
  * Extracts the {@link GrantedAuthority}s from scope attributes typically found in a
  * {@link Jwt}.
+ * <p>
+ * Authorities can also be read from a claim nested in other JSON object claims, see
+ * {@link #setAuthoritiesClaimPath(String...)}. When an
+ * {@link #setAuthoritiesCacheSize(int) authorities cache} is configured, the authorities
+ * mapped from each distinct claim value are kept as an immutable collection and returned
+ * as is for any later token with an equal claim value.
  *
  * @author Eric Deandrea
  * @since 5.2
@@ -53,7 +65,9 @@ public final class JwtGrantedAuthoritiesConverter implements Converter<Jwt, Coll
 
 	private String authoritiesClaimDelimiter = DEFAULT_AUTHORITIES_CLAIM_DELIMITER;
 
-	private String authoritiesClaimName;
+	private String[] authoritiesClaimPath;
+
+	private AuthoritiesCache authoritiesCache;
 
 	/**
 	 * Extract {@link GrantedAuthority}s from the given {@link Jwt}.
@@ -62,9 +76,18 @@ public final class JwtGrantedAuthoritiesConverter implements Converter<Jwt, Coll
 	 */
 	@Override
 	public Collection<GrantedAuthority> convert(Jwt jwt) {
-		Collection<GrantedAuthority> grantedAuthorities = new ArrayList<>();
-		for (String authority : getAuthorities(jwt)) {
-			grantedAuthorities.add(new SimpleGrantedAuthority(this.authorityPrefix + authority));
+		Object authorities = getAuthoritiesClaim(jwt);
+		AuthoritiesCache authoritiesCache = this.authoritiesCache;
+		if (authoritiesCache == null) {
+			return convert(authorities, SimpleGrantedAuthority::new);
+		}
+		return authoritiesCache.get(authorities);
+	}
+
+	private List<GrantedAuthority> convert(Object authorities, Function<String, GrantedAuthority> factory) {
+		List<GrantedAuthority> grantedAuthorities = new ArrayList<>();
+		for (String authority : getAuthorities(authorities)) {
+			grantedAuthorities.add(factory.apply(this.authorityPrefix + authority));
 		}
 		return grantedAuthorities;
 	}
@@ -79,6 +102,7 @@ public final class JwtGrantedAuthoritiesConverter implements Converter<Jwt, Coll
 	public void setAuthorityPrefix(String authorityPrefix) {
 		Assert.notNull(authorityPrefix, "authorityPrefix cannot be null");
 		this.authorityPrefix = authorityPrefix;
+		clearAuthoritiesCache();
 	}
 
 	/**
@@ -91,6 +115,7 @@ public final class JwtGrantedAuthoritiesConverter implements Converter<Jwt, Coll
 	public void setAuthoritiesClaimDelimiter(String authoritiesClaimDelimiter) {
 		Assert.notNull(authoritiesClaimDelimiter, "authoritiesClaimDelimiter cannot be null");
 		this.authoritiesClaimDelimiter = authoritiesClaimDelimiter;
+		clearAuthoritiesCache();
 	}
 
 	/**
@@ -102,31 +127,76 @@ public final class JwtGrantedAuthoritiesConverter implements Converter<Jwt, Coll
 	 */
 	public void setAuthoritiesClaimName(String authoritiesClaimName) {
 		Assert.hasText(authoritiesClaimName, "authoritiesClaimName cannot be empty");
-		this.authoritiesClaimName = authoritiesClaimName;
+		this.authoritiesClaimPath = new String[] { authoritiesClaimName };
 	}
 
-	private String getAuthoritiesClaimName(Jwt jwt) {
-		if (this.authoritiesClaimName != null) {
-			return this.authoritiesClaimName;
+	/**
+	 * Sets the path of the token claim to use for mapping {@link GrantedAuthority
+	 * authorities} by this converter. The first element names a top-level claim of the
+	 * token, each further element names a member of the JSON object found so far. For
+	 * example, {@code setAuthoritiesClaimPath("realm_access", "roles")} reads the
+	 * {@code roles} member of the {@code realm_access} claim.
+	 * @param authoritiesClaimPath The path of the token claim to map authorities
+	 * @since 6.1
+	 */
+	public void setAuthoritiesClaimPath(String... authoritiesClaimPath) {
+		Assert.notEmpty(authoritiesClaimPath, "authoritiesClaimPath cannot be empty");
+		for (String claimName : authoritiesClaimPath) {
+			Assert.hasText(claimName, "authoritiesClaimPath cannot contain empty claim names");
 		}
-		for (String claimName : WELL_KNOWN_AUTHORITIES_CLAIM_NAMES) {
-			if (jwt.hasClaim(claimName)) {
-				return claimName;
-			}
+		this.authoritiesClaimPath = authoritiesClaimPath.clone();
+	}
+
+	/**
+	 * Sets the number of distinct authorities claim values whose mapped
+	 * {@link GrantedAuthority authorities} are cached by this converter. A cached
+	 * collection is immutable and is returned as is for every token with an equal claim
+	 * value, and {@link GrantedAuthority} instances are shared across cached collections.
+	 * Defaults to {@code 0}, which disables the cache.
+	 * @param authoritiesCacheSize The maximum number of cached claim values
+	 * @since 6.1
+	 */
+	public void setAuthoritiesCacheSize(int authoritiesCacheSize) {
+		Assert.isTrue(authoritiesCacheSize >= 0, "authoritiesCacheSize cannot be negative");
+		this.authoritiesCache = (authoritiesCacheSize > 0) ? new AuthoritiesCache(authoritiesCacheSize, this::convert)
+				: null;
+	}
+
+	private void clearAuthoritiesCache() {
+		AuthoritiesCache authoritiesCache = this.authoritiesCache;
+		if (authoritiesCache != null) {
+			this.authoritiesCache = new AuthoritiesCache(authoritiesCache.maximumSize, this::convert);
 		}
-		return null;
 	}
 
-	private Collection<String> getAuthorities(Jwt jwt) {
-		String claimName = getAuthoritiesClaimName(jwt);
-		if (claimName == null) {
+	private Object getAuthoritiesClaim(Jwt jwt) {
+		if (this.authoritiesClaimPath == null) {
+			for (String claimName : WELL_KNOWN_AUTHORITIES_CLAIM_NAMES) {
+				if (jwt.hasClaim(claimName)) {
+					return getAuthoritiesClaim(jwt.getClaims(), claimName);
+				}
+			}
 			this.logger.trace("Returning no authorities since could not find any claims that might contain scopes");
-			return Collections.emptyList();
+			return null;
+		}
+		Object claim = jwt.getClaims();
+		for (String claimName : this.authoritiesClaimPath) {
+			if (!(claim instanceof Map<?, ?> claims)) {
+				return null;
+			}
+			claim = getAuthoritiesClaim(claims, claimName);
 		}
+		return claim;
+	}
+
+	private Object getAuthoritiesClaim(Map<?, ?> claims, String claimName) {
 		if (this.logger.isTraceEnabled()) {
 			this.logger.trace(LogMessage.format("Looking for scopes in claim %s", claimName));
 		}
-		Object authorities = jwt.getClaim(claimName);
+		return claims.get(claimName);
+	}
+
+	private Collection<String> getAuthorities(Object authorities) {
 		if (authorities instanceof String) {
 			if (StringUtils.hasText((String) authorities)) {
 				return Arrays.asList(((String) authorities).split(this.authoritiesClaimDelimiter));
@@ -144,4 +214,46 @@ public final class JwtGrantedAuthoritiesConverter implements Converter<Jwt, Coll
 		return (Collection<String>) authorities;
 	}
 
+	/**
+	 * A bounded cache of the authorities mapped from each distinct authorities claim
+	 * value, which also shares the {@link GrantedAuthority} instances between them.
+	 */
+	private static final class AuthoritiesCache {
+
+		private final int maximumSize;
+
+		private final BiFunction<Object, Function<String, GrantedAuthority>, List<GrantedAuthority>> converter;
+
+		private final ConcurrentLruCache<String, GrantedAuthority> grantedAuthorities;
+
+		private final ConcurrentLruCache<Object, Collection<GrantedAuthority>> authorities;
+
+		private AuthoritiesCache(int maximumSize,
+				BiFunction<Object, Function<String, GrantedAuthority>, List<GrantedAuthority>> converter) {
+			this.maximumSize = maximumSize;
+			this.converter = converter;
+			// a claim value usually holds several authorities
+			this.grantedAuthorities = new ConcurrentLruCache<>(maximumSize * 16, SimpleGrantedAuthority::new);
+			this.authorities = new ConcurrentLruCache<>(maximumSize, this::convert);
+		}
+
+		private Collection<GrantedAuthority> get(Object claim) {
+			if (claim == null) {
+				return this.authorities.get(Collections.emptyList());
+			}
+			if (claim instanceof String) {
+				return this.authorities.get(claim);
+			}
+			if (claim instanceof List<?> list && list.stream().noneMatch(Objects::isNull)) {
+				return this.authorities.get(List.copyOf(list));
+			}
+			return convert(claim);
+		}
+
+		private Collection<GrantedAuthority> convert(Object claim) {
+			return Collections.unmodifiableList(this.converter.apply(claim, this.grantedAuthorities::get));
+		}
+
+	}
+
 }
@@ -16,11 +16,17 @@
 
 package org.springframework.security.oauth2.server.resource.authentication;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 import com.nimbusds.jwt.JWTParser;
@@ -30,6 +36,7 @@ import org.apache.commons.logging.LogFactory;
 
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.core.log.LogMessage;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationManagerResolver;
@@ -167,34 +174,153 @@ public final class JwtIssuerAuthenticationManagerResolver implements Authenticat
 
 	}
 
-	static class TrustedIssuerJwtAuthenticationManagerResolver implements AuthenticationManagerResolver<String> {
+	/**
+	 * An {@link AuthenticationManagerResolver} that creates a JWT-based
+	 * {@link AuthenticationManager} for each trusted issuer by way of
+	 * {@link JwtDecoders#fromIssuerLocation(String) OpenID Connect discovery}.
+	 * <p>
+	 * Created {@link AuthenticationManager}s are kept in a bounded, least recently used
+	 * cache, optionally for a limited {@link #setTimeToLive(Duration) time}, after which
+	 * they keep being used while the issuer is discovered again in the background.
+	 * Concurrent requests for an issuer that is not cached yet share a single discovery,
+	 * and known issuers can be {@link #prewarm(Collection) pre-warmed} before the first
+	 * request arrives. To use it, pass it to
+	 * {@link JwtIssuerAuthenticationManagerResolver#JwtIssuerAuthenticationManagerResolver(AuthenticationManagerResolver)}.
+	 *
+	 * @since 6.1
+	 */
+	public static final class TrustedIssuerJwtAuthenticationManagerResolver
+			implements AuthenticationManagerResolver<String> {
 
 		private final Log logger = LogFactory.getLog(getClass());
 
-		private final Map<String, AuthenticationManager> authenticationManagers = new ConcurrentHashMap<>();
+		private final IssuerCache<AuthenticationManager> authenticationManagers = new IssuerCache<>();
 
 		private final Predicate<String> trustedIssuer;
 
-		TrustedIssuerJwtAuthenticationManagerResolver(Predicate<String> trustedIssuer) {
+		private final Function<String, AuthenticationManager> authenticationManagerFactory;
+
+		/**
+		 * Construct a {@link TrustedIssuerJwtAuthenticationManagerResolver} using the
+		 * provided parameters
+		 * @param trustedIssuers a collection of trusted issuers
+		 */
+		public TrustedIssuerJwtAuthenticationManagerResolver(Collection<String> trustedIssuers) {
+			this(trustedIssuers(trustedIssuers));
+		}
+
+		/**
+		 * Construct a {@link TrustedIssuerJwtAuthenticationManagerResolver} using the
+		 * provided parameters
+		 * @param trustedIssuer a predicate to determine whether an issuer is trusted
+		 */
+		public TrustedIssuerJwtAuthenticationManagerResolver(Predicate<String> trustedIssuer) {
+			this(trustedIssuer, (issuer) -> {
+				JwtDecoder jwtDecoder = JwtDecoders.fromIssuerLocation(issuer);
+				return new JwtAuthenticationProvider(jwtDecoder)::authenticate;
+			});
+		}
+
+		TrustedIssuerJwtAuthenticationManagerResolver(Predicate<String> trustedIssuer,
+				Function<String, AuthenticationManager> authenticationManagerFactory) {
+			Assert.notNull(trustedIssuer, "trustedIssuer cannot be null");
 			this.trustedIssuer = trustedIssuer;
+			this.authenticationManagerFactory = authenticationManagerFactory;
+			SimpleAsyncTaskExecutor refreshExecutor = new SimpleAsyncTaskExecutor("issuer-refresh-");
+			refreshExecutor.setDaemon(true);
+			this.authenticationManagers.setRefreshExecutor(refreshExecutor);
+		}
+
+		private static Predicate<String> trustedIssuers(Collection<String> trustedIssuers) {
+			Assert.notEmpty(trustedIssuers, "trustedIssuers cannot be empty");
+			return new HashSet<>(trustedIssuers)::contains;
 		}
 
 		@Override
 		public AuthenticationManager resolve(String issuer) {
-			if (this.trustedIssuer.test(issuer)) {
-				AuthenticationManager authenticationManager = this.authenticationManagers.computeIfAbsent(issuer,
-						(k) -> {
-							this.logger.debug("Constructing AuthenticationManager");
-							JwtDecoder jwtDecoder = JwtDecoders.fromIssuerLocation(issuer);
-							return new JwtAuthenticationProvider(jwtDecoder)::authenticate;
-						});
-				this.logger.debug(LogMessage.format("Resolved AuthenticationManager for issuer '%s'", issuer));
-				return authenticationManager;
-			}
-			else {
+			if (!this.trustedIssuer.test(issuer)) {
 				this.logger.debug("Did not resolve AuthenticationManager since issuer is not trusted");
+				return null;
+			}
+			CompletableFuture<AuthenticationManager> authenticationManager = this.authenticationManagers.get(issuer,
+					this::construct);
+			this.logger.debug(LogMessage.format("Resolved AuthenticationManager for issuer '%s'", issuer));
+			return await(authenticationManager);
+		}
+
+		private CompletableFuture<AuthenticationManager> construct(String issuer) {
+			this.logger.debug("Constructing AuthenticationManager");
+			return CompletableFuture.completedFuture(this.authenticationManagerFactory.apply(issuer));
+		}
+
+		private AuthenticationManager await(CompletableFuture<AuthenticationManager> authenticationManager) {
+			try {
+				return authenticationManager.join();
+			}
+			catch (CompletionException ex) {
+				if (ex.getCause() instanceof RuntimeException cause) {
+					throw cause;
+				}
+				throw ex;
+			}
+		}
+
+		/**
+		 * Construct the {@link AuthenticationManager}s for the given issuers ahead of
+		 * their first request. Issuers that are not trusted are skipped, and failures are
+		 * logged so that an unavailable issuer does not prevent startup; such an issuer
+		 * is retried on its first request.
+		 * @param issuers the issuers to pre-warm
+		 */
+		public void prewarm(Collection<String> issuers) {
+			Assert.notNull(issuers, "issuers cannot be null");
+			for (String issuer : issuers) {
+				try {
+					resolve(issuer);
+				}
+				catch (RuntimeException ex) {
+					this.logger.warn(
+							LogMessage.format("Failed to pre-warm AuthenticationManager for issuer '%s'", issuer), ex);
+				}
 			}
-			return null;
+		}
+
+		/**
+		 * Sets the maximum number of issuers whose {@link AuthenticationManager} is
+		 * cached. When exceeded, the least recently used one is discarded. Defaults to
+		 * 1024.
+		 * @param maximumSize the maximum number of cached issuers
+		 */
+		public void setMaximumSize(int maximumSize) {
+			this.authenticationManagers.setMaximumSize(maximumSize);
+		}
+
+		/**
+		 * Sets how long an issuer's {@link AuthenticationManager} is cached before it is
+		 * discovered again. The expired {@link AuthenticationManager} is still used until
+		 * the discovery succeeds. By default, it is cached until it is evicted.
+		 * @param timeToLive the time to cache an {@link AuthenticationManager}
+		 */
+		public void setTimeToLive(Duration timeToLive) {
+			this.authenticationManagers.setTimeToLive(timeToLive);
+		}
+
+		/**
+		 * Sets the {@link Executor} that discovers issuers again once their
+		 * {@link AuthenticationManager} expired. Defaults to a
+		 * {@link SimpleAsyncTaskExecutor}.
+		 * @param refreshExecutor the {@link Executor} to use
+		 */
+		public void setRefreshExecutor(Executor refreshExecutor) {
+			this.authenticationManagers.setRefreshExecutor(refreshExecutor);
+		}
+
+		/**
+		 * Sets the {@link Clock} used to expire cached {@link AuthenticationManager}s
+		 * @param clock the {@link Clock} to use
+		 */
+		public void setClock(Clock clock) {
+			this.authenticationManagers.setClock(clock);
 		}
 
 	}
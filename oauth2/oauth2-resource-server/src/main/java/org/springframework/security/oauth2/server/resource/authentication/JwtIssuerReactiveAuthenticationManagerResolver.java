@@ -16,19 +16,26 @@
 
 package org.springframework.security.oauth2.server.resource.authentication;
 
+import java.time.Clock;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 import com.nimbusds.jwt.JWTParser;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
 import org.springframework.core.convert.converter.Converter;
+import org.springframework.core.log.LogMessage;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
@@ -166,15 +173,63 @@ public final class JwtIssuerReactiveAuthenticationManagerResolver
 
 	}
 
-	static class TrustedIssuerJwtAuthenticationManagerResolver
+	/**
+	 * A {@link ReactiveAuthenticationManagerResolver} that creates a JWT-based
+	 * {@link ReactiveAuthenticationManager} for each trusted issuer by way of
+	 * {@link ReactiveJwtDecoders#fromIssuerLocation(String) OpenID Connect discovery}.
+	 * <p>
+	 * Created {@link ReactiveAuthenticationManager}s are kept in a bounded, least
+	 * recently used cache, optionally for a limited {@link #setTimeToLive(Duration)
+	 * time}, after which they keep being used while the issuer is discovered again in the
+	 * background. Concurrent requests for an issuer that is not cached yet share a single
+	 * discovery, and known issuers can be {@link #prewarm(Collection) pre-warmed} before
+	 * the first request arrives. To use it, pass it to
+	 * {@link JwtIssuerReactiveAuthenticationManagerResolver#JwtIssuerReactiveAuthenticationManagerResolver(ReactiveAuthenticationManagerResolver)}.
+	 *
+	 * @since 6.1
+	 */
+	public static final class TrustedIssuerJwtAuthenticationManagerResolver
 			implements ReactiveAuthenticationManagerResolver<String> {
 
-		private final Map<String, Mono<ReactiveAuthenticationManager>> authenticationManagers = new ConcurrentHashMap<>();
+		private final Log logger = LogFactory.getLog(getClass());
+
+		private final IssuerCache<ReactiveAuthenticationManager> authenticationManagers = new IssuerCache<>();
 
 		private final Predicate<String> trustedIssuer;
 
-		TrustedIssuerJwtAuthenticationManagerResolver(Predicate<String> trustedIssuer) {
+		private final Function<String, Mono<ReactiveAuthenticationManager>> authenticationManagerFactory;
+
+		/**
+		 * Construct a {@link TrustedIssuerJwtAuthenticationManagerResolver} using the
+		 * provided parameters
+		 * @param trustedIssuers a collection of trusted issuers
+		 */
+		public TrustedIssuerJwtAuthenticationManagerResolver(Collection<String> trustedIssuers) {
+			this(trustedIssuers(trustedIssuers));
+		}
+
+		/**
+		 * Construct a {@link TrustedIssuerJwtAuthenticationManagerResolver} using the
+		 * provided parameters
+		 * @param trustedIssuer a predicate to determine whether an issuer is trusted
+		 */
+		public TrustedIssuerJwtAuthenticationManagerResolver(Predicate<String> trustedIssuer) {
+			// @formatter:off
+			this(trustedIssuer, (issuer) -> Mono.<ReactiveAuthenticationManager>fromCallable(() -> new JwtReactiveAuthenticationManager(ReactiveJwtDecoders.fromIssuerLocation(issuer)))
+					.subscribeOn(Schedulers.boundedElastic()));
+			// @formatter:on
+		}
+
+		TrustedIssuerJwtAuthenticationManagerResolver(Predicate<String> trustedIssuer,
+				Function<String, Mono<ReactiveAuthenticationManager>> authenticationManagerFactory) {
+			Assert.notNull(trustedIssuer, "trustedIssuer cannot be null");
 			this.trustedIssuer = trustedIssuer;
+			this.authenticationManagerFactory = authenticationManagerFactory;
+		}
+
+		private static Predicate<String> trustedIssuers(Collection<String> trustedIssuers) {
+			Assert.notEmpty(trustedIssuers, "trustedIssuers cannot be empty");
+			return new HashSet<>(trustedIssuers)::contains;
 		}
 
 		@Override
@@ -182,15 +237,66 @@ public final class JwtIssuerReactiveAuthenticationManagerResolver
 			if (!this.trustedIssuer.test(issuer)) {
 				return Mono.empty();
 			}
+			// the discovery is shared, so a cancelled request does not cancel it
+			return Mono.fromFuture(() -> this.authenticationManagers.get(issuer, this::construct), true);
+		}
+
+		private CompletableFuture<ReactiveAuthenticationManager> construct(String issuer) {
+			return this.authenticationManagerFactory.apply(issuer).toFuture();
+		}
+
+		/**
+		 * Construct the {@link ReactiveAuthenticationManager}s for the given issuers
+		 * ahead of their first request. Issuers that are not trusted are skipped, and
+		 * failures are logged so that an unavailable issuer does not prevent startup;
+		 * such an issuer is retried on its first request.
+		 * @param issuers the issuers to pre-warm
+		 * @return a {@link Mono} that completes once all issuers have been pre-warmed
+		 */
+		public Mono<Void> prewarm(Collection<String> issuers) {
+			Assert.notNull(issuers, "issuers cannot be null");
 			// @formatter:off
-			return this.authenticationManagers.computeIfAbsent(issuer,
-					(k) -> Mono.<ReactiveAuthenticationManager>fromCallable(() -> new JwtReactiveAuthenticationManager(ReactiveJwtDecoders.fromIssuerLocation(k)))
-							.subscribeOn(Schedulers.boundedElastic())
-							.cache((manager) -> Duration.ofMillis(Long.MAX_VALUE), (ex) -> Duration.ZERO, () -> Duration.ZERO)
-			);
+			return Flux.fromIterable(issuers)
+					.flatMap((issuer) -> resolve(issuer)
+							.onErrorResume((ex) -> {
+								this.logger.warn(LogMessage.format(
+										"Failed to pre-warm ReactiveAuthenticationManager for issuer '%s'", issuer), ex);
+								return Mono.empty();
+							})
+					)
+					.then();
 			// @formatter:on
 		}
 
+		/**
+		 * Sets the maximum number of issuers whose {@link ReactiveAuthenticationManager}
+		 * is cached. When exceeded, the least recently used one is discarded. Defaults to
+		 * 1024.
+		 * @param maximumSize the maximum number of cached issuers
+		 */
+		public void setMaximumSize(int maximumSize) {
+			this.authenticationManagers.setMaximumSize(maximumSize);
+		}
+
+		/**
+		 * Sets how long an issuer's {@link ReactiveAuthenticationManager} is cached before
+		 * it is discovered again. The expired {@link ReactiveAuthenticationManager} is still
+		 * used until the discovery succeeds. By default, it is cached until it is evicted.
+		 * @param timeToLive the time to cache a {@link ReactiveAuthenticationManager}
+		 */
+		public void setTimeToLive(Duration timeToLive) {
+			this.authenticationManagers.setTimeToLive(timeToLive);
+		}
+
+		/**
+		 * Sets the {@link Clock} used to expire cached
+		 * {@link ReactiveAuthenticationManager}s
+		 * @param clock the {@link Clock} to use
+		 */
+		public void setClock(Clock clock) {
+			this.authenticationManagers.setClock(clock);
+		}
+
 	}
 
 }
@@ -16,6 +16,8 @@
 
 package org.springframework.security.oauth2.server.resource.authentication;
 
+import java.util.Collection;
+
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -43,6 +45,13 @@ public final class ReactiveJwtAuthenticationConverter implements Converter<Jwt,
 
 	@Override
 	public Mono<AbstractAuthenticationToken> convert(Jwt jwt) {
+		if (this.jwtGrantedAuthoritiesConverter instanceof ReactiveJwtGrantedAuthoritiesConverterAdapter adapter) {
+			// the authorities are already at hand, so skip collecting them from a Flux
+			Collection<GrantedAuthority> authorities = adapter.convertToCollection(jwt);
+			Assert.notNull(authorities, "authorities cannot be null");
+			String principalName = jwt.getClaimAsString(this.principalClaimName);
+			return Mono.just(new JwtAuthenticationToken(jwt, authorities, principalName));
+		}
 		// @formatter:off
 		return this.jwtGrantedAuthoritiesConverter.convert(jwt)
 				.collectList()
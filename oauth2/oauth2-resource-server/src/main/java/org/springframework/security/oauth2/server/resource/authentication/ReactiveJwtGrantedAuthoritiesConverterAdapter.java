@@ -52,4 +52,8 @@ public final class ReactiveJwtGrantedAuthoritiesConverterAdapter implements Conv
 		return Flux.fromIterable(this.grantedAuthoritiesConverter.convert(jwt));
 	}
 
+	Collection<GrantedAuthority> convertToCollection(Jwt jwt) {
+		return this.grantedAuthoritiesConverter.convert(jwt);
+	}
+
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.server.resource.introspection;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+import org.springframework.security.oauth2.core.OAuth2AuthenticatedPrincipal;
+import org.springframework.util.Assert;
+
+/**
+ * An {@link OpaqueTokenIntrospector} which caches the results of another
+ * {@link OpaqueTokenIntrospector}, such as {@link SpringOpaqueTokenIntrospector}.
+ * <p>
+ * A token's principal is cached until the token's {@code exp} attribute, but no longer
+ * than the {@link #setMaximumTimeToLive(Duration) maximum time to live}, so that a revoked
+ * token is noticed within that time. A token that the delegate rejects with a
+ * {@link BadOpaqueTokenException} is remembered for the
+ * {@link #setNegativeTimeToLive(Duration) negative time to live}, other failures are not
+ * cached. Concurrent introspections of the same token share a single call to the
+ * delegate.
+ * <p>
+ * If an {@link #setObservationRegistry(ObservationRegistry) ObservationRegistry} is set,
+ * each introspection is observed along with whether it was answered from the cache.
+ *
+ * @since 6.1
+ */
+public final class CachingOpaqueTokenIntrospector implements OpaqueTokenIntrospector {
+
+	private final OpaqueTokenIntrospector delegate;
+
+	private final IntrospectionCache cache = new IntrospectionCache();
+
+	private final Map<IntrospectionCache.Key, CompletableFuture<OAuth2AuthenticatedPrincipal>> introspections = new ConcurrentHashMap<>();
+
+	/**
+	 * Create a new {@link CachingOpaqueTokenIntrospector}
+	 * @param delegate the {@link OpaqueTokenIntrospector} whose results to cache
+	 */
+	public CachingOpaqueTokenIntrospector(OpaqueTokenIntrospector delegate) {
+		Assert.notNull(delegate, "delegate cannot be null");
+		this.delegate = delegate;
+	}
+
+	@Override
+	public OAuth2AuthenticatedPrincipal introspect(String token) {
+		Observation observation = this.cache.start();
+		try {
+			return introspect(token, observation);
+		}
+		catch (RuntimeException ex) {
+			observation.error(ex);
+			throw ex;
+		}
+		finally {
+			observation.stop();
+		}
+	}
+
+	private OAuth2AuthenticatedPrincipal introspect(String token, Observation observation) {
+		IntrospectionCache.Key key = IntrospectionCache.key(token);
+		OAuth2AuthenticatedPrincipal principal = this.cache.get(key, observation);
+		if (principal != null) {
+			return principal;
+		}
+		CompletableFuture<OAuth2AuthenticatedPrincipal> introspection = new CompletableFuture<>();
+		CompletableFuture<OAuth2AuthenticatedPrincipal> inFlight = this.introspections.putIfAbsent(key,
+				introspection);
+		if (inFlight != null) {
+			this.cache.coalesced(observation);
+			return await(inFlight);
+		}
+		this.cache.miss(observation);
+		try {
+			principal = this.delegate.introspect(token);
+			this.cache.put(key, principal);
+			introspection.complete(principal);
+			return principal;
+		}
+		catch (BadOpaqueTokenException ex) {
+			this.cache.putFailure(key, ex);
+			introspection.completeExceptionally(ex);
+			throw ex;
+		}
+		catch (RuntimeException ex) {
+			introspection.completeExceptionally(ex);
+			throw ex;
+		}
+		finally {
+			this.introspections.remove(key, introspection);
+		}
+	}
+
+	private OAuth2AuthenticatedPrincipal await(CompletableFuture<OAuth2AuthenticatedPrincipal> introspection) {
+		try {
+			return introspection.join();
+		}
+		catch (CompletionException ex) {
+			if (ex.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw new OAuth2IntrospectionException(ex.getMessage(), ex);
+		}
+	}
+
+	/**
+	 * Sets the maximum number of cached introspection results. Defaults to 10000.
+	 * @param maximumSize the maximum number of cached results
+	 */
+	public void setMaximumSize(int maximumSize) {
+		this.cache.setMaximumSize(maximumSize);
+	}
+
+	/**
+	 * Sets the maximum time to cache a principal, regardless of the token's {@code exp}
+	 * attribute. Defaults to 5 minutes.
+	 * @param maximumTimeToLive the maximum time to cache a principal
+	 */
+	public void setMaximumTimeToLive(Duration maximumTimeToLive) {
+		this.cache.setMaximumTimeToLive(maximumTimeToLive);
+	}
+
+	/**
+	 * Sets the time to remember that a token is invalid. Defaults to 5 seconds, use
+	 * {@link Duration#ZERO} to not cache invalid tokens.
+	 * @param negativeTimeToLive the time to remember an invalid token
+	 */
+	public void setNegativeTimeToLive(Duration negativeTimeToLive) {
+		this.cache.setNegativeTimeToLive(negativeTimeToLive);
+	}
+
+	/**
+	 * Sets the {@link Clock} used to expire cached results
+	 * @param clock the {@link Clock} to use
+	 */
+	public void setClock(Clock clock) {
+		this.cache.setClock(clock);
+	}
+
+	/**
+	 * Sets the {@link ObservationRegistry} to observe introspections with, as
+	 * {@code spring.security.oauth2.introspection.cache} observations whose
+	 * {@code result} is one of {@code hit}, {@code negative-hit}, {@code coalesced} or
+	 * {@code miss}.
+	 * @param observationRegistry the {@link ObservationRegistry} to use
+	 */
+	public void setObservationRegistry(ObservationRegistry observationRegistry) {
+		this.cache.setObservationRegistry(observationRegistry);
+	}
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.server.resource.introspection;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import reactor.core.publisher.Mono;
+
+import org.springframework.security.oauth2.core.OAuth2AuthenticatedPrincipal;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link ReactiveOpaqueTokenIntrospector} which caches the results of another
+ * {@link ReactiveOpaqueTokenIntrospector}, such as
+ * {@link SpringReactiveOpaqueTokenIntrospector}.
+ * <p>
+ * A token's principal is cached until the token's {@code exp} attribute, but no longer
+ * than the {@link #setMaximumTimeToLive(Duration) maximum time to live}, so that a revoked
+ * token is noticed within that time. A token that the delegate rejects with a
+ * {@link BadOpaqueTokenException} is remembered for the
+ * {@link #setNegativeTimeToLive(Duration) negative time to live}, other failures are not
+ * cached. Concurrent introspections of the same token share a single subscription to the
+ * delegate.
+ * <p>
+ * If an {@link #setObservationRegistry(ObservationRegistry) ObservationRegistry} is set,
+ * each introspection is observed along with whether it was answered from the cache.
+ *
+ * @since 6.1
+ */
+public final class CachingReactiveOpaqueTokenIntrospector implements ReactiveOpaqueTokenIntrospector {
+
+	private final ReactiveOpaqueTokenIntrospector delegate;
+
+	private final IntrospectionCache cache = new IntrospectionCache();
+
+	private final Map<IntrospectionCache.Key, Mono<OAuth2AuthenticatedPrincipal>> introspections = new ConcurrentHashMap<>();
+
+	/**
+	 * Create a new {@link CachingReactiveOpaqueTokenIntrospector}
+	 * @param delegate the {@link ReactiveOpaqueTokenIntrospector} whose results to cache
+	 */
+	public CachingReactiveOpaqueTokenIntrospector(ReactiveOpaqueTokenIntrospector delegate) {
+		Assert.notNull(delegate, "delegate cannot be null");
+		this.delegate = delegate;
+	}
+
+	@Override
+	public Mono<OAuth2AuthenticatedPrincipal> introspect(String token) {
+		return Mono.defer(() -> {
+			Observation observation = this.cache.start();
+			// @formatter:off
+			return Mono.defer(() -> introspect(token, observation))
+					.doOnError(observation::error)
+					.doFinally((signal) -> observation.stop());
+			// @formatter:on
+		});
+	}
+
+	private Mono<OAuth2AuthenticatedPrincipal> introspect(String token, Observation observation) {
+		IntrospectionCache.Key key = IntrospectionCache.key(token);
+		OAuth2AuthenticatedPrincipal principal = this.cache.get(key, observation);
+		if (principal != null) {
+			return Mono.just(principal);
+		}
+		Mono<OAuth2AuthenticatedPrincipal> inFlight = this.introspections.get(key);
+		if (inFlight != null) {
+			this.cache.coalesced(observation);
+			return inFlight;
+		}
+		Mono<OAuth2AuthenticatedPrincipal> introspection = introspection(key, token);
+		inFlight = this.introspections.putIfAbsent(key, introspection);
+		if (inFlight != null) {
+			this.cache.coalesced(observation);
+			return inFlight;
+		}
+		this.cache.miss(observation);
+		return introspection;
+	}
+
+	private Mono<OAuth2AuthenticatedPrincipal> introspection(IntrospectionCache.Key key, String token) {
+		AtomicReference<Mono<OAuth2AuthenticatedPrincipal>> self = new AtomicReference<>();
+		// @formatter:off
+		Mono<OAuth2AuthenticatedPrincipal> introspection = Mono.defer(() -> this.delegate.introspect(token))
+			.doOnNext((principal) -> this.cache.put(key, principal))
+			.doOnError(BadOpaqueTokenException.class, (ex) -> this.cache.putFailure(key, ex))
+			.doFinally((signal) -> this.introspections.remove(key, self.get()))
+			.cache();
+		// @formatter:on
+		self.set(introspection);
+		return introspection;
+	}
+
+	/**
+	 * Sets the maximum number of cached introspection results. Defaults to 10000.
+	 * @param maximumSize the maximum number of cached results
+	 */
+	public void setMaximumSize(int maximumSize) {
+		this.cache.setMaximumSize(maximumSize);
+	}
+
+	/**
+	 * Sets the maximum time to cache a principal, regardless of the token's {@code exp}
+	 * attribute. Defaults to 5 minutes.
+	 * @param maximumTimeToLive the maximum time to cache a principal
+	 */
+	public void setMaximumTimeToLive(Duration maximumTimeToLive) {
+		this.cache.setMaximumTimeToLive(maximumTimeToLive);
+	}
+
+	/**
+	 * Sets the time to remember that a token is invalid. Defaults to 5 seconds, use
+	 * {@link Duration#ZERO} to not cache invalid tokens.
+	 * @param negativeTimeToLive the time to remember an invalid token
+	 */
+	public void setNegativeTimeToLive(Duration negativeTimeToLive) {
+		this.cache.setNegativeTimeToLive(negativeTimeToLive);
+	}
+
+	/**
+	 * Sets the {@link Clock} used to expire cached results
+	 * @param clock the {@link Clock} to use
+	 */
+	public void setClock(Clock clock) {
+		this.cache.setClock(clock);
+	}
+
+	/**
+	 * Sets the {@link ObservationRegistry} to observe introspections with, as
+	 * {@code spring.security.oauth2.introspection.cache} observations whose
+	 * {@code result} is one of {@code hit}, {@code negative-hit}, {@code coalesced} or
+	 * {@code miss}.
+	 * @param observationRegistry the {@link ObservationRegistry} to use
+	 */
+	public void setObservationRegistry(ObservationRegistry observationRegistry) {
+		this.cache.setObservationRegistry(observationRegistry);
+	}
+
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.server.resource.introspection;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+import org.springframework.security.oauth2.core.OAuth2AuthenticatedPrincipal;
+import org.springframework.security.oauth2.core.OAuth2TokenIntrospectionClaimNames;
+import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentLruCache;
+
+/**
+ * The introspection results shared by {@link CachingOpaqueTokenIntrospector} and
+ * {@link CachingReactiveOpaqueTokenIntrospector}, keyed by the SHA-256 digest of the
+ * token so that raw tokens are not kept as map keys.
+ *
+ * <p>
+ * The results are held in a bounded, least recently used cache. Each result carries its
+ * own expiry, which is checked when it is read.
+ *
+ * @since 6.1
+ */
+final class IntrospectionCache {
+
+	private static final String OBSERVATION_NAME = "spring.security.oauth2.introspection.cache";
+
+	private static final String RESULT = "result";
+
+	private ConcurrentLruCache<Key, AtomicReference<Entry>> entries = entries(10000);
+
+	private Duration maximumTimeToLive = Duration.ofMinutes(5);
+
+	private Duration negativeTimeToLive = Duration.ofSeconds(5);
+
+	private Clock clock = Clock.systemUTC();
+
+	private ObservationRegistry observationRegistry = ObservationRegistry.NOOP;
+
+	/**
+	 * Start observing the introspection of a token, whose result is recorded by
+	 * {@link #get(Key, Observation)}, {@link #coalesced(Observation)} or
+	 * {@link #miss(Observation)}
+	 * @return the started {@link Observation}
+	 */
+	Observation start() {
+		return Observation.start(OBSERVATION_NAME, this.observationRegistry);
+	}
+
+	/**
+	 * Return the cached principal for the given key
+	 * @param key the key
+	 * @param observation the observation to record a hit on
+	 * @return the cached principal or {@code null} if none is cached
+	 * @throws BadOpaqueTokenException if the token was recently found to be invalid
+	 */
+	OAuth2AuthenticatedPrincipal get(Key key, Observation observation) {
+		if (!this.entries.contains(key)) {
+			return null;
+		}
+		Entry entry = this.entries.get(key).get();
+		if (entry == null) {
+			return null;
+		}
+		if (!this.clock.instant().isBefore(entry.expiresAt)) {
+			this.entries.remove(key);
+			return null;
+		}
+		if (entry.principal == null) {
+			observation.lowCardinalityKeyValue(RESULT, "negative-hit");
+			throw new BadOpaqueTokenException(entry.failure);
+		}
+		observation.lowCardinalityKeyValue(RESULT, "hit");
+		return entry.principal;
+	}
+
+	void coalesced(Observation observation) {
+		observation.lowCardinalityKeyValue(RESULT, "coalesced");
+	}
+
+	void miss(Observation observation) {
+		observation.lowCardinalityKeyValue(RESULT, "miss");
+	}
+
+	void put(Key key, OAuth2AuthenticatedPrincipal principal) {
+		Instant now = this.clock.instant();
+		Instant expiresAt = now.plus(this.maximumTimeToLive);
+		Instant tokenExpiresAt = getExpiresAt(principal);
+		if (tokenExpiresAt != null && tokenExpiresAt.isBefore(expiresAt)) {
+			expiresAt = tokenExpiresAt;
+		}
+		put(key, new Entry(principal, null, expiresAt), now);
+	}
+
+	void putFailure(Key key, BadOpaqueTokenException failure) {
+		Instant now = this.clock.instant();
+		put(key, new Entry(null, failure.getMessage(), now.plus(this.negativeTimeToLive)), now);
+	}
+
+	private void put(Key key, Entry entry, Instant now) {
+		if (!now.isBefore(entry.expiresAt)) {
+			return;
+		}
+		this.entries.get(key).set(entry);
+	}
+
+	private static ConcurrentLruCache<Key, AtomicReference<Entry>> entries(int maximumSize) {
+		return new ConcurrentLruCache<>(maximumSize, (key) -> new AtomicReference<>());
+	}
+
+	private static Instant getExpiresAt(OAuth2AuthenticatedPrincipal principal) {
+		Object exp = principal.getAttribute(OAuth2TokenIntrospectionClaimNames.EXP);
+		if (exp instanceof Instant instant) {
+			return instant;
+		}
+		if (exp instanceof Number seconds) {
+			return Instant.ofEpochSecond(seconds.longValue());
+		}
+		return null;
+	}
+
+	void setMaximumSize(int maximumSize) {
+		Assert.isTrue(maximumSize > 0, "maximumSize must be greater than 0");
+		this.entries = entries(maximumSize);
+	}
+
+	void setMaximumTimeToLive(Duration maximumTimeToLive) {
+		Assert.notNull(maximumTimeToLive, "maximumTimeToLive cannot be null");
+		Assert.isTrue(!maximumTimeToLive.isNegative(), "maximumTimeToLive cannot be negative");
+		this.maximumTimeToLive = maximumTimeToLive;
+	}
+
+	void setNegativeTimeToLive(Duration negativeTimeToLive) {
+		Assert.notNull(negativeTimeToLive, "negativeTimeToLive cannot be null");
+		Assert.isTrue(!negativeTimeToLive.isNegative(), "negativeTimeToLive cannot be negative");
+		this.negativeTimeToLive = negativeTimeToLive;
+	}
+
+	void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	void setObservationRegistry(ObservationRegistry observationRegistry) {
+		Assert.notNull(observationRegistry, "observationRegistry cannot be null");
+		this.observationRegistry = observationRegistry;
+	}
+
+	static Key key(String token) {
+		return new Key(token);
+	}
+
+	static final class Key {
+
+		private final byte[] digest;
+
+		private final int hashCode;
+
+		private Key(String token) {
+			this.digest = digest(token);
+			this.hashCode = Arrays.hashCode(this.digest);
+		}
+
+		private static byte[] digest(String token) {
+			try {
+				return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+			}
+			catch (NoSuchAlgorithmException ex) {
+				throw new IllegalStateException(ex);
+			}
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Key other && Arrays.equals(this.digest, other.digest);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+
+	}
+
+	private static final class Entry {
+
+		private final OAuth2AuthenticatedPrincipal principal;
+
+		private final String failure;
+
+		private final Instant expiresAt;
+
+		private Entry(OAuth2AuthenticatedPrincipal principal, String failure, Instant expiresAt) {
+			this.principal = principal;
+			this.failure = failure;
+			this.expiresAt = expiresAt;
+		}
+
+	}
+
+}
@@ -19,6 +19,8 @@ package org.springframework.security.oauth2.server.resource.authentication;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.Test;
 
@@ -28,6 +30,7 @@ import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.TestJwts;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 
 /**
@@ -270,4 +273,84 @@ public class JwtGrantedAuthoritiesConverterTests {
 				new SimpleGrantedAuthority("SCOPE_message:write"));
 	}
 
+	@Test
+	public void setAuthoritiesClaimPathWhenEmptyThenException() {
+		JwtGrantedAuthoritiesConverter jwtGrantedAuthoritiesConverter = new JwtGrantedAuthoritiesConverter();
+		assertThatIllegalArgumentException().isThrownBy(() -> jwtGrantedAuthoritiesConverter.setAuthoritiesClaimPath());
+		assertThatIllegalArgumentException()
+				.isThrownBy(() -> jwtGrantedAuthoritiesConverter.setAuthoritiesClaimPath("realm_access", " "));
+	}
+
+	@Test
+	public void setAuthoritiesCacheSizeWhenNegativeThenException() {
+		JwtGrantedAuthoritiesConverter jwtGrantedAuthoritiesConverter = new JwtGrantedAuthoritiesConverter();
+		assertThatIllegalArgumentException().isThrownBy(() -> jwtGrantedAuthoritiesConverter.setAuthoritiesCacheSize(-1));
+	}
+
+	@Test
+	public void convertWhenTokenHasNestedClaimPathThenNestedClaimIsTranslatedToAuthorities() {
+		// @formatter:off
+		Jwt jwt = TestJwts.jwt()
+				.claim("realm_access", Map.of("roles", List.of("admin", "user")))
+				.claim("scope", "missive:read")
+				.build();
+		// @formatter:on
+		JwtGrantedAuthoritiesConverter jwtGrantedAuthoritiesConverter = new JwtGrantedAuthoritiesConverter();
+		jwtGrantedAuthoritiesConverter.setAuthoritiesClaimPath("realm_access", "roles");
+		Collection<GrantedAuthority> authorities = jwtGrantedAuthoritiesConverter.convert(jwt);
+		assertThat(authorities).containsExactly(new SimpleGrantedAuthority("SCOPE_admin"),
+				new SimpleGrantedAuthority("SCOPE_user"));
+	}
+
+	@Test
+	public void convertWhenTokenLacksNestedClaimPathThenNoAuthorities() {
+		// @formatter:off
+		Jwt jwt = TestJwts.jwt()
+				.claim("realm_access", "admin")
+				.claim("scope", "missive:read")
+				.build();
+		// @formatter:on
+		JwtGrantedAuthoritiesConverter jwtGrantedAuthoritiesConverter = new JwtGrantedAuthoritiesConverter();
+		jwtGrantedAuthoritiesConverter.setAuthoritiesClaimPath("realm_access", "roles");
+		assertThat(jwtGrantedAuthoritiesConverter.convert(jwt)).isEmpty();
+		jwtGrantedAuthoritiesConverter.setAuthoritiesClaimPath("resource_access", "account", "roles");
+		assertThat(jwtGrantedAuthoritiesConverter.convert(jwt)).isEmpty();
+	}
+
+	@Test
+	public void convertWhenAuthoritiesCacheThenSameCollectionForEqualClaimValues() {
+		Jwt one = TestJwts.jwt().claim("scope", "message:read message:write").build();
+		Jwt two = TestJwts.jwt().claim("scope", "message:read message:write").build();
+		JwtGrantedAuthoritiesConverter jwtGrantedAuthoritiesConverter = new JwtGrantedAuthoritiesConverter();
+		jwtGrantedAuthoritiesConverter.setAuthoritiesCacheSize(16);
+		Collection<GrantedAuthority> authorities = jwtGrantedAuthoritiesConverter.convert(one);
+		assertThat(authorities).containsExactly(new SimpleGrantedAuthority("SCOPE_message:read"),
+				new SimpleGrantedAuthority("SCOPE_message:write"));
+		assertThat(jwtGrantedAuthoritiesConverter.convert(two)).isSameAs(authorities);
+		assertThatExceptionOfType(UnsupportedOperationException.class)
+				.isThrownBy(() -> authorities.add(new SimpleGrantedAuthority("SCOPE_message:delete")));
+	}
+
+	@Test
+	public void convertWhenAuthoritiesCacheThenAuthoritiesSharedAcrossClaimValues() {
+		Jwt one = TestJwts.jwt().claim("scp", List.of("message:read", "message:write")).build();
+		Jwt two = TestJwts.jwt().claim("scp", List.of("message:read")).build();
+		JwtGrantedAuthoritiesConverter jwtGrantedAuthoritiesConverter = new JwtGrantedAuthoritiesConverter();
+		jwtGrantedAuthoritiesConverter.setAuthoritiesCacheSize(16);
+		GrantedAuthority read = jwtGrantedAuthoritiesConverter.convert(one).iterator().next();
+		assertThat(jwtGrantedAuthoritiesConverter.convert(two)).singleElement().isSameAs(read);
+	}
+
+	@Test
+	public void convertWhenAuthoritiesCacheAndAuthorityPrefixChangedThenRemapped() {
+		Jwt jwt = TestJwts.jwt().claim("scope", "message:read").build();
+		JwtGrantedAuthoritiesConverter jwtGrantedAuthoritiesConverter = new JwtGrantedAuthoritiesConverter();
+		jwtGrantedAuthoritiesConverter.setAuthoritiesCacheSize(16);
+		assertThat(jwtGrantedAuthoritiesConverter.convert(jwt))
+				.containsExactly(new SimpleGrantedAuthority("SCOPE_message:read"));
+		jwtGrantedAuthoritiesConverter.setAuthorityPrefix("ROLE_");
+		assertThat(jwtGrantedAuthoritiesConverter.convert(jwt))
+				.containsExactly(new SimpleGrantedAuthority("ROLE_message:read"));
+	}
+
 }
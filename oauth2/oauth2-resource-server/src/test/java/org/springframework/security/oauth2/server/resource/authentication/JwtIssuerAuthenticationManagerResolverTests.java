@@ -16,10 +16,24 @@
 
 package org.springframework.security.oauth2.server.resource.authentication;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.JWSHeader;
@@ -242,6 +256,154 @@ public class JwtIssuerAuthenticationManagerResolverTests {
 				.isThrownBy(() -> new JwtIssuerAuthenticationManagerResolver((AuthenticationManagerResolver) null));
 	}
 
+	@Test
+	public void resolveWhenConcurrentRequestsForNewIssuerThenSharesConstruction() throws Exception {
+		AtomicInteger constructions = new AtomicInteger();
+		CountDownLatch constructing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AuthenticationManager authenticationManager = mock(AuthenticationManager.class);
+		TrustedIssuerJwtAuthenticationManagerResolver resolver = new TrustedIssuerJwtAuthenticationManagerResolver(
+				"trusted"::equals, (issuer) -> {
+					constructions.incrementAndGet();
+					constructing.countDown();
+					await(release);
+					return authenticationManager;
+				});
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<AuthenticationManager> first = executor.submit(() -> resolver.resolve("trusted"));
+			assertThat(constructing.await(5, TimeUnit.SECONDS)).isTrue();
+			Future<AuthenticationManager> second = executor.submit(() -> resolver.resolve("trusted"));
+			Thread.sleep(50);
+			assertThat(second).isNotDone();
+			release.countDown();
+			assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(authenticationManager);
+			assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(authenticationManager);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		assertThat(constructions).hasValue(1);
+	}
+
+	@Test
+	public void resolveWhenConstructionFailsThenRetried() {
+		AtomicInteger constructions = new AtomicInteger();
+		TrustedIssuerJwtAuthenticationManagerResolver resolver = new TrustedIssuerJwtAuthenticationManagerResolver(
+				"trusted"::equals, (issuer) -> {
+					if (constructions.incrementAndGet() == 1) {
+						throw new IllegalArgumentException("unavailable");
+					}
+					return mock(AuthenticationManager.class);
+				});
+		assertThatIllegalArgumentException().isThrownBy(() -> resolver.resolve("trusted"));
+		assertThat(resolver.resolve("trusted")).isNotNull();
+		assertThat(constructions).hasValue(2);
+	}
+
+	@Test
+	public void resolveWhenMaximumSizeExceededThenLeastRecentlyUsedEvicted() {
+		Map<String, AtomicInteger> constructions = new ConcurrentHashMap<>();
+		TrustedIssuerJwtAuthenticationManagerResolver resolver = new TrustedIssuerJwtAuthenticationManagerResolver(
+				(issuer) -> true, (issuer) -> {
+					constructions.computeIfAbsent(issuer, (k) -> new AtomicInteger()).incrementAndGet();
+					return mock(AuthenticationManager.class);
+				});
+		resolver.setMaximumSize(2);
+		resolver.resolve("one");
+		resolver.resolve("two");
+		resolver.resolve("one");
+		resolver.resolve("three");
+		resolver.resolve("one");
+		resolver.resolve("two");
+		assertThat(constructions.get("one")).hasValue(1);
+		assertThat(constructions.get("two")).hasValue(2);
+		assertThat(constructions.get("three")).hasValue(1);
+	}
+
+	@Test
+	public void resolveWhenTimeToLiveElapsedThenConstructsAgainInBackground() {
+		Instant now = Instant.now();
+		AtomicInteger constructions = new AtomicInteger();
+		TrustedIssuerJwtAuthenticationManagerResolver resolver = new TrustedIssuerJwtAuthenticationManagerResolver(
+				"trusted"::equals, (issuer) -> {
+					constructions.incrementAndGet();
+					return mock(AuthenticationManager.class);
+				});
+		List<Runnable> refreshes = new ArrayList<>();
+		resolver.setRefreshExecutor(refreshes::add);
+		resolver.setTimeToLive(Duration.ofMinutes(10));
+		resolver.setClock(Clock.fixed(now, ZoneOffset.UTC));
+		AuthenticationManager authenticationManager = resolver.resolve("trusted");
+		resolver.setClock(Clock.fixed(now.plus(Duration.ofMinutes(9)), ZoneOffset.UTC));
+		assertThat(resolver.resolve("trusted")).isSameAs(authenticationManager);
+		resolver.setClock(Clock.fixed(now.plus(Duration.ofMinutes(10)), ZoneOffset.UTC));
+		assertThat(resolver.resolve("trusted")).isSameAs(authenticationManager);
+		assertThat(resolver.resolve("trusted")).isSameAs(authenticationManager);
+		assertThat(refreshes).hasSize(1);
+		refreshes.get(0).run();
+		assertThat(resolver.resolve("trusted")).isNotSameAs(authenticationManager);
+		assertThat(constructions).hasValue(2);
+	}
+
+	@Test
+	public void resolveWhenConstructingAgainFailsThenExpiredStillResolved() {
+		Instant now = Instant.now();
+		AtomicInteger constructions = new AtomicInteger();
+		TrustedIssuerJwtAuthenticationManagerResolver resolver = new TrustedIssuerJwtAuthenticationManagerResolver(
+				"trusted"::equals, (issuer) -> {
+					if (constructions.incrementAndGet() == 2) {
+						throw new IllegalArgumentException("unavailable");
+					}
+					return mock(AuthenticationManager.class);
+				});
+		resolver.setRefreshExecutor(Runnable::run);
+		resolver.setTimeToLive(Duration.ofMinutes(10));
+		resolver.setClock(Clock.fixed(now, ZoneOffset.UTC));
+		AuthenticationManager authenticationManager = resolver.resolve("trusted");
+		resolver.setClock(Clock.fixed(now.plus(Duration.ofMinutes(10)), ZoneOffset.UTC));
+		assertThat(resolver.resolve("trusted")).isSameAs(authenticationManager);
+		assertThat(resolver.resolve("trusted")).isSameAs(authenticationManager);
+		assertThat(resolver.resolve("trusted")).isNotSameAs(authenticationManager);
+		assertThat(constructions).hasValue(3);
+	}
+
+	@Test
+	public void prewarmWhenIssuersThenConstructsTrustedAndSkipsFailures() {
+		Map<String, AtomicInteger> constructions = new ConcurrentHashMap<>();
+		TrustedIssuerJwtAuthenticationManagerResolver resolver = new TrustedIssuerJwtAuthenticationManagerResolver(
+				(issuer) -> !issuer.equals("untrusted"), (issuer) -> {
+					constructions.computeIfAbsent(issuer, (k) -> new AtomicInteger()).incrementAndGet();
+					if (issuer.equals("unavailable")) {
+						throw new IllegalArgumentException("unavailable");
+					}
+					return mock(AuthenticationManager.class);
+				});
+		resolver.prewarm(Arrays.asList("one", "untrusted", "unavailable", "two"));
+		assertThat(constructions).containsOnlyKeys("one", "unavailable", "two");
+		resolver.resolve("one");
+		resolver.resolve("two");
+		assertThat(constructions.get("one")).hasValue(1);
+		assertThat(constructions.get("two")).hasValue(1);
+	}
+
+	@Test
+	public void setMaximumSizeWhenNotPositiveThenException() {
+		TrustedIssuerJwtAuthenticationManagerResolver resolver = new TrustedIssuerJwtAuthenticationManagerResolver(
+				Collections.singleton("trusted"));
+		assertThatIllegalArgumentException().isThrownBy(() -> resolver.setMaximumSize(0));
+		assertThatIllegalArgumentException().isThrownBy(() -> resolver.setTimeToLive(Duration.ZERO));
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
 	private Authentication withBearerToken(String token) {
 		return new BearerTokenAuthenticationToken(token);
 	}
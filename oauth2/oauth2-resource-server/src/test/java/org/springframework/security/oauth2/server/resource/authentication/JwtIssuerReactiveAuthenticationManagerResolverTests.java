@@ -16,10 +16,17 @@
 
 package org.springframework.security.oauth2.server.resource.authentication;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.JWSHeader;
@@ -33,6 +40,8 @@ import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import org.junit.jupiter.api.Test;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
 
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
 import org.springframework.security.authentication.ReactiveAuthenticationManagerResolver;
@@ -241,6 +250,83 @@ public class JwtIssuerReactiveAuthenticationManagerResolverTests {
 				() -> new JwtIssuerReactiveAuthenticationManagerResolver((ReactiveAuthenticationManagerResolver) null));
 	}
 
+	@Test
+	public void resolveWhenConcurrentRequestsForNewIssuerThenSharesConstruction() {
+		AtomicInteger constructions = new AtomicInteger();
+		Sinks.One<ReactiveAuthenticationManager> construction = Sinks.one();
+		TrustedIssuerJwtAuthenticationManagerResolver resolver = new TrustedIssuerJwtAuthenticationManagerResolver(
+				"trusted"::equals, (issuer) -> Mono.defer(() -> {
+					constructions.incrementAndGet();
+					return construction.asMono();
+				}));
+		ReactiveAuthenticationManager authenticationManager = mock(ReactiveAuthenticationManager.class);
+		StepVerifier.create(Mono.zip(resolver.resolve("trusted"), resolver.resolve("trusted")))
+				.then(() -> construction.tryEmitValue(authenticationManager))
+				.assertNext((both) -> {
+					assertThat(both.getT1()).isSameAs(authenticationManager);
+					assertThat(both.getT2()).isSameAs(authenticationManager);
+				})
+				.verifyComplete();
+		assertThat(constructions).hasValue(1);
+	}
+
+	@Test
+	public void resolveWhenMaximumSizeExceededThenLeastRecentlyUsedEvicted() {
+		Map<String, AtomicInteger> constructions = new ConcurrentHashMap<>();
+		TrustedIssuerJwtAuthenticationManagerResolver resolver = new TrustedIssuerJwtAuthenticationManagerResolver(
+				(issuer) -> true, (issuer) -> Mono.fromSupplier(() -> {
+					constructions.computeIfAbsent(issuer, (k) -> new AtomicInteger()).incrementAndGet();
+					return mock(ReactiveAuthenticationManager.class);
+				}));
+		resolver.setMaximumSize(2);
+		for (String issuer : Arrays.asList("one", "two", "one", "three", "one", "two")) {
+			resolver.resolve(issuer).block();
+		}
+		assertThat(constructions.get("one")).hasValue(1);
+		assertThat(constructions.get("two")).hasValue(2);
+		assertThat(constructions.get("three")).hasValue(1);
+	}
+
+	@Test
+	public void resolveWhenTimeToLiveElapsedThenConstructsAgainInBackground() {
+		Instant now = Instant.now();
+		AtomicInteger constructions = new AtomicInteger();
+		TrustedIssuerJwtAuthenticationManagerResolver resolver = new TrustedIssuerJwtAuthenticationManagerResolver(
+				"trusted"::equals, (issuer) -> Mono.fromSupplier(() -> {
+					constructions.incrementAndGet();
+					return mock(ReactiveAuthenticationManager.class);
+				}));
+		resolver.setTimeToLive(Duration.ofMinutes(10));
+		resolver.setClock(Clock.fixed(now, ZoneOffset.UTC));
+		ReactiveAuthenticationManager authenticationManager = resolver.resolve("trusted").block();
+		resolver.setClock(Clock.fixed(now.plus(Duration.ofMinutes(9)), ZoneOffset.UTC));
+		assertThat(resolver.resolve("trusted").block()).isSameAs(authenticationManager);
+		resolver.setClock(Clock.fixed(now.plus(Duration.ofMinutes(10)), ZoneOffset.UTC));
+		assertThat(resolver.resolve("trusted").block()).isSameAs(authenticationManager);
+		assertThat(resolver.resolve("trusted").block()).isNotSameAs(authenticationManager);
+		assertThat(constructions).hasValue(2);
+	}
+
+	@Test
+	public void prewarmWhenIssuersThenConstructsTrustedAndSkipsFailures() {
+		Map<String, AtomicInteger> constructions = new ConcurrentHashMap<>();
+		TrustedIssuerJwtAuthenticationManagerResolver resolver = new TrustedIssuerJwtAuthenticationManagerResolver(
+				(issuer) -> !issuer.equals("untrusted"), (issuer) -> Mono.fromSupplier(() -> {
+					constructions.computeIfAbsent(issuer, (k) -> new AtomicInteger()).incrementAndGet();
+					if (issuer.equals("unavailable")) {
+						throw new IllegalArgumentException("unavailable");
+					}
+					return mock(ReactiveAuthenticationManager.class);
+				}));
+		StepVerifier.create(resolver.prewarm(Arrays.asList("one", "untrusted", "unavailable", "two")))
+				.verifyComplete();
+		assertThat(constructions).containsOnlyKeys("one", "unavailable", "two");
+		resolver.resolve("one").block();
+		resolver.resolve("two").block();
+		assertThat(constructions.get("one")).hasValue(1);
+		assertThat(constructions.get("two")).hasValue(1);
+	}
+
 	private String jwt(String claim, String value) {
 		PlainJWT jwt = new PlainJWT(new JWTClaimsSet.Builder().claim(claim, value).build());
 		return jwt.serialize();
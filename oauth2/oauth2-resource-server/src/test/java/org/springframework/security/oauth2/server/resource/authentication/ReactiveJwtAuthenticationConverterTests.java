@@ -17,6 +17,8 @@
 package org.springframework.security.oauth2.server.resource.authentication;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.Test;
 import reactor.core.publisher.Flux;
@@ -51,6 +53,20 @@ public class ReactiveJwtAuthenticationConverterTests {
 				new SimpleGrantedAuthority("SCOPE_message:write"));
 	}
 
+	@Test
+	public void convertWhenAdaptedGrantedAuthoritiesConverterSetThenUsesNestedClaim() {
+		Jwt jwt = TestJwts.jwt().claim("realm_access", Map.of("roles", List.of("admin", "user"))).build();
+		JwtGrantedAuthoritiesConverter grantedAuthoritiesConverter = new JwtGrantedAuthoritiesConverter();
+		grantedAuthoritiesConverter.setAuthoritiesClaimPath("realm_access", "roles");
+		grantedAuthoritiesConverter.setAuthorityPrefix("ROLE_");
+		grantedAuthoritiesConverter.setAuthoritiesCacheSize(16);
+		this.jwtAuthenticationConverter.setJwtGrantedAuthoritiesConverter(
+				new ReactiveJwtGrantedAuthoritiesConverterAdapter(grantedAuthoritiesConverter));
+		AbstractAuthenticationToken authentication = this.jwtAuthenticationConverter.convert(jwt).block();
+		assertThat(authentication.getAuthorities()).containsExactly(new SimpleGrantedAuthority("ROLE_admin"),
+				new SimpleGrantedAuthority("ROLE_user"));
+	}
+
 	@Test
 	public void whenSettingNullGrantedAuthoritiesConverter() {
 		assertThatIllegalArgumentException()
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.server.resource.introspection;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.springframework.security.oauth2.core.OAuth2AuthenticatedPrincipal;
+import org.springframework.security.oauth2.core.OAuth2TokenIntrospectionClaimNames;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link CachingOpaqueTokenIntrospector}
+ */
+public class CachingOpaqueTokenIntrospectorTests {
+
+	private static final Instant NOW = Instant.parse("2023-01-01T00:00:00Z");
+
+	private final OpaqueTokenIntrospector delegate = mock(OpaqueTokenIntrospector.class);
+
+	@Test
+	public void constructorWhenNullDelegateThenException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new CachingOpaqueTokenIntrospector(null));
+	}
+
+	@Test
+	public void introspectWhenCachedThenDelegateCalledOnce() {
+		OAuth2AuthenticatedPrincipal principal = principal(NOW.plusSeconds(3600));
+		given(this.delegate.introspect("token")).willReturn(principal);
+		CachingOpaqueTokenIntrospector introspector = introspector(NOW);
+		assertThat(introspector.introspect("token")).isSameAs(principal);
+		assertThat(introspector.introspect("token")).isSameAs(principal);
+		verify(this.delegate).introspect("token");
+	}
+
+	@Test
+	public void introspectWhenDifferentTokensThenCachedSeparately() {
+		OAuth2AuthenticatedPrincipal one = principal(NOW.plusSeconds(3600));
+		OAuth2AuthenticatedPrincipal two = principal(NOW.plusSeconds(3600));
+		given(this.delegate.introspect("one")).willReturn(one);
+		given(this.delegate.introspect("two")).willReturn(two);
+		CachingOpaqueTokenIntrospector introspector = introspector(NOW);
+		assertThat(introspector.introspect("one")).isSameAs(one);
+		assertThat(introspector.introspect("two")).isSameAs(two);
+	}
+
+	@Test
+	public void introspectWhenTokenExpiredThenIntrospectsAgain() {
+		given(this.delegate.introspect("token")).willReturn(principal(NOW.plusSeconds(60)));
+		CachingOpaqueTokenIntrospector introspector = introspector(NOW);
+		introspector.introspect("token");
+		introspector.setClock(Clock.fixed(NOW.plusSeconds(59), ZoneOffset.UTC));
+		introspector.introspect("token");
+		verify(this.delegate).introspect("token");
+		introspector.setClock(Clock.fixed(NOW.plusSeconds(60), ZoneOffset.UTC));
+		introspector.introspect("token");
+		verify(this.delegate, times(2)).introspect("token");
+	}
+
+	@Test
+	public void introspectWhenMaximumTimeToLiveElapsedThenIntrospectsAgain() {
+		given(this.delegate.introspect("token")).willReturn(principal(NOW.plusSeconds(3600)));
+		CachingOpaqueTokenIntrospector introspector = introspector(NOW);
+		introspector.setMaximumTimeToLive(Duration.ofSeconds(30));
+		introspector.introspect("token");
+		introspector.setClock(Clock.fixed(NOW.plusSeconds(30), ZoneOffset.UTC));
+		introspector.introspect("token");
+		verify(this.delegate, times(2)).introspect("token");
+	}
+
+	@Test
+	public void introspectWhenBadTokenThenFailureCached() {
+		given(this.delegate.introspect("token")).willThrow(new BadOpaqueTokenException("Provided token isn't active"));
+		CachingOpaqueTokenIntrospector introspector = introspector(NOW);
+		introspector.setNegativeTimeToLive(Duration.ofSeconds(5));
+		assertThatExceptionOfType(BadOpaqueTokenException.class).isThrownBy(() -> introspector.introspect("token"));
+		assertThatExceptionOfType(BadOpaqueTokenException.class).isThrownBy(() -> introspector.introspect("token"))
+				.withMessage("Provided token isn't active");
+		verify(this.delegate).introspect("token");
+		introspector.setClock(Clock.fixed(NOW.plusSeconds(5), ZoneOffset.UTC));
+		assertThatExceptionOfType(BadOpaqueTokenException.class).isThrownBy(() -> introspector.introspect("token"));
+		verify(this.delegate, times(2)).introspect("token");
+	}
+
+	@Test
+	public void introspectWhenIntrospectionFailsThenNotCached() {
+		given(this.delegate.introspect("token")).willThrow(new OAuth2IntrospectionException("unavailable"));
+		CachingOpaqueTokenIntrospector introspector = introspector(NOW);
+		assertThatExceptionOfType(OAuth2IntrospectionException.class)
+				.isThrownBy(() -> introspector.introspect("token"));
+		assertThatExceptionOfType(OAuth2IntrospectionException.class)
+				.isThrownBy(() -> introspector.introspect("token"));
+		verify(this.delegate, times(2)).introspect("token");
+	}
+
+	@Test
+	public void introspectWhenMaximumSizeReachedThenEvicts() {
+		given(this.delegate.introspect(any())).willAnswer((invocation) -> principal(NOW.plusSeconds(3600)));
+		CachingOpaqueTokenIntrospector introspector = introspector(NOW);
+		introspector.setMaximumSize(1);
+		introspector.introspect("one");
+		introspector.introspect("two");
+		introspector.introspect("one");
+		verify(this.delegate, times(2)).introspect("one");
+	}
+
+	@Test
+	public void introspectWhenConcurrentThenDelegateCalledOnce() throws Exception {
+		OAuth2AuthenticatedPrincipal principal = principal(NOW.plusSeconds(3600));
+		CountDownLatch introspecting = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		willAnswer((invocation) -> {
+			introspecting.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return principal;
+		}).given(this.delegate).introspect("token");
+		ObservationHandler<Observation.Context> handler = mock(ObservationHandler.class);
+		given(handler.supportsContext(any())).willReturn(true);
+		List<Observation.Context> started = new CopyOnWriteArrayList<>();
+		willAnswer((invocation) -> started.add(invocation.getArgument(0))).given(handler).onStart(any());
+		ObservationRegistry registry = ObservationRegistry.create();
+		registry.observationConfig().observationHandler(handler);
+		CachingOpaqueTokenIntrospector introspector = introspector(NOW);
+		introspector.setObservationRegistry(registry);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<OAuth2AuthenticatedPrincipal> first = executor.submit(() -> introspector.introspect("token"));
+			assertThat(introspecting.await(5, TimeUnit.SECONDS)).isTrue();
+			Future<OAuth2AuthenticatedPrincipal> second = executor.submit(() -> introspector.introspect("token"));
+			while (started.stream().map((context) -> context.getLowCardinalityKeyValue("result"))
+				.noneMatch(KeyValue.of("result", "coalesced")::equals)) {
+				Thread.sleep(10);
+			}
+			release.countDown();
+			assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(principal);
+			assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(principal);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		verify(this.delegate).introspect("token");
+	}
+
+	@Test
+	public void setObservationRegistryWhenNullThenException() {
+		CachingOpaqueTokenIntrospector introspector = introspector(NOW);
+		assertThatIllegalArgumentException().isThrownBy(() -> introspector.setObservationRegistry(null));
+	}
+
+	@Test
+	public void introspectWhenObservationRegistryThenObservedWithResult() {
+		given(this.delegate.introspect("token")).willReturn(principal(NOW.plusSeconds(3600)));
+		given(this.delegate.introspect("bad")).willThrow(new BadOpaqueTokenException("bad"));
+		ObservationHandler<Observation.Context> handler = mock(ObservationHandler.class);
+		given(handler.supportsContext(any())).willReturn(true);
+		ObservationRegistry registry = ObservationRegistry.create();
+		registry.observationConfig().observationHandler(handler);
+		CachingOpaqueTokenIntrospector introspector = introspector(NOW);
+		introspector.setObservationRegistry(registry);
+		introspector.introspect("token");
+		introspector.introspect("token");
+		assertThatExceptionOfType(BadOpaqueTokenException.class).isThrownBy(() -> introspector.introspect("bad"));
+		assertThatExceptionOfType(BadOpaqueTokenException.class).isThrownBy(() -> introspector.introspect("bad"));
+		ArgumentCaptor<Observation.Context> captor = ArgumentCaptor.forClass(Observation.Context.class);
+		verify(handler, times(4)).onStop(captor.capture());
+		assertThat(captor.getAllValues()).extracting(Observation.Context::getName)
+				.containsOnly("spring.security.oauth2.introspection.cache");
+		assertThat(captor.getAllValues()).extracting((context) -> context.getLowCardinalityKeyValue("result"))
+				.containsExactly(KeyValue.of("result", "miss"), KeyValue.of("result", "hit"),
+						KeyValue.of("result", "miss"), KeyValue.of("result", "negative-hit"));
+		verify(handler, times(2)).onError(any());
+	}
+
+	private CachingOpaqueTokenIntrospector introspector(Instant now) {
+		CachingOpaqueTokenIntrospector introspector = new CachingOpaqueTokenIntrospector(this.delegate);
+		introspector.setClock(Clock.fixed(now, ZoneOffset.UTC));
+		return introspector;
+	}
+
+	private static OAuth2AuthenticatedPrincipal principal(Instant expiresAt) {
+		Map<String, Object> attributes = Map.of(OAuth2TokenIntrospectionClaimNames.ACTIVE, true,
+				OAuth2TokenIntrospectionClaimNames.EXP, expiresAt);
+		return new OAuth2IntrospectionAuthenticatedPrincipal(attributes, Collections.emptyList());
+	}
+
+}
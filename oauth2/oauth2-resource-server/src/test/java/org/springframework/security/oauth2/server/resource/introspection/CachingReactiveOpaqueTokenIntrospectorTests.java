@@ -0,0 +1,215 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.server.resource.introspection;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import org.springframework.security.oauth2.core.OAuth2AuthenticatedPrincipal;
+import org.springframework.security.oauth2.core.OAuth2TokenIntrospectionClaimNames;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link CachingReactiveOpaqueTokenIntrospector}
+ */
+public class CachingReactiveOpaqueTokenIntrospectorTests {
+
+	private static final Instant NOW = Instant.parse("2023-01-01T00:00:00Z");
+
+	private final AtomicInteger introspections = new AtomicInteger();
+
+	@Test
+	public void constructorWhenNullDelegateThenException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new CachingReactiveOpaqueTokenIntrospector(null));
+	}
+
+	@Test
+	public void introspectWhenCachedThenDelegateSubscribedOnce() {
+		OAuth2AuthenticatedPrincipal principal = principal(NOW.plusSeconds(3600));
+		CachingReactiveOpaqueTokenIntrospector introspector = introspector(Mono.just(principal));
+		StepVerifier.create(introspector.introspect("token")).expectNext(principal).verifyComplete();
+		StepVerifier.create(introspector.introspect("token")).expectNext(principal).verifyComplete();
+		assertThat(this.introspections).hasValue(1);
+	}
+
+	@Test
+	public void introspectWhenNotSubscribedThenDelegateNotCalled() {
+		CachingReactiveOpaqueTokenIntrospector introspector = introspector(
+				Mono.just(principal(NOW.plusSeconds(3600))));
+		introspector.introspect("token");
+		assertThat(this.introspections).hasValue(0);
+	}
+
+	@Test
+	public void introspectWhenTokenExpiredThenIntrospectsAgain() {
+		CachingReactiveOpaqueTokenIntrospector introspector = introspector(
+				Mono.just(principal(NOW.plusSeconds(60))));
+		introspector.introspect("token").block();
+		introspector.setClock(Clock.fixed(NOW.plusSeconds(60), ZoneOffset.UTC));
+		introspector.introspect("token").block();
+		assertThat(this.introspections).hasValue(2);
+	}
+
+	@Test
+	public void introspectWhenMaximumTimeToLiveElapsedThenIntrospectsAgain() {
+		CachingReactiveOpaqueTokenIntrospector introspector = introspector(
+				Mono.just(principal(NOW.plusSeconds(3600))));
+		introspector.setMaximumTimeToLive(Duration.ofSeconds(30));
+		introspector.introspect("token").block();
+		introspector.setClock(Clock.fixed(NOW.plusSeconds(29), ZoneOffset.UTC));
+		introspector.introspect("token").block();
+		assertThat(this.introspections).hasValue(1);
+		introspector.setClock(Clock.fixed(NOW.plusSeconds(30), ZoneOffset.UTC));
+		introspector.introspect("token").block();
+		assertThat(this.introspections).hasValue(2);
+	}
+
+	@Test
+	public void introspectWhenBadTokenThenFailureCached() {
+		CachingReactiveOpaqueTokenIntrospector introspector = introspector(
+				Mono.error(new BadOpaqueTokenException("Provided token isn't active")));
+		StepVerifier.create(introspector.introspect("token")).verifyError(BadOpaqueTokenException.class);
+		StepVerifier.create(introspector.introspect("token"))
+				.verifyErrorMatches((ex) -> ex instanceof BadOpaqueTokenException
+						&& "Provided token isn't active".equals(ex.getMessage()));
+		assertThat(this.introspections).hasValue(1);
+		introspector.setClock(Clock.fixed(NOW.plusSeconds(5), ZoneOffset.UTC));
+		StepVerifier.create(introspector.introspect("token")).verifyError(BadOpaqueTokenException.class);
+		assertThat(this.introspections).hasValue(2);
+	}
+
+	@Test
+	public void introspectWhenIntrospectionFailsThenNotCached() {
+		CachingReactiveOpaqueTokenIntrospector introspector = introspector(
+				Mono.error(new OAuth2IntrospectionException("unavailable")));
+		StepVerifier.create(introspector.introspect("token")).verifyError(OAuth2IntrospectionException.class);
+		StepVerifier.create(introspector.introspect("token")).verifyError(OAuth2IntrospectionException.class);
+		assertThat(this.introspections).hasValue(2);
+	}
+
+	@Test
+	public void introspectWhenConcurrentThenDelegateSubscribedOnce() {
+		OAuth2AuthenticatedPrincipal principal = principal(NOW.plusSeconds(3600));
+		Sinks.One<OAuth2AuthenticatedPrincipal> response = Sinks.one();
+		ObservationHandler<Observation.Context> handler = observationHandler();
+		CachingReactiveOpaqueTokenIntrospector introspector = introspector(response.asMono());
+		introspector.setObservationRegistry(observationRegistry(handler));
+		Mono<OAuth2AuthenticatedPrincipal> first = introspector.introspect("token");
+		Mono<OAuth2AuthenticatedPrincipal> second = introspector.introspect("token");
+		StepVerifier.create(Mono.zip(first, second))
+				.then(() -> response.tryEmitValue(principal))
+				.assertNext((both) -> {
+					assertThat(both.getT1()).isSameAs(principal);
+					assertThat(both.getT2()).isSameAs(principal);
+				})
+				.verifyComplete();
+		assertThat(this.introspections).hasValue(1);
+		ArgumentCaptor<Observation.Context> captor = ArgumentCaptor.forClass(Observation.Context.class);
+		verify(handler, times(2)).onStop(captor.capture());
+		assertThat(captor.getAllValues()).extracting((context) -> context.getLowCardinalityKeyValue("result"))
+				.containsExactlyInAnyOrder(KeyValue.of("result", "miss"), KeyValue.of("result", "coalesced"));
+	}
+
+	@Test
+	public void setObservationRegistryWhenNullThenException() {
+		CachingReactiveOpaqueTokenIntrospector introspector = introspector(Mono.empty());
+		assertThatIllegalArgumentException().isThrownBy(() -> introspector.setObservationRegistry(null));
+	}
+
+	@Test
+	public void introspectWhenObservationRegistryThenObservedWithResult() {
+		ObservationHandler<Observation.Context> handler = observationHandler();
+		CachingReactiveOpaqueTokenIntrospector introspector = introspector(
+				Mono.just(principal(NOW.plusSeconds(3600))));
+		introspector.setObservationRegistry(observationRegistry(handler));
+		introspector.introspect("token").block();
+		introspector.introspect("token").block();
+		ArgumentCaptor<Observation.Context> captor = ArgumentCaptor.forClass(Observation.Context.class);
+		verify(handler, times(2)).onStop(captor.capture());
+		assertThat(captor.getAllValues()).extracting(Observation.Context::getName)
+				.containsOnly("spring.security.oauth2.introspection.cache");
+		assertThat(captor.getAllValues()).extracting((context) -> context.getLowCardinalityKeyValue("result"))
+				.containsExactly(KeyValue.of("result", "miss"), KeyValue.of("result", "hit"));
+	}
+
+	@Test
+	public void introspectWhenObservationRegistryAndTokenInvalidThenObservedWithError() {
+		ObservationHandler<Observation.Context> handler = observationHandler();
+		CachingReactiveOpaqueTokenIntrospector introspector = introspector(
+				Mono.error(new BadOpaqueTokenException("bad")));
+		introspector.setObservationRegistry(observationRegistry(handler));
+		StepVerifier.create(introspector.introspect("token")).verifyError(BadOpaqueTokenException.class);
+		StepVerifier.create(introspector.introspect("token")).verifyError(BadOpaqueTokenException.class);
+		ArgumentCaptor<Observation.Context> captor = ArgumentCaptor.forClass(Observation.Context.class);
+		verify(handler, times(2)).onStop(captor.capture());
+		assertThat(captor.getAllValues()).extracting((context) -> context.getLowCardinalityKeyValue("result"))
+				.containsExactly(KeyValue.of("result", "miss"), KeyValue.of("result", "negative-hit"));
+		verify(handler, times(2)).onError(any());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ObservationHandler<Observation.Context> observationHandler() {
+		ObservationHandler<Observation.Context> handler = mock(ObservationHandler.class);
+		given(handler.supportsContext(any())).willReturn(true);
+		return handler;
+	}
+
+	private static ObservationRegistry observationRegistry(ObservationHandler<Observation.Context> handler) {
+		ObservationRegistry registry = ObservationRegistry.create();
+		registry.observationConfig().observationHandler(handler);
+		return registry;
+	}
+
+	private CachingReactiveOpaqueTokenIntrospector introspector(Mono<OAuth2AuthenticatedPrincipal> response) {
+		ReactiveOpaqueTokenIntrospector delegate = (token) -> Mono.defer(() -> {
+			this.introspections.incrementAndGet();
+			return response;
+		});
+		CachingReactiveOpaqueTokenIntrospector introspector = new CachingReactiveOpaqueTokenIntrospector(delegate);
+		introspector.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+		return introspector;
+	}
+
+	private static OAuth2AuthenticatedPrincipal principal(Instant expiresAt) {
+		Map<String, Object> attributes = Map.of(OAuth2TokenIntrospectionClaimNames.ACTIVE, true,
+				OAuth2TokenIntrospectionClaimNames.EXP, expiresAt);
+		return new OAuth2IntrospectionAuthenticatedPrincipal(attributes, Collections.emptyList());
+	}
+
+}
@@ -17,6 +17,7 @@
 package org.springframework.security.web;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -42,7 +43,9 @@ import org.springframework.security.web.firewall.RequestRejectedHandler;
 import org.springframework.security.web.firewall.StrictHttpFirewall;
 import org.springframework.security.web.util.ThrowableAnalyzer;
 import org.springframework.security.web.util.UrlUtils;
+import org.springframework.security.web.util.matcher.AnyRequestMatcher;
 import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcherIndex;
 import org.springframework.util.Assert;
 import org.springframework.web.filter.DelegatingFilterProxy;
 import org.springframework.web.filter.GenericFilterBean;
@@ -96,6 +99,10 @@ import org.springframework.web.filter.GenericFilterBean;
  * entered against the respective entry. The {@code FilterChainProxy} will not iterate
  * through the remainder of the map entries to locate additional {@code Filter}s.
  * <p>
+ * Applications with many filter chains can enable {@link #setIndexFilterChains(boolean)}
+ * so that chains whose {@link RequestMatcher} provably cannot match the request are not
+ * evaluated. The first matching chain is still the one that is used.
+ * <p>
  * {@code FilterChainProxy} respects normal handling of {@code Filter}s that elect not to
  * call
  * {@link jakarta.servlet.Filter#doFilter(jakarta.servlet.ServletRequest, jakarta.servlet.ServletResponse, jakarta.servlet.FilterChain)}
@@ -162,6 +169,10 @@ public class FilterChainProxy extends GenericFilterBean {
 
 	private FilterChainDecorator filterChainDecorator = new VirtualFilterChainDecorator();
 
+	private boolean indexFilterChains;
+
+	private RequestMatcherIndex filterChainIndex;
+
 	public FilterChainProxy() {
 	}
 
@@ -176,6 +187,37 @@ public class FilterChainProxy extends GenericFilterBean {
 	@Override
 	public void afterPropertiesSet() {
 		this.filterChainValidator.validate(this);
+		if (this.indexFilterChains && this.filterChains != null) {
+			List<RequestMatcher> requestMatchers = requestMatchers(this.filterChains);
+			this.filterChainIndex = RequestMatcherIndex.compile(requestMatchers);
+			if (logger.isDebugEnabled()) {
+				logger.debug(LogMessage.of(() -> describeFilterChainIndex(requestMatchers)));
+			}
+		}
+	}
+
+	private String describeFilterChainIndex(List<RequestMatcher> requestMatchers) {
+		List<RequestMatcher> unindexed = new ArrayList<>();
+		for (int i = 0; i < requestMatchers.size(); i++) {
+			if (!this.filterChainIndex.isIndexed(i)) {
+				unindexed.add(requestMatchers.get(i));
+			}
+		}
+		if (unindexed.isEmpty()) {
+			return "Indexed all " + requestMatchers.size() + " filter chains";
+		}
+		return "Indexed " + (requestMatchers.size() - unindexed.size()) + " of " + requestMatchers.size()
+				+ " filter chains, the filter chains of " + unindexed + " cannot be skipped";
+	}
+
+	private static List<RequestMatcher> requestMatchers(List<SecurityFilterChain> filterChains) {
+		List<RequestMatcher> requestMatchers = new ArrayList<>(filterChains.size());
+		for (SecurityFilterChain chain : filterChains) {
+			// chains without an exposed matcher are always evaluated
+			requestMatchers.add((chain instanceof DefaultSecurityFilterChain defaultChain)
+					? defaultChain.getRequestMatcher() : AnyRequestMatcher.INSTANCE);
+		}
+		return requestMatchers;
 	}
 
 	@Override
@@ -239,6 +281,9 @@ public class FilterChainProxy extends GenericFilterBean {
 	 * @return an ordered array of Filters defining the filter chain
 	 */
 	private List<Filter> getFilters(HttpServletRequest request) {
+		if (this.filterChainIndex != null) {
+			return getIndexedFilters(request);
+		}
 		int count = 0;
 		for (SecurityFilterChain chain : this.filterChains) {
 			if (logger.isTraceEnabled()) {
@@ -252,6 +297,31 @@ public class FilterChainProxy extends GenericFilterBean {
 		return null;
 	}
 
+	private List<Filter> getIndexedFilters(HttpServletRequest request) {
+		int[] candidates = this.filterChainIndex.getCandidates(request);
+		int size = this.filterChains.size();
+		for (int i = 0; i < candidates.length; i++) {
+			SecurityFilterChain chain = this.filterChains.get(candidates[i]);
+			if (logger.isTraceEnabled()) {
+				logger.trace(LogMessage.format("Trying to match request against %s (%d/%d)", chain, candidates[i] + 1,
+						size));
+			}
+			if (chain.matches(request)) {
+				logSkippedFilterChains(candidates[i] - i, candidates[i] + 1);
+				return chain.getFilters();
+			}
+		}
+		logSkippedFilterChains(size - candidates.length, size);
+		return null;
+	}
+
+	private void logSkippedFilterChains(int skipped, int total) {
+		if (logger.isTraceEnabled()) {
+			logger.trace(LogMessage.format("Skipped %d of %d filter chains using the filter chain index", skipped,
+					total));
+		}
+	}
+
 	/**
 	 * Convenience method, mainly for testing.
 	 * @param url the URL
@@ -304,6 +374,33 @@ public class FilterChainProxy extends GenericFilterBean {
 		this.filterChainDecorator = filterChainDecorator;
 	}
 
+	/**
+	 * Whether to compile the configured {@link SecurityFilterChain}s into an index when
+	 * {@link #afterPropertiesSet()} is invoked. The index is used to skip the chains that
+	 * cannot match a request without evaluating their {@link RequestMatcher}, while
+	 * preserving the order in which the remaining chains are tried.
+	 *
+	 * <p>
+	 * Only {@link DefaultSecurityFilterChain}s whose matchers are case-sensitive
+	 * {@link org.springframework.security.web.util.matcher.AntPathRequestMatcher}s (or
+	 * {@link org.springframework.security.web.util.matcher.OrRequestMatcher}s of them)
+	 * can be skipped, all other chains are evaluated in order as usual. The chains that
+	 * cannot be skipped are logged at debug level when the index is compiled, and the
+	 * number of chains skipped for a request is logged at trace level.
+	 *
+	 * <p>
+	 * When the {@code FilterChainProxy} is built by {@code WebSecurity}, use
+	 * {@code WebSecurity#indexFilterChains(boolean)} instead, since it invokes
+	 * {@link #afterPropertiesSet()} itself.
+	 * @param indexFilterChains whether to index the filter chains. Defaults to
+	 * {@code false}
+	 * @since 6.1
+	 * @see RequestMatcherIndex
+	 */
+	public void setIndexFilterChains(boolean indexFilterChains) {
+		this.indexFilterChains = indexFilterChains;
+	}
+
 	/**
 	 * Sets the "firewall" implementation which will be used to validate and wrap (or
 	 * potentially reject) the incoming requests. The default implementation should be
@@ -32,6 +32,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.security.web.util.matcher.RequestMatcher.MatchResult;
 import org.springframework.security.web.util.matcher.RequestMatcherEntry;
+import org.springframework.security.web.util.matcher.RequestMatcherIndex;
 import org.springframework.util.Assert;
 
 /**
@@ -50,10 +51,45 @@ public final class RequestMatcherDelegatingAuthorizationManager implements Autho
 
 	private final List<RequestMatcherEntry<AuthorizationManager<RequestAuthorizationContext>>> mappings;
 
+	private final RequestMatcherIndex index;
+
+	private final int[] positions;
+
 	private RequestMatcherDelegatingAuthorizationManager(
-			List<RequestMatcherEntry<AuthorizationManager<RequestAuthorizationContext>>> mappings) {
+			List<RequestMatcherEntry<AuthorizationManager<RequestAuthorizationContext>>> mappings, boolean indexed) {
 		Assert.notEmpty(mappings, "mappings cannot be empty");
 		this.mappings = mappings;
+		this.index = indexed ? RequestMatcherIndex.compile(requestMatchers(mappings)) : null;
+		this.positions = new int[mappings.size()];
+		for (int i = 0; i < this.positions.length; i++) {
+			this.positions[i] = i;
+		}
+		if (this.index != null && this.logger.isDebugEnabled()) {
+			this.logger.debug(LogMessage.of(this::describeIndex));
+		}
+	}
+
+	private static List<RequestMatcher> requestMatchers(
+			List<RequestMatcherEntry<AuthorizationManager<RequestAuthorizationContext>>> mappings) {
+		List<RequestMatcher> requestMatchers = new ArrayList<>(mappings.size());
+		for (RequestMatcherEntry<AuthorizationManager<RequestAuthorizationContext>> mapping : mappings) {
+			requestMatchers.add(mapping.getRequestMatcher());
+		}
+		return requestMatchers;
+	}
+
+	private String describeIndex() {
+		List<RequestMatcher> unindexed = new ArrayList<>();
+		for (int i = 0; i < this.mappings.size(); i++) {
+			if (!this.index.isIndexed(i)) {
+				unindexed.add(this.mappings.get(i).getRequestMatcher());
+			}
+		}
+		if (unindexed.isEmpty()) {
+			return "Indexed all " + this.mappings.size() + " mappings";
+		}
+		return "Indexed " + (this.mappings.size() - unindexed.size()) + " of " + this.mappings.size()
+				+ " mappings, the mappings of " + unindexed + " are evaluated for every request";
 	}
 
 	/**
@@ -70,8 +106,11 @@ public final class RequestMatcherDelegatingAuthorizationManager implements Autho
 		if (this.logger.isTraceEnabled()) {
 			this.logger.trace(LogMessage.format("Authorizing %s", request));
 		}
-		for (RequestMatcherEntry<AuthorizationManager<RequestAuthorizationContext>> mapping : this.mappings) {
-
+		// the index leaves out the mappings that cannot match, keeping their order
+		int[] positions = (this.index != null) ? this.index.getCandidates(request) : this.positions;
+		for (int position : positions) {
+			RequestMatcherEntry<AuthorizationManager<RequestAuthorizationContext>> mapping = this.mappings
+					.get(position);
 			RequestMatcher matcher = mapping.getRequestMatcher();
 			MatchResult matchResult = matcher.matcher(request);
 			if (matchResult.isMatch()) {
@@ -104,6 +143,8 @@ public final class RequestMatcherDelegatingAuthorizationManager implements Autho
 
 		private final List<RequestMatcherEntry<AuthorizationManager<RequestAuthorizationContext>>> mappings = new ArrayList<>();
 
+		private boolean indexed;
+
 		/**
 		 * Maps a {@link RequestMatcher} to an {@link AuthorizationManager}.
 		 * @param matcher the {@link RequestMatcher} to use
@@ -132,12 +173,45 @@ public final class RequestMatcherDelegatingAuthorizationManager implements Autho
 			return this;
 		}
 
+		/**
+		 * Whether to compile the mappings into a {@link RequestMatcherIndex} so that
+		 * mappings which cannot match a request are not evaluated. This keeps the cost of
+		 * each check roughly constant as the number of mappings grows, as long as most
+		 * of the {@link RequestMatcher}s can be indexed. Mappings are still evaluated in
+		 * the order they were added and the first match wins.
+		 *
+		 * <p>
+		 * Only case-sensitive
+		 * {@link org.springframework.security.web.util.matcher.AntPathRequestMatcher}s,
+		 * on their own or in an
+		 * {@link org.springframework.security.web.util.matcher.OrRequestMatcher}, can be
+		 * indexed. Any other {@link RequestMatcher} is evaluated for every request, and
+		 * the mappings that are not indexed are logged at debug level.
+		 *
+		 * <p>
+		 * In particular, {@code MvcRequestMatcher}s cannot be indexed, since whether they
+		 * match is decided by the Spring MVC handler mappings rather than by their
+		 * pattern. The {@code authorizeHttpRequests} DSL creates them by default when
+		 * Spring MVC is present, so indexing has no effect on such mappings unless they
+		 * are declared with
+		 * {@link org.springframework.security.web.util.matcher.AntPathRequestMatcher#antMatcher(String)}
+		 * instead.
+		 * @param indexed whether to index the mappings. Defaults to {@code false}
+		 * @return the {@link Builder} for further customizations
+		 * @since 6.1
+		 * @see RequestMatcherIndex
+		 */
+		public Builder indexed(boolean indexed) {
+			this.indexed = indexed;
+			return this;
+		}
+
 		/**
 		 * Creates a {@link RequestMatcherDelegatingAuthorizationManager} instance.
 		 * @return the {@link RequestMatcherDelegatingAuthorizationManager} instance
 		 */
 		public RequestMatcherDelegatingAuthorizationManager build() {
-			return new RequestMatcherDelegatingAuthorizationManager(this.mappings);
+			return new RequestMatcherDelegatingAuthorizationManager(this.mappings, this.indexed);
 		}
 
 	}
@@ -16,16 +16,19 @@
 
 package org.springframework.security.web.firewall;
 
+import java.util.AbstractSet;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Predicate;
-import java.util.regex.Pattern;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -116,19 +119,16 @@ public class StrictHttpFirewall implements HttpFirewall {
 	private static final List<String> FORBIDDEN_PARAGRAPH_SEPARATOR = Collections
 			.unmodifiableList(Arrays.asList("\u2029"));
 
-	private Set<String> encodedUrlBlocklist = new HashSet<>();
+	private final Blocklist encodedUrlBlocklist = new Blocklist();
 
-	private Set<String> decodedUrlBlocklist = new HashSet<>();
+	private final Blocklist decodedUrlBlocklist = new Blocklist();
 
 	private Set<String> allowedHttpMethods = createDefaultAllowedHttpMethods();
 
 	private Predicate<String> allowedHostnames = (hostname) -> true;
 
-	private static final Pattern ASSIGNED_AND_NOT_ISO_CONTROL_PATTERN = Pattern
-			.compile("[\\p{IsAssigned}&&[^\\p{IsControl}]]*");
-
 	private static final Predicate<String> ASSIGNED_AND_NOT_ISO_CONTROL_PREDICATE = (
-			s) -> ASSIGNED_AND_NOT_ISO_CONTROL_PATTERN.matcher(s).matches();
+			s) -> isAssignedAndNotIsoControl(s);
 
 	private Predicate<String> allowedHeaderNames = ASSIGNED_AND_NOT_ISO_CONTROL_PREDICATE;
 
@@ -530,6 +530,11 @@ public class StrictHttpFirewall implements HttpFirewall {
 	}
 
 	private void rejectedBlocklistedUrls(HttpServletRequest request) {
+		if (!this.encodedUrlBlocklist.matchesAny(request.getContextPath(), request.getRequestURI())
+				&& !this.decodedUrlBlocklist.matchesAny(request.getServletPath(), request.getPathInfo())) {
+			return;
+		}
+		// find the first blocklisted value in iteration order for the message
 		for (String forbidden : this.encodedUrlBlocklist) {
 			if (encodedUrlContains(request, forbidden)) {
 				throw new RequestRejectedException(
@@ -622,6 +627,32 @@ public class StrictHttpFirewall implements HttpFirewall {
 		return value != null && value.contains(contains);
 	}
 
+	/**
+	 * Equivalent to matching {@code [\p{IsAssigned}&&[^\p{IsControl}]]*} without the
+	 * overhead of a regular expression, checking ASCII characters with a simple range
+	 * check.
+	 */
+	private static boolean isAssignedAndNotIsoControl(String value) {
+		int length = value.length();
+		for (int i = 0; i < length;) {
+			char ch = value.charAt(i);
+			if (ch < '\u0080') {
+				if (ch < '\u0020' || ch == '\u007f') {
+					return false;
+				}
+				i++;
+				continue;
+			}
+			int codePoint = value.codePointAt(i);
+			int type = Character.getType(codePoint);
+			if (type == Character.UNASSIGNED || type == Character.CONTROL) {
+				return false;
+			}
+			i += Character.charCount(codePoint);
+		}
+		return true;
+	}
+
 	/**
 	 * Checks whether a path is normalized (doesn't contain path traversal sequences like
 	 * "./", "/../" or "/.")
@@ -681,6 +712,161 @@ public class StrictHttpFirewall implements HttpFirewall {
 		return getDecodedUrlBlocklist();
 	}
 
+	/**
+	 * A blocklist that compiles its values into a table indexed by their first character,
+	 * so that a value can be checked against every entry in a single pass without
+	 * allocating. The table is rebuilt whenever the blocklist is modified.
+	 */
+	private static final class Blocklist extends AbstractSet<String> {
+
+		private final Set<String> values = new HashSet<>();
+
+		private volatile CompiledBlocklist compiled;
+
+		boolean matchesAny(String first, String second) {
+			CompiledBlocklist compiled = this.compiled;
+			if (compiled == null) {
+				compiled = new CompiledBlocklist(this.values);
+				this.compiled = compiled;
+			}
+			return compiled.matches(first) || compiled.matches(second);
+		}
+
+		@Override
+		public boolean add(String value) {
+			this.compiled = null;
+			return this.values.add(value);
+		}
+
+		@Override
+		public boolean remove(Object value) {
+			this.compiled = null;
+			return this.values.remove(value);
+		}
+
+		@Override
+		public boolean contains(Object value) {
+			return this.values.contains(value);
+		}
+
+		@Override
+		public void clear() {
+			this.compiled = null;
+			this.values.clear();
+		}
+
+		@Override
+		public Iterator<String> iterator() {
+			Iterator<String> iterator = this.values.iterator();
+			return new Iterator<String>() {
+
+				@Override
+				public boolean hasNext() {
+					return iterator.hasNext();
+				}
+
+				@Override
+				public String next() {
+					return iterator.next();
+				}
+
+				@Override
+				public void remove() {
+					Blocklist.this.compiled = null;
+					iterator.remove();
+				}
+
+			};
+		}
+
+		@Override
+		public int size() {
+			return this.values.size();
+		}
+
+	}
+
+	private static final class CompiledBlocklist {
+
+		private static final String[] NONE = {};
+
+		private final String[][] ascii = new String[128][];
+
+		private final char[] nonAsciiFirstCharacters;
+
+		private final String[][] nonAscii;
+
+		private final boolean containsEmpty;
+
+		CompiledBlocklist(Set<String> values) {
+			Map<Character, List<String>> byFirstCharacter = new HashMap<>();
+			boolean containsEmpty = false;
+			for (String value : values) {
+				if (value == null) {
+					continue;
+				}
+				if (value.isEmpty()) {
+					containsEmpty = true;
+					continue;
+				}
+				byFirstCharacter.computeIfAbsent(value.charAt(0), (key) -> new ArrayList<>()).add(value);
+			}
+			List<Character> nonAsciiFirstCharacters = new ArrayList<>();
+			for (Map.Entry<Character, List<String>> entry : byFirstCharacter.entrySet()) {
+				char first = entry.getKey();
+				if (first < this.ascii.length) {
+					this.ascii[first] = entry.getValue().toArray(NONE);
+				}
+				else {
+					nonAsciiFirstCharacters.add(first);
+				}
+			}
+			Collections.sort(nonAsciiFirstCharacters);
+			this.nonAsciiFirstCharacters = new char[nonAsciiFirstCharacters.size()];
+			this.nonAscii = new String[nonAsciiFirstCharacters.size()][];
+			for (int i = 0; i < this.nonAscii.length; i++) {
+				char first = nonAsciiFirstCharacters.get(i);
+				this.nonAsciiFirstCharacters[i] = first;
+				this.nonAscii[i] = byFirstCharacter.get(first).toArray(NONE);
+			}
+			this.containsEmpty = containsEmpty;
+		}
+
+		boolean matches(String value) {
+			if (value == null) {
+				return false;
+			}
+			if (this.containsEmpty) {
+				return true;
+			}
+			int length = value.length();
+			for (int i = 0; i < length; i++) {
+				String[] candidates = candidates(value.charAt(i));
+				if (candidates == null) {
+					continue;
+				}
+				for (String candidate : candidates) {
+					if (value.startsWith(candidate, i)) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+
+		private String[] candidates(char ch) {
+			if (ch < this.ascii.length) {
+				return this.ascii[ch];
+			}
+			if (this.nonAscii.length == 0) {
+				return null;
+			}
+			int index = Arrays.binarySearch(this.nonAsciiFirstCharacters, ch);
+			return (index >= 0) ? this.nonAscii[index] : null;
+		}
+
+	}
+
 	/**
 	 * Strict {@link FirewalledRequest}.
 	 */
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.web.util.matcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * A compiled index over an ordered list of {@link RequestMatcher}s which narrows down the
+ * matchers that can possibly match a given request.
+ * <p>
+ * Case-sensitive {@link AntPathRequestMatcher}s, including those nested in an
+ * {@link OrRequestMatcher}, are indexed by their HTTP method and by the literal path
+ * segments that precede the first wildcard or URI variable of their pattern. Every other
+ * {@link RequestMatcher} cannot be indexed and is always returned as a candidate.
+ * <p>
+ * The index never decides whether a matcher matches, it only leaves out the ones that
+ * provably cannot. Candidates are returned in declaration order, so evaluating them in
+ * sequence keeps first-match-wins semantics.
+ *
+ * @since 6.1
+ */
+public final class RequestMatcherIndex {
+
+	private static final String PATH_SEPARATOR = "/";
+
+	private final int size;
+
+	private final int registrations;
+
+	private final Node root;
+
+	private final BitSet unindexed;
+
+	private RequestMatcherIndex(int size, int registrations, Node root, BitSet unindexed) {
+		this.size = size;
+		this.registrations = registrations;
+		this.root = root;
+		this.unindexed = unindexed;
+	}
+
+	/**
+	 * Compile the given matchers into a {@link RequestMatcherIndex}
+	 * @param requestMatchers the {@link RequestMatcher}s to index, in declaration order
+	 * @return the {@link RequestMatcherIndex}
+	 */
+	public static RequestMatcherIndex compile(List<? extends RequestMatcher> requestMatchers) {
+		Assert.notNull(requestMatchers, "requestMatchers cannot be null");
+		Assert.noNullElements(requestMatchers, "requestMatchers cannot contain null values");
+		Node root = new Node();
+		BitSet unindexed = new BitSet(requestMatchers.size());
+		int registrations = 0;
+		for (int i = 0; i < requestMatchers.size(); i++) {
+			registrations += register(root, requestMatchers.get(i), i, unindexed);
+		}
+		root.freeze();
+		return new RequestMatcherIndex(requestMatchers.size(), registrations, root, unindexed);
+	}
+
+	private static int register(Node root, RequestMatcher requestMatcher, int position, BitSet unindexed) {
+		if (requestMatcher instanceof OrRequestMatcher or) {
+			int registrations = 0;
+			for (RequestMatcher delegate : or.getRequestMatchers()) {
+				registrations += register(root, delegate, position, unindexed);
+			}
+			return registrations;
+		}
+		if (requestMatcher instanceof AntPathRequestMatcher ant) {
+			List<String> segments = literalSegments(ant);
+			if (segments != null) {
+				root.descend(segments).add(position, ant.getHttpMethod());
+				return 1;
+			}
+		}
+		root.add(position, null);
+		unindexed.set(position);
+		return 1;
+	}
+
+	private static List<String> literalSegments(AntPathRequestMatcher matcher) {
+		if (!matcher.isCaseSensitive() || matcher.getUrlPathHelper() != null) {
+			return null;
+		}
+		String pattern = matcher.getPattern();
+		if (!pattern.startsWith(PATH_SEPARATOR) || pattern.contains("//")) {
+			return null;
+		}
+		List<String> segments = new ArrayList<>();
+		for (String segment : StringUtils.tokenizeToStringArray(pattern, PATH_SEPARATOR, false, true)) {
+			if (segment.indexOf('*') != -1 || segment.indexOf('?') != -1 || segment.indexOf('{') != -1) {
+				break;
+			}
+			segments.add(segment);
+		}
+		return segments;
+	}
+
+	/**
+	 * Return the positions of the matchers that may match the given request, in ascending
+	 * order. Matchers whose position is not returned are guaranteed not to match.
+	 * @param request the request
+	 * @return the positions of the candidate matchers
+	 */
+	public int[] getCandidates(HttpServletRequest request) {
+		HttpMethod method = StringUtils.hasText(request.getMethod()) ? HttpMethod.valueOf(request.getMethod()) : null;
+		String path = getRequestPath(request);
+		if (path.contains("//")) {
+			// paths are tokenized when matching, so empty segments cannot be indexed
+			return all();
+		}
+		int[] candidates = new int[this.registrations];
+		Node node = this.root;
+		int count = node.collect(method, candidates, 0);
+		int start = 0;
+		while (node != null && start < path.length()) {
+			int end = path.indexOf('/', start);
+			if (end == -1) {
+				end = path.length();
+			}
+			if (end > start) {
+				node = node.child(path.substring(start, end));
+				if (node != null) {
+					count = node.collect(method, candidates, count);
+				}
+			}
+			start = end + 1;
+		}
+		return distinct(candidates, count);
+	}
+
+	/**
+	 * Whether the {@link RequestMatcher} at the given position is indexed. A matcher that
+	 * is not indexed, or that is an {@link OrRequestMatcher} of a matcher that is not
+	 * indexed, is a candidate for every request.
+	 * @param position the position of the {@link RequestMatcher}
+	 * @return {@code true} if the {@link RequestMatcher} is indexed
+	 */
+	public boolean isIndexed(int position) {
+		Assert.isTrue(position >= 0 && position < this.size, () -> "position must be less than " + this.size);
+		return !this.unindexed.get(position);
+	}
+
+	/**
+	 * The number of {@link RequestMatcher}s in this index
+	 * @return the number of {@link RequestMatcher}s
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	private int[] all() {
+		int[] all = new int[this.size];
+		for (int i = 0; i < all.length; i++) {
+			all[i] = i;
+		}
+		return all;
+	}
+
+	private static int[] distinct(int[] candidates, int count) {
+		if (count == 0) {
+			return new int[0];
+		}
+		Arrays.sort(candidates, 0, count);
+		int distinct = 1;
+		for (int i = 1; i < count; i++) {
+			if (candidates[i] != candidates[distinct - 1]) {
+				candidates[distinct++] = candidates[i];
+			}
+		}
+		return Arrays.copyOf(candidates, distinct);
+	}
+
+	private static String getRequestPath(HttpServletRequest request) {
+		String url = request.getServletPath();
+		String pathInfo = request.getPathInfo();
+		if (pathInfo != null) {
+			url = StringUtils.hasLength(url) ? url + pathInfo : pathInfo;
+		}
+		return (url != null) ? url : "";
+	}
+
+	@Override
+	public String toString() {
+		return "RequestMatcherIndex [size=" + this.size + "]";
+	}
+
+	private static final class Node {
+
+		private Map<String, Node> children = new HashMap<>();
+
+		private List<Integer> positionList = new ArrayList<>();
+
+		private List<HttpMethod> methodList = new ArrayList<>();
+
+		private int[] positions;
+
+		private HttpMethod[] methods;
+
+		private Node descend(List<String> segments) {
+			Node node = this;
+			for (String segment : segments) {
+				node = node.children.computeIfAbsent(segment, (key) -> new Node());
+			}
+			return node;
+		}
+
+		private void add(int position, HttpMethod method) {
+			this.positionList.add(position);
+			this.methodList.add(method);
+		}
+
+		private Node child(String segment) {
+			return this.children.get(segment);
+		}
+
+		private int collect(HttpMethod method, int[] candidates, int count) {
+			for (int i = 0; i < this.positions.length; i++) {
+				HttpMethod required = this.methods[i];
+				if (required == null || method == null || required.equals(method)) {
+					candidates[count++] = this.positions[i];
+				}
+			}
+			return count;
+		}
+
+		private void freeze() {
+			this.positions = this.positionList.stream().mapToInt(Integer::intValue).toArray();
+			this.methods = this.methodList.toArray(new HttpMethod[0]);
+			this.positionList = null;
+			this.methodList = null;
+			for (Node child : this.children.values()) {
+				child.freeze();
+			}
+			this.children = this.children.isEmpty() ? Collections.emptyMap() : this.children;
+		}
+
+	}
+
+}
@@ -48,6 +48,8 @@ import org.springframework.security.web.firewall.FirewalledRequest;
 import org.springframework.security.web.firewall.HttpFirewall;
 import org.springframework.security.web.firewall.RequestRejectedException;
 import org.springframework.security.web.firewall.RequestRejectedHandler;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.AnyRequestMatcher;
 import org.springframework.security.web.util.matcher.RequestMatcher;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -62,6 +64,7 @@ import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
 /**
@@ -430,6 +433,42 @@ public class FilterChainProxyTests {
 		assertFilterChainObservation(contexts.next(), "after", 3);
 	}
 
+	@Test
+	public void getFiltersWhenIndexFilterChainsThenFirstMatchingChainAndSkipsOthers() throws Exception {
+		Filter admin = mockFilter();
+		Filter api = mockFilter();
+		Filter custom = mockFilter();
+		Filter anyRequest = mockFilter();
+		given(this.matcher.matches(any())).willReturn(false);
+		FilterChainProxy fcp = new FilterChainProxy(Arrays.asList(
+				new DefaultSecurityFilterChain(AntPathRequestMatcher.antMatcher("/admin/**"), admin),
+				new DefaultSecurityFilterChain(AntPathRequestMatcher.antMatcher("/api/**"), api),
+				new DefaultSecurityFilterChain(this.matcher, custom),
+				new DefaultSecurityFilterChain(AnyRequestMatcher.INSTANCE, anyRequest)));
+		fcp.setIndexFilterChains(true);
+		fcp.afterPropertiesSet();
+		assertThat(fcp.getFilters("/api/users")).containsExactly(api);
+		verifyNoInteractions(this.matcher);
+		assertThat(fcp.getFilters("/other")).containsExactly(anyRequest);
+		verify(this.matcher).matches(any());
+	}
+
+	@Test
+	public void doFilterWhenIndexFilterChainsThenInvokesMatchingChain() throws Exception {
+		Filter api = mockFilter();
+		Filter anyRequest = mockFilter();
+		FilterChainProxy fcp = new FilterChainProxy(
+				Arrays.asList(new DefaultSecurityFilterChain(AntPathRequestMatcher.antMatcher("/api/**"), api),
+						new DefaultSecurityFilterChain(AnyRequestMatcher.INSTANCE, anyRequest)));
+		fcp.setIndexFilterChains(true);
+		fcp.afterPropertiesSet();
+		this.request.setServletPath("/api/users");
+		fcp.doFilter(this.request, this.response, this.chain);
+		verify(api).doFilter(any(), any(), any());
+		verifyNoInteractions(anyRequest);
+		verify(this.chain).doFilter(any(), any());
+	}
+
 	static void assertFilterChainObservation(Observation.Context context, String filterSection, int chainPosition) {
 		assertThat(context).isInstanceOf(ObservationFilterChainDecorator.FilterChainObservationContext.class);
 		ObservationFilterChainDecorator.FilterChainObservationContext filterChainObservationContext = (ObservationFilterChainDecorator.FilterChainObservationContext) context;
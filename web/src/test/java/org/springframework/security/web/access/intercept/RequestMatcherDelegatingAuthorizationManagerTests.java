@@ -20,12 +20,14 @@ import java.util.function.Supplier;
 
 import org.junit.jupiter.api.Test;
 
+import org.springframework.http.HttpMethod;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.security.authentication.TestingAuthenticationToken;
 import org.springframework.security.authorization.AuthorityAuthorizationManager;
 import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.web.servlet.util.matcher.MvcRequestMatcher;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.security.web.util.matcher.AnyRequestMatcher;
 import org.springframework.security.web.util.matcher.RequestMatcherEntry;
 
@@ -120,4 +122,46 @@ public class RequestMatcherDelegatingAuthorizationManagerTests {
 				.withMessage("mappingsConsumer cannot be null");
 	}
 
+	@Test
+	public void checkWhenIndexedThenDelegatesFirstMatchingManager() {
+		RequestMatcherDelegatingAuthorizationManager manager = RequestMatcherDelegatingAuthorizationManager.builder()
+				.add(AntPathRequestMatcher.antMatcher(HttpMethod.POST, "/api/**"),
+						(a, o) -> new AuthorizationDecision(false))
+				.add(AntPathRequestMatcher.antMatcher("/api/grant"), (a, o) -> new AuthorizationDecision(true))
+				.add(AntPathRequestMatcher.antMatcher("/api/**"), (a, o) -> new AuthorizationDecision(false))
+				.add(AnyRequestMatcher.INSTANCE, (a, o) -> new AuthorizationDecision(true)).indexed(true).build();
+		Supplier<Authentication> authentication = () -> new TestingAuthenticationToken("user", "password", "ROLE_USER");
+		assertThat(manager.check(authentication, request("GET", "/api/grant")).isGranted()).isTrue();
+		assertThat(manager.check(authentication, request("POST", "/api/grant")).isGranted()).isFalse();
+		assertThat(manager.check(authentication, request("GET", "/api/deny")).isGranted()).isFalse();
+		assertThat(manager.check(authentication, request("GET", "/other")).isGranted()).isTrue();
+	}
+
+	@Test
+	public void checkWhenIndexedThenPassesUriVariables() {
+		RequestMatcherDelegatingAuthorizationManager manager = RequestMatcherDelegatingAuthorizationManager.builder()
+				.add(AntPathRequestMatcher.antMatcher("/users/{username}"), (a, o) -> {
+					String username = o.getVariables().get("username");
+					return new AuthorizationDecision(a.get().getName().equals(username));
+				}).indexed(true).build();
+		Supplier<Authentication> authentication = () -> new TestingAuthenticationToken("user", "password", "ROLE_USER");
+		assertThat(manager.check(authentication, request("GET", "/users/user")).isGranted()).isTrue();
+		assertThat(manager.check(authentication, request("GET", "/users/other")).isGranted()).isFalse();
+	}
+
+	@Test
+	public void checkWhenIndexedAndNoMatchThenDenies() {
+		RequestMatcherDelegatingAuthorizationManager manager = RequestMatcherDelegatingAuthorizationManager.builder()
+				.add(AntPathRequestMatcher.antMatcher("/api/**"), (a, o) -> new AuthorizationDecision(true))
+				.indexed(true).build();
+		Supplier<Authentication> authentication = () -> new TestingAuthenticationToken("user", "password", "ROLE_USER");
+		assertThat(manager.check(authentication, request("GET", "/other")).isGranted()).isFalse();
+	}
+
+	private static MockHttpServletRequest request(String method, String path) {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+		request.setServletPath(path);
+		return request;
+	}
+
 }
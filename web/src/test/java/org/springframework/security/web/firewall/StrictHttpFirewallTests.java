@@ -701,6 +701,32 @@ public class StrictHttpFirewallTests {
 		this.firewall.getFirewalledRequest(request);
 	}
 
+	@Test
+	public void getFirewalledRequestWhenAddToEncodedUrlBlocklistThenException() {
+		this.request.setRequestURI("/admin/secret");
+		this.firewall.getFirewalledRequest(this.request);
+		this.firewall.getEncodedUrlBlocklist().add("secret");
+		assertThatExceptionOfType(RequestRejectedException.class)
+				.isThrownBy(() -> this.firewall.getFirewalledRequest(this.request))
+				.withMessageContaining("\"secret\"");
+	}
+
+	@Test
+	public void getFirewalledRequestWhenClearDecodedUrlBlocklistThenNoException() {
+		this.request.setPathInfo("/a/b;c");
+		assertThatExceptionOfType(RequestRejectedException.class)
+				.isThrownBy(() -> this.firewall.getFirewalledRequest(this.request));
+		this.firewall.getDecodedUrlBlocklist().clear();
+		this.firewall.getFirewalledRequest(this.request);
+	}
+
+	@Test
+	public void getFirewalledRequestWhenNonAsciiBlocklistedCharacterThenException() {
+		this.request.setPathInfo("/a\u2028b");
+		assertThatExceptionOfType(RequestRejectedException.class)
+				.isThrownBy(() -> this.firewall.getFirewalledRequest(this.request));
+	}
+
 	@Test
 	public void getFirewalledRequestWhenTrustedDomainThenNoException() {
 		this.request.addHeader("Host", "example.org");
@@ -788,6 +814,20 @@ public class StrictHttpFirewallTests {
 		assertThatExceptionOfType(RequestRejectedException.class).isThrownBy(() -> request.getHeader("Something"));
 	}
 
+	@Test
+	public void getFirewalledRequestGetHeaderWhenNonAsciiControlCharacterInHeaderValueThenException() {
+		this.request.addHeader("Something", "bad\u0085value");
+		HttpServletRequest request = this.firewall.getFirewalledRequest(this.request);
+		assertThatExceptionOfType(RequestRejectedException.class).isThrownBy(() -> request.getHeader("Something"));
+	}
+
+	@Test
+	public void getFirewalledRequestGetHeaderWhenNonAsciiCharactersInHeaderValueThenNoException() {
+		this.request.addHeader("Something", "caf\u00e9 \uD83D\uDE00");
+		HttpServletRequest request = this.firewall.getFirewalledRequest(this.request);
+		assertThat(request.getHeader("Something")).isEqualTo("caf\u00e9 \uD83D\uDE00");
+	}
+
 	@Test
 	public void getFirewalledRequestGetHeadersWhenControlCharacterInHeaderValueThenException() {
 		this.request.addHeader("Something", "bad\0value");
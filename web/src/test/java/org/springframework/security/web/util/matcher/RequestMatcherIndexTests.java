@@ -0,0 +1,138 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.web.util.matcher;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link RequestMatcherIndex}
+ */
+public class RequestMatcherIndexTests {
+
+	@Test
+	public void compileWhenNullThenException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> RequestMatcherIndex.compile(null));
+	}
+
+	@Test
+	public void compileWhenNullElementThenException() {
+		assertThatIllegalArgumentException()
+				.isThrownBy(() -> RequestMatcherIndex.compile(Collections.singletonList(null)));
+	}
+
+	@Test
+	public void getCandidatesWhenLiteralPrefixesThenOnlyPrefixMatches() {
+		RequestMatcherIndex index = RequestMatcherIndex.compile(Arrays.asList(new AntPathRequestMatcher("/api/**"),
+				new AntPathRequestMatcher("/admin/**"), new AntPathRequestMatcher("/api/users/{id}"),
+				new AntPathRequestMatcher("/**")));
+		assertThat(index.getCandidates(request("GET", "/api/users/1"))).containsExactly(0, 2, 3);
+		assertThat(index.getCandidates(request("GET", "/admin"))).containsExactly(1, 3);
+		assertThat(index.getCandidates(request("GET", "/other"))).containsExactly(3);
+	}
+
+	@Test
+	public void getCandidatesWhenWildcardSegmentThenIndexedByPrecedingSegments() {
+		RequestMatcherIndex index = RequestMatcherIndex.compile(Arrays.asList(new AntPathRequestMatcher("/api/v*/x"),
+				new AntPathRequestMatcher("/api/**/x"), new AntPathRequestMatcher("/*/x")));
+		assertThat(index.getCandidates(request("GET", "/api/v1/x"))).containsExactly(0, 1, 2);
+		assertThat(index.getCandidates(request("GET", "/web/x"))).containsExactly(2);
+	}
+
+	@Test
+	public void getCandidatesWhenHttpMethodThenFilteredByMethod() {
+		RequestMatcherIndex index = RequestMatcherIndex.compile(Arrays.asList(
+				new AntPathRequestMatcher("/api/**", "POST"), new AntPathRequestMatcher("/api/**", "GET")));
+		assertThat(index.getCandidates(request("GET", "/api/a"))).containsExactly(1);
+		assertThat(index.getCandidates(request("POST", "/api/a"))).containsExactly(0);
+		assertThat(index.getCandidates(request("", "/api/a"))).containsExactly(0, 1);
+	}
+
+	@Test
+	public void getCandidatesWhenNotIndexableThenAlwaysCandidate() {
+		RequestMatcher custom = mock(RequestMatcher.class);
+		RequestMatcherIndex index = RequestMatcherIndex.compile(Arrays.asList(new AntPathRequestMatcher("/api/**"),
+				custom, new AntPathRequestMatcher("/api/**", null, false), new RegexRequestMatcher("/api/.*", null)));
+		assertThat(index.getCandidates(request("GET", "/other"))).containsExactly(1, 2, 3);
+	}
+
+	@Test
+	public void getCandidatesWhenOrRequestMatcherThenIndexedByEachDelegate() {
+		List<RequestMatcher> matchers = Arrays.asList(
+				new OrRequestMatcher(new AntPathRequestMatcher("/a/**"), new AntPathRequestMatcher("/b/**")),
+				new AntPathRequestMatcher("/b/**"));
+		RequestMatcherIndex index = RequestMatcherIndex.compile(matchers);
+		assertThat(index.getCandidates(request("GET", "/a/1"))).containsExactly(0);
+		assertThat(index.getCandidates(request("GET", "/b/1"))).containsExactly(0, 1);
+		assertThat(index.getCandidates(request("GET", "/c/1"))).isEmpty();
+	}
+
+	@Test
+	public void getCandidatesWhenEmptySegmentsThenAllCandidates() {
+		RequestMatcherIndex index = RequestMatcherIndex
+				.compile(Arrays.asList(new AntPathRequestMatcher("/a/**"), new AntPathRequestMatcher("/b/{id}")));
+		assertThat(index.getCandidates(request("GET", "//b/1"))).containsExactly(0, 1);
+	}
+
+	@Test
+	public void isIndexedWhenMatcherCannotBeIndexedThenFalse() {
+		RequestMatcherIndex index = RequestMatcherIndex.compile(Arrays.asList(new AntPathRequestMatcher("/api/**"),
+				mock(RequestMatcher.class), new AntPathRequestMatcher("/admin/**", null, false),
+				new OrRequestMatcher(new AntPathRequestMatcher("/a/**"), mock(RequestMatcher.class))));
+		assertThat(index.isIndexed(0)).isTrue();
+		assertThat(index.isIndexed(1)).isFalse();
+		assertThat(index.isIndexed(2)).isFalse();
+		assertThat(index.isIndexed(3)).isFalse();
+	}
+
+	@Test
+	public void getCandidatesThenNeverSkipsAMatchingMatcher() {
+		List<RequestMatcher> matchers = Arrays.asList(new AntPathRequestMatcher("/api/**"),
+				new AntPathRequestMatcher("/api"), new AntPathRequestMatcher("/api/"),
+				new AntPathRequestMatcher("/api/*.json"), new AntPathRequestMatcher("/api/{id}/items"),
+				new AntPathRequestMatcher("**"), new AntPathRequestMatcher("/login", "POST"));
+		RequestMatcherIndex index = RequestMatcherIndex.compile(matchers);
+		for (String path : Arrays.asList("/", "", "/api", "/api/", "/api/a.json", "/api/1/items", "/apix", "/login",
+				"/login/")) {
+			for (String method : Arrays.asList("GET", "POST")) {
+				MockHttpServletRequest request = request(method, path);
+				int[] candidates = index.getCandidates(request);
+				for (int i = 0; i < matchers.size(); i++) {
+					if (matchers.get(i).matches(request)) {
+						assertThat(candidates).as(method + " " + path + " -> " + matchers.get(i)).contains(i);
+					}
+				}
+			}
+		}
+	}
+
+	private static MockHttpServletRequest request(String method, String path) {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+		request.setServletPath(path);
+		return request;
+	}
+
+}